@@ -0,0 +1,81 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe recorder of a bounded number of latencies, with exact percentiles.
+ */
+final class LatencyRecorder {
+
+    private final long[] latencies;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Create a recorder.
+     *
+     * @param capacity the maximum number of latencies; further latencies are dropped
+     */
+    LatencyRecorder(int capacity) {
+        this.latencies = new long[capacity];
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param latencyNanos the latency in nanoseconds
+     */
+    void record(long latencyNanos) {
+        int idx = count.getAndIncrement();
+        if (idx < latencies.length) {
+            latencies[idx] = latencyNanos;
+        }
+    }
+
+    /**
+     * The latencies recorded so far, sorted.
+     *
+     * @return the snapshot
+     */
+    Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(latencies, Math.min(count.get(), latencies.length));
+        Arrays.sort(sorted);
+        return new Snapshot(sorted);
+    }
+
+    static final class Snapshot {
+
+        private final long[] sorted;
+
+        private Snapshot(long[] sorted) {
+            this.sorted = sorted;
+        }
+
+        int getCount() {
+            return sorted.length;
+        }
+
+        /**
+         * The latency below or at which the given share of the recorded latencies lies (nearest-rank method).
+         *
+         * @param percentile the percentile, between {@literal 0} (exclusive) and {@literal 100} (inclusive)
+         * @return the latency in nanoseconds; {@literal 0} if no latency was recorded
+         */
+        long getPercentile(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            // the epsilon compensates rounding errors, e.g., 99.9 / 100 * 1000 is slightly above 999
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length - 1e-9);
+            return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+        }
+
+        long getMax() {
+            return sorted.length > 0 ? sorted[sorted.length - 1] : 0;
+        }
+
+        double getMean() {
+            return sorted.length > 0 ? Arrays.stream(sorted).average().getAsDouble() : 0;
+        }
+    }
+}
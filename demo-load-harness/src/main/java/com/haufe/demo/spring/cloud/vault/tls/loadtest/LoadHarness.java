@@ -0,0 +1,185 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * End-to-end load test of the demo services.
+ * <p>
+ * The harness generates {@link TestPki test PKI material}, starts the backend and the frontend with their
+ * {@code no-vault} profiles and this key material, so the frontend calls the backend over mutual TLS. It then sends
+ * requests to the frontend at a fixed rate, first to warm up the services, then to measure. The report holds the
+ * throughput, the latency percentiles, the TLS handshakes, and the allocation rates of the services in the measured
+ * phase.
+ */
+public class LoadHarness {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadHarness.class);
+
+    private final LoadHarnessOptions options;
+    private final File workDirectory;
+
+    public LoadHarness(LoadHarnessOptions options) {
+        this.options = options;
+        this.workDirectory = new File(options.getWorkDirectory());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadHarnessOptions options = LoadHarnessOptions.parse(args);
+        LoadHarness harness = new LoadHarness(options);
+        LoadReport report = harness.run();
+
+        File reportFile = options.getReport() != null ?
+            new File(options.getReport()) :
+            new File(harness.workDirectory, "report.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+        LOG.info("{} requests/s, latency p50 {} ms, p99 {} ms, p99.9 {} ms; report in {}",
+            String.format("%.1f", report.getThroughput()), report.getLatency().getP50(),
+            report.getLatency().getP99(), report.getLatency().getP999(), reportFile);
+    }
+
+    /**
+     * Start the services, run the load test, and stop the services.
+     *
+     * @return the report of the measured load phase
+     * @throws Exception the load test failed
+     */
+    public LoadReport run() throws Exception {
+        TestPki pki = TestPki.generate(new File(workDirectory, "pki"));
+        int backendPort = ServiceProcess.freePort();
+        int frontendPort = ServiceProcess.freePort();
+        List<String> jvmArgs = Arrays.asList(options.getJvmArgs().trim().split("\\s+"));
+
+        try (ServiceProcess backend = ServiceProcess.start("backend", options.getBackendJar(), jvmArgs,
+                backendArgs(pki, backendPort), workDirectory);
+             ServiceProcess frontend = ServiceProcess.start("frontend", options.getFrontendJar(), jvmArgs,
+                frontendArgs(pki, frontendPort, backendPort), workDirectory);
+             CloseableHttpAsyncClient client = createClient()) {
+
+            client.start();
+            URI target = URI.create("http://localhost:" + frontendPort + options.getPath());
+            awaitReady(client, target, backend, frontend);
+
+            OpenLoopLoadGenerator generator =
+                new OpenLoopLoadGenerator(client, target, options.getRate(), options.getRequestTimeout());
+            LOG.info("warming up for {} s at {} requests/s", options.getWarmup(), options.getRate());
+            generator.run(options.getWarmup(), new LatencyRecorder(generator.requestCount(options.getWarmup())));
+
+            Map<String, LoadReport.Handshakes> handshakesBefore = new HashMap<>(backend.getHandshakes());
+            handshakesBefore.putAll(frontend.getHandshakes());
+            long backendAllocatedBefore = backend.getAllocatedBytes();
+            long frontendAllocatedBefore = frontend.getAllocatedBytes();
+
+            LOG.info("measuring for {} s at {} requests/s", options.getDuration(), options.getRate());
+            LatencyRecorder recorder = new LatencyRecorder(generator.requestCount(options.getDuration()));
+            OpenLoopLoadGenerator.Result result = generator.run(options.getDuration(), recorder);
+
+            double elapsedSeconds = result.getElapsedNanos() / 1e9;
+            LoadReport report = new LoadReport();
+            report.setOptions(options);
+            report.setRequests(result.getSent());
+            report.setSucceeded(result.getSucceeded());
+            report.setFailed(result.getFailed());
+            report.setThroughput(result.getSucceeded() / elapsedSeconds);
+            report.setLatency(LoadReport.Latency.of(recorder.snapshot()));
+            report.getAllocationRate().put("backend",
+                (backend.getAllocatedBytes() - backendAllocatedBefore) / elapsedSeconds);
+            report.getAllocationRate().put("frontend",
+                (frontend.getAllocatedBytes() - frontendAllocatedBefore) / elapsedSeconds);
+
+            Map<String, LoadReport.Handshakes> handshakesAfter = new HashMap<>(backend.getHandshakes());
+            handshakesAfter.putAll(frontend.getHandshakes());
+            handshakesAfter.forEach((counter, after) ->
+                report.getHandshakes().put(counter, after.minus(handshakesBefore.get(counter))));
+            return report;
+        }
+    }
+
+    private List<String> backendArgs(TestPki pki, int port) {
+        // the property names match the ones in the application.yml, so they override its values
+        return new ArrayList<>(Arrays.asList(
+            "--spring.profiles.active=no-vault",
+            "--server.port=" + port,
+            "--server.ssl.enabled=true",
+            "--server.ssl.clientAuth=need",
+            "--server.ssl.keyStore=" + pki.getServerKeyStore().getAbsolutePath(),
+            "--server.ssl.keyStoreType=" + TestPki.STORE_TYPE,
+            "--server.ssl.keyStorePassword=" + pki.getPassword(),
+            "--server.ssl.keyAlias=" + TestPki.SERVER_ALIAS,
+            "--server.ssl.keyPassword=" + pki.getPassword(),
+            "--server.ssl.trustStore=" + pki.getTrustStore().getAbsolutePath(),
+            "--server.ssl.trustStoreType=" + TestPki.STORE_TYPE,
+            "--server.ssl.trustStorePassword=" + pki.getPassword(),
+            "--haufe.cloud.vault.pki.enabled=false"));
+    }
+
+    private List<String> frontendArgs(TestPki pki, int port, int backendPort) {
+        return new ArrayList<>(Arrays.asList(
+            "--spring.profiles.active=no-vault",
+            "--server.port=" + port,
+            "--haufe.demo.frontend.backendRootUri=https://localhost:" + backendPort + "/",
+            "--haufe.demo.frontend.backendCacheTtl.[/utc]=" + options.getBackendCacheTtl(),
+            "--haufe.client.ssl.vault.enabled=false",
+            "--haufe.client.ssl.filesystem.keyStore=" + pki.getClientKeyStore().getAbsolutePath(),
+            "--haufe.client.ssl.filesystem.trustStore=" + pki.getTrustStore().getAbsolutePath(),
+            "--haufe.client.ssl.filesystem.keyStorePassword=" + pki.getPassword(),
+            "--haufe.client.ssl.filesystem.trustStorePassword=" + pki.getPassword(),
+            "--haufe.client.ssl.filesystem.keyStoreType=" + TestPki.STORE_TYPE));
+    }
+
+    private CloseableHttpAsyncClient createClient() {
+        return HttpAsyncClients.custom()
+            .setMaxConnTotal(options.getMaxConnections())
+            .setMaxConnPerRoute(options.getMaxConnections())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(options.getRequestTimeout())
+                .setSocketTimeout(options.getRequestTimeout())
+                .setConnectionRequestTimeout(options.getRequestTimeout())
+                .build())
+            .build();
+    }
+
+    /**
+     * Wait until the frontend answers requests successfully, which requires the backend to be up as well.
+     */
+    private void awaitReady(CloseableHttpAsyncClient client, URI target, ServiceProcess... services)
+        throws InterruptedException {
+
+        LOG.info("waiting for {}", target);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getStartupTimeout());
+        while (System.nanoTime() < deadline) {
+            for (ServiceProcess service : services) {
+                service.checkAlive();
+            }
+            try {
+                HttpResponse response = client.execute(new HttpGet(target), null).get(5, TimeUnit.SECONDS);
+                if (response.getStatusLine().getStatusCode() == 200) {
+                    return;
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                // not started yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("the services did not start within " + options.getStartupTimeout() + " s");
+    }
+}
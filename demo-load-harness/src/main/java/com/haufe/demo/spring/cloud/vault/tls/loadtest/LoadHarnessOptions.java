@@ -0,0 +1,144 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import lombok.Data;
+
+/**
+ * The options of the {@link LoadHarness}, given on the command line as {@code --name=value}.
+ */
+@Data
+public class LoadHarnessOptions {
+
+    /**
+     * The executable JAR of the backend service.
+     */
+    private String backendJar;
+
+    /**
+     * The executable JAR of the frontend service.
+     */
+    private String frontendJar;
+
+    /**
+     * The directory for the generated key material, the logs of the services, and the report.
+     */
+    private String workDirectory = "build/load-harness";
+
+    /**
+     * The path of the report; default is {@code report.json} in the {@link #workDirectory}.
+     */
+    private String report;
+
+    /**
+     * The path of the frontend endpoint under load.
+     */
+    private String path = "/data";
+
+    /**
+     * The number of requests sent per second, independently of the response times. Default is 200.
+     */
+    private double rate = 200;
+
+    /**
+     * The time (in seconds) of the measured load phase. Default is 30 seconds.
+     */
+    private long duration = 30;
+
+    /**
+     * The time (in seconds) of the load phase before the measurement. Default is 10 seconds.
+     */
+    private long warmup = 10;
+
+    /**
+     * The maximum number of connections to the frontend. Default is 200.
+     */
+    private int maxConnections = 200;
+
+    /**
+     * The time (in milliseconds) after which a request counts as failed. Default is 10 seconds.
+     */
+    private int requestTimeout = 10000;
+
+    /**
+     * The time (in seconds) the services may take to start. Default is 3 minutes.
+     */
+    private long startupTimeout = 180;
+
+    /**
+     * The time (in milliseconds) the frontend caches backend responses. Default is {@literal 0}, i.e., every
+     * request is passed through to the backend.
+     */
+    private long backendCacheTtl = 0;
+
+    /**
+     * The JVM options of the services, separated by blanks.
+     */
+    private String jvmArgs = "-Xmx512m";
+
+    /**
+     * Parse the command line.
+     *
+     * @param args the options, each in the form {@code --name=value}
+     * @return the options
+     * @throws IllegalArgumentException an option is malformed or unknown
+     */
+    public static LoadHarnessOptions parse(String[] args) {
+        LoadHarnessOptions options = new LoadHarnessOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("expected an option --name=value, got " + arg);
+            }
+            options.set(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        if (options.getBackendJar() == null || options.getFrontendJar() == null) {
+            throw new IllegalArgumentException("the options --backendJar and --frontendJar are required");
+        }
+        return options;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "backendJar":
+                backendJar = value;
+                break;
+            case "frontendJar":
+                frontendJar = value;
+                break;
+            case "workDirectory":
+                workDirectory = value;
+                break;
+            case "report":
+                report = value;
+                break;
+            case "path":
+                path = value;
+                break;
+            case "rate":
+                rate = Double.parseDouble(value);
+                break;
+            case "duration":
+                duration = Long.parseLong(value);
+                break;
+            case "warmup":
+                warmup = Long.parseLong(value);
+                break;
+            case "maxConnections":
+                maxConnections = Integer.parseInt(value);
+                break;
+            case "requestTimeout":
+                requestTimeout = Integer.parseInt(value);
+                break;
+            case "startupTimeout":
+                startupTimeout = Long.parseLong(value);
+                break;
+            case "backendCacheTtl":
+                backendCacheTtl = Long.parseLong(value);
+                break;
+            case "jvmArgs":
+                jvmArgs = value;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option --" + name);
+        }
+    }
+}
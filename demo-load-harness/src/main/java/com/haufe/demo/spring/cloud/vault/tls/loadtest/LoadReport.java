@@ -0,0 +1,90 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of a load test, written as JSON.
+ */
+@Data
+public class LoadReport {
+
+    /**
+     * The options the load test ran with.
+     */
+    private LoadHarnessOptions options;
+
+    /**
+     * The number of requests sent in the measured load phase.
+     */
+    private long requests;
+
+    /**
+     * The number of requests answered with status 200.
+     */
+    private long succeeded;
+
+    /**
+     * The number of requests that failed, timed out, or were answered with a status other than 200.
+     */
+    private long failed;
+
+    /**
+     * The successful requests per second.
+     */
+    private double throughput;
+
+    /**
+     * The latencies (in milliseconds) of the successful requests.
+     */
+    private Latency latency;
+
+    /**
+     * The TLS handshakes in the measured load phase, per service and handshake counter.
+     */
+    private Map<String, Handshakes> handshakes = new LinkedHashMap<>();
+
+    /**
+     * The bytes allocated per second in the measured load phase, per service.
+     */
+    private Map<String, Double> allocationRate = new LinkedHashMap<>();
+
+    @Data
+    public static class Latency {
+        private double p50;
+        private double p99;
+        private double p999;
+        private double max;
+        private double mean;
+
+        static Latency of(LatencyRecorder.Snapshot snapshot) {
+            Latency latency = new Latency();
+            latency.setP50(toMillis(snapshot.getPercentile(50)));
+            latency.setP99(toMillis(snapshot.getPercentile(99)));
+            latency.setP999(toMillis(snapshot.getPercentile(99.9)));
+            latency.setMax(toMillis(snapshot.getMax()));
+            latency.setMean(toMillis(snapshot.getMean()));
+            return latency;
+        }
+
+        private static double toMillis(double nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Handshakes {
+        private long full;
+        private long resumed;
+
+        Handshakes minus(Handshakes before) {
+            return before == null ? this : new Handshakes(full - before.full, resumed - before.resumed);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate, independently of the response times of the service under test.
+ * <p>
+ * The latency of a request is measured from the time the request was scheduled for, not from the time it was
+ * actually sent; a stalled service thus shows up in the latencies of all requests that were due during the stall
+ * (no coordinated omission).
+ */
+final class OpenLoopLoadGenerator {
+
+    private final CloseableHttpAsyncClient client;
+    private final URI target;
+    private final double rate;
+    private final long requestTimeoutMillis;
+
+    /**
+     * Create a load generator.
+     *
+     * @param client               the started HTTP client
+     * @param target               the URI requested
+     * @param rate                 the number of requests per second
+     * @param requestTimeoutMillis the time (in milliseconds) to wait for outstanding requests at the end
+     */
+    OpenLoopLoadGenerator(CloseableHttpAsyncClient client, URI target, double rate, long requestTimeoutMillis) {
+        this.client = client;
+        this.target = target;
+        this.rate = rate;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    /**
+     * The number of requests sent in the given time.
+     *
+     * @param durationSeconds the duration of the load phase in seconds
+     * @return the number of requests
+     */
+    int requestCount(long durationSeconds) {
+        return (int) Math.ceil(durationSeconds * rate);
+    }
+
+    /**
+     * Send requests for the given time and wait for their responses.
+     *
+     * @param durationSeconds the duration of the load phase in seconds
+     * @param recorder        records the latencies of the successful requests
+     * @return the outcome of the load phase
+     * @throws InterruptedException interrupted while waiting
+     */
+    Result run(long durationSeconds, LatencyRecorder recorder) throws InterruptedException {
+        Result result = new Result();
+        int requests = requestCount(durationSeconds);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        long start = System.nanoTime();
+        for (int idx = 0; idx < requests; idx++) {
+            long scheduled = start + (long) (idx * intervalNanos);
+            long delay;
+            while ((delay = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            result.outstanding.incrementAndGet();
+            client.execute(new HttpGet(target), new Callback(scheduled, recorder, result));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+        while (result.outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    static final class Result {
+        private final AtomicLong outstanding = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private long elapsedNanos;
+
+        long getSent() {
+            return outstanding.get() + succeeded.get() + failed.get();
+        }
+
+        long getSucceeded() {
+            return succeeded.get();
+        }
+
+        /**
+         * The number of requests that failed, including the requests still outstanding at the end.
+         */
+        long getFailed() {
+            return failed.get() + outstanding.get();
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    private static final class Callback implements FutureCallback<HttpResponse> {
+        private final long scheduled;
+        private final LatencyRecorder recorder;
+        private final Result result;
+
+        private Callback(long scheduled, LatencyRecorder recorder, Result result) {
+            this.scheduled = scheduled;
+            this.recorder = recorder;
+            this.result = result;
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            if (response.getStatusLine().getStatusCode() == 200) {
+                recorder.record(System.nanoTime() - scheduled);
+                done(result.succeeded);
+            } else {
+                done(result.failed);
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            done(result.failed);
+        }
+
+        @Override
+        public void cancelled() {
+            done(result.failed);
+        }
+
+        private void done(AtomicLong counter) {
+            counter.incrementAndGet();
+            result.outstanding.decrementAndGet();
+        }
+    }
+}
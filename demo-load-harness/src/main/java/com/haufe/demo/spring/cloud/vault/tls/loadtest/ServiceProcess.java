@@ -0,0 +1,175 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A service under test, running as a Spring Boot application in a JVM of its own.
+ * <p>
+ * The JVM is started with a JMX agent bound to the loopback interface, which is used to read the allocation
+ * counters of the JVM and the TLS handshake counters of the application.
+ */
+final class ServiceProcess implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceProcess.class);
+
+    private static final String HANDSHAKE_COUNTERS = "*:type=TlsSessionStatistics,*";
+
+    private final String name;
+    private final Process process;
+    private final File log;
+    private final int jmxPort;
+    private JMXConnector jmxConnector;
+
+    private ServiceProcess(String name, Process process, File log, int jmxPort) {
+        this.name = name;
+        this.process = process;
+        this.log = log;
+        this.jmxPort = jmxPort;
+    }
+
+    /**
+     * Start a service.
+     *
+     * @param name          the name of the service, used for its log file
+     * @param jar           the executable JAR of the service
+     * @param jvmArgs       the JVM options
+     * @param appArgs       the application arguments, i.e., Spring Boot properties
+     * @param workDirectory the directory of the log file
+     * @return the running service
+     * @throws IOException the service could not be started
+     */
+    static ServiceProcess start(String name, String jar, List<String> jvmArgs, List<String> appArgs,
+                                File workDirectory) throws IOException {
+        int jmxPort = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmArgs);
+        command.addAll(Arrays.asList(
+            "-Dcom.sun.management.jmxremote.port=" + jmxPort,
+            "-Dcom.sun.management.jmxremote.rmi.port=" + jmxPort,
+            "-Dcom.sun.management.jmxremote.host=127.0.0.1",
+            "-Dcom.sun.management.jmxremote.authenticate=false",
+            "-Dcom.sun.management.jmxremote.ssl=false",
+            "-Djava.rmi.server.hostname=127.0.0.1",
+            "-jar", jar));
+        command.addAll(appArgs);
+
+        File log = new File(workDirectory, name + ".log");
+        LOG.info("starting {}, log in {}", name, log);
+        Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(log)
+            .start();
+        return new ServiceProcess(name, process, log, jmxPort);
+    }
+
+    /**
+     * Find a port that is currently not in use.
+     *
+     * @return the port
+     * @throws IOException no port is available
+     */
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Fail if the service is no longer running.
+     *
+     * @throws IllegalStateException the service terminated
+     */
+    void checkAlive() {
+        if (!process.isAlive()) {
+            throw new IllegalStateException(name + " terminated with exit code " + process.exitValue() +
+                ", see " + log);
+        }
+    }
+
+    /**
+     * The number of bytes allocated by the live threads of the service. Threads that terminated in the meantime
+     * are not accounted for, so the difference of two values is a lower bound of the bytes allocated in between.
+     *
+     * @return the allocated bytes
+     * @throws IOException the JMX agent of the service could not be accessed
+     */
+    long getAllocatedBytes() throws IOException {
+        com.sun.management.ThreadMXBean threads = ManagementFactory.newPlatformMXBeanProxy(jmx(),
+            ManagementFactory.THREAD_MXBEAN_NAME, com.sun.management.ThreadMXBean.class);
+        long allocated = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            allocated += Math.max(0, bytes);
+        }
+        return allocated;
+    }
+
+    /**
+     * The TLS handshake counters of the service, keyed by the name of the bean that holds them.
+     *
+     * @return the counters of full and resumed handshakes
+     * @throws IOException the JMX agent of the service could not be accessed
+     */
+    Map<String, LoadReport.Handshakes> getHandshakes() throws IOException {
+        Map<String, LoadReport.Handshakes> handshakes = new LinkedHashMap<>();
+        try {
+            for (ObjectName objectName : jmx().queryNames(new ObjectName(HANDSHAKE_COUNTERS), null)) {
+                handshakes.put(name + "/" + objectName.getKeyProperty("name"), new LoadReport.Handshakes(
+                    (Long) jmx().getAttribute(objectName, "FullHandshakes"),
+                    (Long) jmx().getAttribute(objectName, "ResumedHandshakes")));
+            }
+        } catch (JMException e) {
+            throw new IOException("cannot read the handshake counters of " + name, e);
+        }
+        return handshakes;
+    }
+
+    /**
+     * Stop the service. If the calling thread is interrupted while it waits for the service to stop, then the
+     * service is killed and the interrupt flag is restored.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (jmxConnector != null) {
+                jmxConnector.close();
+            }
+        } finally {
+            process.destroy();
+            try {
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private MBeanServerConnection jmx() throws IOException {
+        if (jmxConnector == null) {
+            jmxConnector = JMXConnectorFactory.connect(new JMXServiceURL(
+                "service:jmx:rmi:///jndi/rmi://127.0.0.1:" + jmxPort + "/jmxrmi"));
+        }
+        return jmxConnector.getMBeanServerConnection();
+    }
+}
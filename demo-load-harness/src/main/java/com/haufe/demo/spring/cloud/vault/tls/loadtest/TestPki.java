@@ -0,0 +1,133 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Throw-away key material for a load test: a CA, a server identity for the backend, a client identity for the
+ * frontend, and a trust store with the CA certificate. The key material is generated with the JDK's
+ * {@code keytool}.
+ */
+final class TestPki {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TestPki.class);
+
+    static final String SERVER_ALIAS = "backendkey";
+    static final String CLIENT_ALIAS = "frontendkey";
+    static final String STORE_TYPE = "JCEKS";
+
+    private static final String CA_ALIAS = "ca";
+    private static final String VALIDITY_DAYS = "2";
+
+    private final File directory;
+    private final String password = UUID.randomUUID().toString();
+
+    private TestPki(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Generate new key material.
+     *
+     * @param directory the directory the key and trust stores are written to
+     * @return the key material
+     * @throws IOException          the key material could not be generated
+     * @throws InterruptedException interrupted while waiting for {@code keytool}
+     */
+    static TestPki generate(File directory) throws IOException, InterruptedException {
+        Files.createDirectories(directory.toPath());
+        TestPki pki = new TestPki(directory);
+        for (File file : new File[]{pki.getCaKeyStore(), pki.getServerKeyStore(), pki.getClientKeyStore(),
+            pki.getTrustStore()}) {
+            Files.deleteIfExists(file.toPath());
+        }
+
+        LOG.info("generating test PKI material in {}", directory);
+        pki.keytool("-genkeypair", "-alias", CA_ALIAS, "-dname", "CN=load-harness-ca", "-ext", "bc:c",
+            "-keystore", pki.getCaKeyStore().getPath());
+        pki.keytool("-exportcert", "-rfc", "-alias", CA_ALIAS, "-keystore", pki.getCaKeyStore().getPath(),
+            "-file", pki.file("ca.pem").getPath());
+        pki.keytool("-importcert", "-noprompt", "-alias", CA_ALIAS, "-file", pki.file("ca.pem").getPath(),
+            "-keystore", pki.getTrustStore().getPath());
+
+        pki.issue(pki.getServerKeyStore(), SERVER_ALIAS, "CN=localhost", "san=dns:localhost,ip:127.0.0.1");
+        pki.issue(pki.getClientKeyStore(), CLIENT_ALIAS, "CN=demo-frontend", "eku=clientAuth");
+        return pki;
+    }
+
+    File getServerKeyStore() {
+        return file("backend-keystore.jceks");
+    }
+
+    File getClientKeyStore() {
+        return file("frontend-keystore.jceks");
+    }
+
+    File getTrustStore() {
+        return file("truststore.jceks");
+    }
+
+    /**
+     * The password of all key stores and keys.
+     *
+     * @return the password
+     */
+    String getPassword() {
+        return password;
+    }
+
+    private File getCaKeyStore() {
+        return file("ca.jceks");
+    }
+
+    private void issue(File keyStore, String alias, String distinguishedName, String extension)
+        throws IOException, InterruptedException {
+
+        File request = file(alias + ".csr");
+        File certificate = file(alias + ".pem");
+        keytool("-genkeypair", "-alias", alias, "-dname", distinguishedName, "-keystore", keyStore.getPath());
+        keytool("-certreq", "-alias", alias, "-keystore", keyStore.getPath(), "-file", request.getPath());
+        keytool("-gencert", "-rfc", "-alias", CA_ALIAS, "-keystore", getCaKeyStore().getPath(),
+            "-infile", request.getPath(), "-outfile", certificate.getPath(), "-ext", extension);
+        // the reply can only be imported if its issuer is known
+        keytool("-importcert", "-noprompt", "-alias", CA_ALIAS, "-file", file("ca.pem").getPath(),
+            "-keystore", keyStore.getPath());
+        keytool("-importcert", "-alias", alias, "-file", certificate.getPath(), "-keystore", keyStore.getPath());
+    }
+
+    private void keytool(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/keytool").getPath());
+        command.addAll(Arrays.asList(args));
+        command.addAll(Arrays.asList("-storetype", STORE_TYPE, "-storepass", password));
+        if ("-genkeypair".equals(args[0])) {
+            command.addAll(Arrays.asList("-keyalg", "RSA", "-keysize", "2048", "-keypass", password));
+        }
+        if ("-genkeypair".equals(args[0]) || "-gencert".equals(args[0])) {
+            command.addAll(Arrays.asList("-validity", VALIDITY_DAYS));
+        }
+
+        File output = file("keytool.log");
+        Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.appendTo(output))
+            .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool " + args[0] + " failed: " +
+                new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    private File file(String name) {
+        return new File(directory, name);
+    }
+}
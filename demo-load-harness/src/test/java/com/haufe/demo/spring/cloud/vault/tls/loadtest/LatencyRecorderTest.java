@@ -0,0 +1,48 @@
+package com.haufe.demo.spring.cloud.vault.tls.loadtest;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link LatencyRecorder}
+ */
+public class LatencyRecorderTest {
+
+    @Test
+    public void testThatPercentilesUseTheNearestRank() {
+        LatencyRecorder recorder = new LatencyRecorder(1000);
+        for (int latency = 1000; latency > 0; latency--) {
+            recorder.record(latency);
+        }
+
+        LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+        assertThat(snapshot.getCount(), is(1000));
+        assertThat(snapshot.getPercentile(50), is(500L));
+        assertThat(snapshot.getPercentile(99), is(990L));
+        assertThat(snapshot.getPercentile(99.9), is(999L));
+        assertThat(snapshot.getMax(), is(1000L));
+        assertThat(snapshot.getMean(), is(500.5));
+    }
+
+    @Test
+    public void testThatLatenciesBeyondTheCapacityAreDropped() {
+        LatencyRecorder recorder = new LatencyRecorder(2);
+        recorder.record(3);
+        recorder.record(1);
+        recorder.record(2);
+
+        LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+        assertThat(snapshot.getCount(), is(2));
+        assertThat(snapshot.getMax(), is(3L));
+    }
+
+    @Test
+    public void testThatAnEmptyRecorderReportsZero() {
+        LatencyRecorder.Snapshot snapshot = new LatencyRecorder(10).snapshot();
+
+        assertThat(snapshot.getPercentile(99), is(0L));
+        assertThat(snapshot.getMean(), is(0.0));
+    }
+}
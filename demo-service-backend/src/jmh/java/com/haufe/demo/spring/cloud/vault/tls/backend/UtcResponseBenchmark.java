@@ -0,0 +1,57 @@
+package com.haufe.demo.spring.cloud.vault.tls.backend;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the body of the {@code /utc} endpoint as produced by {@link DemoBackendController} (a map serialized by
+ * Jackson on each request) with the body written by {@link PreSerializedBackendController}.
+ * <p>
+ * Run with the {@code gc} profiler to compare the allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UtcResponseBenchmark {
+
+    private DemoBackendController demoBackendController;
+    private ObjectMapper objectMapper;
+    private PreSerializedJsonResponse utcResponse;
+
+    @Setup
+    public void setUp() {
+        demoBackendController = new DemoBackendController();
+        // configured like the mapper of Spring Boot's message converters
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        utcResponse = new PreSerializedJsonResponse(Clock.systemUTC(), 1000, objectMapper,
+                tickStart -> DemoBackendController.timeUTC(Instant.ofEpochMilli(tickStart)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        utcResponse.close();
+    }
+
+    @Benchmark
+    public byte[] serializedPerRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(demoBackendController.displayTimeUTC());
+    }
+
+    @Benchmark
+    public byte[] preSerialized() {
+        return utcResponse.currentBody();
+    }
+}
@@ -1,9 +1,11 @@
 package com.haufe.demo.spring.cloud.vault.tls.backend;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -12,9 +14,14 @@ import java.util.Map;
 
 /**
  * Spring MVC Controller for the demo backend application.
+ * <p>
+ * Active unless {@code haufe.demo.backend.preSerializedResponses} is {@literal true}; otherwise the
+ * {@link PreSerializedBackendController} serves the same endpoints.
  */
 @RestController
 @RequestMapping("/")
+@ConditionalOnProperty(prefix = "haufe.demo.backend", name = "preSerializedResponses", havingValue = "false",
+        matchIfMissing = true)
 public class DemoBackendController {
 
     private final ZoneId UTC_ZONE_ID = ZoneId.of("UTC");
@@ -22,7 +29,17 @@ public class DemoBackendController {
     @GetMapping(path = "/utc", produces = "application/json")
     public Map<String, Object> displayTimeUTC() {
         ZonedDateTime nowInUTC = ZonedDateTime.now(UTC_ZONE_ID);
-        String isoFormattedUTC = nowInUTC.format(DateTimeFormatter.ISO_INSTANT);
+        return timeUTC(nowInUTC.toInstant());
+    }
+
+    /**
+     * The body of the {@code /utc} endpoint.
+     *
+     * @param instant the time to report
+     * @return the ISO formatted time, keyed by {@code UTC}
+     */
+    static Map<String, Object> timeUTC(Instant instant) {
+        String isoFormattedUTC = DateTimeFormatter.ISO_INSTANT.format(instant);
         return Collections.singletonMap("UTC", isoFormattedUTC);
     }
 
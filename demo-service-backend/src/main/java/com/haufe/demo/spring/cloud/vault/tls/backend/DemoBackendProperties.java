@@ -0,0 +1,31 @@
+package com.haufe.demo.spring.cloud.vault.tls.backend;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the backend demo application
+ */
+@ConfigurationProperties("haufe.demo.backend")
+@Component
+@Data
+public class DemoBackendProperties {
+
+    /**
+     * Whether the time endpoint writes a {@link PreSerializedJsonResponse pre-serialized} body instead of
+     * serializing a response object on each request. The pre-serialized body reports the time with the resolution
+     * {@link #utcTick}, so it is opt-in. Default is {@literal false}.
+     *
+     * @see PreSerializedBackendController
+     */
+    private boolean preSerializedResponses = false;
+
+    /**
+     * The resolution (in milliseconds) of the time reported by the pre-serialized time endpoint, i.e., the interval
+     * in which its body is refreshed. Default is one second; the endpoint that serializes on each request reports
+     * milliseconds.
+     */
+    private long utcTick = 1000;
+
+}
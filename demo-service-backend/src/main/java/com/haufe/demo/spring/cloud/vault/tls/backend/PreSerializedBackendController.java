@@ -0,0 +1,45 @@
+package com.haufe.demo.spring.cloud.vault.tls.backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Spring MVC Controller for the demo backend application that writes {@link PreSerializedJsonResponse
+ * pre-serialized} response bodies.
+ * <p>
+ * Serves the same endpoints as {@link DemoBackendController}, but the reported time has the resolution
+ * {@code haufe.demo.backend.utcTick}. Active if {@code haufe.demo.backend.preSerializedResponses} is
+ * {@literal true}.
+ */
+@RestController
+@RequestMapping("/")
+@ConditionalOnProperty(prefix = "haufe.demo.backend", name = "preSerializedResponses", havingValue = "true")
+public class PreSerializedBackendController implements DisposableBean {
+
+    private final PreSerializedJsonResponse utcResponse;
+
+    public PreSerializedBackendController(DemoBackendProperties demoBackendProperties, ObjectMapper objectMapper) {
+        this.utcResponse = new PreSerializedJsonResponse(Clock.systemUTC(), demoBackendProperties.getUtcTick(),
+                objectMapper, tickStart -> DemoBackendController.timeUTC(Instant.ofEpochMilli(tickStart)));
+    }
+
+    @GetMapping(path = "/utc", produces = "application/json")
+    public void displayTimeUTC(HttpServletResponse response) throws IOException {
+        utcResponse.writeTo(response);
+    }
+
+    @Override
+    public void destroy() {
+        utcResponse.close();
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.haufe.demo.spring.cloud.vault.tls.backend;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * The JSON body of a small, frequently requested response whose content depends on the current clock tick only.
+ * <p>
+ * The body is serialized to UTF-8 once per tick (i.e., once per {@code tickMillis} milliseconds) and kept as a byte
+ * array; requests write this byte array to the response as is. A background ticker refreshes the body at the start
+ * of each tick, so requests neither allocate nor serialize. Should the ticker lag behind, the first request of a new
+ * tick refreshes the body itself, so a body is never served after its tick ended.
+ */
+public class PreSerializedJsonResponse implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PreSerializedJsonResponse.class);
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final ObjectMapper objectMapper;
+    private final LongFunction<Object> bodyForTick;
+    private final ScheduledExecutorService ticker;
+
+    private volatile Snapshot current;
+
+    /**
+     * Create a response and start its background ticker.
+     *
+     * @param clock        the clock the ticks are derived from
+     * @param tickMillis   the length (in milliseconds) of a tick, must be positive
+     * @param objectMapper the mapper that serializes the body
+     * @param bodyForTick  maps the start (in milliseconds since the epoch) of a tick to the object that is
+     *                     serialized as the body for this tick
+     */
+    public PreSerializedJsonResponse(Clock clock, long tickMillis, ObjectMapper objectMapper,
+                                     LongFunction<Object> bodyForTick) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        this.tickMillis = tickMillis;
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper must not be null");
+        this.bodyForTick = Objects.requireNonNull(bodyForTick, "bodyForTick must not be null");
+
+        long now = clock.millis();
+        this.current = serialize(now / tickMillis);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pre-serialized-response-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis - now % tickMillis, tickMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The serialized body for the current tick.
+     *
+     * @return the UTF-8 encoded JSON body; shared between callers, so it must not be modified
+     */
+    public byte[] currentBody() {
+        Snapshot snapshot = current;
+        long tick = clock.millis() / tickMillis;
+        if (snapshot.tick != tick) {
+            snapshot = refresh(tick);
+        }
+        return snapshot.body;
+    }
+
+    /**
+     * Write the body for the current tick, along with its content type and length, to the given response.
+     *
+     * @param response the response
+     * @throws IOException the body could not be written
+     */
+    public void writeTo(HttpServletResponse response) throws IOException {
+        byte[] body = currentBody();
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Stop the background ticker. The response remains usable, the body is then refreshed by requests.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            currentBody();
+        } catch (RuntimeException e) {
+            // keep ticking, requests will retry the serialization
+            LOG.warn("cannot refresh pre-serialized response", e);
+        }
+    }
+
+    private synchronized Snapshot refresh(long tick) {
+        Snapshot snapshot = current;
+        if (snapshot.tick < tick) {
+            snapshot = serialize(tick);
+            current = snapshot;
+        }
+        return snapshot;
+    }
+
+    private Snapshot serialize(long tick) {
+        try {
+            return new Snapshot(tick, objectMapper.writeValueAsBytes(bodyForTick.apply(tick * tickMillis)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("cannot serialize response body", e);
+        }
+    }
+
+    private static final class Snapshot {
+        private final long tick;
+        private final byte[] body;
+
+        private Snapshot(long tick, byte[] body) {
+            this.tick = tick;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.haufe.demo.spring.cloud.vault.tls.backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link PreSerializedJsonResponse}
+ */
+public class PreSerializedJsonResponseTest {
+
+    private final AtomicLong millis = new AtomicLong(1500000000250L);
+    private final AtomicInteger serializations = new AtomicInteger();
+    private PreSerializedJsonResponse response;
+
+    @After
+    public void tearDown() {
+        if (response != null) {
+            response.close();
+        }
+    }
+
+    @Test
+    public void testThatCurrentBodyIsSerializedOncePerTick() {
+        response = createResponse();
+
+        byte[] first = response.currentBody();
+        millis.addAndGet(500);
+        byte[] second = response.currentBody();
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(serializations.get(), is(1));
+        assertThat(new String(first, StandardCharsets.UTF_8), is("{\"UTC\":\"2017-07-14T02:40:00Z\"}"));
+    }
+
+    @Test
+    public void testThatCurrentBodyIsRefreshedInTheNextTick() {
+        response = createResponse();
+        response.close();
+
+        response.currentBody();
+        millis.addAndGet(750);
+        byte[] body = response.currentBody();
+
+        assertThat(serializations.get(), is(2));
+        assertThat(new String(body, StandardCharsets.UTF_8), is("{\"UTC\":\"2017-07-14T02:40:01Z\"}"));
+    }
+
+    private PreSerializedJsonResponse createResponse() {
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneId.of("UTC");
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(millis.get());
+            }
+        };
+        return new PreSerializedJsonResponse(clock, 1000, new ObjectMapper(), tickStart -> {
+            serializations.incrementAndGet();
+            return DemoBackendController.timeUTC(Instant.ofEpochMilli(tickStart));
+        });
+    }
+}
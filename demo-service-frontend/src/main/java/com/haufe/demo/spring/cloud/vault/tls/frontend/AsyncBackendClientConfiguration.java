@@ -0,0 +1,56 @@
+package com.haufe.demo.spring.cloud.vault.tls.frontend;
+
+import com.haufe.spring.cloud.vault.config.tls.PooledTLSHttpAsyncClientFactory;
+import com.haufe.spring.cloud.vault.config.tls.ServiceClientTLSProperties;
+import com.haufe.spring.cloud.vault.config.tls.TLSClientKeyManagers;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.util.DefaultUriTemplateHandler;
+
+/**
+ * Configuration of the non-blocking HTTP client for backend access.
+ * <p>
+ * The client runs on a few I/O dispatcher threads, so backend calls in flight do not occupy threads. It is created
+ * by the {@link PooledTLSHttpAsyncClientFactory}, so it uses the same {@link TLSClientKeyManagers} and pool settings
+ * ({@code haufe.client.ssl.pool}) as the blocking client and handles rotations of the client identity the same way.
+ */
+@Configuration
+public class AsyncBackendClientConfiguration {
+
+    /**
+     * The non-blocking HTTP client; closing it shuts down its I/O reactor and connection pool.
+     *
+     * @param serviceClientTLSProperties the properties with the prefix {@code haufe.client.ssl}
+     * @param tlsClientKeyManagers       the key and trust managers of the client connections
+     * @return the started HTTP client
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient backendAsyncHttpClient(ServiceClientTLSProperties serviceClientTLSProperties,
+                                                           TLSClientKeyManagers tlsClientKeyManagers) {
+        return new PooledTLSHttpAsyncClientFactory(serviceClientTLSProperties, tlsClientKeyManagers)
+                .createHttpAsyncClient();
+    }
+
+    /**
+     * The non-blocking REST template for backend access; relative URIs are resolved against
+     * {@code haufe.demo.frontend.backendRootUri}.
+     *
+     * @param backendAsyncHttpClient the non-blocking HTTP client
+     * @param frontentDemoProperties the frontend configuration
+     * @return the REST template
+     */
+    @Bean
+    public AsyncRestTemplate backendAsyncRestTemplate(CloseableHttpAsyncClient backendAsyncHttpClient,
+                                                      FrontentDemoProperties frontentDemoProperties) {
+        AsyncRestTemplate asyncRestTemplate =
+                new AsyncRestTemplate(new HttpComponentsAsyncClientHttpRequestFactory(backendAsyncHttpClient));
+
+        DefaultUriTemplateHandler uriTemplateHandler = new DefaultUriTemplateHandler();
+        uriTemplateHandler.setBaseUrl(frontentDemoProperties.getBackendRootUri());
+        asyncRestTemplate.setUriTemplateHandler(uriTemplateHandler);
+        return asyncRestTemplate;
+    }
+}
@@ -0,0 +1,180 @@
+package com.haufe.demo.spring.cloud.vault.tls.frontend;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight layer with a short-lived response cache in front of the backend {@link RestTemplate}.
+ * <p>
+ * Responses of backend paths with a {@link FrontentDemoProperties#getBackendCacheTtl() configured TTL} are cached
+ * for that TTL. While a backend call is in flight, identical requests wait for its result instead of calling the
+ * backend themselves. Failed calls are not cached; the waiting requests fail with the same exception. Paths without
+ * a TTL are passed through to the backend.
+ * <p>
+ * The counters of cache hits, misses, and coalesced requests are published by the actuator's {@code metrics}
+ * endpoint and, if JMX is enabled in the application context, as attributes of an MBean.
+ */
+@ManagedResource(description = "Backend response cache and request coalescing counters")
+public class CoalescingBackendClient implements PublicMetrics {
+
+    private final RestTemplate restTemplate;
+    private final FrontentDemoProperties frontentDemoProperties;
+    private final Cache<String, CachedResponse> responses;
+    private final ConcurrentMap<String, CompletableFuture<Object>> pendingCalls = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Create a client.
+     *
+     * @param restTemplate           the template for backend calls
+     * @param frontentDemoProperties the frontend configuration with the cache settings
+     */
+    public CoalescingBackendClient(RestTemplate restTemplate, FrontentDemoProperties frontentDemoProperties) {
+        this.restTemplate = restTemplate;
+        this.frontentDemoProperties = frontentDemoProperties;
+        long maxTtl = frontentDemoProperties.getBackendCacheTtl().values().stream()
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(1);
+        this.responses = CacheBuilder.newBuilder()
+                .maximumSize(frontentDemoProperties.getBackendCacheMaximumSize())
+                .expireAfterWrite(Math.max(1, maxTtl), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Retrieve a representation from the backend, from the cache, or from an identical call in flight.
+     *
+     * @param path         the backend path relative to the backend root URI
+     * @param responseType the type of the representation
+     * @param <T>          the type of the representation
+     * @return the representation
+     * @throws org.springframework.web.client.RestClientException the backend call failed
+     */
+    public <T> T getForObject(String path, Class<T> responseType) {
+        long ttl = frontentDemoProperties.getBackendCacheTtl().getOrDefault(path, 0L);
+        if (ttl <= 0) {
+            return restTemplate.getForObject(path, responseType);
+        }
+
+        String key = responseType.getName() + ' ' + path;
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null && cached.isValid()) {
+            hits.incrementAndGet();
+            return responseType.cast(cached.body);
+        }
+
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> callInFlight = pendingCalls.putIfAbsent(key, call);
+        if (callInFlight != null) {
+            coalesced.incrementAndGet();
+            return responseType.cast(join(callInFlight));
+        }
+
+        try {
+            // another call may have completed between the cache lookup and taking over the call
+            cached = responses.getIfPresent(key);
+            if (cached != null && cached.isValid()) {
+                hits.incrementAndGet();
+                call.complete(cached.body);
+                return responseType.cast(cached.body);
+            }
+
+            misses.incrementAndGet();
+            T body = restTemplate.getForObject(path, responseType);
+            responses.put(key, new CachedResponse(body, System.currentTimeMillis() + ttl));
+            call.complete(body);
+            return body;
+        } catch (Throwable e) {
+            // waiters must never be left blocked, whatever the backend call threw
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingCalls.remove(key, call);
+        }
+    }
+
+    /**
+     * The number of requests answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    @ManagedAttribute
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of requests that called the backend.
+     *
+     * @return the number of cache misses
+     */
+    @ManagedAttribute
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The number of requests that shared the result of another request's backend call.
+     *
+     * @return the number of coalesced requests
+     */
+    @ManagedAttribute
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("backend.cache.hits", getHits()),
+                new Metric<>("backend.cache.misses", getMisses()),
+                new Metric<>("backend.cache.coalesced", getCoalesced()));
+    }
+
+    private static Object join(CompletableFuture<Object> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class CachedResponse {
+
+        private final Object body;
+        private final long expires;
+
+        CachedResponse(Object body, long expires) {
+            this.body = body;
+            this.expires = expires;
+        }
+
+        boolean isValid() {
+            return System.currentTimeMillis() < expires;
+        }
+    }
+}
@@ -2,12 +2,11 @@ package com.haufe.demo.spring.cloud.vault.tls.frontend;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.Collections;
 import java.util.Map;
@@ -19,22 +18,39 @@ import java.util.Map;
 @RequestMapping("/")
 public class DemoFrontendController {
 
-    private final RestTemplate restTemplate;
+    private final CoalescingBackendClient backendClient;
+    private final AsyncRestTemplate asyncRestTemplate;
 
 
-    public DemoFrontendController(RestTemplateBuilder builder,
-                                  FrontentDemoProperties frontentDemoProperties,
-                                  ClientHttpRequestFactory clientHttpRequestFactory) {
-        RestTemplateBuilder backendTemplateBuilder = builder.rootUri(frontentDemoProperties.getBackendRootUri());
-
-        this.restTemplate = backendTemplateBuilder.build();
-        this.restTemplate.setRequestFactory(clientHttpRequestFactory);
+    public DemoFrontendController(CoalescingBackendClient backendClient,
+                                  AsyncRestTemplate backendAsyncRestTemplate) {
+        this.backendClient = backendClient;
+        this.asyncRestTemplate = backendAsyncRestTemplate;
     }
 
     @GetMapping(path = "/data", produces = "application/json")
     public Map<String, Object> displayTimeUTC() {
-        BackendUTC backendUTC = restTemplate.getForObject("/utc", BackendUTC.class);
+        BackendUTC backendUTC = backendClient.getForObject("/utc", BackendUTC.class);
+
+        return toData(backendUTC);
+    }
+
+    /**
+     * Non-blocking variant of {@link #displayTimeUTC()}: the worker thread is released while the backend call is
+     * in flight, the response is completed by the HTTP client's I/O dispatcher.
+     *
+     * @return the pending response
+     */
+    @GetMapping(path = "/data/async", produces = "application/json")
+    public DeferredResult<Map<String, Object>> displayTimeUTCAsync() {
+        DeferredResult<Map<String, Object>> result = new DeferredResult<>();
+        asyncRestTemplate.getForEntity("/utc", BackendUTC.class).addCallback(
+                response -> result.setResult(toData(response.getBody())),
+                result::setErrorResult);
+        return result;
+    }
 
+    private static Map<String, Object> toData(BackendUTC backendUTC) {
         return Collections.singletonMap("data", "Received from backend: " + backendUTC.getUtc());
     }
 
@@ -5,6 +5,10 @@ import org.hibernate.validator.constraints.NotEmpty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration properties for the frontend demo application
  */
@@ -20,4 +24,17 @@ public class FrontentDemoProperties {
     @NotEmpty
     private String backendRootUri = "http://localhost:8080/";
 
+    /**
+     * The time (in milliseconds) responses of the backend are cached, per backend path. Responses of paths without
+     * an entry are not cached. Default is one second for {@code /utc}.
+     *
+     * @see CoalescingBackendClient
+     */
+    private Map<String, Long> backendCacheTtl = new HashMap<>(Collections.singletonMap("/utc", 1000L));
+
+    /**
+     * The maximum number of cached backend responses. Default is 1000.
+     */
+    private long backendCacheMaximumSize = 1000;
+
 }
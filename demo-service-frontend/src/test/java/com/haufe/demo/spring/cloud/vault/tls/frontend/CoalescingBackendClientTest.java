@@ -0,0 +1,128 @@
+package com.haufe.demo.spring.cloud.vault.tls.frontend;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link CoalescingBackendClient}
+ */
+public class CoalescingBackendClientTest {
+
+    private RestTemplate restTemplate;
+    private FrontentDemoProperties frontentDemoProperties;
+
+    @Before
+    public void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        frontentDemoProperties = new FrontentDemoProperties();
+        frontentDemoProperties.getBackendCacheTtl().put("/utc", 60000L);
+    }
+
+    @Test
+    public void testThatCachedResponseIsReusedWithinTtl() {
+        when(restTemplate.getForObject("/utc", String.class)).thenReturn("now");
+        CoalescingBackendClient backendClient = new CoalescingBackendClient(restTemplate, frontentDemoProperties);
+
+        assertThat(backendClient.getForObject("/utc", String.class), equalTo("now"));
+        assertThat(backendClient.getForObject("/utc", String.class), equalTo("now"));
+
+        verify(restTemplate, times(1)).getForObject("/utc", String.class);
+        assertThat(backendClient.getMisses(), is(1L));
+        assertThat(backendClient.getHits(), is(1L));
+        assertThat(backendClient.metrics(), hasItem(hasProperty("name", equalTo("backend.cache.hits"))));
+        assertThat(backendClient.metrics().stream()
+                .filter(metric -> metric.getName().equals("backend.cache.misses"))
+                .findFirst().get().getValue(), equalTo((Number) 1L));
+    }
+
+    @Test
+    public void testThatPathsWithoutTtlAreNotCached() {
+        when(restTemplate.getForObject("/other", String.class)).thenReturn("value");
+        CoalescingBackendClient backendClient = new CoalescingBackendClient(restTemplate, frontentDemoProperties);
+
+        backendClient.getForObject("/other", String.class);
+        backendClient.getForObject("/other", String.class);
+
+        verify(restTemplate, times(2)).getForObject("/other", String.class);
+    }
+
+    @Test
+    public void testThatConcurrentRequestsShareOneBackendCall() throws Exception {
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        when(restTemplate.getForObject("/utc", String.class)).thenAnswer(invocation -> {
+            callStarted.countDown();
+            releaseCall.await(5, TimeUnit.SECONDS);
+            return "now";
+        });
+        CoalescingBackendClient backendClient = new CoalescingBackendClient(restTemplate, frontentDemoProperties);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> backendClient.getForObject("/utc", String.class));
+            callStarted.await(5, TimeUnit.SECONDS);
+            Future<String> follower = executor.submit(() -> backendClient.getForObject("/utc", String.class));
+            while (backendClient.getCoalesced() == 0) {
+                Thread.sleep(10);
+            }
+            releaseCall.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS), equalTo("now"));
+            assertThat(follower.get(5, TimeUnit.SECONDS), equalTo("now"));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(restTemplate, times(1)).getForObject("/utc", String.class);
+        assertThat(backendClient.getCoalesced(), is(1L));
+    }
+
+    @Test
+    public void testThatCoalescedRequestsFailWhenTheBackendCallThrowsAnError() throws Exception {
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        when(restTemplate.getForObject("/utc", String.class)).thenAnswer(invocation -> {
+            callStarted.countDown();
+            releaseCall.await(5, TimeUnit.SECONDS);
+            throw new AssertionError("backend failed");
+        });
+        CoalescingBackendClient backendClient = new CoalescingBackendClient(restTemplate, frontentDemoProperties);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> backendClient.getForObject("/utc", String.class));
+            callStarted.await(5, TimeUnit.SECONDS);
+            Future<String> follower = executor.submit(() -> backendClient.getForObject("/utc", String.class));
+            while (backendClient.getCoalesced() == 0) {
+                Thread.sleep(10);
+            }
+            releaseCall.countDown();
+
+            assertThat(causeOf(leader), instanceOf(AssertionError.class));
+            assertThat(causeOf(follower), instanceOf(AssertionError.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Throwable causeOf(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            throw new AssertionError("call did not fail");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
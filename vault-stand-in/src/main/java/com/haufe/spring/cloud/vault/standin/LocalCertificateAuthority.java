@@ -0,0 +1,307 @@
+package com.haufe.spring.cloud.vault.standin;
+
+import com.google.common.net.InetAddresses;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.CertIOException;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A certificate authority that issues certificates the way the PKI backend of a vault does.
+ * <p>
+ * The CA has an RSA key. The certificates it issues have RSA or EC keys; it either generates the key pair of a
+ * certificate itself (like the vault's {@code issue} endpoint) or certifies a given public key (like the vault's
+ * {@code sign} endpoint).
+ * <p>
+ * The CA certificate is self-signed; issued certificates are valid for server and client authentication, carry
+ * the common name and the alternative names as subject alternative names, and are backdated by
+ * {@link #BACKDATE 30 seconds} to tolerate clock skew, just like the certificates of the vault.
+ */
+public class LocalCertificateAuthority {
+
+    /**
+     * The vault backdates the start of the validity of issued certificates by this duration.
+     */
+    static final Duration BACKDATE = Duration.ofSeconds(30);
+
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+
+    private final SecureRandom random = new SecureRandom();
+    private final int keySize;
+    private final KeyPair caKeyPair;
+    private final X509Certificate caCertificate;
+
+    /**
+     * Create a certificate authority with a new key pair and a self-signed certificate.
+     *
+     * @param name      the common name of the CA, must not be {@literal null}
+     * @param notBefore the start of the validity of the CA certificate, must not be {@literal null}
+     * @param validity  the validity of the CA certificate, must not be {@literal null}
+     * @param keySize   the size (in bits) of the RSA key of the CA; also the default size of the keys of issued
+     *                  certificates
+     * @throws GeneralSecurityException the key pair or the certificate cannot be created
+     */
+    public LocalCertificateAuthority(String name, Instant notBefore, Duration validity, int keySize)
+        throws GeneralSecurityException {
+
+        this.keySize = keySize;
+        this.caKeyPair = generateKeyPair("rsa", keySize);
+
+        X500Name caName = new X500Name("CN=" + name);
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(caName, randomSerialNumber(),
+            Date.from(notBefore), Date.from(notBefore.plus(validity)), caName, caKeyPair.getPublic());
+        try {
+            JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true))
+                .addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign))
+                .addExtension(Extension.subjectKeyIdentifier, false,
+                    extensionUtils.createSubjectKeyIdentifier(caKeyPair.getPublic()));
+        } catch (CertIOException e) {
+            throw new GeneralSecurityException("cannot create the extensions of the CA certificate", e);
+        }
+        this.caCertificate = signWithCaKey(builder);
+    }
+
+    /**
+     * The certificate of this CA.
+     *
+     * @return the self-signed certificate, never {@literal null}
+     */
+    public X509Certificate getCertificate() {
+        return caCertificate;
+    }
+
+    /**
+     * Issue a certificate with a new RSA key pair of the CA's key size.
+     *
+     * @param commonName the common name of the subject, must not be {@literal null}
+     * @param altNames   additional DNS names of the subject, must not be {@literal null}
+     * @param ipSans     IP addresses of the subject, must not be {@literal null}
+     * @param issuedAt   the time of the issuance, must not be {@literal null}
+     * @param ttl        the validity of the certificate, starting at {@code issuedAt}, must not be {@literal null}
+     * @return the certificate with its private key, never {@literal null}
+     * @throws GeneralSecurityException the key pair or the certificate cannot be created
+     * @throws IllegalArgumentException an IP address is malformed
+     */
+    public IssuedCertificate issue(String commonName, Collection<String> altNames, Collection<String> ipSans,
+                                   Instant issuedAt, Duration ttl) throws GeneralSecurityException {
+
+        return issue(commonName, altNames, ipSans, issuedAt, ttl, "rsa", keySize);
+    }
+
+    /**
+     * Issue a certificate with a new key pair of the given type.
+     *
+     * @param commonName the common name of the subject, must not be {@literal null}
+     * @param altNames   additional DNS names of the subject, must not be {@literal null}
+     * @param ipSans     IP addresses of the subject, must not be {@literal null}
+     * @param issuedAt   the time of the issuance, must not be {@literal null}
+     * @param ttl        the validity of the certificate, starting at {@code issuedAt}, must not be {@literal null}
+     * @param keyType    the type of the key pair, {@code rsa} or {@code ec}, like a vault role's {@code key_type}
+     * @param keyBits    the size of the key pair; for EC keys {@literal 256} (P-256) or {@literal 384} (P-384)
+     * @return the certificate with its private key, never {@literal null}
+     * @throws GeneralSecurityException the key pair or the certificate cannot be created
+     * @throws IllegalArgumentException an IP address is malformed or the key type is not supported
+     */
+    public IssuedCertificate issue(String commonName, Collection<String> altNames, Collection<String> ipSans,
+                                   Instant issuedAt, Duration ttl, String keyType, int keyBits)
+        throws GeneralSecurityException {
+
+        KeyPair keyPair = generateKeyPair(keyType, keyBits);
+        X509Certificate certificate = sign(commonName, altNames, ipSans, issuedAt, ttl, keyPair.getPublic());
+        return new IssuedCertificate(certificate, caCertificate, keyPair);
+    }
+
+    /**
+     * Issue a certificate for the given public key, e.g., the key of a certificate signing request.
+     *
+     * @param commonName the common name of the subject, must not be {@literal null}
+     * @param altNames   additional DNS names of the subject, must not be {@literal null}
+     * @param ipSans     IP addresses of the subject, must not be {@literal null}
+     * @param issuedAt   the time of the issuance, must not be {@literal null}
+     * @param ttl        the validity of the certificate, starting at {@code issuedAt}, must not be {@literal null}
+     * @param publicKey  the public key of the subject, must not be {@literal null}
+     * @return the certificate, never {@literal null}
+     * @throws GeneralSecurityException the certificate cannot be created
+     * @throws IllegalArgumentException an IP address is malformed
+     */
+    public X509Certificate sign(String commonName, Collection<String> altNames, Collection<String> ipSans,
+                                Instant issuedAt, Duration ttl, PublicKey publicKey) throws GeneralSecurityException {
+
+        List<GeneralName> subjectAltNames = new ArrayList<>();
+        subjectAltNames.add(new GeneralName(GeneralName.dNSName, commonName));
+        for (String altName : altNames) {
+            if (!altName.equals(commonName)) {
+                subjectAltNames.add(new GeneralName(GeneralName.dNSName, altName));
+            }
+        }
+        for (String ipSan : ipSans) {
+            // validates the address without resolving host names
+            InetAddresses.forString(ipSan);
+            subjectAltNames.add(new GeneralName(GeneralName.iPAddress, ipSan));
+        }
+
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(caCertificate, randomSerialNumber(),
+            Date.from(issuedAt.minus(BACKDATE)), Date.from(issuedAt.plus(ttl)),
+            new X500Name("CN=" + commonName), publicKey);
+        try {
+            JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false))
+                .addExtension(Extension.keyUsage, true,
+                    new KeyUsage(KeyUsage.digitalSignature | KeyUsage.keyEncipherment | KeyUsage.keyAgreement))
+                .addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(new KeyPurposeId[]{
+                    KeyPurposeId.id_kp_serverAuth, KeyPurposeId.id_kp_clientAuth}))
+                .addExtension(Extension.subjectAlternativeName, false,
+                    new GeneralNames(subjectAltNames.toArray(new GeneralName[subjectAltNames.size()])))
+                .addExtension(Extension.subjectKeyIdentifier, false,
+                    extensionUtils.createSubjectKeyIdentifier(publicKey))
+                .addExtension(Extension.authorityKeyIdentifier, false,
+                    extensionUtils.createAuthorityKeyIdentifier(caCertificate));
+        } catch (CertIOException e) {
+            throw new GeneralSecurityException("cannot create the extensions of the certificate for " + commonName, e);
+        }
+
+        return signWithCaKey(builder);
+    }
+
+    /**
+     * The serial number of a certificate in the notation of the vault, i.e., colon separated hex octets.
+     *
+     * @param certificate the certificate, must not be {@literal null}
+     * @return the serial number, never {@literal null}
+     */
+    public static String serialNumberOf(X509Certificate certificate) {
+        byte[] octets = certificate.getSerialNumber().toByteArray();
+        StringBuilder serialNumber = new StringBuilder();
+        for (byte octet : octets) {
+            if (serialNumber.length() > 0) {
+                serialNumber.append(':');
+            }
+            serialNumber.append(String.format("%02x", octet));
+        }
+        return serialNumber.toString();
+    }
+
+    private KeyPair generateKeyPair(String keyType, int keyBits) throws GeneralSecurityException {
+        KeyPairGenerator generator;
+        switch (keyType) {
+            case "rsa":
+                generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(keyBits, random);
+                break;
+            case "ec":
+                if (keyBits != 256 && keyBits != 384) {
+                    throw new IllegalArgumentException("unsupported EC key size " + keyBits);
+                }
+                generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp" + keyBits + "r1"), random);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported key type '" + keyType + "'");
+        }
+        return generator.generateKeyPair();
+    }
+
+    private BigInteger randomSerialNumber() {
+        // positive and at most 20 octets, as required by RFC 5280
+        return new BigInteger(159, random);
+    }
+
+    private X509Certificate signWithCaKey(X509v3CertificateBuilder builder) throws GeneralSecurityException {
+        try {
+            return new JcaX509CertificateConverter()
+                .getCertificate(builder.build(new JcaContentSignerBuilder(SIGNATURE_ALGORITHM)
+                    .build(caKeyPair.getPrivate())));
+        } catch (OperatorCreationException e) {
+            throw new GeneralSecurityException("cannot sign the certificate", e);
+        }
+    }
+
+    /**
+     * A certificate issued by a {@link LocalCertificateAuthority}, with its private key.
+     */
+    public static final class IssuedCertificate {
+
+        private final X509Certificate certificate;
+        private final X509Certificate issuingCaCertificate;
+        private final KeyPair keyPair;
+
+        private IssuedCertificate(X509Certificate certificate, X509Certificate issuingCaCertificate,
+                                  KeyPair keyPair) {
+            this.certificate = certificate;
+            this.issuingCaCertificate = issuingCaCertificate;
+            this.keyPair = keyPair;
+        }
+
+        public X509Certificate getCertificate() {
+            return certificate;
+        }
+
+        public X509Certificate getIssuingCaCertificate() {
+            return issuingCaCertificate;
+        }
+
+        public KeyPair getKeyPair() {
+            return keyPair;
+        }
+
+        /**
+         * The serial number in the notation of the vault, i.e., colon separated hex octets.
+         *
+         * @return the serial number, never {@literal null}
+         */
+        public String getSerialNumber() {
+            return serialNumberOf(certificate);
+        }
+
+        /**
+         * The type of the private key in the notation of the vault.
+         *
+         * @return {@code rsa} or {@code ec}
+         */
+        public String getPrivateKeyType() {
+            return keyPair.getPrivate().getAlgorithm().equals("EC") ? "ec" : "rsa";
+        }
+
+        /**
+         * The private key in the {@code der} format of the vault, i.e., the Base64 of the DER encoded PKCS#1
+         * structure of an RSA key or the DER encoded SEC 1 structure of an EC key.
+         *
+         * @return the encoded private key, never {@literal null}
+         * @throws IOException the private key cannot be encoded
+         */
+        public String getEncodedPrivateKey() throws IOException {
+            PrivateKeyInfo privateKeyInfo = PrivateKeyInfo.getInstance(keyPair.getPrivate().getEncoded());
+            return Base64.getEncoder().encodeToString(privateKeyInfo.parsePrivateKey().toASN1Primitive().getEncoded());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.haufe.spring.cloud.vault.standin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter that admits a steady rate of requests with bursts up to a fixed size.
+ * <p>
+ * The bucket holds up to {@code burst} tokens and is refilled at {@code permitsPerSecond}; each admitted request
+ * takes one token. A request that finds the bucket empty is rejected, not delayed, just like a vault rejects
+ * requests beyond its rate limit quota with status 429.
+ */
+final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final LongSupplier nanoTime;
+
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Create a full bucket.
+     *
+     * @param permitsPerSecond the rate at which the bucket is refilled, must be {@literal > 0}
+     * @param burst            the capacity of the bucket, must be {@literal >= 1}
+     * @param nanoTime         source of the monotonic time in nanoseconds, must not be {@literal null}
+     */
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("the rate must be positive and the burst at least 1");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.nanoTime = nanoTime;
+        this.tokens = burst;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return {@literal true} if the request is admitted
+     */
+    synchronized boolean tryAcquire() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,660 @@
+package com.haufe.spring.cloud.vault.standin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x500.style.IETFUtils;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.pkcs.PKCSException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.vault.authentication.TokenAuthentication;
+import org.springframework.vault.client.VaultEndpoint;
+import org.springframework.vault.core.VaultTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embeddable stand-in for a vault server, for tests and benchmarks that must run without a real vault.
+ * <p>
+ * The stand-in serves the subset of the vault HTTP API the TLS key material configuration uses, on an ephemeral
+ * port of the loopback interface and without TLS:
+ * <ul>
+ * <li>{@code GET /v1/sys/health} reports the time of the {@link #setClock(Clock) stand-in's clock}</li>
+ * <li>{@code POST /v1/<backend>/issue/<role>} issues a certificate of a {@link LocalCertificateAuthority local CA}
+ * for every role of every {@link #mountPki(String) mounted PKI backend}, in the {@code der} format; the key type of
+ * all roles is {@link #setKeyType(String, int) configurable}</li>
+ * <li>{@code POST /v1/<backend>/sign/<role>} issues a certificate for the public key of a PEM encoded certificate
+ * signing request, like {@code issue} but without a private key</li>
+ * <li>{@code GET}, {@code PUT}/{@code POST}, and {@code DELETE} on any other path read, write, and delete generic
+ * secrets, like a version 1 key/value backend</li>
+ * </ul>
+ * Every operation can be slowed down by a {@link #setLatency(Operation, Duration) fixed latency} and made to fail
+ * by {@link #failNext(Operation, int, int) injected errors}. A {@link #setRateLimit(double, int) rate limit}
+ * rejects excess requests with status 429; like the rate limit quotas of a vault, it exempts the health endpoint.
+ * <p>
+ * Authentication is not verified: any request other than the health request must carry a token, but its value is
+ * ignored.
+ */
+public class VaultStandIn implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VaultStandIn.class);
+
+    /**
+     * The token used by the {@link #createVaultTemplate() vault templates} of the stand-in.
+     */
+    public static final String TOKEN = "stand-in-token";
+
+    /**
+     * The size (in bits) of the RSA keys of the local CA unless specified otherwise.
+     */
+    public static final int DEFAULT_KEY_SIZE = 2048;
+
+    /**
+     * The default and maximum lease time of a vault, which limits the validity of issued certificates.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofHours(768);
+
+    private static final String API_PREFIX = "/v1/";
+    private static final String HEALTH_PATH = "sys/health";
+    private static final String TOKEN_HEADER = "X-Vault-Token";
+    private static final String VERSION = "0.7.3";
+    private static final int BACKLOG = 1024;
+    private static final Pattern ISSUE_PATH = Pattern.compile("(issue|sign)/[^/]+");
+    private static final Pattern SIGN_PATH = Pattern.compile(".*/sign/[^/]+");
+    private static final Pattern GO_DURATION = Pattern.compile("(\\d+)([smh]?)");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, JsonNode> secrets = new ConcurrentHashMap<>();
+    private final Set<String> pkiBackends = ConcurrentHashMap.newKeySet();
+    private final Map<Operation, Behaviour> behaviours = new EnumMap<>(Operation.class);
+    private final LocalCertificateAuthority certificateAuthority;
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    private volatile Clock clock;
+    private volatile Duration maxTtl = DEFAULT_TTL;
+    private volatile TokenBucket rateLimit;
+    private volatile String keyType = "rsa";
+    private volatile int keyBits;
+
+    private VaultStandIn(Clock clock, int keySize) throws IOException, GeneralSecurityException {
+        this.clock = clock;
+        this.keyBits = keySize;
+        for (Operation operation : Operation.values()) {
+            behaviours.put(operation, new Behaviour());
+        }
+        pkiBackends.add("pki");
+        certificateAuthority = new LocalCertificateAuthority("Vault Stand-In CA",
+            clock.instant().minus(Duration.ofDays(1)), Duration.ofDays(3650), keySize);
+
+        executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("vault-stand-in-%d")
+            .build());
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+        server.createContext(API_PREFIX, this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Start a stand-in whose clock is the system clock.
+     *
+     * @return the running stand-in, never {@literal null}
+     * @throws IOException              the HTTP server cannot be started
+     * @throws GeneralSecurityException the local CA cannot be created
+     */
+    public static VaultStandIn start() throws IOException, GeneralSecurityException {
+        return start(Clock.systemUTC(), DEFAULT_KEY_SIZE);
+    }
+
+    /**
+     * Start a stand-in.
+     *
+     * @param clock   the initial clock of the stand-in, must not be {@literal null}
+     * @param keySize the size (in bits) of the RSA key of the local CA; also the default size of the keys of issued
+     *                certificates
+     * @return the running stand-in, never {@literal null}
+     * @throws IOException              the HTTP server cannot be started
+     * @throws GeneralSecurityException the local CA cannot be created
+     */
+    public static VaultStandIn start(Clock clock, int keySize) throws IOException, GeneralSecurityException {
+        VaultStandIn standIn = new VaultStandIn(clock, keySize);
+        standIn.server.start();
+        LOG.info("vault stand-in listening at {}", standIn.getEndpoint());
+        return standIn;
+    }
+
+    /**
+     * The endpoint of the stand-in.
+     *
+     * @return the endpoint, never {@literal null}
+     */
+    public VaultEndpoint getEndpoint() {
+        VaultEndpoint endpoint = VaultEndpoint.create(server.getAddress().getHostString(),
+            server.getAddress().getPort());
+        endpoint.setScheme("http");
+        return endpoint;
+    }
+
+    /**
+     * Create a client of the stand-in.
+     *
+     * @return the client, never {@literal null}
+     */
+    public VaultTemplate createVaultTemplate() {
+        return new VaultTemplate(getEndpoint(), new TokenAuthentication(TOKEN));
+    }
+
+    /**
+     * The certificate of the CA that issues the certificates of all PKI backends.
+     *
+     * @return the CA certificate, never {@literal null}
+     */
+    public X509Certificate getCaCertificate() {
+        return certificateAuthority.getCertificate();
+    }
+
+    /**
+     * Serve a PKI backend at the given path in addition to the default backend {@code pki}.
+     *
+     * @param backend the mount path of the backend, must not be {@literal null}
+     */
+    public void mountPki(String backend) {
+        pkiBackends.add(normalize(backend));
+    }
+
+    /**
+     * Replace the clock that determines the server time reported by the health endpoint and the validity of
+     * issued certificates.
+     *
+     * @param clock the new clock, must not be {@literal null}
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Move the clock of the stand-in.
+     *
+     * @param offset the offset added to the current clock, must not be {@literal null}
+     */
+    public void advanceClock(Duration offset) {
+        this.clock = Clock.offset(clock, offset);
+    }
+
+    /**
+     * Set the type of the keys the {@code issue} endpoint generates, like the {@code key_type} and {@code key_bits}
+     * of a vault role. The {@code sign} endpoint accepts keys of any type.
+     *
+     * @param keyType {@code rsa} or {@code ec}, must not be {@literal null}
+     * @param keyBits the size of the keys; for EC keys {@literal 256} (P-256) or {@literal 384} (P-384)
+     */
+    public void setKeyType(String keyType, int keyBits) {
+        this.keyType = keyType;
+        this.keyBits = keyBits;
+    }
+
+    /**
+     * Set the maximum validity of issued certificates; certificate requests with a longer TTL are capped, and
+     * requests without a TTL get this validity.
+     *
+     * @param maxTtl the maximum validity, must not be {@literal null}
+     */
+    public void setMaxTtl(Duration maxTtl) {
+        this.maxTtl = maxTtl;
+    }
+
+    /**
+     * Delay every request of the given operation.
+     *
+     * @param operation the operation, must not be {@literal null}
+     * @param latency   the delay, must not be {@literal null}; {@link Duration#ZERO zero} to answer immediately
+     */
+    public void setLatency(Operation operation, Duration latency) {
+        behaviours.get(operation).latencyMillis = latency.toMillis();
+    }
+
+    /**
+     * Fail the next requests of the given operation, after their {@link #setLatency(Operation, Duration) latency}.
+     *
+     * @param operation the operation, must not be {@literal null}
+     * @param count     the number of requests that fail
+     * @param status    the HTTP status of the failing responses, e.g., 500 or 503
+     */
+    public void failNext(Operation operation, int count, int status) {
+        behaviours.get(operation).failNext(count, status);
+    }
+
+    /**
+     * Limit the rate of all requests except the health requests.
+     *
+     * @param permitsPerSecond the sustained rate; a value {@literal <= 0} removes the limit
+     * @param burst            the number of requests admitted at once after a quiet period
+     */
+    public void setRateLimit(double permitsPerSecond, int burst) {
+        rateLimit = permitsPerSecond > 0 ? new TokenBucket(permitsPerSecond, burst, System::nanoTime) : null;
+    }
+
+    /**
+     * The number of requests of the given operation received so far, including rejected and failed requests.
+     *
+     * @param operation the operation, must not be {@literal null}
+     * @return the number of requests
+     */
+    public long getRequestCount(Operation operation) {
+        return behaviours.get(operation).requests.get();
+    }
+
+    /**
+     * Read a generic secret without going through the HTTP API.
+     *
+     * @param path the path of the secret, must not be {@literal null}
+     * @return the data of the secret; {@literal null} if there is no secret at the path
+     */
+    public JsonNode getSecret(String path) {
+        return secrets.get(normalize(path));
+    }
+
+    /**
+     * Write a generic secret without going through the HTTP API.
+     *
+     * @param path the path of the secret, must not be {@literal null}
+     * @param data the data of the secret; converted to a JSON object, must not be {@literal null}
+     */
+    public void putSecret(String path, Object data) {
+        secrets.put(normalize(path), objectMapper.valueToTree(data));
+    }
+
+    /**
+     * Stop the HTTP server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = normalize(exchange.getRequestURI().getPath().substring(API_PREFIX.length()));
+            byte[] body = ByteStreams.toByteArray(exchange.getRequestBody());
+
+            Operation operation = operationOf(method, path);
+            if (operation == null) {
+                respond(exchange, 404, errors("no handler for route '" + path + "'"));
+                return;
+            }
+
+            Behaviour behaviour = behaviours.get(operation);
+            behaviour.requests.incrementAndGet();
+            if (operation != Operation.HEALTH) {
+                if (exchange.getRequestHeaders().getFirst(TOKEN_HEADER) == null) {
+                    respond(exchange, 403, errors("missing client token"));
+                    return;
+                }
+                TokenBucket currentRateLimit = rateLimit;
+                if (currentRateLimit != null && !currentRateLimit.tryAcquire()) {
+                    respond(exchange, 429, errors("request path \"" + path + "\": rate limit quota exceeded"));
+                    return;
+                }
+            }
+
+            behaviour.delay();
+            int failureStatus = behaviour.takeFailure();
+            if (failureStatus != 0) {
+                respond(exchange, failureStatus, errors("injected failure"));
+                return;
+            }
+
+            switch (operation) {
+                case HEALTH:
+                    health(exchange);
+                    break;
+                case READ:
+                    read(exchange, path);
+                    break;
+                case WRITE:
+                    write(exchange, path, body);
+                    break;
+                case DELETE:
+                    secrets.remove(path);
+                    respond(exchange, 204, null);
+                    break;
+                case ISSUE:
+                    issue(exchange, body, SIGN_PATH.matcher(path).matches());
+                    break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, errors("the stand-in is shutting down"));
+        } catch (RuntimeException | GeneralSecurityException e) {
+            LOG.error("cannot handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            respond(exchange, 500, errors(e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Operation operationOf(String method, String path) {
+        if (path.equals(HEALTH_PATH)) {
+            return method.equals("GET") ? Operation.HEALTH : null;
+        }
+        for (String backend : pkiBackends) {
+            if (path.startsWith(backend + "/")) {
+                boolean issue = (method.equals("POST") || method.equals("PUT")) &&
+                    ISSUE_PATH.matcher(path.substring(backend.length() + 1)).matches();
+                return issue ? Operation.ISSUE : null;
+            }
+        }
+        switch (method) {
+            case "GET":
+                return Operation.READ;
+            case "PUT":
+            case "POST":
+                return Operation.WRITE;
+            case "DELETE":
+                return Operation.DELETE;
+            default:
+                return null;
+        }
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        ObjectNode health = objectMapper.createObjectNode()
+            .put("initialized", true)
+            .put("sealed", false)
+            .put("standby", false)
+            .put("server_time_utc", clock.instant().getEpochSecond())
+            .put("version", VERSION);
+        respond(exchange, 200, health);
+    }
+
+    private void read(HttpExchange exchange, String path) throws IOException {
+        JsonNode data = secrets.get(path);
+        if (data == null) {
+            respond(exchange, 404, errors());
+            return;
+        }
+        respond(exchange, 200, response(data, DEFAULT_TTL.getSeconds()));
+    }
+
+    private void write(HttpExchange exchange, String path, byte[] body) throws IOException {
+        JsonNode data = body.length > 0 ? objectMapper.readTree(body) : null;
+        if (data == null || !data.isObject()) {
+            respond(exchange, 400, errors("the request body must be a JSON object"));
+            return;
+        }
+        secrets.put(path, data);
+        respond(exchange, 204, null);
+    }
+
+    private void issue(HttpExchange exchange, byte[] body, boolean sign)
+        throws IOException, GeneralSecurityException {
+
+        JsonNode request = body.length > 0 ? objectMapper.readTree(body) : objectMapper.createObjectNode();
+        PKCS10CertificationRequest csr = null;
+        if (sign) {
+            try {
+                csr = parseCsr(request.path("csr").asText(""));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, errors(e.getMessage()));
+                return;
+            }
+        }
+        String commonName = request.path("common_name").asText("");
+        if (commonName.isEmpty() && csr != null) {
+            commonName = commonNameOf(csr);
+        }
+        if (commonName.isEmpty()) {
+            respond(exchange, 400, errors("the common_name field is required"));
+            return;
+        }
+        String format = request.path("format").asText("der");
+        if (!format.equals("der")) {
+            respond(exchange, 400, errors("the stand-in supports only the der format"));
+            return;
+        }
+        Duration ttl;
+        try {
+            ttl = parseTtl(request.path("ttl"));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, errors(e.getMessage()));
+            return;
+        }
+
+        List<String> altNames = commaSeparated(request.path("alt_names"));
+        List<String> ipSans = commaSeparated(request.path("ip_sans"));
+        String issuingCa = Base64.getEncoder().encodeToString(certificateAuthority.getCertificate().getEncoded());
+        ObjectNode data = objectMapper.createObjectNode();
+        try {
+            if (csr != null) {
+                X509Certificate certificate = certificateAuthority.sign(commonName, altNames, ipSans, clock.instant(),
+                    ttl, publicKeyOf(csr));
+                data.put("certificate", Base64.getEncoder().encodeToString(certificate.getEncoded()))
+                    .put("issuing_ca", issuingCa)
+                    .put("serial_number", LocalCertificateAuthority.serialNumberOf(certificate));
+            } else {
+                LocalCertificateAuthority.IssuedCertificate issued = certificateAuthority.issue(commonName, altNames,
+                    ipSans, clock.instant(), ttl, keyType, keyBits);
+                data.put("certificate", Base64.getEncoder().encodeToString(issued.getCertificate().getEncoded()))
+                    .put("issuing_ca", issuingCa)
+                    .put("private_key", issued.getEncodedPrivateKey())
+                    .put("private_key_type", issued.getPrivateKeyType())
+                    .put("serial_number", issued.getSerialNumber());
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, errors(e.getMessage()));
+            return;
+        }
+        data.putArray("ca_chain").add(issuingCa);
+        respond(exchange, 200, response(data, 0));
+    }
+
+    private static PKCS10CertificationRequest parseCsr(String pem) throws IOException, GeneralSecurityException {
+        Object parsed;
+        try (PEMParser parser = new PEMParser(new StringReader(pem))) {
+            parsed = parser.readObject();
+        }
+        if (!(parsed instanceof PKCS10CertificationRequest)) {
+            throw new IllegalArgumentException("the csr field must contain a PEM encoded certificate request");
+        }
+        PKCS10CertificationRequest csr = (PKCS10CertificationRequest) parsed;
+        try {
+            if (!csr.isSignatureValid(new JcaContentVerifierProviderBuilder().build(publicKeyOf(csr)))) {
+                throw new IllegalArgumentException("the signature of the certificate request is invalid");
+            }
+        } catch (OperatorCreationException | PKCSException e) {
+            throw new GeneralSecurityException("cannot verify the certificate request", e);
+        }
+        return csr;
+    }
+
+    private static PublicKey publicKeyOf(PKCS10CertificationRequest csr) throws IOException, GeneralSecurityException {
+        SubjectPublicKeyInfo keyInfo = csr.getSubjectPublicKeyInfo();
+        String algorithm = keyInfo.getAlgorithm().getAlgorithm().equals(X9ObjectIdentifiers.id_ecPublicKey)
+            ? "EC" : "RSA";
+        return KeyFactory.getInstance(algorithm).generatePublic(new X509EncodedKeySpec(keyInfo.getEncoded()));
+    }
+
+    private static String commonNameOf(PKCS10CertificationRequest csr) {
+        RDN[] commonNames = csr.getSubject().getRDNs(BCStyle.CN);
+        return commonNames.length > 0 ? IETFUtils.valueToString(commonNames[0].getFirst().getValue()) : "";
+    }
+
+    private Duration parseTtl(JsonNode ttl) {
+        Duration currentMaxTtl = maxTtl;
+        if (ttl.isMissingNode() || ttl.isNull() || ttl.asText().isEmpty()) {
+            return currentMaxTtl;
+        }
+        Matcher matcher = GO_DURATION.matcher(ttl.asText());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("invalid ttl '" + ttl.asText() + "'");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        Duration requested;
+        switch (matcher.group(2)) {
+            case "h":
+                requested = Duration.ofHours(amount);
+                break;
+            case "m":
+                requested = Duration.ofMinutes(amount);
+                break;
+            default:
+                requested = Duration.ofSeconds(amount);
+                break;
+        }
+        return requested.compareTo(currentMaxTtl) > 0 ? currentMaxTtl : requested;
+    }
+
+    private ObjectNode response(JsonNode data, long leaseDuration) {
+        ObjectNode response = objectMapper.createObjectNode()
+            .put("request_id", UUID.randomUUID().toString())
+            .put("lease_id", "")
+            .put("renewable", false)
+            .put("lease_duration", leaseDuration);
+        response.set("data", data);
+        return response;
+    }
+
+    private ObjectNode errors(String... errors) {
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode errorList = response.putArray("errors");
+        for (String error : errors) {
+            errorList.add(error);
+        }
+        return response;
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static List<String> commaSeparated(JsonNode value) {
+        return value.isTextual() ?
+            Splitter.on(',').trimResults().omitEmptyStrings().splitToList(value.asText()) :
+            Collections.emptyList();
+    }
+
+    private static String normalize(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    /**
+     * The operations of the stand-in, each with its own latency, injected errors, and request counter.
+     */
+    public enum Operation {
+
+        /**
+         * {@code GET sys/health}
+         */
+        HEALTH,
+
+        /**
+         * Read a generic secret.
+         */
+        READ,
+
+        /**
+         * Write a generic secret.
+         */
+        WRITE,
+
+        /**
+         * Delete a generic secret.
+         */
+        DELETE,
+
+        /**
+         * Issue a certificate, with a new key pair or for a certificate signing request.
+         */
+        ISSUE
+    }
+
+    private static final class Behaviour {
+
+        private final AtomicLong requests = new AtomicLong();
+        private volatile long latencyMillis;
+        private int failures;
+        private int failureStatus;
+
+        private void delay() throws InterruptedException {
+            long latency = latencyMillis;
+            if (latency > 0) {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            }
+        }
+
+        private synchronized void failNext(int count, int status) {
+            failures = count;
+            failureStatus = status;
+        }
+
+        /**
+         * @return the status of the injected failure; {@literal 0} if the request does not fail
+         */
+        private synchronized int takeFailure() {
+            if (failures <= 0) {
+                return 0;
+            }
+            failures--;
+            return failureStatus;
+        }
+    }
+}
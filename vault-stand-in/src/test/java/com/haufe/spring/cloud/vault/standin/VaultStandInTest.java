@@ -0,0 +1,210 @@
+package com.haufe.spring.cloud.vault.standin;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.vault.VaultException;
+import org.springframework.vault.core.VaultTemplate;
+import org.springframework.vault.support.CertificateBundle;
+import org.springframework.vault.support.VaultCertificateRequest;
+import org.springframework.vault.support.VaultResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link VaultStandIn}
+ */
+public class VaultStandInTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1500000000L);
+
+    private VaultStandIn standIn;
+    private VaultTemplate vaultTemplate;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = VaultStandIn.start(Clock.fixed(NOW, ZoneOffset.UTC), VaultStandIn.DEFAULT_KEY_SIZE);
+        vaultTemplate = standIn.createVaultTemplate();
+    }
+
+    @After
+    public void tearDown() {
+        standIn.close();
+    }
+
+    @Test
+    public void testThatIssuedCertificateIsSignedByLocalCa() throws Exception {
+        CertificateBundle bundle = vaultTemplate.opsForPki("pki").issueCertificate("service",
+            VaultCertificateRequest.builder()
+                .commonName("localhost")
+                .withAltName("service.local")
+                .withIpSubjectAltName("127.0.0.1")
+                .ttl(3600)
+                .build())
+            .getData();
+
+        X509Certificate certificate = bundle.getX509Certificate();
+        certificate.verify(standIn.getCaCertificate().getPublicKey());
+        assertThat(bundle.getX509IssuerCertificate(), equalTo(standIn.getCaCertificate()));
+        assertThat(certificate.getSubjectX500Principal().getName(), equalTo("CN=localhost"));
+        assertThat(certificate.getNotAfter().toInstant(), equalTo(NOW.plusSeconds(3600)));
+        assertThat(certificate.getNotBefore().toInstant(), lessThan(NOW));
+
+        List<String> subjectAltNames = Arrays.asList("localhost", "service.local", "127.0.0.1");
+        assertThat(certificate.getSubjectAlternativeNames().stream().map(name -> name.get(1)).toArray(),
+            arrayContainingInAnyOrder(subjectAltNames.toArray()));
+
+        KeyStore keyStore = bundle.createKeyStore("key");
+        assertThat(keyStore.isKeyEntry("key"), is(true));
+    }
+
+    @Test
+    public void testThatIssueGeneratesKeysOfConfiguredType() throws Exception {
+        standIn.setKeyType("ec", 384);
+
+        VaultResponse response = vaultTemplate.write("pki/issue/service",
+            Collections.singletonMap("common_name", "localhost"));
+
+        Map<String, Object> data = response.getData();
+        assertThat(data.get("private_key_type"), equalTo((Object) "ec"));
+        CertificateBundle bundle = CertificateBundle.of((String) data.get("serial_number"),
+            (String) data.get("certificate"), (String) data.get("issuing_ca"), (String) data.get("private_key"));
+        ECPublicKey publicKey = (ECPublicKey) bundle.getX509Certificate().getPublicKey();
+        assertThat(publicKey.getParams().getCurve().getField().getFieldSize(), equalTo(384));
+        bundle.getX509Certificate().verify(standIn.getCaCertificate().getPublicKey());
+    }
+
+    @Test
+    public void testThatSignCertifiesPublicKeyOfCertificateRequest() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        PKCS10CertificationRequest csr = new JcaPKCS10CertificationRequestBuilder(new X500Name("CN=localhost"),
+            keyPair.getPublic()).build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate()));
+        StringWriter pem = new StringWriter();
+        try (JcaPEMWriter writer = new JcaPEMWriter(pem)) {
+            writer.writeObject(csr);
+        }
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("csr", pem.toString());
+        request.put("alt_names", "service.local");
+        request.put("ttl", "3600");
+        request.put("format", "der");
+        Map<String, Object> data = vaultTemplate.write("pki/sign/service", request).getData();
+
+        assertThat(data, not(hasKey("private_key")));
+        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+            new ByteArrayInputStream(Base64.getDecoder().decode((String) data.get("certificate"))));
+        certificate.verify(standIn.getCaCertificate().getPublicKey());
+        assertThat(certificate.getPublicKey(), equalTo(keyPair.getPublic()));
+        assertThat(certificate.getSubjectX500Principal().getName(), equalTo("CN=localhost"));
+        assertThat(certificate.getNotAfter().toInstant(), equalTo(NOW.plusSeconds(3600)));
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.ISSUE), equalTo(1L));
+    }
+
+    @Test
+    public void testThatTtlIsCappedAtMaximum() throws Exception {
+        standIn.setMaxTtl(Duration.ofHours(1));
+
+        CertificateBundle bundle = vaultTemplate.opsForPki("pki").issueCertificate("service",
+            VaultCertificateRequest.builder().commonName("localhost").ttl(7200).build()).getData();
+
+        assertThat(bundle.getX509Certificate().getNotAfter().toInstant(), equalTo(NOW.plus(Duration.ofHours(1))));
+    }
+
+    @Test
+    public void testThatSecretsAreWrittenReadAndDeleted() {
+        vaultTemplate.write("secret/app/cert/localhost", Collections.singletonMap("expires", 42));
+
+        VaultResponse response = vaultTemplate.read("secret/app/cert/localhost");
+        assertThat(response.getData(), hasEntry("expires", (Object) 42));
+        assertThat(standIn.getSecret("/secret/app/cert/localhost/").get("expires").asInt(), equalTo(42));
+
+        vaultTemplate.delete("secret/app/cert/localhost");
+
+        assertThat(vaultTemplate.read("secret/app/cert/localhost"), nullValue());
+    }
+
+    @Test
+    public void testThatHealthReportsTimeOfClock() {
+        // the health response of this vault client reports the server time as an int
+        assertThat((long) vaultTemplate.opsForSys().health().getServerTimeUtc(), equalTo(NOW.getEpochSecond()));
+
+        standIn.advanceClock(Duration.ofDays(2));
+
+        assertThat((long) vaultTemplate.opsForSys().health().getServerTimeUtc(),
+            equalTo(NOW.plus(Duration.ofDays(2)).getEpochSecond()));
+    }
+
+    @Test
+    public void testThatInjectedFailuresAffectOnlyTheNextRequests() {
+        standIn.putSecret("secret/app/trust", Collections.singletonMap("entries", Collections.emptyList()));
+        standIn.failNext(VaultStandIn.Operation.READ, 1, 503);
+
+        try {
+            vaultTemplate.read("secret/app/trust");
+            fail("the injected failure was not returned");
+        } catch (VaultException e) {
+            assertThat(e.getMessage(), containsString("503"));
+        }
+
+        Map<String, Object> data = vaultTemplate.read("secret/app/trust").getData();
+        assertThat(data, hasKey("entries"));
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.READ), equalTo(2L));
+    }
+
+    @Test
+    public void testThatRateLimitRejectsExcessRequestsButNotHealthRequests() {
+        standIn.setRateLimit(0.001, 2);
+
+        vaultTemplate.write("secret/a", Collections.singletonMap("value", 1));
+        vaultTemplate.write("secret/b", Collections.singletonMap("value", 2));
+        try {
+            vaultTemplate.write("secret/c", Collections.singletonMap("value", 3));
+            fail("the request exceeding the rate limit was admitted");
+        } catch (VaultException e) {
+            assertThat(e.getMessage(), containsString("429"));
+        }
+        assertThat(standIn.getSecret("secret/c"), nullValue());
+
+        assertThat(vaultTemplate.opsForSys().health().isInitialized(), is(true));
+    }
+
+    @Test
+    public void testThatLatencyDelaysResponses() {
+        standIn.setLatency(VaultStandIn.Operation.READ, Duration.ofMillis(200));
+
+        long start = System.nanoTime();
+        vaultTemplate.read("secret/missing");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start), greaterThanOrEqualTo(Duration.ofMillis(200)));
+    }
+}
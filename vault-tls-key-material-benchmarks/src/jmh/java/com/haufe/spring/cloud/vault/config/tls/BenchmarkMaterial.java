@@ -0,0 +1,153 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.haufe.spring.cloud.vault.standin.LocalCertificateAuthority;
+import org.springframework.vault.support.CertificateBundle;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Key material of the benchmarks: the test PKI of the library's tests, certificates issued by a local CA like the
+ * vault issues them, and the JVM's default trusted certificates.
+ */
+final class BenchmarkMaterial {
+
+    static final String CLIENT_BUNDLE = "testpki-client-bundle.json";
+
+    private static final char[] EMPTY_PASSWORD = new char[0];
+
+    private BenchmarkMaterial() {
+        throw new UnsupportedOperationException(BenchmarkMaterial.class.getCanonicalName() +
+            " is a utility class and must not be instantiated");
+    }
+
+    static CertificateBundle readBundle(String resourceName) throws IOException {
+        try (InputStream inputStream = openResource(resourceName)) {
+            return new ObjectMapper().readValue(inputStream, CachedCertificateBundle.class).toCertificateBundle();
+        }
+    }
+
+    /**
+     * Trusted certificates as they are read from the vault, i.e., with PEM encoded certificates. The certificates
+     * are taken from the JVM's default trusted certificates; if more entries are requested than there are default
+     * certificates, then certificates are repeated under different aliases.
+     *
+     * @param size the number of entries
+     * @return the trusted certificates
+     */
+    static TrustedCertificates trustedCertificates(int size) throws CertificateEncodingException {
+        List<TrustedCertificates.TrustedCertificateEntry> defaultEntries =
+            TrustedCertificates.getDefaultTrustedCertificates().getEntries();
+        List<TrustedCertificates.TrustedCertificateEntry> entries = new ArrayList<>(size);
+        for (int idx = 0; idx < size; idx++) {
+            X509Certificate certificate = defaultEntries.get(idx % defaultEntries.size()).getX509Certificate();
+            entries.add(entry("cert_" + idx, toPem(certificate)));
+        }
+        TrustedCertificates trustedCertificates = new TrustedCertificates();
+        trustedCertificates.setEntries(entries);
+        return trustedCertificates;
+    }
+
+    /**
+     * The certificates of the test PKI's certificate authorities.
+     */
+    static TrustedCertificates testPkiCertificates() throws IOException {
+        TrustedCertificates trustedCertificates = new TrustedCertificates();
+        trustedCertificates.setEntries(Arrays.asList(
+            entry("testpki-ca", readString("testpki-ca.pem")),
+            entry("testpki-issuing-ca", readString("testpki-issuing-ca.pem"))));
+        return trustedCertificates;
+    }
+
+    /**
+     * A server certificate for {@code localhost} with a key of the given type, issued by the given CA like the
+     * vault's PKI backend issues it.
+     *
+     * @param certificateAuthority the issuing CA
+     * @param keyType              {@code rsa} or {@code ec}
+     * @param keyBits              the size of the key
+     */
+    static CertificateBundle issueServerBundle(LocalCertificateAuthority certificateAuthority, String keyType,
+                                               int keyBits) throws GeneralSecurityException, IOException {
+        Instant now = Instant.now();
+        LocalCertificateAuthority.IssuedCertificate issued = certificateAuthority.issue("localhost",
+            Collections.emptyList(), Collections.emptyList(), now, Duration.ofHours(1), keyType, keyBits);
+        return CertificateBundle.of(issued.getSerialNumber(),
+            Base64.getEncoder().encodeToString(issued.getCertificate().getEncoded()),
+            Base64.getEncoder().encodeToString(issued.getIssuingCaCertificate().getEncoded()),
+            issued.getEncodedPrivateKey());
+    }
+
+    /**
+     * The key material of the HTTP client, as set up by {@link ServiceClientTLSConfig}.
+     */
+    static TLSClientKeyMaterial clientKeyMaterial(CertificateBundle clientBundle, KeyStore trustStore) {
+        return ImmutableTLSClientKeyMaterial.builder()
+            .privateKeyMaterial(TLSClientKeyMaterial.PrivateKeyMaterial.of(clientBundle))
+            .trustMaterial(ImmutableTrustMaterial.builder()
+                .trustStore(trustStore)
+                .trustStorePassword(EMPTY_PASSWORD)
+                .build())
+            .build();
+    }
+
+    /**
+     * An SSL context for the server side of a connection.
+     */
+    static SSLContext serverSSLContext(CertificateBundle serverBundle, KeyStore trustStore)
+        throws GeneralSecurityException {
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(CertificateBundles.createKeyStore(serverBundle, "server"), EMPTY_PASSWORD);
+        TrustManagerFactory trustManagerFactory =
+            TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+
+        SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
+        sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    private static TrustedCertificates.TrustedCertificateEntry entry(String alias, String certificate) {
+        TrustedCertificates.TrustedCertificateEntry entry = new TrustedCertificates.TrustedCertificateEntry();
+        entry.setAlias(alias);
+        entry.setCertificate(certificate);
+        return entry;
+    }
+
+    private static String toPem(X509Certificate certificate) throws CertificateEncodingException {
+        return "-----BEGIN CERTIFICATE-----\n" +
+            Base64.getMimeEncoder(64, new byte[]{'\n'}).encodeToString(certificate.getEncoded()) +
+            "\n-----END CERTIFICATE-----\n";
+    }
+
+    private static String readString(String resourceName) throws IOException {
+        try (Scanner scanner = new Scanner(openResource(resourceName), StandardCharsets.US_ASCII.name())) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    private static InputStream openResource(String resourceName) throws IOException {
+        InputStream inputStream = BenchmarkMaterial.class.getClassLoader().getResourceAsStream(resourceName);
+        if (inputStream == null) {
+            throw new IOException("resource not found: " + resourceName);
+        }
+        return inputStream;
+    }
+}
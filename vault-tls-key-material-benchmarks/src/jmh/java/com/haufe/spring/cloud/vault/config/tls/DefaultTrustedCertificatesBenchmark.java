@@ -0,0 +1,27 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the access to the JVM's default trusted certificates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DefaultTrustedCertificatesBenchmark {
+
+    @Benchmark
+    public TrustedCertificates getDefaultTrustedCertificates() {
+        return TrustedCertificates.getDefaultTrustedCertificates();
+    }
+
+    @Benchmark
+    public KeyStore createDefaultTrustStore() {
+        return TrustedCertificates.getDefaultTrustedCertificates().createTrustStore();
+    }
+}
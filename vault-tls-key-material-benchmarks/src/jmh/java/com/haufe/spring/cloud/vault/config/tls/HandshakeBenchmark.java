@@ -0,0 +1,177 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.haufe.spring.cloud.vault.standin.LocalCertificateAuthority;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.vault.support.CertificateBundle;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of TLS handshakes with client authentication between two {@link SSLEngine SSL engines} that exchange
+ * their records in memory. The client uses the key and trust managers of {@link TLSClientKeyManagers}, the server
+ * uses the JSSE default managers.
+ * <p>
+ * The server certificate has an RSA or EC key of the configured size (see
+ * {@link VaultPkiProperties#getKeyType()}), so the full handshakes show the CPU cost of each key type, in
+ * particular of the server's signature over the key exchange parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HandshakeBenchmark {
+
+    /**
+     * The upper bound of wrap / unwrap rounds of a handshake; a handshake that takes longer is stuck.
+     */
+    private static final int MAX_HANDSHAKE_ROUNDS = 100;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /**
+     * Whether the client resumes the session of the previous handshake or performs a full handshake.
+     */
+    @Param({"false", "true"})
+    private boolean resumeSession;
+
+    /**
+     * The type and size of the server's key.
+     */
+    @Param({"RSA_2048", "RSA_3072", "EC_P256", "EC_P384"})
+    private ServerKey serverKey;
+
+    private SSLContext clientSSLContext;
+    private SSLContext serverSSLContext;
+    private ByteBuffer clientToServer;
+    private ByteBuffer serverToClient;
+    private ByteBuffer clientApplicationData;
+    private ByteBuffer serverApplicationData;
+
+    @Setup
+    public void setUp() throws IOException, GeneralSecurityException {
+        CertificateBundle clientBundle = BenchmarkMaterial.readBundle(BenchmarkMaterial.CLIENT_BUNDLE);
+        LocalCertificateAuthority certificateAuthority = new LocalCertificateAuthority("Benchmark CA",
+            Instant.now().minus(Duration.ofDays(1)), Duration.ofDays(2), 2048);
+        CertificateBundle serverBundle =
+            BenchmarkMaterial.issueServerBundle(certificateAuthority, serverKey.keyType, serverKey.keyBits);
+        KeyStore trustStore = BenchmarkMaterial.testPkiCertificates().createTrustStore();
+        trustStore.setCertificateEntry("benchmark-ca", certificateAuthority.getCertificate());
+
+        TLSClientKeyManagers clientKeyManagers =
+            new TLSClientKeyManagers(BenchmarkMaterial.clientKeyMaterial(clientBundle, trustStore));
+        clientSSLContext = clientKeyManagers.createSSLContext("TLSv1.2");
+        serverSSLContext = BenchmarkMaterial.serverSSLContext(serverBundle, trustStore);
+
+        SSLSession session = clientSSLContext.createSSLEngine().getSession();
+        // room for a complete flight of handshake messages
+        clientToServer = ByteBuffer.allocate(4 * session.getPacketBufferSize());
+        serverToClient = ByteBuffer.allocate(4 * session.getPacketBufferSize());
+        clientApplicationData = ByteBuffer.allocate(session.getApplicationBufferSize());
+        serverApplicationData = ByteBuffer.allocate(session.getApplicationBufferSize());
+    }
+
+    @Benchmark
+    public SSLSession handshake() throws SSLException {
+        // the same peer host and port, so the client's session cache can offer the previous session
+        SSLEngine client = clientSSLContext.createSSLEngine("localhost", 8443);
+        client.setUseClientMode(true);
+        SSLEngine server = serverSSLContext.createSSLEngine();
+        server.setUseClientMode(false);
+        server.setNeedClientAuth(true);
+
+        completeHandshake(client, server, clientToServer, serverToClient, clientApplicationData,
+            serverApplicationData);
+
+        SSLSession session = client.getSession();
+        if (!resumeSession) {
+            session.invalidate();
+        }
+        return session;
+    }
+
+    /**
+     * Perform a handshake between two SSL engines that exchange their records through the given buffers.
+     *
+     * @param client                the engine in client mode
+     * @param server                the engine in server mode
+     * @param clientToServer        buffer of the client's records, large enough for a flight of handshake messages
+     * @param serverToClient        buffer of the server's records, large enough for a flight of handshake messages
+     * @param clientApplicationData buffer of the application data received by the client
+     * @param serverApplicationData buffer of the application data received by the server
+     * @throws SSLException the handshake failed
+     */
+    static void completeHandshake(SSLEngine client, SSLEngine server, ByteBuffer clientToServer,
+                                  ByteBuffer serverToClient, ByteBuffer clientApplicationData,
+                                  ByteBuffer serverApplicationData) throws SSLException {
+        clientToServer.clear();
+        serverToClient.clear();
+        client.beginHandshake();
+        server.beginHandshake();
+
+        int rounds = 0;
+        while (isHandshaking(client) || isHandshaking(server)) {
+            if (++rounds > MAX_HANDSHAKE_ROUNDS) {
+                throw new IllegalStateException("TLS handshake did not complete");
+            }
+            client.wrap(EMPTY, clientToServer);
+            runDelegatedTasks(client);
+            server.wrap(EMPTY, serverToClient);
+            runDelegatedTasks(server);
+
+            clientToServer.flip();
+            serverToClient.flip();
+            client.unwrap(serverToClient, clientApplicationData);
+            runDelegatedTasks(client);
+            server.unwrap(clientToServer, serverApplicationData);
+            runDelegatedTasks(server);
+            clientToServer.compact();
+            serverToClient.compact();
+        }
+    }
+
+    private static boolean isHandshaking(SSLEngine engine) {
+        return engine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * The keys of the server certificate.
+     */
+    public enum ServerKey {
+        RSA_2048("rsa", 2048),
+        RSA_3072("rsa", 3072),
+        EC_P256("ec", 256),
+        EC_P384("ec", 384);
+
+        private final String keyType;
+        private final int keyBits;
+
+        ServerKey(String keyType, int keyBits) {
+            this.keyType = keyType;
+            this.keyBits = keyBits;
+        }
+    }
+}
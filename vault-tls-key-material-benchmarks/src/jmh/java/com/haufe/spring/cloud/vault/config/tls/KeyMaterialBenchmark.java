@@ -0,0 +1,71 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.vault.support.CertificateBundle;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the set up of the key material, as done on every startup and every rotation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeyMaterialBenchmark {
+
+    private CertificateBundle clientBundle;
+    private KeyStore trustStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        clientBundle = BenchmarkMaterial.readBundle(BenchmarkMaterial.CLIENT_BUNDLE);
+        trustStore = BenchmarkMaterial.testPkiCertificates().createTrustStore();
+    }
+
+    @Benchmark
+    public KeyStore createKeyStore() {
+        return CertificateBundles.createKeyStore(clientBundle, "http-client");
+    }
+
+    /**
+     * A key manager by way of a key store, which a {@link KeyManagerFactory} unpacks again.
+     */
+    @Benchmark
+    public KeyManager[] createKeyManagerFromKeyStore() throws GeneralSecurityException {
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(CertificateBundles.createKeyStore(clientBundle, "http-client"), new char[0]);
+        return keyManagerFactory.getKeyManagers();
+    }
+
+    /**
+     * A key manager built directly from the decoded private key and certificate chain, as offered by
+     * {@link TLSClientKeyMaterial.PrivateKeyMaterial#getKeyManager()}.
+     */
+    @Benchmark
+    public X509ExtendedKeyManager createKeyManagerFromBundle() {
+        return TLSClientKeyMaterial.PrivateKeyMaterial.of(clientBundle).getKeyManager();
+    }
+
+    /**
+     * The complete set up of the HTTP client's SSL context from a certificate bundle and a trust store, as done by
+     * {@link ServiceClientTLSConfig} and {@link PooledTLSHttpClientFactory}.
+     */
+    @Benchmark
+    public SSLContext createClientSSLContext() {
+        TLSClientKeyMaterial keyMaterial = BenchmarkMaterial.clientKeyMaterial(clientBundle, trustStore);
+        return new TLSClientKeyManagers(keyMaterial).createSSLContext("TLSv1.2", new TlsSessionProperties());
+    }
+}
@@ -0,0 +1,192 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.haufe.spring.cloud.vault.standin.LocalCertificateAuthority;
+import org.apache.tomcat.util.net.SSLContext;
+import org.apache.tomcat.util.net.SSLHostConfig;
+import org.apache.tomcat.util.net.SSLHostConfigCertificate;
+import org.apache.tomcat.util.net.SSLImplementation;
+import org.apache.tomcat.util.net.SSLUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.vault.support.CertificateBundle;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the server side TLS implementations of the Tomcat connector, {@link ReloadableJsseImplementation}
+ * and {@link ReloadableOpenSslImplementation}, fed with the same key and trust material. The client always uses
+ * the key and trust managers of {@link TLSClientKeyManagers}; the engines exchange their records in memory.
+ * <p>
+ * The OpenSSL variants require tomcat-native 1.2 or later on the {@code java.library.path}; without it their setup
+ * fails. Restrict the benchmarks to JSSE with {@code -p implementation=JSSE} in this case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SslImplementationBenchmark {
+
+    private static final char[] EMPTY_PASSWORD = new char[0];
+
+    /**
+     * The size of the application data sent by the server per {@link #transfer()} operation.
+     */
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    /**
+     * The server's TLS implementation.
+     */
+    @Param({"JSSE", "OPENSSL"})
+    private VaultPkiProperties.SslImplementation implementation;
+
+    private javax.net.ssl.SSLContext clientSSLContext;
+    private SSLUtil serverSSLUtil;
+    private SSLContext serverSSLContext;
+    private ByteBuffer clientToServer;
+    private ByteBuffer serverToClient;
+    private ByteBuffer clientApplicationData;
+    private ByteBuffer serverApplicationData;
+    private ByteBuffer payload;
+
+    private SSLEngine transferClient;
+    private SSLEngine transferServer;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (VaultPkiConfiguration.selectSslImplementation(implementation, OpenSslSupport::isAvailable) !=
+            implementationClass()) {
+            throw new IllegalStateException("tomcat-native is not available, cannot benchmark " + implementation);
+        }
+
+        CertificateBundle clientBundle = BenchmarkMaterial.readBundle(BenchmarkMaterial.CLIENT_BUNDLE);
+        LocalCertificateAuthority certificateAuthority = new LocalCertificateAuthority("Benchmark CA",
+            Instant.now().minus(Duration.ofDays(1)), Duration.ofDays(2), 2048);
+        CertificateBundle serverBundle = BenchmarkMaterial.issueServerBundle(certificateAuthority, "rsa", 2048);
+        KeyStore trustStore = BenchmarkMaterial.testPkiCertificates().createTrustStore();
+        trustStore.setCertificateEntry("benchmark-ca", certificateAuthority.getCertificate());
+
+        TLSClientKeyManagers clientKeyManagers =
+            new TLSClientKeyManagers(BenchmarkMaterial.clientKeyMaterial(clientBundle, trustStore));
+        clientSSLContext = clientKeyManagers.createSSLContext("TLSv1.2");
+
+        ReloadableJsseImplementation.getKeyManager()
+            .reload(CertificateBundles.createKeyStore(serverBundle, "vault"), EMPTY_PASSWORD);
+        ReloadableJsseImplementation.getTrustManager().reload(trustStore);
+
+        SSLHostConfig sslHostConfig = new SSLHostConfig();
+        sslHostConfig.setProtocols("TLSv1.2");
+        // the same cipher suite for both implementations, one that the backend prefers for RSA keys
+        sslHostConfig.setCiphers("ECDHE-RSA-AES128-GCM-SHA256");
+        sslHostConfig.setCertificateVerification("required");
+        SSLHostConfigCertificate certificate =
+            new SSLHostConfigCertificate(sslHostConfig, SSLHostConfigCertificate.Type.UNDEFINED);
+        certificate.setCertificateKeyAlias("vault");
+        sslHostConfig.addCertificate(certificate);
+
+        serverSSLUtil = implementationClass().newInstance().getSSLUtil(certificate);
+        serverSSLContext = serverSSLUtil.createSSLContext(Collections.emptyList());
+        serverSSLContext.init(serverSSLUtil.getKeyManagers(), serverSSLUtil.getTrustManagers(), null);
+
+        SSLSession session = clientSSLContext.createSSLEngine().getSession();
+        // room for a complete flight of handshake messages or the records of a transfer
+        int recordBufferSize = Math.max(4, TRANSFER_SIZE / session.getApplicationBufferSize() + 2) *
+            session.getPacketBufferSize();
+        clientToServer = ByteBuffer.allocate(recordBufferSize);
+        serverToClient = ByteBuffer.allocate(recordBufferSize);
+        clientApplicationData = ByteBuffer.allocate(TRANSFER_SIZE + session.getApplicationBufferSize());
+        serverApplicationData = ByteBuffer.allocate(session.getApplicationBufferSize());
+        payload = ByteBuffer.allocate(TRANSFER_SIZE);
+
+        transferClient = createClientEngine();
+        transferServer = createServerEngine();
+        HandshakeBenchmark.completeHandshake(transferClient, transferServer, clientToServer, serverToClient,
+            clientApplicationData, serverApplicationData);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (serverSSLContext != null) {
+            serverSSLContext.destroy();
+        }
+    }
+
+    /**
+     * A full handshake with client authentication.
+     *
+     * @return the client's session
+     * @throws SSLException the handshake failed
+     */
+    @Benchmark
+    public SSLSession handshake() throws SSLException {
+        SSLEngine client = createClientEngine();
+        SSLEngine server = createServerEngine();
+
+        HandshakeBenchmark.completeHandshake(client, server, clientToServer, serverToClient, clientApplicationData,
+            serverApplicationData);
+
+        SSLSession session = client.getSession();
+        session.invalidate();
+        return session;
+    }
+
+    /**
+     * The encryption of {@value #TRANSFER_SIZE} bytes of application data by the server and their decryption by the
+     * client on an established connection.
+     *
+     * @return the number of bytes received by the client
+     * @throws SSLException the transfer failed
+     */
+    @Benchmark
+    public int transfer() throws SSLException {
+        payload.clear();
+        serverToClient.clear();
+        clientApplicationData.clear();
+        while (payload.hasRemaining()) {
+            transferServer.wrap(payload, serverToClient);
+        }
+        serverToClient.flip();
+        while (serverToClient.hasRemaining()) {
+            transferClient.unwrap(serverToClient, clientApplicationData);
+        }
+        return clientApplicationData.position();
+    }
+
+    private Class<? extends SSLImplementation> implementationClass() {
+        return implementation == VaultPkiProperties.SslImplementation.OPENSSL ?
+            ReloadableOpenSslImplementation.class :
+            ReloadableJsseImplementation.class;
+    }
+
+    private SSLEngine createClientEngine() {
+        SSLEngine client = clientSSLContext.createSSLEngine("localhost", 8443);
+        client.setUseClientMode(true);
+        return client;
+    }
+
+    /**
+     * Create a server engine configured like the ones of Tomcat's NIO connector.
+     */
+    private SSLEngine createServerEngine() {
+        SSLEngine server = serverSSLContext.createSSLEngine();
+        server.setUseClientMode(false);
+        server.setEnabledProtocols(serverSSLUtil.getEnabledProtocols());
+        server.setEnabledCipherSuites(serverSSLUtil.getEnabledCiphers());
+        server.setNeedClientAuth(true);
+        return server;
+    }
+}
@@ -0,0 +1,45 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.KeyStore;
+import java.security.cert.CertificateEncodingException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link TrustedCertificates#createTrustStore(boolean)} for trust bundles of different sizes, the
+ * sizes around the threshold of parallel parsing included. Merged trust stores are cached per set of entries, so
+ * {@link #createTrustStoreMergedWithDefaults()} measures the lookup and the copy of the cached trust store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrustedCertificatesBenchmark {
+
+    @Param({"1", "16", "64", "256"})
+    private int bundleSize;
+
+    private TrustedCertificates trustedCertificates;
+
+    @Setup
+    public void setUp() throws CertificateEncodingException {
+        trustedCertificates = BenchmarkMaterial.trustedCertificates(bundleSize);
+    }
+
+    @Benchmark
+    public KeyStore createTrustStore() {
+        return trustedCertificates.createTrustStore();
+    }
+
+    @Benchmark
+    public KeyStore createTrustStoreMergedWithDefaults() {
+        return trustedCertificates.createTrustStore(true);
+    }
+}
@@ -2,10 +2,12 @@ package com.haufe.spring.cloud.vault.config.tls;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
+import org.springframework.vault.support.CertificateBundle;
 import org.springframework.vault.support.VaultCertificateRequest;
 
 /**
- * Aggregation of an X.509 private RSA key, the corresponding certificate chain, as well as management information.
+ * Aggregation of an X.509 private RSA or EC key, the corresponding certificate chain, as well as management
+ * information.
  * <p>
  * When the structure is filled by a POST request to the Vault endpoint {@code /pki/issue/}, then one should set
  * {@code format=der} to get the certificates and the key in a Base64 presentation of their respective DER format.
@@ -33,7 +35,8 @@ class CachedCertificateBundle {
     private String issuingCaCertificate;
 
     /**
-     * Base64 of the DER encoded, unencrypted private RSA key
+     * Base64 of the DER encoded, unencrypted private key: a PKCS#1 structure for RSA keys or a SEC 1 structure for
+     * EC keys, like the vault returns them. The key type follows from the certificate.
      */
     @JsonProperty("private_key")
     private String privateKey;
@@ -49,4 +52,34 @@ class CachedCertificateBundle {
      */
     @JsonProperty("expires")
     private long expires;
+
+    /**
+     * Create a cache entry for the given certificate bundle.
+     *
+     * @param certificateBundle the certificate bundle to cache, must not be {@literal null}
+     * @param timeRequested     timestamp (in Posix time) when the certificate was requested
+     * @param expires           timestamp (in Posix time) when the certificate will expire
+     * @return the cache entry, never {@literal null}
+     */
+    static CachedCertificateBundle of(CertificateBundle certificateBundle, long timeRequested, long expires) {
+        CachedCertificateBundle cachedCertificateBundle = new CachedCertificateBundle();
+
+        cachedCertificateBundle.setExpires(expires);
+        cachedCertificateBundle.setTimeRequested(timeRequested);
+        cachedCertificateBundle.setPrivateKey(certificateBundle.getPrivateKey());
+        cachedCertificateBundle.setCertificate(certificateBundle.getCertificate());
+        cachedCertificateBundle.setIssuingCaCertificate(certificateBundle.getIssuingCaCertificate());
+        cachedCertificateBundle.setSerialNumber(certificateBundle.getSerialNumber());
+
+        return cachedCertificateBundle;
+    }
+
+    /**
+     * Convert the cached data back into a certificate bundle.
+     *
+     * @return the certificate bundle, never {@literal null}
+     */
+    CertificateBundle toCertificateBundle() {
+        return CertificateBundle.of(serialNumber, certificate, issuingCaCertificate, privateKey);
+    }
 }
@@ -0,0 +1,146 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link X509ExtendedTrustManager} that remembers client certificate chains its delegate has validated
+ * successfully, so repeated handshakes with the same client certificates skip the PKIX path validation.
+ * <p>
+ * Chains are identified by the SHA-256 fingerprint of their DER encodings and the authentication type. A cached
+ * validation result is used until the cache entry expires or the first certificate of the chain expires,
+ * whichever comes first. Failed validations are not cached. Server certificate checks are always delegated,
+ * because they may include an endpoint identification that depends on the peer's host name.
+ * <p>
+ * The cache belongs to the trust material of the delegate: a change of the trusted certificates requires a new
+ * instance.
+ */
+public class CachingX509TrustManager extends X509ExtendedTrustManager {
+
+    private final X509ExtendedTrustManager delegate;
+
+    /**
+     * Maps chain fingerprints to the earliest expiry (in milliseconds since the epoch) of the chain's certificates.
+     */
+    private final Cache<HashCode, Long> validatedChains;
+
+    /**
+     * Create a caching trust manager.
+     *
+     * @param delegate          the trust manager that validates chains not found in the cache
+     * @param maximumSize       the maximum number of cached chains
+     * @param expireAfterWrite  the time (in seconds) a validation result is cached
+     */
+    public CachingX509TrustManager(X509ExtendedTrustManager delegate, long maximumSize, long expireAfterWrite) {
+        this.delegate = delegate;
+        this.validatedChains = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Hit and miss statistics of the validation cache.
+     *
+     * @return a snapshot of the statistics
+     */
+    public CacheStats getStatistics() {
+        return validatedChains.stats();
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+        checkCached(chain, authType, () -> delegate.checkClientTrusted(chain, authType, socket));
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+        checkCached(chain, authType, () -> delegate.checkClientTrusted(chain, authType, engine));
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        checkCached(chain, authType, () -> delegate.checkClientTrusted(chain, authType));
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+        delegate.checkServerTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+        delegate.checkServerTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        delegate.checkServerTrusted(chain, authType);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+        return delegate.getAcceptedIssuers();
+    }
+
+    private void checkCached(X509Certificate[] chain, String authType, ChainCheck check)
+        throws CertificateException {
+
+        if (chain == null || chain.length == 0 || authType == null) {
+            check.run(); // let the delegate report the invalid arguments
+            return;
+        }
+
+        HashCode fingerprint = fingerprint(chain, authType);
+        Long expires = validatedChains.getIfPresent(fingerprint);
+        if (expires != null && System.currentTimeMillis() < expires) {
+            return;
+        }
+
+        check.run();
+        validatedChains.put(fingerprint, earliestExpiry(chain));
+    }
+
+    private static HashCode fingerprint(X509Certificate[] chain, String authType) throws CertificateException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(authType, StandardCharsets.UTF_8);
+        for (X509Certificate certificate : chain) {
+            byte[] encoded = certificate.getEncoded();
+            hasher.putInt(encoded.length).putBytes(encoded);
+        }
+        return hasher.hash();
+    }
+
+    private static long earliestExpiry(X509Certificate[] chain) {
+        long expires = Long.MAX_VALUE;
+        for (X509Certificate certificate : chain) {
+            expires = Math.min(expires, certificate.getNotAfter().getTime());
+        }
+        return expires;
+    }
+
+    /**
+     * A validation by the delegate.
+     */
+    @FunctionalInterface
+    private interface ChainCheck {
+        void run() throws CertificateException;
+    }
+}
@@ -0,0 +1,120 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Conversion of {@link CertificateBundle certificate bundles} with RSA or EC keys into key material.
+ * <p>
+ * {@link CertificateBundle#createKeyStore(String)} only understands RSA keys. The vault encodes the private key of
+ * a bundle in the {@code der} format as PKCS#1 structure (RSA keys) or SEC 1 structure (EC keys); both are
+ * supported here, as are PKCS#8 encoded keys. The key type is taken from the certificate.
+ */
+public final class CertificateBundles {
+
+    /**
+     * Hidden default constructor
+     */
+    private CertificateBundles() {
+        throw new UnsupportedOperationException(CertificateBundles.class.getCanonicalName() +
+            " is a utility class and must not be instantiated");
+    }
+
+    /**
+     * Create a key store with a single key entry for the given bundle. The entry's password is empty and its
+     * certificate chain consists of the bundle's certificate and the certificate of the issuing CA.
+     *
+     * @param bundle the certificate bundle, must not be {@literal null}
+     * @param alias  the alias of the key entry, must not be {@literal null}
+     * @return the key store, never {@literal null}
+     * @throws TlsInitializationException the key store cannot be created
+     */
+    public static KeyStore createKeyStore(CertificateBundle bundle, String alias) {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(null, null);
+            keyStore.setKeyEntry(alias, getPrivateKey(bundle), new char[0],
+                new Certificate[]{bundle.getX509Certificate(), bundle.getX509IssuerCertificate()});
+            return keyStore;
+        } catch (GeneralSecurityException | IOException e) {
+            throw new TlsInitializationException("cannot create a key store for the certificate with serial number " +
+                bundle.getSerialNumber(), e);
+        }
+    }
+
+    /**
+     * Create a key store with a key entry for each of the given bundles. The entries' passwords are empty and
+     * their certificate chains consist of the bundle's certificate and the certificate of the issuing CA.
+     *
+     * @param bundlesByAlias the certificate bundles by the aliases of their key entries, must not be
+     *                       {@literal null}
+     * @return the key store, never {@literal null}
+     * @throws TlsInitializationException the key store cannot be created
+     */
+    public static KeyStore createKeyStore(Map<String, CertificateBundle> bundlesByAlias) {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(null, null);
+            for (Map.Entry<String, CertificateBundle> entry : bundlesByAlias.entrySet()) {
+                CertificateBundle bundle = entry.getValue();
+                keyStore.setKeyEntry(entry.getKey(), getPrivateKey(bundle), new char[0],
+                    new Certificate[]{bundle.getX509Certificate(), bundle.getX509IssuerCertificate()});
+            }
+            return keyStore;
+        } catch (GeneralSecurityException | IOException e) {
+            throw new TlsInitializationException("cannot create a key store for the certificates " +
+                bundlesByAlias.keySet(), e);
+        }
+    }
+
+    /**
+     * Decode the private key and the certificate chain of the given bundle, without creating a key store. The
+     * certificate chain consists of the bundle's certificate and the certificate of the issuing CA.
+     *
+     * @param bundle the certificate bundle, must not be {@literal null}
+     * @return the key entry, never {@literal null}
+     * @throws TlsInitializationException the private key cannot be decoded
+     */
+    public static KeyStore.PrivateKeyEntry createPrivateKeyEntry(CertificateBundle bundle) {
+        return new KeyStore.PrivateKeyEntry(getPrivateKey(bundle),
+            new Certificate[]{bundle.getX509Certificate(), bundle.getX509IssuerCertificate()});
+    }
+
+    /**
+     * Decode the private key of the given bundle.
+     *
+     * @param bundle the certificate bundle, must not be {@literal null}
+     * @return the private key, never {@literal null}
+     * @throws TlsInitializationException the private key cannot be decoded
+     */
+    public static PrivateKey getPrivateKey(CertificateBundle bundle) {
+        X509Certificate certificate = bundle.getX509Certificate();
+        try {
+            byte[] der = Base64.getDecoder().decode(bundle.getPrivateKey());
+            ASN1Sequence sequence = ASN1Sequence.getInstance(der);
+            // PKCS#8 structures wrap the key in an algorithm identifier (a sequence); PKCS#1 and SEC 1 structures
+            // start with the version and the key itself, so we wrap them with the certificate's algorithm
+            byte[] pkcs8 = sequence.getObjectAt(1) instanceof ASN1Sequence ? der : new PrivateKeyInfo(
+                SubjectPublicKeyInfo.getInstance(certificate.getPublicKey().getEncoded()).getAlgorithm(),
+                sequence).getEncoded();
+            return KeyFactory.getInstance(certificate.getPublicKey().getAlgorithm())
+                .generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+        } catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+            throw new TlsInitializationException("cannot decode the private key of the certificate with serial " +
+                "number " + bundle.getSerialNumber(), e);
+        }
+    }
+}
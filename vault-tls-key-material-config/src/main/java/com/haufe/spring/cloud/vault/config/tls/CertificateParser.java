@@ -0,0 +1,92 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parser for X.509 certificates in PEM or DER representation.
+ * <p>
+ * Textual input is either one or more PEM blocks ({@code -----BEGIN CERTIFICATE-----} ...
+ * {@code -----END CERTIFICATE-----}, with or without line breaks) or a single Base64-encoded DER certificate,
+ * possibly interspersed with whitespace. The parser works on the complete input: it locates the PEM blocks with
+ * plain string searches instead of regular expressions and decodes the Base64 data of every block with the JDK's
+ * MIME decoder.
+ * <p>
+ * The parser itself is stateless and thread-safe; the supplied {@link CertificateFactory} must be used by one
+ * thread at a time, though.
+ */
+final class CertificateParser {
+
+    private static final String PEM_CERTIFICATE_PREFIX = "-----BEGIN CERTIFICATE-----";
+    private static final String PEM_CERTIFICATE_SUFFIX = "-----END CERTIFICATE-----";
+
+    /**
+     * Hidden default constructor
+     */
+    private CertificateParser() {
+        throw new UnsupportedOperationException(CertificateParser.class.getCanonicalName() +
+            " is a utility class and must not be instantiated");
+    }
+
+    /**
+     * Parse the certificates in the given text.
+     *
+     * @param text               one or more PEM certificates or a single Base64-encoded DER certificate
+     * @param certificateFactory factory for X.509 certificates
+     * @return the parsed certificates in the order of their appearance, never empty
+     * @throws CertificateException the text does not contain a well-formed certificate
+     */
+    static List<X509Certificate> parseCertificates(String text, CertificateFactory certificateFactory)
+        throws CertificateException {
+
+        int begin = text.indexOf(PEM_CERTIFICATE_PREFIX);
+        if (begin < 0) {
+            return Collections.singletonList(
+                toX509Certificate(decodeBase64(text, 0, text.length()), certificateFactory));
+        }
+
+        List<X509Certificate> certificates = new ArrayList<>();
+        while (begin >= 0) {
+            int contentStart = begin + PEM_CERTIFICATE_PREFIX.length();
+            int contentEnd = text.indexOf(PEM_CERTIFICATE_SUFFIX, contentStart);
+            if (contentEnd < 0) {
+                throw new CertificateException("PEM certificate #" + (certificates.size() + 1) +
+                    " lacks the end marker");
+            }
+            certificates.add(toX509Certificate(decodeBase64(text, contentStart, contentEnd), certificateFactory));
+            begin = text.indexOf(PEM_CERTIFICATE_PREFIX, contentEnd + PEM_CERTIFICATE_SUFFIX.length());
+        }
+        return certificates;
+    }
+
+    private static X509Certificate toX509Certificate(byte[] der, CertificateFactory certificateFactory)
+        throws CertificateException {
+
+        return asX509Certificate(certificateFactory.generateCertificate(new ByteArrayInputStream(der)));
+    }
+
+    private static X509Certificate asX509Certificate(Certificate certificate) throws CertificateException {
+        if (!(certificate instanceof X509Certificate)) {
+            throw new CertificateException("not an X.509 certificate: " + certificate.getType());
+        }
+        return (X509Certificate) certificate;
+    }
+
+    /**
+     * Decode the Base64 characters in {@code text[start, end)}, skipping line breaks and other whitespace.
+     */
+    private static byte[] decodeBase64(String text, int start, int end) throws CertificateException {
+        try {
+            return Base64.getMimeDecoder().decode(text.substring(start, end));
+        } catch (IllegalArgumentException e) {
+            throw new CertificateException("invalid Base64 certificate data", e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+/**
+ * A locally generated key pair together with a PEM encoded certificate signing request for its public key, as
+ * expected by the {@code sign} endpoint of the vault's PKI backend.
+ * <p>
+ * The private key never leaves the application; only the certificate request is sent to the vault.
+ */
+final class CertificateSigningRequest {
+
+    private final KeyPair keyPair;
+    private final String pem;
+
+    private CertificateSigningRequest(KeyPair keyPair, String pem) {
+        this.keyPair = keyPair;
+        this.pem = pem;
+    }
+
+    /**
+     * Generate a key pair and a certificate request for it.
+     *
+     * @param commonName the common name of the subject, must not be {@literal null}
+     * @param keyType    the type of the key pair, must not be {@literal null}
+     * @param keyBits    the configured key size, {@literal 0} for the key type's default size
+     * @return the key pair and the certificate request, never {@literal null}
+     * @throws TlsInitializationException the key size is not supported or the request cannot be created
+     */
+    static CertificateSigningRequest create(String commonName, VaultPkiProperties.KeyType keyType, int keyBits) {
+        int bits = keyType.resolveKeyBits(keyBits);
+        try {
+            KeyPairGenerator generator;
+            String signatureAlgorithm;
+            if (keyType == VaultPkiProperties.KeyType.EC) {
+                generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp" + bits + "r1"));
+                signatureAlgorithm = bits > 256 ? "SHA384withECDSA" : "SHA256withECDSA";
+            } else {
+                generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(bits);
+                signatureAlgorithm = "SHA256withRSA";
+            }
+            KeyPair keyPair = generator.generateKeyPair();
+
+            StringWriter pem = new StringWriter();
+            try (JcaPEMWriter writer = new JcaPEMWriter(pem)) {
+                writer.writeObject(new JcaPKCS10CertificationRequestBuilder(new X500Name("CN=" + commonName),
+                    keyPair.getPublic()).build(new JcaContentSignerBuilder(signatureAlgorithm)
+                    .build(keyPair.getPrivate())));
+            }
+            return new CertificateSigningRequest(keyPair, pem.toString());
+        } catch (GeneralSecurityException | OperatorCreationException | IOException e) {
+            throw new TlsInitializationException("cannot create a certificate request with a " + bits + " bit " +
+                keyType + " key", e);
+        }
+    }
+
+    /**
+     * The PEM encoded certificate request.
+     *
+     * @return the certificate request, never {@literal null}
+     */
+    String getPem() {
+        return pem;
+    }
+
+    /**
+     * The private key in the {@code der} format of the vault, i.e., the Base64 of the DER encoded PKCS#1 structure
+     * of an RSA key or the DER encoded SEC 1 structure of an EC key.
+     *
+     * @return the encoded private key, never {@literal null}
+     */
+    String getEncodedPrivateKey() {
+        try {
+            return Base64.getEncoder().encodeToString(PrivateKeyInfo.getInstance(keyPair.getPrivate().getEncoded())
+                .parsePrivateKey().toASN1Primitive().getEncoded());
+        } catch (IOException e) {
+            throw new TlsInitializationException("cannot encode the private key", e);
+        }
+    }
+}
@@ -15,16 +15,24 @@
  */
 package com.haufe.spring.cloud.vault.config.tls;
 
+import javaslang.Tuple;
+import javaslang.Tuple2;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.vault.config.VaultProperties;
+import org.springframework.vault.VaultException;
 import org.springframework.vault.core.VaultOperations;
 import org.springframework.vault.core.VaultPkiOperations;
 import org.springframework.vault.support.*;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class to store and retrieve Certificates from Vault.
@@ -43,9 +51,6 @@ public final class CertificateUtil {
 
     private static final Logger LOG = LoggerFactory.getLogger(CertificateUtil.class);
 
-    // Refresh period in seconds before certificate expires.
-    private static final long REFRESH_PERIOD_BEFORE_EXPIRY = 60;
-
     /**
      * Hidden default constructor
      */
@@ -60,29 +65,82 @@ public final class CertificateUtil {
      * If {@code reuseValidCertificate} in {@link VaultPkiProperties} is {@literal true},
      * then this method attempts to read a cached Certificate from Vault at
      * {@code secret/${spring.application.name}/cert/${spring.cloud.vault.pki.commonName}}.
-     * Valid certificates will be reused until they expire. A new certificate is requested
-     * and cached if no valid certificate is found.
+     * Valid certificates will be reused until the {@link RenewalPolicy#of(VaultPkiProperties) configured renewal
+     * policy} demands their renewal. A new certificate is requested and cached if no valid certificate is found.
      *
      * @param vaultProperties configuration how to access the vault instance
      * @param vaultOperations vault API client implementation
      * @param pkiProperties   PKI specific configurations
      * @return the {@link CertificateBundle}.
+     * @deprecated every call samples the vault server's time with a {@code sys/health} request of its own; use
+     * {@link #getOrRequestCertificate(VaultProperties, VaultOperations, VaultPkiProperties, VaultClock, RenewalPolicy,
+     * TlsMetrics)} with the application's shared {@link VaultClock}
      */
+    @Deprecated
     public static CertificateBundle getOrRequestCertificate(VaultProperties vaultProperties,
                                                             VaultOperations vaultOperations,
                                                             VaultPkiProperties pkiProperties) {
 
+        return getOrRequestCertificate(vaultProperties, vaultOperations, pkiProperties,
+            new VaultClock(vaultOperations, 0), RenewalPolicy.of(pkiProperties), new TlsMetrics());
+    }
+
+    /**
+     * Request SSL Certificate from Vault or retrieve cached certificate that is not due for renewal according to
+     * the given policy, and record the vault operations and cache lookups in the given metrics.
+     * <p>
+     * The caller supplies the renewal policy, the clock and the metrics, typically the application's shared beans.
+     * <p>
+     * Renewing services use this method to replace certificates that are about to expire. If another instance
+     * of the same application renewed the cached certificate already, then this instance picks up the renewed
+     * certificate instead of requesting yet another one.
+     *
+     * @param vaultProperties configuration how to access the vault instance
+     * @param vaultOperations vault API client implementation
+     * @param pkiProperties   PKI specific configurations
+     * @param vaultClock      estimate of the vault server's time used to decide whether a cached certificate
+     *                        is due for renewal
+     * @param renewalPolicy   the policy that decides whether a cached certificate is due for renewal
+     * @param metrics         the metrics that record the vault operations and the cache lookups, must not be
+     *                        {@literal null}
+     * @return the {@link CertificateBundle}.
+     */
+    public static CertificateBundle getOrRequestCertificate(VaultProperties vaultProperties,
+                                                            VaultOperations vaultOperations,
+                                                            VaultPkiProperties pkiProperties,
+                                                            VaultClock vaultClock,
+                                                            RenewalPolicy renewalPolicy,
+                                                            TlsMetrics metrics) {
+
+        return obtainCertificate(vaultProperties, vaultOperations, pkiProperties, vaultClock, renewalPolicy,
+            metrics)._1;
+    }
+
+    /**
+     * Like {@link #getOrRequestCertificate(VaultProperties, VaultOperations, VaultPkiProperties, VaultClock,
+     * RenewalPolicy, TlsMetrics)}, but also tells whether the certificate was read from the vault's certificate
+     * cache or newly issued.
+     */
+    static Tuple2<CertificateBundle, TlsMaterialInventory.Source> obtainCertificate(VaultProperties vaultProperties,
+                                                                                   VaultOperations vaultOperations,
+                                                                                   VaultPkiProperties pkiProperties,
+                                                                                   VaultClock vaultClock,
+                                                                                   RenewalPolicy renewalPolicy,
+                                                                                   TlsMetrics metrics) {
+
         if (!pkiProperties.isReuseValidCertificate()) {
-            return requestCertificate(vaultOperations, pkiProperties).getData();
+            return issued(requestCertificate(vaultOperations, pkiProperties, metrics));
         }
 
         String cacheKey = createCacheKey(vaultProperties, pkiProperties);
 
-        VaultHealth health = vaultOperations.opsForSys().health();
-        Optional<CertificateBundle> certBundle = readCertificateBundle(vaultOperations, cacheKey, health);
+        Optional<CertificateBundle> certBundle =
+            readCertificateBundle(vaultOperations, cacheKey, vaultClock, renewalPolicy, metrics);
 
-        return certBundle.orElseGet(() ->
-            updateCachedCertificate(vaultOperations, pkiProperties, cacheKey, health));
+        return certBundle.map(CertificateUtil::cached).orElseGet(() -> pkiProperties.getIssuance().isCoordinated() ?
+            issueCoordinated(vaultProperties, vaultOperations, pkiProperties, cacheKey, vaultClock, renewalPolicy,
+                metrics) :
+            issued(updateCachedCertificate(vaultOperations, pkiProperties, cacheKey, vaultClock, metrics)));
     }
 
     /**
@@ -94,42 +152,140 @@ public final class CertificateUtil {
      * @param vaultPath       the path in vault where to read the data from, must not be {@literal null}
      * @return an optional certificate bundle; {@link Optional#empty() empty} if no valid
      * certificate bundle could be read.
+     * @deprecated every call samples the vault server's time with a {@code sys/health} request of its own; use
+     * {@link #readCertificateBundle(VaultOperations, String, VaultClock, TlsMetrics)} with the application's shared
+     * {@link VaultClock}
      */
+    @Deprecated
     public static Optional<CertificateBundle> readCertificateBundle(VaultOperations vaultOperations,
                                                                     String vaultPath) {
+
+        return readCertificateBundle(vaultOperations, vaultPath, new VaultClock(vaultOperations, 0),
+            new TlsMetrics());
+    }
+
+    /**
+     * Read a SSL certificate with private key from the specified path in the vault and record the read in the
+     * given metrics.
+     * <p>
+     * The data must be stored as a JSON representation of {@link CachedCertificateBundle}.
+     *
+     * @param vaultOperations vault API client implementation, must not be {@literal null}
+     * @param vaultPath       the path in vault where to read the data from, must not be {@literal null}
+     * @param vaultClock      estimate of the vault server's time used to decide whether the certificate expired,
+     *                        must not be {@literal null}
+     * @param metrics         the metrics that record the vault operation and the cache lookup, must not be
+     *                        {@literal null}
+     * @return an optional certificate bundle; {@link Optional#empty() empty} if no valid
+     * certificate bundle could be read.
+     */
+    public static Optional<CertificateBundle> readCertificateBundle(VaultOperations vaultOperations,
+                                                                    String vaultPath, VaultClock vaultClock,
+                                                                    TlsMetrics metrics) {
         if(StringUtils.isBlank(vaultPath)) {
             return Optional.empty();
         }
 
-        VaultHealth health = vaultOperations.opsForSys().health();
-        return readCertificateBundle(vaultOperations, vaultPath, health);
+        return readCertificateBundle(vaultOperations, vaultPath, vaultClock, RenewalPolicy.remainingTimeToLive(0),
+            metrics);
     }
 
     private static CertificateBundle updateCachedCertificate(VaultOperations vaultOperations,
                                                              VaultPkiProperties pkiProperties,
-                                                             String cacheKey, VaultHealth health) {
-        vaultOperations.delete(cacheKey);
-        VaultCertificateResponse certificateResponse = requestCertificate(vaultOperations,
-            pkiProperties);
+                                                             String cacheKey, VaultClock vaultClock,
+                                                             TlsMetrics metrics) {
+        CertificateBundle certificateBundle = requestCertificate(vaultOperations, pkiProperties, metrics);
 
-        storeCertificate(cacheKey, vaultOperations, health, certificateResponse);
+        storeCertificate(cacheKey, vaultOperations, vaultClock, certificateBundle, metrics);
 
-        return certificateResponse.getData();
+        return certificateBundle;
+    }
+
+    /**
+     * Issue a new certificate if this instance holds the issuance lock; otherwise wait for another instance to
+     * issue and cache the certificate.
+     */
+    private static Tuple2<CertificateBundle, TlsMaterialInventory.Source> issueCoordinated(
+        VaultProperties vaultProperties, VaultOperations vaultOperations, VaultPkiProperties pkiProperties,
+        String cacheKey, VaultClock vaultClock, RenewalPolicy renewalPolicy, TlsMetrics metrics) {
+
+        VaultPkiProperties.Issuance issuance = pkiProperties.getIssuance();
+        VaultIssuanceLock lock = new VaultIssuanceLock(vaultOperations,
+            createLockKey(vaultProperties, pkiProperties), vaultClock,
+            issuance.getLockLeaseTime(), issuance.getLockSettleTime(), metrics);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(issuance.getWaitTimeout());
+        long backoff = issuance.getInitialBackoff();
+        try {
+            while (true) {
+                boolean acquired;
+                try {
+                    acquired = lock.tryAcquire();
+                } catch (VaultException e) {
+                    LOG.warn("cannot use the issuance lock, requesting a certificate without coordination", e);
+                    return issued(updateCachedCertificate(vaultOperations, pkiProperties, cacheKey, vaultClock,
+                        metrics));
+                }
+
+                if (acquired) {
+                    try {
+                        // another instance may have cached a new certificate while we were waiting for the lock
+                        return readCertificateBundle(vaultOperations, cacheKey, vaultClock, renewalPolicy, metrics)
+                            .map(CertificateUtil::cached)
+                            .orElseGet(() -> issued(updateCachedCertificate(vaultOperations, pkiProperties,
+                                cacheKey, vaultClock, metrics)));
+                    } finally {
+                        lock.release();
+                    }
+                }
+
+                if (System.nanoTime() - deadline >= 0) {
+                    LOG.warn("no other instance issued a certificate within {} seconds, requesting one",
+                        issuance.getWaitTimeout());
+                    return issued(updateCachedCertificate(vaultOperations, pkiProperties, cacheKey, vaultClock,
+                        metrics));
+                }
+
+                TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+                backoff = Math.min(2 * backoff, issuance.getMaxBackoff());
+
+                Optional<CertificateBundle> certBundle =
+                    readCertificateBundle(vaultOperations, cacheKey, vaultClock, renewalPolicy, metrics);
+                if (certBundle.isPresent()) {
+                    return cached(certBundle.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TlsInitializationException("interrupted while waiting for the certificate issuance", e);
+        }
+    }
+
+    private static Tuple2<CertificateBundle, TlsMaterialInventory.Source> cached(CertificateBundle bundle) {
+        return Tuple.of(bundle, TlsMaterialInventory.Source.VAULT_CACHE);
+    }
+
+    private static Tuple2<CertificateBundle, TlsMaterialInventory.Source> issued(CertificateBundle bundle) {
+        return Tuple.of(bundle, TlsMaterialInventory.Source.VAULT_ISSUANCE);
     }
 
     private static Optional<CertificateBundle> readCertificateBundle(VaultOperations vaultOperations,
-                                                                     String path, VaultHealth health) {
+                                                                     String path, VaultClock vaultClock,
+                                                                     RenewalPolicy renewalPolicy,
+                                                                     TlsMetrics metrics) {
 
-        VaultResponseSupport<CachedCertificateBundle> readResponse = vaultOperations
-            .read(path, CachedCertificateBundle.class);
-        if (isValid(health, readResponse)) {
+        VaultResponseSupport<CachedCertificateBundle> readResponse = metrics.timeVaultOperation(
+            TlsMetrics.VaultOperation.READ, () -> vaultOperations.read(path, CachedCertificateBundle.class));
+        if (isValid(vaultClock, readResponse, renewalPolicy)) {
 
             CertificateBundle value = getCertificateBundle(readResponse);
             LOG.info("Found valid SSL certificate in Vault at {}", path);
+            metrics.recordCacheHit();
             return Optional.of(value);
 
         }
         LOG.info("no valid certificate bundle at {}", path);
+        metrics.recordCacheMiss();
         return Optional.empty();
     }
 
@@ -142,12 +298,34 @@ public final class CertificateUtil {
      * @param vaultPath       the path in vault where to read the data from, must not be {@literal null}
      * @return a trusted certificates object, never {@literal null}; it's {@code entries} property
      * might be empty, though.
+     * @deprecated the read is not recorded in the application's metrics; use
+     * {@link #readTrustedCertificates(VaultOperations, String, TlsMetrics)} with the application's shared
+     * {@link TlsMetrics}
      */
+    @Deprecated
     public static TrustedCertificates readTrustedCertificates(VaultOperations vaultOperations,
                                                               String vaultPath) {
 
-        VaultResponseSupport<TrustedCertificates> readResponse =
-            vaultOperations.read(vaultPath, TrustedCertificates.class);
+        return readTrustedCertificates(vaultOperations, vaultPath, new TlsMetrics());
+    }
+
+    /**
+     * Read a set of trusted SSL certificates from the specified path in the vault and record the read in the
+     * given metrics.
+     * <p>
+     * The data must be stored as a JSON representation of {@link TrustedCertificates}.
+     *
+     * @param vaultOperations vault API client implementation, must not be {@literal null}
+     * @param vaultPath       the path in vault where to read the data from, must not be {@literal null}
+     * @param metrics         the metrics that record the vault operation, must not be {@literal null}
+     * @return a trusted certificates object, never {@literal null}; it's {@code entries} property
+     * might be empty, though.
+     */
+    public static TrustedCertificates readTrustedCertificates(VaultOperations vaultOperations,
+                                                              String vaultPath, TlsMetrics metrics) {
+
+        VaultResponseSupport<TrustedCertificates> readResponse = metrics.timeVaultOperation(
+            TlsMetrics.VaultOperation.READ, () -> vaultOperations.read(vaultPath, TrustedCertificates.class));
         if (readResponse == null) {
             LOG.warn("no trust-chain data found in the vault at {}, assuming an empty collection", vaultPath);
             return new TrustedCertificates();
@@ -162,73 +340,149 @@ public final class CertificateUtil {
 
 
     private static void storeCertificate(String cacheKey, VaultOperations vaultOperations,
-                                         VaultHealth health, VaultCertificateResponse certificateResponse) {
-
-        CertificateBundle certificateBundle = certificateResponse.getData();
-        long expires = (health.getServerTimeUtc()
-            + certificateResponse.getLeaseDuration()) - REFRESH_PERIOD_BEFORE_EXPIRY;
+                                         VaultClock vaultClock, CertificateBundle certificateBundle,
+                                         TlsMetrics metrics) {
 
-        CachedCertificateBundle cachedCertificateBundle = new CachedCertificateBundle();
+        long timeRequested = vaultClock.currentTimeSeconds();
+        // the PKI backend does not necessarily report a lease duration, so we take the expiry from the certificate
+        long expires = TimeUnit.MILLISECONDS.toSeconds(certificateBundle.getX509Certificate().getNotAfter().getTime());
 
-        cachedCertificateBundle.setExpires(expires);
-        cachedCertificateBundle.setTimeRequested(health.getServerTimeUtc());
-        cachedCertificateBundle.setPrivateKey(certificateBundle.getPrivateKey());
-        cachedCertificateBundle.setCertificate(certificateBundle.getCertificate());
-        cachedCertificateBundle
-            .setIssuingCaCertificate(certificateBundle.getIssuingCaCertificate());
-        cachedCertificateBundle.setSerialNumber(certificateBundle.getSerialNumber());
+        CachedCertificateBundle cachedCertificateBundle =
+            CachedCertificateBundle.of(certificateBundle, timeRequested, expires);
 
-        vaultOperations.write(cacheKey, cachedCertificateBundle);
+        metrics.timeVaultOperation(TlsMetrics.VaultOperation.WRITE,
+            () -> vaultOperations.write(cacheKey, cachedCertificateBundle));
     }
 
     private static String createCacheKey(VaultProperties vaultProperties,
                                          VaultPkiProperties pkiProperties) {
 
-        return String.format("%s/%s/cert/%s",
+        return String.format("%s/%s/cert/%s%s",
             pkiProperties.getCacheBackend(),
             vaultProperties.getApplicationName(),
-            pkiProperties.getCommonName());
+            pkiProperties.getCommonName(),
+            keyTypeSuffix(pkiProperties));
+    }
+
+    private static String createLockKey(VaultProperties vaultProperties,
+                                        VaultPkiProperties pkiProperties) {
+
+        return String.format("%s/%s/lock/%s%s",
+            pkiProperties.getCacheBackend(),
+            vaultProperties.getApplicationName(),
+            pkiProperties.getCommonName(),
+            keyTypeSuffix(pkiProperties));
+    }
+
+    /**
+     * Certificates with a configured key type are cached apart from the certificates with the role's key type and
+     * from each other, so that instances with different key settings do not pick up each other's certificates.
+     */
+    private static String keyTypeSuffix(VaultPkiProperties pkiProperties) {
+        String keySettings = keySettings(pkiProperties);
+        return keySettings != null ? "/" + keySettings : "";
+    }
+
+    /**
+     * The configured key type and size, e.g., {@code ec-384}, that tells certificates with different key settings
+     * apart in caches.
+     *
+     * @param pkiProperties PKI specific configurations
+     * @return the key settings; {@literal null} if the role decides on the key type
+     */
+    static String keySettings(VaultPkiProperties pkiProperties) {
+        VaultPkiProperties.KeyType keyType = pkiProperties.getKeyType();
+        if (keyType == null) {
+            return null;
+        }
+        return String.format("%s-%d", keyType.name().toLowerCase(Locale.ROOT),
+            keyType.resolveKeyBits(pkiProperties.getKeyBits()));
     }
 
     private static CertificateBundle getCertificateBundle(
         VaultResponseSupport<CachedCertificateBundle> readResponse) {
 
-        CachedCertificateBundle cachedCertificateBundle = readResponse.getData();
-
-        return CertificateBundle.of(cachedCertificateBundle.getSerialNumber(),
-            cachedCertificateBundle.getCertificate(),
-            cachedCertificateBundle.getIssuingCaCertificate(),
-            cachedCertificateBundle.getPrivateKey());
+        return readResponse.getData().toCertificateBundle();
     }
 
-    private static boolean isValid(VaultHealth health,
-                                   VaultResponseSupport<CachedCertificateBundle> readResponse) {
+    private static boolean isValid(VaultClock vaultClock,
+                                   VaultResponseSupport<CachedCertificateBundle> readResponse,
+                                   RenewalPolicy renewalPolicy) {
 
         if (readResponse != null) {
 
             CachedCertificateBundle cachedCertificateBundle = readResponse.getData();
-            if (health.getServerTimeUtc() < cachedCertificateBundle.getExpires()) {
-                return true;
-            }
+            return !renewalPolicy.isRenewalDue(
+                TimeUnit.SECONDS.toMillis(cachedCertificateBundle.getTimeRequested()),
+                TimeUnit.SECONDS.toMillis(cachedCertificateBundle.getExpires()),
+                vaultClock.currentTimeMillis());
         }
 
         return false;
     }
 
-    private static VaultCertificateResponse requestCertificate(
-        VaultOperations vaultOperations, VaultPkiProperties pkiProperties) {
+    private static CertificateBundle requestCertificate(
+        VaultOperations vaultOperations, VaultPkiProperties pkiProperties, TlsMetrics metrics) {
+
+        if (pkiProperties.getKeyType() != null) {
+            return requestSignedCertificate(vaultOperations, pkiProperties, metrics);
+        }
 
         LOG.info("Requesting SSL certificate from Vault for: {}",
             pkiProperties.getCommonName());
 
-        VaultCertificateRequest certificateRequest = VaultCertificateRequest.builder()
+        VaultCertificateRequest.VaultCertificateRequestBuilder builder = VaultCertificateRequest.builder()
             .commonName(pkiProperties.getCommonName())
             .altNames(pkiProperties.getAltNames() != null
-                ? pkiProperties.getAltNames() : Collections.emptyList())
-            .build();
+                ? pkiProperties.getAltNames() : Collections.emptyList());
+        if (pkiProperties.getTtl() > 0) {
+            builder.ttl(Math.toIntExact(pkiProperties.getTtl()));
+        }
+        VaultCertificateRequest certificateRequest = builder.build();
 
         VaultPkiOperations vaultPkiOperations = vaultOperations.opsForPki(pkiProperties.getBackend());
 
-        return vaultPkiOperations.issueCertificate(pkiProperties.getRole(), certificateRequest);
+        VaultCertificateResponse certificateResponse = metrics.timeVaultOperation(TlsMetrics.VaultOperation.ISSUE,
+            () -> vaultPkiOperations.issueCertificate(pkiProperties.getRole(), certificateRequest));
+        metrics.recordIssuance();
+        return certificateResponse.getData();
+    }
+
+    /**
+     * Generate the key pair locally and let the vault sign a certificate request for it. Unlike
+     * {@code <backend>/issue/<role>}, which always generates a key pair of the role's key type, this allows every
+     * application to choose its key type and size.
+     */
+    private static CertificateBundle requestSignedCertificate(
+        VaultOperations vaultOperations, VaultPkiProperties pkiProperties, TlsMetrics metrics) {
+
+        LOG.info("Requesting SSL certificate with a {} key from Vault for: {}",
+            pkiProperties.getKeyType(), pkiProperties.getCommonName());
+
+        CertificateSigningRequest csr = CertificateSigningRequest.create(pkiProperties.getCommonName(),
+            pkiProperties.getKeyType(), pkiProperties.getKeyBits());
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("csr", csr.getPem());
+        request.put("common_name", pkiProperties.getCommonName());
+        if (pkiProperties.getAltNames() != null && !pkiProperties.getAltNames().isEmpty()) {
+            request.put("alt_names", String.join(",", pkiProperties.getAltNames()));
+        }
+        if (pkiProperties.getTtl() > 0) {
+            request.put("ttl", pkiProperties.getTtl() + "s");
+        }
+        request.put("format", "der");
+
+        String path = String.format("%s/sign/%s", pkiProperties.getBackend(), pkiProperties.getRole());
+        VaultResponse response = metrics.timeVaultOperation(TlsMetrics.VaultOperation.ISSUE,
+            () -> vaultOperations.write(path, request));
+        if (response == null || response.getData() == null) {
+            throw new TlsInitializationException("the vault returned no certificate for the request to " + path);
+        }
+        metrics.recordIssuance();
+
+        Map<String, Object> data = response.getData();
+        return CertificateBundle.of((String) data.get("serial_number"), (String) data.get("certificate"),
+            (String) data.get("issuing_ca"), csr.getEncodedPrivateKey());
     }
 }
@@ -0,0 +1,84 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent reads of TLS material (e.g., from the vault) in parallel.
+ * <p>
+ * At most {@code concurrency} reads run at the same time. All reads share a common deadline that starts when the
+ * fetcher is created: {@link #await(Future, String) awaiting} a result fails if the deadline passed. Closing the
+ * fetcher cancels all reads that are still running.
+ */
+class ConcurrentFetcher implements AutoCloseable {
+
+    private static final AtomicInteger FETCHER_COUNT = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private final long deadline;
+
+    /**
+     * Create a fetcher.
+     *
+     * @param name        prefix of the worker threads' names
+     * @param concurrency the maximum number of parallel reads, must be positive
+     * @param timeout     the total time (in seconds) all reads may take
+     */
+    ConcurrentFetcher(String name, int concurrency, long timeout) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        String threadNamePrefix = name + "-" + FETCHER_COUNT.incrementAndGet() + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+    }
+
+    /**
+     * Start a read.
+     *
+     * @param read the read operation
+     * @param <T>  the type of the read's result
+     * @return the pending result
+     */
+    <T> Future<T> submit(Supplier<T> read) {
+        return executor.submit(read::get);
+    }
+
+    /**
+     * Wait for the result of a read, but not beyond the fetcher's deadline.
+     *
+     * @param result      the pending result of a read {@link #submit(Supplier) submitted} to this fetcher
+     * @param description a description of the read used in error messages
+     * @param <T>         the type of the read's result
+     * @return the result of the read
+     * @throws TlsInitializationException the deadline passed or the waiting thread was interrupted
+     * @throws RuntimeException           the read failed with the given runtime exception
+     */
+    <T> T await(Future<T> result, String description) {
+        try {
+            return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new TlsInitializationException("failed to fetch " + description, e.getCause());
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new TlsInitializationException("timed out while fetching " + description, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TlsInitializationException("interrupted while fetching " + description, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
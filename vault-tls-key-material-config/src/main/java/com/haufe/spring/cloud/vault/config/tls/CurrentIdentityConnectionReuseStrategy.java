@@ -0,0 +1,67 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.impl.client.DefaultClientConnectionReuseStrategy;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+
+import javax.net.ssl.SSLSession;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+
+/**
+ * Connection reuse strategy that refuses to keep TLS connections alive which were established with a client
+ * certificate other than the one currently offered by the {@link TLSClientKeyManagers}.
+ * <p>
+ * After a rotation of the client key material, connections that are in use when the rotation happens complete
+ * their current exchange and are closed afterwards instead of being returned to the pool. Together with closing
+ * the idle connections on rotation, this drains all connections that use the old client identity without
+ * interrupting requests in flight.
+ */
+public class CurrentIdentityConnectionReuseStrategy extends DefaultClientConnectionReuseStrategy {
+
+    private final TLSClientKeyManagers tlsClientKeyManagers;
+
+    /**
+     * Create a connection reuse strategy that compares the client certificate of a connection with the current
+     * certificate of the given key managers.
+     *
+     * @param tlsClientKeyManagers the source of the current client certificate, must not be {@literal null}
+     */
+    public CurrentIdentityConnectionReuseStrategy(TLSClientKeyManagers tlsClientKeyManagers) {
+        this.tlsClientKeyManagers = tlsClientKeyManagers;
+    }
+
+    @Override
+    public boolean keepAlive(HttpResponse response, HttpContext context) {
+        return super.keepAlive(response, context) && usesCurrentIdentity(context);
+    }
+
+    /**
+     * The TLS session of the given connection.
+     * <p>
+     * Subclasses override this method for connection types other than those of the blocking HTTP client.
+     *
+     * @param connection the connection of the exchange, may be {@literal null}
+     * @return the TLS session, or {@literal null} if the connection does not use TLS
+     */
+    protected SSLSession getSSLSession(HttpConnection connection) {
+        return connection instanceof ManagedHttpClientConnection ?
+            ((ManagedHttpClientConnection) connection).getSSLSession() :
+            null;
+    }
+
+    private boolean usesCurrentIdentity(HttpContext context) {
+        SSLSession sslSession = getSSLSession(HttpCoreContext.adapt(context).getConnection());
+        Certificate[] localCertificates = sslSession != null ? sslSession.getLocalCertificates() : null;
+        if (localCertificates == null || localCertificates.length == 0) {
+            // no client authentication took place
+            return true;
+        }
+
+        X509Certificate currentCertificate = tlsClientKeyManagers.getCurrentCertificate();
+        return localCertificates[0].equals(currentCertificate);
+    }
+}
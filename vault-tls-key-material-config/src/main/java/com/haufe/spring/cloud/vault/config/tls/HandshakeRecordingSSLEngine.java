@@ -0,0 +1,214 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.tomcat.util.net.SSLUtil;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link SSLEngine} that delegates to another engine and records every completed handshake in
+ * {@link TlsSessionStatistics}.
+ * <p>
+ * The engine passes the protocol negotiated by ALPN through to Tomcat if the delegate reports it (like the
+ * OpenSSL engines do), and it signals when the delegate was closed, i.e., its outbound side is done.
+ */
+class HandshakeRecordingSSLEngine extends SSLEngine implements SSLUtil.ProtocolInfo {
+
+    private final SSLEngine delegate;
+    private final TlsSessionStatistics statistics;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long handshakeStarted = System.currentTimeMillis();
+
+    HandshakeRecordingSSLEngine(SSLEngine delegate, TlsSessionStatistics statistics) {
+        this(delegate, statistics, () -> {
+        });
+    }
+
+    /**
+     * Create an engine.
+     *
+     * @param delegate   the engine that does the work
+     * @param statistics the counters the handshakes are recorded in
+     * @param onClose    runs once when the delegate was closed
+     */
+    HandshakeRecordingSSLEngine(SSLEngine delegate, TlsSessionStatistics statistics, Runnable onClose) {
+        super(delegate.getPeerHost(), delegate.getPeerPort());
+        this.delegate = delegate;
+        this.statistics = statistics;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public String getNegotiatedProtocol() {
+        return delegate instanceof SSLUtil.ProtocolInfo ?
+            ((SSLUtil.ProtocolInfo) delegate).getNegotiatedProtocol() :
+            null;
+    }
+
+    @Override
+    public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst) throws SSLException {
+        try {
+            return recordHandshake(delegate.wrap(srcs, offset, length, dst));
+        } finally {
+            checkClosed();
+        }
+    }
+
+    @Override
+    public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length) throws SSLException {
+        return recordHandshake(delegate.unwrap(src, dsts, offset, length));
+    }
+
+    private SSLEngineResult recordHandshake(SSLEngineResult result) {
+        if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED) {
+            statistics.recordHandshake(delegate.getSession(), handshakeStarted);
+        }
+        return result;
+    }
+
+    @Override
+    public void beginHandshake() throws SSLException {
+        handshakeStarted = System.currentTimeMillis();
+        delegate.beginHandshake();
+    }
+
+    @Override
+    public Runnable getDelegatedTask() {
+        return delegate.getDelegatedTask();
+    }
+
+    @Override
+    public void closeInbound() throws SSLException {
+        try {
+            delegate.closeInbound();
+        } finally {
+            checkClosed();
+        }
+    }
+
+    @Override
+    public boolean isInboundDone() {
+        return delegate.isInboundDone();
+    }
+
+    @Override
+    public void closeOutbound() {
+        try {
+            delegate.closeOutbound();
+        } finally {
+            checkClosed();
+        }
+    }
+
+    private void checkClosed() {
+        if (delegate.isOutboundDone() && closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+
+    @Override
+    public boolean isOutboundDone() {
+        return delegate.isOutboundDone();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public String[] getEnabledCipherSuites() {
+        return delegate.getEnabledCipherSuites();
+    }
+
+    @Override
+    public void setEnabledCipherSuites(String[] suites) {
+        delegate.setEnabledCipherSuites(suites);
+    }
+
+    @Override
+    public String[] getSupportedProtocols() {
+        return delegate.getSupportedProtocols();
+    }
+
+    @Override
+    public String[] getEnabledProtocols() {
+        return delegate.getEnabledProtocols();
+    }
+
+    @Override
+    public void setEnabledProtocols(String[] protocols) {
+        delegate.setEnabledProtocols(protocols);
+    }
+
+    @Override
+    public SSLSession getSession() {
+        return delegate.getSession();
+    }
+
+    @Override
+    public SSLSession getHandshakeSession() {
+        return delegate.getHandshakeSession();
+    }
+
+    @Override
+    public SSLEngineResult.HandshakeStatus getHandshakeStatus() {
+        return delegate.getHandshakeStatus();
+    }
+
+    @Override
+    public void setUseClientMode(boolean mode) {
+        delegate.setUseClientMode(mode);
+    }
+
+    @Override
+    public boolean getUseClientMode() {
+        return delegate.getUseClientMode();
+    }
+
+    @Override
+    public void setNeedClientAuth(boolean need) {
+        delegate.setNeedClientAuth(need);
+    }
+
+    @Override
+    public boolean getNeedClientAuth() {
+        return delegate.getNeedClientAuth();
+    }
+
+    @Override
+    public void setWantClientAuth(boolean want) {
+        delegate.setWantClientAuth(want);
+    }
+
+    @Override
+    public boolean getWantClientAuth() {
+        return delegate.getWantClientAuth();
+    }
+
+    @Override
+    public void setEnableSessionCreation(boolean flag) {
+        delegate.setEnableSessionCreation(flag);
+    }
+
+    @Override
+    public boolean getEnableSessionCreation() {
+        return delegate.getEnableSessionCreation();
+    }
+
+    @Override
+    public SSLParameters getSSLParameters() {
+        return delegate.getSSLParameters();
+    }
+
+    @Override
+    public void setSSLParameters(SSLParameters params) {
+        delegate.setSSLParameters(params);
+    }
+}
@@ -0,0 +1,32 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The source of the jitter of this instance of the application.
+ * <p>
+ * The seed is drawn once per JVM, so every {@link RenewalPolicy#of(VaultPkiProperties) configured policy} of an
+ * instance moves the renewal time by the same amount, no matter how often the policy is created.
+ */
+final class InstanceJitter {
+
+    private static final long SEED = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * Hidden default constructor
+     */
+    private InstanceJitter() {
+        throw new UnsupportedOperationException(InstanceJitter.class.getCanonicalName() +
+            " is a utility class and must not be instantiated");
+    }
+
+    /**
+     * Create a source of random numbers that yields the same sequence for every call within this JVM.
+     *
+     * @return the source of random numbers
+     */
+    static Random newRandom() {
+        return new Random(SEED);
+    }
+}
@@ -0,0 +1,278 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.vault.support.CertificateBundle;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local, encrypted file cache of the last valid server certificate bundle and trusted certificates.
+ * <p>
+ * The cache allows the application to start without any round trip to the vault as long as the cached
+ * certificate still has enough time to live. Every cache file holds the material of a single common name and key
+ * setting, so a changed {@link VaultPkiProperties#getKeyType() key type} does not pick up a certificate with the
+ * previous key type. Its content is encrypted with AES/GCM; the key is derived from the configured password with
+ * PBKDF2 and a random salt that is stored alongside the ciphertext. The common name is authenticated as additional
+ * data, so a file cannot be replayed for another identity.
+ * <p>
+ * Files are replaced atomically, i.e., concurrent readers never see a partially written cache entry.
+ */
+public class LocalCertificateCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalCertificateCache.class);
+
+    private static final int MAGIC = 0x56504b43; // "VPKC"
+    private static final byte FORMAT_VERSION = 1;
+    private static final int SALT_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int KEY_LENGTH_BITS = 256;
+    private static final int PBKDF2_ITERATIONS = 10000;
+
+    private static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Path directory;
+    private final char[] password;
+    private final String keySettings;
+
+    /**
+     * Create a cache that stores its files in the given directory, for certificates with the role's key type.
+     *
+     * @param directory the cache directory; it is created on the first write if it does not exist yet
+     * @param password  the password the encryption key is derived from, must not be empty
+     */
+    public LocalCertificateCache(Path directory, char[] password) {
+        this(directory, password, null);
+    }
+
+    /**
+     * Create a cache that stores its files in the given directory.
+     *
+     * @param directory   the cache directory; it is created on the first write if it does not exist yet
+     * @param password    the password the encryption key is derived from, must not be empty
+     * @param keySettings the configured key type and size of the certificates, e.g., {@code ec-384};
+     *                    {@literal null} for certificates with the role's key type
+     */
+    public LocalCertificateCache(Path directory, char[] password, String keySettings) {
+        if (password == null || password.length == 0) {
+            throw new TlsInitializationException("the local certificate cache requires a non-empty password");
+        }
+        this.directory = directory;
+        this.password = password.clone();
+        this.keySettings = keySettings;
+    }
+
+    /**
+     * Create the cache configured by the given properties.
+     *
+     * @param pkiProperties PKI specific configurations, including the local cache settings
+     * @return the configured cache; empty if the local cache is disabled
+     * @throws TlsInitializationException the local cache is enabled, but the directory or password is missing
+     */
+    public static Optional<LocalCertificateCache> of(VaultPkiProperties pkiProperties) {
+        VaultPkiProperties.LocalCache localCacheProperties = pkiProperties.getLocalCache();
+        if (localCacheProperties == null || !localCacheProperties.isEnabled()) {
+            return Optional.empty();
+        }
+        if (StringUtils.isBlank(localCacheProperties.getDirectory())) {
+            throw new TlsInitializationException("the local certificate cache requires a directory");
+        }
+        String password = StringUtils.defaultString(localCacheProperties.getPassword());
+        return Optional.of(new LocalCertificateCache(Paths.get(localCacheProperties.getDirectory()),
+            password.toCharArray(), CertificateUtil.keySettings(pkiProperties)));
+    }
+
+    /**
+     * Read the cached material for the given common name if its certificate is valid for at least the given
+     * time.
+     * <p>
+     * A missing, unreadable, or expired cache file is not an error; it is logged and an empty result is returned.
+     *
+     * @param commonName     the common name of the server certificate
+     * @param minTimeToLive  the minimum remaining time to live (in seconds) of an acceptable certificate
+     * @return the cached material; empty if there is no acceptable material in the cache
+     */
+    public Optional<Entry> read(String commonName, long minTimeToLive) {
+        Path file = getFile(commonName);
+        if (!Files.isRegularFile(file)) {
+            LOG.debug("no local certificate cache file {}", file);
+            return Optional.empty();
+        }
+
+        try {
+            Entry entry = objectMapper.readValue(decrypt(Files.readAllBytes(file), commonName), Entry.class);
+            X509Certificate certificate = entry.toCertificateBundle().getX509Certificate();
+            long remaining = certificate.getNotAfter().getTime() - System.currentTimeMillis();
+            if (remaining < TimeUnit.SECONDS.toMillis(minTimeToLive)) {
+                LOG.info("the locally cached certificate for {} expires too soon, ignoring it", commonName);
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOG.warn("cannot read local certificate cache file {}, ignoring it", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store the given material in the cache, replacing any previous entry for the same common name.
+     * <p>
+     * Failures are logged, but not propagated: the local cache is an optimization only.
+     *
+     * @param commonName          the common name of the server certificate
+     * @param certificateBundle   the certificate bundle to cache, must not be {@literal null}
+     * @param trustedCertificates the trusted certificates to cache; may be {@literal null}
+     */
+    public void write(String commonName, CertificateBundle certificateBundle,
+                      TrustedCertificates trustedCertificates) {
+
+        Path file = getFile(commonName);
+        try {
+            X509Certificate certificate = certificateBundle.getX509Certificate();
+            Entry entry = new Entry();
+            entry.certificateBundle = CachedCertificateBundle.of(certificateBundle,
+                TimeUnit.MILLISECONDS.toSeconds(certificate.getNotBefore().getTime()),
+                TimeUnit.MILLISECONDS.toSeconds(certificate.getNotAfter().getTime()));
+            entry.setTrustedCertificates(trustedCertificates);
+
+            byte[] content = encrypt(objectMapper.writeValueAsBytes(entry), commonName);
+
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                restrictToOwner(tempFile);
+                Files.write(tempFile, content);
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            LOG.debug("stored certificate with serial number {} in local cache file {}",
+                certificateBundle.getSerialNumber(), file);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOG.warn("cannot write local certificate cache file {}", file, e);
+        }
+    }
+
+    private Path getFile(String commonName) {
+        String name = keySettings != null ? commonName + "-" + keySettings : commonName;
+        return directory.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + ".bundle");
+    }
+
+    private byte[] encrypt(byte[] plainText, String commonName) throws GeneralSecurityException, IOException {
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(salt);
+        secureRandom.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, deriveKey(salt), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        cipher.updateAAD(commonName.getBytes(StandardCharsets.UTF_8));
+        byte[] cipherText = cipher.doFinal(plainText);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.write(salt);
+            out.write(iv);
+            out.write(cipherText);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] content, String commonName) throws GeneralSecurityException, IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                throw new IOException("unsupported local certificate cache file format");
+            }
+            byte[] salt = new byte[SALT_LENGTH];
+            byte[] iv = new byte[IV_LENGTH];
+            in.readFully(salt);
+            in.readFully(iv);
+            byte[] cipherText = new byte[in.available()];
+            in.readFully(cipherText);
+
+            Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, deriveKey(salt), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            cipher.updateAAD(commonName.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(cipherText);
+        }
+    }
+
+    private SecretKey deriveKey(byte[] salt) throws GeneralSecurityException {
+        PBEKeySpec keySpec = new PBEKeySpec(password, salt, PBKDF2_ITERATIONS, KEY_LENGTH_BITS);
+        try {
+            byte[] key = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM).generateSecret(keySpec).getEncoded();
+            return new SecretKeySpec(key, "AES");
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    private static void restrictToOwner(Path file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            LOG.debug("file system does not support POSIX permissions, keeping default permissions of {}", file);
+        }
+    }
+
+    /**
+     * The material held by a local cache file.
+     */
+    @Data
+    public static class Entry {
+
+        /**
+         * The server certificate, its issuer, and private key; only exposed as {@link #toCertificateBundle()}.
+         */
+        @JsonProperty
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private CachedCertificateBundle certificateBundle;
+
+        /**
+         * The trusted certificates read from the vault; {@literal null} if no trust store path is configured.
+         */
+        private TrustedCertificates trustedCertificates;
+
+        /**
+         * The cached server certificate bundle.
+         *
+         * @return the certificate bundle, never {@literal null}
+         */
+        public CertificateBundle toCertificateBundle() {
+            return certificateBundle.toCertificateBundle();
+        }
+    }
+}
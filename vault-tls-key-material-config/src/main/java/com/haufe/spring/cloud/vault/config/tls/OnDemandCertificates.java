@@ -0,0 +1,223 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.vault.config.VaultProperties;
+import org.springframework.vault.core.VaultOperations;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Certificates for host names that are not known at startup, obtained when a client requests the host name via SNI
+ * for the first time.
+ * <p>
+ * Only host names that match one of the allowed patterns are considered. Concurrent handshakes for the same host
+ * name wait for a single issuance. Obtained certificates are held in a size-bounded cache that evicts the least
+ * recently used certificates first; a certificate that is due for renewal according to the
+ * {@link RenewalPolicy renewal policy} is evicted when it is looked up and replaced by a fresh one.
+ * <p>
+ * A host name whose issuance failed is not issued again until a backoff time has passed, and only a limited number
+ * of host names are issued at the same time; handshakes that are turned away by either get no on-demand
+ * certificate, so clients cannot make the vault issue certificates at an arbitrary rate.
+ * <p>
+ * The certificates are obtained through
+ * {@link CertificateUtil#getOrRequestCertificate(VaultProperties, VaultOperations, VaultPkiProperties, VaultClock,
+ * RenewalPolicy, TlsMetrics)}, so they are cached in the vault's cache backend as well, and a certificate that
+ * another instance obtained for the same host name is reused.
+ */
+public class OnDemandCertificates {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OnDemandCertificates.class);
+
+    private final List<Pattern> allowedHostNames;
+    private final Function<String, CertificateBundle> issuer;
+    private final RenewalPolicy renewalPolicy;
+    private final LongSupplier clock;
+    private final Cache<String, OnDemandEntry> entries;
+    private final long failureBackoff;
+    private final Cache<String, Long> failures;
+    private final Semaphore issuances;
+
+    /**
+     * Create the on-demand certificates for the given host name patterns.
+     *
+     * @param allowedHostNames           the patterns of the host names certificates are issued for; a {@code *}
+     *                                   matches exactly one DNS label
+     * @param maximumSize                the maximum number of cached certificates
+     * @param issuer                     obtains the certificate for a host name, must not be {@literal null}
+     * @param renewalPolicy              the policy that decides when a cached certificate is replaced, must not be
+     *                                   {@literal null}
+     * @param clock                      the current time in milliseconds since the epoch, must not be
+     *                                   {@literal null}
+     * @param failureBackoff             the time in milliseconds during which a host name is not issued again
+     *                                   after its issuance failed
+     * @param maximumConcurrentIssuances the maximum number of host names that are issued at the same time
+     */
+    public OnDemandCertificates(Collection<String> allowedHostNames, long maximumSize,
+                                Function<String, CertificateBundle> issuer, RenewalPolicy renewalPolicy,
+                                LongSupplier clock, long failureBackoff, int maximumConcurrentIssuances) {
+        this.allowedHostNames = allowedHostNames.stream()
+            .map(OnDemandCertificates::toPattern)
+            .collect(Collectors.toList());
+        this.issuer = issuer;
+        this.renewalPolicy = renewalPolicy;
+        this.clock = clock;
+        this.entries = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+        this.failureBackoff = failureBackoff;
+        this.failures = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .build();
+        this.issuances = new Semaphore(maximumConcurrentIssuances);
+    }
+
+    /**
+     * Create the on-demand certificates configured in {@code haufe.cloud.vault.pki.onDemand}. Each host name is
+     * obtained like a configured {@link VaultPkiProperties#getIdentities() identity} of that name.
+     *
+     * @param vaultProperties configuration how to access the vault instance
+     * @param vaultOperations vault API client implementation
+     * @param pkiProperties   PKI specific configurations, including the on-demand settings
+     * @param vaultClock      estimate of the vault server's time
+     * @param renewalPolicy   the policy that decides when a certificate is renewed
+     * @param metrics         the metrics that record the vault operations
+     * @return the on-demand certificates, never {@literal null}
+     */
+    public static OnDemandCertificates of(VaultProperties vaultProperties, VaultOperations vaultOperations,
+                                          VaultPkiProperties pkiProperties, VaultClock vaultClock,
+                                          RenewalPolicy renewalPolicy, TlsMetrics metrics) {
+        VaultPkiProperties.OnDemand onDemand = pkiProperties.getOnDemand();
+        return new OnDemandCertificates(onDemand.getAllowedHostNames(), onDemand.getMaximumSize(), hostName -> {
+            VaultPkiProperties.Identity identity = new VaultPkiProperties.Identity();
+            identity.setCommonName(hostName);
+            return CertificateUtil.obtainCertificate(vaultProperties, vaultOperations,
+                pkiProperties.forIdentity(identity), vaultClock, renewalPolicy, metrics)._1;
+        }, renewalPolicy, vaultClock::currentTimeMillis, TimeUnit.SECONDS.toMillis(onDemand.getFailureBackoff()),
+            onDemand.getMaximumConcurrentIssuances());
+    }
+
+    /**
+     * Check whether certificates are issued for the given host name.
+     *
+     * @param hostName the host name in lower case
+     * @return whether the host name matches one of the allowed patterns
+     */
+    public boolean isAllowed(String hostName) {
+        return allowedHostNames.stream().anyMatch(pattern -> pattern.matcher(hostName).matches());
+    }
+
+    /**
+     * The key entry for the given host name. If there is no cached certificate for the host name, or if the cached
+     * certificate is due for renewal, then the calling thread obtains a new certificate or waits for another thread
+     * that obtains it.
+     *
+     * @param hostName the host name in lower case
+     * @return the private key and certificate chain; {@link Optional#empty() empty} if the host name is not
+     * allowed, its last issuance failed within the backoff time, too many host names are issued at the moment,
+     * or no certificate could be obtained
+     */
+    public Optional<KeyStore.PrivateKeyEntry> get(String hostName) {
+        if (!isAllowed(hostName)) {
+            return Optional.empty();
+        }
+        Long failedAt = failures.getIfPresent(hostName);
+        if (failedAt != null && clock.getAsLong() < failedAt + failureBackoff) {
+            LOG.debug("not obtaining a certificate for {}, its last issuance failed", hostName);
+            return Optional.empty();
+        }
+        try {
+            OnDemandEntry entry = entries.get(hostName, () -> obtain(hostName));
+            if (entry.renewalTime <= clock.getAsLong()) {
+                // only the first thread that notices the due renewal evicts the entry; all of them load it again
+                entries.asMap().remove(hostName, entry);
+                entry = entries.get(hostName, () -> obtain(hostName));
+            }
+            return Optional.of(entry.keyEntry);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            LOG.warn("cannot obtain a certificate for {}", hostName, e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The cached key entry for the given host name, without obtaining a certificate.
+     *
+     * @param hostName the host name in lower case
+     * @return the private key and certificate chain; {@link Optional#empty() empty} if there is no cached
+     * certificate for the host name
+     */
+    public Optional<KeyStore.PrivateKeyEntry> getIfPresent(String hostName) {
+        return Optional.ofNullable(entries.getIfPresent(hostName)).map(entry -> entry.keyEntry);
+    }
+
+    /**
+     * Hit and miss statistics of the certificate cache.
+     *
+     * @return a snapshot of the statistics
+     */
+    public CacheStats getStatistics() {
+        return entries.stats();
+    }
+
+    private OnDemandEntry obtain(String hostName) {
+        if (!issuances.tryAcquire()) {
+            throw new TlsInitializationException("too many certificates are issued on demand at the moment");
+        }
+        try {
+            LOG.info("obtaining a certificate for {} on demand", hostName);
+            CertificateBundle bundle = issuer.apply(hostName);
+            X509Certificate certificate = bundle.getX509Certificate();
+            KeyStore.PrivateKeyEntry keyEntry = CertificateBundles.createPrivateKeyEntry(bundle);
+            long renewalTime = renewalPolicy.getRenewalTime(certificate.getNotBefore().getTime(),
+                certificate.getNotAfter().getTime());
+            failures.invalidate(hostName);
+            return new OnDemandEntry(keyEntry, renewalTime);
+        } catch (RuntimeException e) {
+            failures.put(hostName, clock.getAsLong());
+            throw e;
+        } finally {
+            issuances.release();
+        }
+    }
+
+    private static Pattern toPattern(String hostNamePattern) {
+        String[] labels = hostNamePattern.trim().toLowerCase(Locale.ROOT).split("\\.", -1);
+        StringBuilder regex = new StringBuilder();
+        for (String label : labels) {
+            if (regex.length() > 0) {
+                regex.append("\\.");
+            }
+            regex.append("*".equals(label) ? "[a-z0-9]([a-z0-9-]*[a-z0-9])?" : Pattern.quote(label));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static final class OnDemandEntry {
+        private final KeyStore.PrivateKeyEntry keyEntry;
+        private final long renewalTime;
+
+        private OnDemandEntry(KeyStore.PrivateKeyEntry keyEntry, long renewalTime) {
+            this.keyEntry = keyEntry;
+            this.renewalTime = renewalTime;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.tomcat.jni.Library;
+import org.apache.tomcat.jni.SSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detection of the native library (tomcat-native, linked against OpenSSL) required by
+ * {@link ReloadableOpenSslImplementation}.
+ * <p>
+ * The library is loaded and OpenSSL is initialized at the first check; later checks return the cached result.
+ * Unlike Tomcat's {@link org.apache.catalina.core.AprLifecycleListener}, the check does not require a listener to
+ * be registered with the server before the connectors are initialized, so the decision between OpenSSL and JSSE
+ * can be made while the container is customized.
+ */
+final class OpenSslSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OpenSslSupport.class);
+
+    /**
+     * tomcat-native 1.2 is the first version that supports OpenSSL engines for the NIO connectors.
+     */
+    private static final int MIN_MAJOR_VERSION = 1;
+    private static final int MIN_MINOR_VERSION = 2;
+
+    private static Boolean available;
+
+    /**
+     * Hidden default constructor
+     */
+    private OpenSslSupport() {
+        throw new UnsupportedOperationException(OpenSslSupport.class.getCanonicalName() +
+            " is a utility class and must not be instantiated");
+    }
+
+    /**
+     * Check whether the native library is available and initialize OpenSSL if so.
+     *
+     * @return whether OpenSSL engines can be used
+     */
+    static synchronized boolean isAvailable() {
+        if (available == null) {
+            available = initialize();
+        }
+        return available;
+    }
+
+    private static boolean initialize() {
+        try {
+            Library.initialize(null);
+            if (Library.TCN_MAJOR_VERSION < MIN_MAJOR_VERSION ||
+                (Library.TCN_MAJOR_VERSION == MIN_MAJOR_VERSION && Library.TCN_MINOR_VERSION < MIN_MINOR_VERSION)) {
+                LOG.warn("tomcat-native {}.{}.{} is too old, version {}.{} or later is required for OpenSSL",
+                    Library.TCN_MAJOR_VERSION, Library.TCN_MINOR_VERSION, Library.TCN_PATCH_VERSION,
+                    MIN_MAJOR_VERSION, MIN_MINOR_VERSION);
+                return false;
+            }
+            SSL.initialize(null);
+            LOG.info("using tomcat-native {}.{}.{} with {}", Library.TCN_MAJOR_VERSION, Library.TCN_MINOR_VERSION,
+                Library.TCN_PATCH_VERSION, SSL.versionString());
+            return true;
+        } catch (Exception | LinkageError e) {
+            LOG.warn("the native OpenSSL library (tomcat-native) is not available: {}", e.toString());
+            LOG.debug("cannot load tomcat-native", e);
+            return false;
+        }
+    }
+}
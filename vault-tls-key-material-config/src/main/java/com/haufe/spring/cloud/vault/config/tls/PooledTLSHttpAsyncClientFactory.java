@@ -0,0 +1,160 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.ManagedNHttpClientConnection;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory for non-blocking HTTP clients that use the rotating key material of {@link TLSClientKeyManagers} and keep
+ * their connections alive in a bounded pool; the non-blocking counterpart of {@link PooledTLSHttpClientFactory}.
+ * <p>
+ * The clients run on a few I/O dispatcher threads, so requests in flight do not occupy threads. They handle the
+ * rotation of the client key material, record the resumption of TLS sessions, and evict idle and expired
+ * connections just like the blocking clients of {@link PooledTLSHttpClientFactory}.
+ * <p>
+ * The factory requires the Apache HttpAsyncClient library on the class path.
+ */
+public class PooledTLSHttpAsyncClientFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PooledTLSHttpAsyncClientFactory.class);
+
+    private final ServiceClientTLSProperties serviceClientTLSProperties;
+    private final TLSClientKeyManagers tlsClientKeyManagers;
+
+    /**
+     * Create a factory.
+     *
+     * @param serviceClientTLSProperties the properties with the prefix {@code haufe.client.ssl}, must not be
+     *                                   {@code null}
+     * @param tlsClientKeyManagers       the key and trust managers of the client connections
+     */
+    public PooledTLSHttpAsyncClientFactory(ServiceClientTLSProperties serviceClientTLSProperties,
+                                           TLSClientKeyManagers tlsClientKeyManagers) {
+        this.serviceClientTLSProperties = serviceClientTLSProperties;
+        this.tlsClientKeyManagers = tlsClientKeyManagers;
+    }
+
+    /**
+     * Create and start a pooled non-blocking HTTP client. The caller is responsible for closing it; closing it
+     * shuts down its I/O reactor, its connection pool, and the eviction of idle connections.
+     *
+     * @return a new, started HTTP client, never {@literal null}
+     * @throws TlsInitializationException the I/O reactor of the client cannot be started
+     */
+    public CloseableHttpAsyncClient createHttpAsyncClient() {
+        ServiceClientTLSProperties.Pool pool = serviceClientTLSProperties.getPool();
+
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                    .setConnectTimeout(pool.getConnectTimeout())
+                    .setSoTimeout(pool.getSocketTimeout())
+                    .build()),
+                null, createSessionStrategyRegistry(), null, null,
+                pool.getTimeToLive() > 0 ? pool.getTimeToLive() : -1, TimeUnit.SECONDS);
+        } catch (IOReactorException e) {
+            throw new TlsInitializationException("cannot start the I/O reactor of the HTTP client", e);
+        }
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        tlsClientKeyManagers.addRotationListener(
+            () -> connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS));
+
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(pool.getAcquireTimeout())
+            .setConnectTimeout(pool.getConnectTimeout())
+            .setSocketTimeout(pool.getSocketTimeout())
+            .build();
+
+        LOG.info("creating pooled non-blocking HTTP client with at most {} connections ({} per route)",
+            pool.getMaxTotal(), pool.getMaxPerRoute());
+
+        CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setConnectionReuseStrategy(new CurrentIdentityNHttpConnectionReuseStrategy(tlsClientKeyManagers))
+            // otherwise connections authenticated with the client certificate are bound to their principal and are
+            // never leased again; all requests share the one client identity, its rotation is handled above
+            .disableConnectionState()
+            .setKeepAliveStrategy(
+                PooledTLSHttpClientFactory.createKeepAliveStrategy(TimeUnit.SECONDS.toMillis(pool.getKeepAlive())))
+            .build();
+        httpClient.start();
+        startEviction(httpClient, connectionManager, pool.getMaxIdleTime());
+        return httpClient;
+    }
+
+    private Registry<SchemeIOSessionStrategy> createSessionStrategyRegistry() {
+        String protocol = serviceClientTLSProperties.getProtocol();
+        LOG.info("building an SSLContext based on the {} protocol for non-blocking backend access", protocol);
+        SSLContext sslContext =
+            tlsClientKeyManagers.createSSLContext(protocol, serviceClientTLSProperties.getSession());
+
+        return RegistryBuilder.<SchemeIOSessionStrategy>create()
+            .register("http", NoopIOSessionStrategy.INSTANCE)
+            .register("https", new SessionTrackingSSLIOSessionStrategy(sslContext,
+                new DefaultHostnameVerifier(), tlsClientKeyManagers.getSessionStatistics()))
+            .build();
+    }
+
+    /**
+     * Evict expired connections and connections idle for longer than the given time, until the client is closed.
+     * The non-blocking client has no eviction of its own.
+     */
+    private static void startEviction(CloseableHttpAsyncClient httpClient,
+                                      PoolingNHttpClientConnectionManager connectionManager, long maxIdleTime) {
+        long period = maxIdleTime > 0 ? maxIdleTime : 5;
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "async-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(() -> {
+            if (!httpClient.isRunning()) {
+                evictor.shutdown();
+                return;
+            }
+            connectionManager.closeExpiredConnections();
+            if (maxIdleTime > 0) {
+                connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.SECONDS);
+            }
+        }, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * {@link CurrentIdentityConnectionReuseStrategy} for the connections of the non-blocking client.
+     */
+    private static class CurrentIdentityNHttpConnectionReuseStrategy extends CurrentIdentityConnectionReuseStrategy {
+
+        CurrentIdentityNHttpConnectionReuseStrategy(TLSClientKeyManagers tlsClientKeyManagers) {
+            super(tlsClientKeyManagers);
+        }
+
+        @Override
+        protected SSLSession getSSLSession(HttpConnection connection) {
+            return connection instanceof ManagedNHttpClientConnection ?
+                ((ManagedNHttpClientConnection) connection).getSSLSession() :
+                super.getSSLSession(connection);
+        }
+    }
+}
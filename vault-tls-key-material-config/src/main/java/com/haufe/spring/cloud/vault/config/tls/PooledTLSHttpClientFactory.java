@@ -0,0 +1,110 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory for HTTP clients that use the rotating key material of {@link TLSClientKeyManagers} and keep their
+ * connections alive in a bounded pool.
+ * <p>
+ * When the client key material is rotated, idle connections are closed and connections in use are closed
+ * after their current exchange, so all new connections use the new client identity. Idle and expired connections
+ * are evicted by a background thread that ends when the client is closed.
+ */
+public class PooledTLSHttpClientFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PooledTLSHttpClientFactory.class);
+
+    private final ServiceClientTLSProperties serviceClientTLSProperties;
+    private final TLSClientKeyManagers tlsClientKeyManagers;
+
+    /**
+     * Create a factory.
+     *
+     * @param serviceClientTLSProperties the properties with the prefix {@code haufe.client.ssl}, must not be
+     *                                   {@code null}
+     * @param tlsClientKeyManagers       the key and trust managers of the client connections
+     */
+    public PooledTLSHttpClientFactory(ServiceClientTLSProperties serviceClientTLSProperties,
+                                      TLSClientKeyManagers tlsClientKeyManagers) {
+        this.serviceClientTLSProperties = serviceClientTLSProperties;
+        this.tlsClientKeyManagers = tlsClientKeyManagers;
+    }
+
+    /**
+     * Create a pooled HTTP client. The caller is responsible for closing it.
+     *
+     * @return a new HTTP client, never {@literal null}
+     */
+    public CloseableHttpClient createHttpClient() {
+        ServiceClientTLSProperties.Pool pool = serviceClientTLSProperties.getPool();
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+            createSocketFactoryRegistry(), null, null, null,
+            pool.getTimeToLive() > 0 ? pool.getTimeToLive() : -1, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(pool.getValidateAfterInactivity());
+        tlsClientKeyManagers.addRotationListener(
+            () -> connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS));
+
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(pool.getAcquireTimeout())
+            .setConnectTimeout(pool.getConnectTimeout())
+            .setSocketTimeout(pool.getSocketTimeout())
+            .build();
+
+        LOG.info("creating pooled HTTP client with at most {} connections ({} per route)",
+            pool.getMaxTotal(), pool.getMaxPerRoute());
+
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setConnectionReuseStrategy(new CurrentIdentityConnectionReuseStrategy(tlsClientKeyManagers))
+            // otherwise connections authenticated with the client certificate are bound to their principal and are
+            // never leased again; all requests share the one client identity, its rotation is handled above
+            .disableConnectionState()
+            .setKeepAliveStrategy(createKeepAliveStrategy(TimeUnit.SECONDS.toMillis(pool.getKeepAlive())))
+            .evictExpiredConnections()
+            .evictIdleConnections(pool.getMaxIdleTime(), TimeUnit.SECONDS)
+            .build();
+    }
+
+    private Registry<ConnectionSocketFactory> createSocketFactoryRegistry() {
+        String protocol = serviceClientTLSProperties.getProtocol();
+        LOG.info("building an SSLContext based on the {} protocol for backend access", protocol);
+        SSLContext sslContext =
+            tlsClientKeyManagers.createSSLContext(protocol, serviceClientTLSProperties.getSession());
+
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", new SessionTrackingSSLConnectionSocketFactory(sslContext,
+                new DefaultHostnameVerifier(), tlsClientKeyManagers.getSessionStatistics()))
+            .build();
+    }
+
+    /**
+     * Keep connections alive as long as the server permits, or for the given default time if the server does not
+     * limit the keep-alive time.
+     */
+    static ConnectionKeepAliveStrategy createKeepAliveStrategy(long defaultKeepAlive) {
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : defaultKeepAlive;
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.tomcat.util.net.SSLContext;
+import org.apache.tomcat.util.net.SSLHostConfigCertificate;
+import org.apache.tomcat.util.net.SSLUtil;
+import org.apache.tomcat.util.net.jsse.JSSEImplementation;
+import org.apache.tomcat.util.net.jsse.JSSEUtil;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.List;
+
+/**
+ * Tomcat {@link org.apache.tomcat.util.net.SSLImplementation} that lets the connector use the
+ * {@link ReloadableX509KeyManager} and {@link ReloadableX509TrustManager} maintained by
+ * {@link VaultPkiConfiguration} instead of key and trust managers that are built once from the configured
+ * key and trust stores.
+ * <p>
+ * Tomcat instantiates SSL implementations by their class name, i.e., we cannot inject the managers into the
+ * implementation. They are therefore held in static fields, which is sufficient as long as a JVM runs a single
+ * embedded container.
+ * <p>
+ * The SSL engines created by this implementation record their handshakes in the
+ * {@link #getSessionStatistics() session statistics}.
+ */
+public class ReloadableJsseImplementation extends JSSEImplementation {
+
+    private static final ReloadableX509KeyManager KEY_MANAGER = new ReloadableX509KeyManager();
+    private static final ReloadableX509TrustManager TRUST_MANAGER = new ReloadableX509TrustManager();
+    private static final TlsSessionStatistics SESSION_STATISTICS = new TlsSessionStatistics();
+
+    /**
+     * The key manager used by all connectors configured with this SSL implementation.
+     *
+     * @return the process-wide server key manager, never {@literal null}
+     */
+    public static ReloadableX509KeyManager getKeyManager() {
+        return KEY_MANAGER;
+    }
+
+    /**
+     * The trust manager used by all connectors configured with this SSL implementation.
+     *
+     * @return the process-wide server trust manager, never {@literal null}
+     */
+    public static ReloadableX509TrustManager getTrustManager() {
+        return TRUST_MANAGER;
+    }
+
+    /**
+     * The handshake counters of all connectors configured with this SSL implementation.
+     *
+     * @return the process-wide server session statistics, never {@literal null}
+     */
+    public static TlsSessionStatistics getSessionStatistics() {
+        return SESSION_STATISTICS;
+    }
+
+    @Override
+    public SSLUtil getSSLUtil(SSLHostConfigCertificate certificate) {
+        return new ReloadableJsseUtil(certificate);
+    }
+
+    private static class ReloadableJsseUtil extends JSSEUtil {
+
+        ReloadableJsseUtil(SSLHostConfigCertificate certificate) {
+            super(certificate);
+        }
+
+        @Override
+        public KeyManager[] getKeyManagers() {
+            return new KeyManager[]{KEY_MANAGER};
+        }
+
+        @Override
+        public TrustManager[] getTrustManagers() {
+            return new TrustManager[]{TRUST_MANAGER};
+        }
+
+        @Override
+        public SSLContext createSSLContext(List<String> negotiableProtocols) throws NoSuchAlgorithmException {
+            return new HandshakeRecordingSSLContext(super.createSSLContext(negotiableProtocols));
+        }
+    }
+
+    private static class HandshakeRecordingSSLContext implements SSLContext {
+
+        private final SSLContext delegate;
+
+        HandshakeRecordingSSLContext(SSLContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void init(KeyManager[] kms, TrustManager[] tms, SecureRandom sr) throws KeyManagementException {
+            delegate.init(kms, tms, sr);
+        }
+
+        @Override
+        public void destroy() {
+            delegate.destroy();
+        }
+
+        @Override
+        public SSLSessionContext getServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        public SSLEngine createSSLEngine() {
+            return new HandshakeRecordingSSLEngine(delegate.createSSLEngine(), SESSION_STATISTICS);
+        }
+
+        @Override
+        public SSLServerSocketFactory getServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        public SSLParameters getSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.tomcat.util.net.SSLContext;
+import org.apache.tomcat.util.net.SSLHostConfigCertificate;
+import org.apache.tomcat.util.net.SSLUtil;
+import org.apache.tomcat.util.net.openssl.OpenSSLContext;
+import org.apache.tomcat.util.net.openssl.OpenSSLImplementation;
+import org.apache.tomcat.util.net.openssl.OpenSSLUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tomcat {@link org.apache.tomcat.util.net.SSLImplementation} that runs the connector's TLS on OpenSSL (by means
+ * of tomcat-native) with the same {@link ReloadableX509KeyManager} and {@link ReloadableX509TrustManager} as the
+ * {@link ReloadableJsseImplementation}.
+ * <p>
+ * OpenSSL copies the server certificate and private key into its native context when the context is initialized.
+ * The SSL contexts created by this implementation therefore replace their native context as soon as the key
+ * manager was {@link ReloadableX509KeyManager#reload(java.security.KeyStore, char[]) reloaded}. Connections that
+ * are open at that time keep their native context; a replaced context is released as soon as the last of its
+ * engines was closed. Sessions cached by the replaced context cannot be resumed with the new one.
+ * <p>
+ * The trust manager is consulted by OpenSSL on every handshake, so reloaded trust material takes effect
+ * immediately.
+ * <p>
+ * The native context holds a single key entry, so further {@link VaultPkiProperties#getIdentities() identities}
+ * and {@link VaultPkiProperties#getOnDemand() on-demand certificates} are not served by SNI; all clients get the
+ * default identity's certificate.
+ * <p>
+ * The implementation requires the native library; {@link VaultPkiConfiguration} only selects it if
+ * {@link OpenSslSupport#isAvailable()}.
+ */
+public class ReloadableOpenSslImplementation extends OpenSSLImplementation {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReloadableOpenSslImplementation.class);
+
+    @Override
+    public SSLUtil getSSLUtil(SSLHostConfigCertificate certificate) {
+        return new ReloadableOpenSslUtil(certificate);
+    }
+
+    private static class ReloadableOpenSslUtil extends OpenSSLUtil {
+
+        ReloadableOpenSslUtil(SSLHostConfigCertificate certificate) {
+            super(certificate);
+        }
+
+        @Override
+        public KeyManager[] getKeyManagers() {
+            return new KeyManager[]{ReloadableJsseImplementation.getKeyManager()};
+        }
+
+        @Override
+        public TrustManager[] getTrustManagers() {
+            return new TrustManager[]{ReloadableJsseImplementation.getTrustManager()};
+        }
+
+        @Override
+        public SSLContext createSSLContext(List<String> negotiableProtocols) {
+            return new RenewingOpenSslContext(this, certificate, negotiableProtocols);
+        }
+    }
+
+    /**
+     * SSL context that delegates to a native context for the current generation of the key manager.
+     * <p>
+     * Every native context counts its open engines. A replaced context is destroyed when its count drops to zero,
+     * so connections that are open during a renewal are not cut off from their native context.
+     */
+    private static class RenewingOpenSslContext implements SSLContext {
+
+        private final SSLUtil sslUtil;
+        private final SSLHostConfigCertificate certificate;
+        private final List<String> negotiableProtocols;
+
+        private KeyManager[] keyManagers;
+        private TrustManager[] trustManagers;
+        private SecureRandom secureRandom;
+
+        private volatile NativeContext current;
+        private volatile int generation;
+        private final List<NativeContext> retired = new ArrayList<>();
+
+        RenewingOpenSslContext(SSLUtil sslUtil, SSLHostConfigCertificate certificate,
+                               List<String> negotiableProtocols) {
+            this.sslUtil = sslUtil;
+            this.certificate = certificate;
+            this.negotiableProtocols = negotiableProtocols;
+        }
+
+        @Override
+        public synchronized void init(KeyManager[] kms, TrustManager[] tms, SecureRandom sr)
+                throws KeyManagementException {
+            this.keyManagers = kms;
+            this.trustManagers = tms;
+            this.secureRandom = sr;
+            this.generation = ReloadableJsseImplementation.getKeyManager().getGeneration();
+            try {
+                this.current = new NativeContext(createContext());
+            } catch (SSLException e) {
+                throw new KeyManagementException("cannot create the OpenSSL context", e);
+            }
+        }
+
+        @Override
+        public synchronized void destroy() {
+            // the connector shuts down, open engines are of no further use
+            retired.forEach(nativeContext -> nativeContext.context.destroy());
+            retired.clear();
+            if (current != null) {
+                current.context.destroy();
+            }
+        }
+
+        @Override
+        public SSLSessionContext getServerSessionContext() {
+            return current.context.getServerSessionContext();
+        }
+
+        @Override
+        public SSLEngine createSSLEngine() {
+            if (ReloadableJsseImplementation.getKeyManager().getGeneration() != generation) {
+                renew();
+            }
+            NativeContext nativeContext;
+            SSLEngine engine;
+            synchronized (this) {
+                nativeContext = current;
+                engine = nativeContext.context.createSSLEngine();
+                nativeContext.openEngines++;
+            }
+            return new HandshakeRecordingSSLEngine(engine, ReloadableJsseImplementation.getSessionStatistics(),
+                () -> release(nativeContext));
+        }
+
+        @Override
+        public SSLServerSocketFactory getServerSocketFactory() {
+            return current.context.getServerSocketFactory();
+        }
+
+        @Override
+        public SSLParameters getSupportedSSLParameters() {
+            return current.context.getSupportedSSLParameters();
+        }
+
+        private synchronized void release(NativeContext nativeContext) {
+            nativeContext.openEngines--;
+            if (nativeContext.openEngines == 0 && retired.remove(nativeContext)) {
+                nativeContext.context.destroy();
+                LOG.debug("destroyed a replaced OpenSSL context after its last engine was closed");
+            }
+        }
+
+        private synchronized void renew() {
+            int target = ReloadableJsseImplementation.getKeyManager().getGeneration();
+            if (target == generation) {
+                return;
+            }
+            try {
+                OpenSSLContext renewed = createContext();
+                SSLSessionContext sessionContext = renewed.getServerSessionContext();
+                if (sessionContext != null) {
+                    sslUtil.configureSessionContext(sessionContext);
+                }
+                NativeContext replaced = current;
+                current = new NativeContext(renewed);
+                if (replaced.openEngines == 0) {
+                    replaced.context.destroy();
+                } else {
+                    retired.add(replaced);
+                }
+                LOG.info("replaced the OpenSSL context after the reload of the server key material, {} engines " +
+                    "keep the replaced context until they are closed", replaced.openEngines);
+            } catch (SSLException e) {
+                LOG.error("cannot create an OpenSSL context for the reloaded server key material, " +
+                    "keeping the previous key material", e);
+            }
+            // do not retry on every handshake if the new key material is unusable
+            generation = target;
+        }
+
+        private OpenSSLContext createContext() throws SSLException {
+            OpenSSLContext context = new OpenSSLContext(certificate, negotiableProtocols);
+            context.init(keyManagers, trustManagers, secureRandom);
+            return context;
+        }
+    }
+
+    /**
+     * A native context and the number of its engines that are not closed yet; guarded by the owning
+     * {@link RenewingOpenSslContext}.
+     */
+    private static class NativeContext {
+
+        private final OpenSSLContext context;
+        private int openEngines;
+
+        NativeContext(OpenSSLContext context) {
+            this.context = context;
+        }
+    }
+}
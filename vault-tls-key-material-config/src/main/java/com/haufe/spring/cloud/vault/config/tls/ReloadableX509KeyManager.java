@@ -0,0 +1,254 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.stream.Stream;
+
+/**
+ * An {@link X509ExtendedKeyManager} that delegates to a key manager which can be exchanged at runtime.
+ * <p>
+ * The JSSE implementation asks a key manager for an alias first and then for the certificate chain and the
+ * private key of that alias. In order to keep handshakes consistent that are in progress while the key material
+ * is {@link #reload(KeyStore, char[]) reloaded}, the aliases returned by the {@code choose...Alias} methods are
+ * tagged with the generation of the key material they belong to. The previous generation is retained, so
+ * handshakes that started before a reload complete with the old key material, while handshakes that start
+ * afterwards pick up the new key material.
+ * <p>
+ * Untagged aliases (e.g., an alias configured in a container's SSL properties) always refer to the current
+ * generation.
+ * <p>
+ * If the key material contains several key entries, then the server's key entry is chosen by the host name the
+ * client requested via SNI (see {@link SniX509KeyManager}); host names that none of the key entries covers may
+ * be served with {@link #setOnDemandCertificates(OnDemandCertificates) on-demand certificates}.
+ */
+public class ReloadableX509KeyManager extends X509ExtendedKeyManager {
+
+    private static final char GENERATION_SEPARATOR = '#';
+
+    private volatile Generation current = new Generation(0, createKeyManager(null, null));
+    private volatile Generation previous = current;
+    private volatile OnDemandCertificates onDemandCertificates;
+
+    /**
+     * Serve certificates obtained on demand to clients that request a host name via SNI that none of the key
+     * entries covers. The setting takes effect with the next {@link #reload(KeyStore, char[], String) reload}.
+     *
+     * @param onDemandCertificates the on-demand certificates; {@literal null} to serve the key entries only
+     */
+    public void setOnDemandCertificates(OnDemandCertificates onDemandCertificates) {
+        this.onDemandCertificates = onDemandCertificates;
+    }
+
+    /**
+     * Replace the key material this key manager delegates to.
+     *
+     * @param keyStore the key store with the new private key(s) and certificate chain(s); {@literal null} means
+     *                 that this key manager won't offer any key material at all
+     * @param password the password required to recover the keys from the {@code keyStore}
+     * @throws TlsInitializationException no key manager could be initialized with the given key store
+     */
+    public void reload(KeyStore keyStore, char[] password) {
+        reload(keyStore, password, null);
+    }
+
+    /**
+     * Replace the key material this key manager delegates to and serve the key entry with the given alias to
+     * clients that do not request a host name of one of the other key entries.
+     *
+     * @param keyStore     the key store with the new private key(s) and certificate chain(s); {@literal null} means
+     *                     that this key manager won't offer any key material at all
+     * @param password     the password required to recover the keys from the {@code keyStore}
+     * @param defaultAlias the alias of the default server key entry; {@literal null} to leave the choice to the
+     *                     JSSE key manager
+     * @throws TlsInitializationException no key manager could be initialized with the given key store
+     */
+    public synchronized void reload(KeyStore keyStore, char[] password, String defaultAlias) {
+        X509ExtendedKeyManager keyManager = createKeyManager(keyStore, password);
+        if (keyStore != null) {
+            keyManager = new SniX509KeyManager(keyManager, keyStore, password, defaultAlias, onDemandCertificates);
+        }
+        swap(keyManager);
+    }
+
+    /**
+     * Replace the key manager this key manager delegates to by a ready-made one, e.g., the
+     * {@link TLSClientKeyMaterial.PrivateKeyMaterial#getKeyManager() key manager} of private key material. No key
+     * store is involved, so the key material is not decoded again.
+     *
+     * @param keyManager the key manager with the new key material; {@literal null} means that this key manager
+     *                   won't offer any key material at all
+     */
+    public synchronized void reload(X509ExtendedKeyManager keyManager) {
+        swap(keyManager != null ? keyManager : createKeyManager(null, null));
+    }
+
+    private void swap(X509ExtendedKeyManager keyManager) {
+        Generation next = new Generation(current.id + 1, keyManager);
+        previous = current;
+        current = next;
+    }
+
+    /**
+     * The number of times the key material was {@link #reload(KeyStore, char[]) reloaded}.
+     *
+     * @return the generation of the current key material; {@literal 0} before the first reload
+     */
+    public int getGeneration() {
+        return current.id;
+    }
+
+    /**
+     * The end entity certificate of the current key material.
+     * <p>
+     * If the key material contains more than one private key, then the certificate of the default alias is
+     * returned; without a default alias, the certificate of the first alias that the delegate offers for RSA or
+     * EC keys is returned.
+     *
+     * @return the certificate that is presented in new handshakes; {@literal null} if there is no key material
+     */
+    public X509Certificate getCurrentCertificate() {
+        X509ExtendedKeyManager keyManager = current.keyManager;
+        if (keyManager instanceof SniX509KeyManager && ((SniX509KeyManager) keyManager).getDefaultAlias() != null) {
+            X509Certificate[] chain =
+                keyManager.getCertificateChain(((SniX509KeyManager) keyManager).getDefaultAlias());
+            return chain[0];
+        }
+        for (String keyType : new String[]{"RSA", "EC"}) {
+            String[] aliases = keyManager.getServerAliases(keyType, null);
+            if (aliases != null && aliases.length > 0) {
+                X509Certificate[] chain = keyManager.getCertificateChain(aliases[0]);
+                if (chain != null && chain.length > 0) {
+                    return chain[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers) {
+        Generation generation = current;
+        return tag(generation, generation.keyManager.getClientAliases(keyType, issuers));
+    }
+
+    @Override
+    public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+        Generation generation = current;
+        return tag(generation, generation.keyManager.chooseClientAlias(keyType, issuers, socket));
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+        Generation generation = current;
+        return tag(generation, generation.keyManager.chooseEngineClientAlias(keyType, issuers, engine));
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers) {
+        Generation generation = current;
+        return tag(generation, generation.keyManager.getServerAliases(keyType, issuers));
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+        Generation generation = current;
+        return tag(generation, generation.keyManager.chooseServerAlias(keyType, issuers, socket));
+    }
+
+    @Override
+    public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+        Generation generation = current;
+        return tag(generation, generation.keyManager.chooseEngineServerAlias(keyType, issuers, engine));
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias) {
+        Generation generation = resolve(alias);
+        return generation != null ? generation.keyManager.getCertificateChain(untag(alias)) : null;
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias) {
+        Generation generation = resolve(alias);
+        return generation != null ? generation.keyManager.getPrivateKey(untag(alias)) : null;
+    }
+
+    private Generation resolve(String alias) {
+        if (alias == null) {
+            return null;
+        }
+        int idx = alias.lastIndexOf(GENERATION_SEPARATOR);
+        if (idx < 0) {
+            return current;
+        }
+        int id;
+        try {
+            id = Integer.parseInt(alias.substring(idx + 1));
+        } catch (NumberFormatException e) {
+            return current;
+        }
+        Generation generation = current;
+        if (generation.id == id) {
+            return generation;
+        }
+        generation = previous;
+        return generation.id == id ? generation : null;
+    }
+
+    private static String tag(Generation generation, String alias) {
+        return alias != null ? alias + GENERATION_SEPARATOR + generation.id : null;
+    }
+
+    private static String[] tag(Generation generation, String[] aliases) {
+        return aliases != null ?
+            Stream.of(aliases).map(alias -> tag(generation, alias)).toArray(String[]::new) :
+            null;
+    }
+
+    private static String untag(String alias) {
+        int idx = alias.lastIndexOf(GENERATION_SEPARATOR);
+        return idx >= 0 && StringUtils.isNumeric(alias.substring(idx + 1)) ? alias.substring(0, idx) : alias;
+    }
+
+    private static X509ExtendedKeyManager createKeyManager(KeyStore keyStore, char[] password) {
+        try {
+            KeyManagerFactory keyManagerFactory =
+                KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            if (keyStore != null) {
+                keyManagerFactory.init(keyStore, password);
+            } else {
+                KeyStore emptyKeyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+                emptyKeyStore.load(null, null);
+                keyManagerFactory.init(emptyKeyStore, new char[0]);
+            }
+
+            return Stream.of(keyManagerFactory.getKeyManagers())
+                .filter(km -> km instanceof X509ExtendedKeyManager)
+                .map(km -> (X509ExtendedKeyManager) km)
+                .findFirst()
+                .orElseThrow(() -> new TlsInitializationException("no X509ExtendedKeyManager available"));
+        } catch (GeneralSecurityException | IOException e) {
+            throw new TlsInitializationException("cannot initialize a key manager", e);
+        }
+    }
+
+    private static final class Generation {
+        private final int id;
+        private final X509ExtendedKeyManager keyManager;
+
+        private Generation(int id, X509ExtendedKeyManager keyManager) {
+            this.id = id;
+            this.keyManager = keyManager;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.google.common.cache.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.stream.Stream;
+
+/**
+ * An {@link X509ExtendedTrustManager} that delegates to a trust manager which can be exchanged at runtime.
+ * <p>
+ * Until the first {@link #reload(KeyStore) reload}, this trust manager delegates to the Java runtime's
+ * default trust manager.
+ * <p>
+ * If the {@link #configureValidationCache(long, long) validation cache} is enabled, then the delegate is a
+ * {@link CachingX509TrustManager}. Every reload starts with an empty cache, so chains validated against the previous
+ * trusted certificates are validated again.
+ */
+public class ReloadableX509TrustManager extends X509ExtendedTrustManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReloadableX509TrustManager.class);
+
+    private volatile X509ExtendedTrustManager delegate = createTrustManager(null);
+
+    private X509ExtendedTrustManager trustManager = delegate;
+    private long validationCacheSize;
+    private long validationCacheExpiry;
+    private CacheStats retiredStatistics = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Replace the trusted certificates this trust manager delegates to.
+     *
+     * @param trustStore the trust store with the trusted certificates; {@literal null} means that the Java
+     *                   runtime's default trust store applies
+     * @throws TlsInitializationException no trust manager could be initialized with the given trust store
+     */
+    public synchronized void reload(KeyStore trustStore) {
+        reload(createTrustManager(trustStore));
+    }
+
+    /**
+     * Replace the trust manager this trust manager delegates to by a ready-made one, e.g., the
+     * {@link TLSClientKeyMaterial.TrustMaterial#getTrustManager() trust manager} of trust material.
+     *
+     * @param trustManager the trust manager that validates certificate chains; {@literal null} means that the Java
+     *                     runtime's default trust store applies
+     * @throws TlsInitializationException no trust manager could be initialized with the default trust store
+     */
+    public synchronized void reload(X509ExtendedTrustManager trustManager) {
+        if (trustManager == null) {
+            trustManager = createTrustManager(null);
+        }
+        if (delegate instanceof CachingX509TrustManager) {
+            CacheStats statistics = ((CachingX509TrustManager) delegate).getStatistics();
+            LOG.debug("discarding validation cache with statistics {}", statistics);
+            retiredStatistics = retiredStatistics.plus(statistics);
+        }
+        delegate = validationCacheSize > 0 ?
+            new CachingX509TrustManager(trustManager, validationCacheSize, validationCacheExpiry) :
+            trustManager;
+        this.trustManager = trustManager;
+    }
+
+    /**
+     * Enable or disable the cache of validated client certificate chains. The current trusted certificates are
+     * reloaded with the new settings.
+     *
+     * @param maximumSize      the maximum number of cached chains; {@literal 0} disables the cache
+     * @param expireAfterWrite the time (in seconds) a validation result is cached
+     */
+    public synchronized void configureValidationCache(long maximumSize, long expireAfterWrite) {
+        validationCacheSize = Math.max(0, maximumSize);
+        validationCacheExpiry = expireAfterWrite;
+        reload(trustManager);
+    }
+
+    /**
+     * Hit and miss statistics of the validation cache, accumulated over all reloads.
+     *
+     * @return a snapshot of the statistics; all zero if the validation cache has never been enabled
+     */
+    public synchronized CacheStats getValidationCacheStatistics() {
+        X509ExtendedTrustManager current = delegate;
+        return current instanceof CachingX509TrustManager ?
+            retiredStatistics.plus(((CachingX509TrustManager) current).getStatistics()) :
+            retiredStatistics;
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+        delegate.checkClientTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+        delegate.checkServerTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+        delegate.checkClientTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+        delegate.checkServerTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        delegate.checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        delegate.checkServerTrusted(chain, authType);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+        return delegate.getAcceptedIssuers();
+    }
+
+    /**
+     * Create the default trust manager of the Java runtime for the given trust store.
+     *
+     * @param trustStore the trust store with the trusted certificates; {@literal null} means that the Java runtime's
+     *                   default trust store applies
+     * @return the trust manager, never {@literal null}
+     * @throws TlsInitializationException no trust manager could be initialized with the given trust store
+     */
+    static X509ExtendedTrustManager createTrustManager(KeyStore trustStore) {
+        try {
+            TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(trustStore); // null means default trust store
+
+            return Stream.of(trustManagerFactory.getTrustManagers())
+                .filter(tm -> tm instanceof X509ExtendedTrustManager)
+                .map(tm -> (X509ExtendedTrustManager) tm)
+                .findFirst()
+                .orElseThrow(() -> new TlsInitializationException("no X509ExtendedTrustManager available"));
+        } catch (GeneralSecurityException e) {
+            throw new TlsInitializationException("cannot initialize a trust manager", e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy that decides when a certificate has to be renewed.
+ * <p>
+ * The policy drives both the decision whether a certificate cached in the vault may still be reused and the
+ * schedule of the {@link ServerCertificateRenewer background renewal}. If all instances of an application used
+ * the same policy, then they would all consider the shared cached certificate stale at the same moment and
+ * request new certificates simultaneously. {@link #withJitter(double, Random) Jittered} policies move the renewal
+ * time of each instance by a random, but fixed amount, so the first instance renews the certificate and the
+ * others pick up the renewed certificate from the vault cache.
+ */
+@FunctionalInterface
+public interface RenewalPolicy {
+
+    /**
+     * The point in time when a certificate should be renewed.
+     *
+     * @param notBefore the start of the certificate's validity period (in milliseconds since the epoch)
+     * @param notAfter  the end of the certificate's validity period (in milliseconds since the epoch)
+     * @return the renewal time (in milliseconds since the epoch), not after {@code notAfter}
+     */
+    long getRenewalTime(long notBefore, long notAfter);
+
+    /**
+     * Whether a certificate has to be renewed at the given time.
+     *
+     * @param notBefore the start of the certificate's validity period (in milliseconds since the epoch)
+     * @param notAfter  the end of the certificate's validity period (in milliseconds since the epoch)
+     * @param now       the current time (in milliseconds since the epoch)
+     * @return {@literal true} if the certificate's renewal time has come
+     */
+    default boolean isRenewalDue(long notBefore, long notAfter, long now) {
+        return now >= getRenewalTime(notBefore, notAfter);
+    }
+
+    /**
+     * Derive a policy that renews earlier than this policy by a random share of the certificate's lifetime.
+     * <p>
+     * The random share is drawn once, so the derived policy is deterministic for a given certificate.
+     *
+     * @param maxJitter the maximum share of the lifetime, between {@literal 0} and {@literal 1}
+     * @param random    the source of the random share
+     * @return the jittered policy
+     */
+    default RenewalPolicy withJitter(double maxJitter, Random random) {
+        if (maxJitter < 0 || maxJitter > 1) {
+            throw new IllegalArgumentException("maxJitter must be between 0 and 1");
+        }
+        double jitter = maxJitter * random.nextDouble();
+        return (notBefore, notAfter) -> {
+            long jitterMillis = (long) (jitter * (notAfter - notBefore));
+            return Math.max(notBefore, getRenewalTime(notBefore, notAfter) - jitterMillis);
+        };
+    }
+
+    /**
+     * Policy that renews a certificate once the given share of its lifetime has elapsed.
+     *
+     * @param fraction the share of the lifetime, between {@literal 0} and {@literal 1}
+     * @return the policy
+     */
+    static RenewalPolicy fractionOfLifetime(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("fraction must be between 0 and 1");
+        }
+        return (notBefore, notAfter) -> notBefore + (long) (fraction * (notAfter - notBefore));
+    }
+
+    /**
+     * Policy that renews a certificate once its remaining lifetime drops below the given time to live.
+     * <p>
+     * The time to live is capped at half of the certificate's lifetime, so short-lived certificates are not
+     * renewed over and over again.
+     *
+     * @param timeToLive the minimum remaining lifetime (in seconds)
+     * @return the policy
+     */
+    static RenewalPolicy remainingTimeToLive(long timeToLive) {
+        long timeToLiveMillis = TimeUnit.SECONDS.toMillis(Math.max(0, timeToLive));
+        return (notBefore, notAfter) -> notAfter - Math.min(timeToLiveMillis, (notAfter - notBefore) / 2);
+    }
+
+    /**
+     * Create the policy configured by the given properties, including the instance specific jitter.
+     * <p>
+     * The jitter is drawn once per JVM, so policies created from the same properties agree on the renewal time.
+     *
+     * @param pkiProperties PKI specific configurations
+     * @return the policy
+     */
+    static RenewalPolicy of(VaultPkiProperties pkiProperties) {
+        VaultPkiProperties.Renewal renewal = pkiProperties.getRenewal();
+
+        RenewalPolicy policy;
+        switch (renewal.getPolicy()) {
+            case FRACTION_OF_LIFETIME:
+                policy = fractionOfLifetime(renewal.getLifetimeFraction());
+                break;
+            case MIN_TIME_TO_LIVE:
+                policy = remainingTimeToLive(pkiProperties.getMinCachedTimeToLive());
+                break;
+            case LEAD_TIME:
+            default:
+                policy = remainingTimeToLive(renewal.getRenewBeforeExpiry());
+                break;
+        }
+
+        return renewal.getJitter() > 0 ?
+            policy.withJitter(renewal.getJitter(), InstanceJitter.newRandom()) :
+            policy;
+    }
+
+    /**
+     * The available policy types.
+     */
+    enum Type {
+
+        /**
+         * Renew once the share {@code renewal.lifetimeFraction} of the lifetime has elapsed.
+         */
+        FRACTION_OF_LIFETIME,
+
+        /**
+         * Renew once the remaining lifetime drops below {@code minCachedTimeToLive}.
+         */
+        MIN_TIME_TO_LIVE,
+
+        /**
+         * Renew {@code renewal.renewBeforeExpiry} seconds before the certificate expires.
+         */
+        LEAD_TIME
+    }
+}
@@ -0,0 +1,282 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import javaslang.Tuple2;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.vault.config.VaultProperties;
+import org.springframework.vault.core.VaultOperations;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task that renews the server certificate before it expires and swaps the renewed key material
+ * into the running container by means of the {@link ReloadableJsseImplementation}'s key and trust managers.
+ * <p>
+ * Renewed certificates are obtained through
+ * {@link CertificateUtil#getOrRequestCertificate(VaultProperties, VaultOperations, VaultPkiProperties, VaultClock,
+ * RenewalPolicy, TlsMetrics)},
+ * i.e., a certificate renewed and cached by another instance of the same application is reused.
+ * <p>
+ * If the container was started with material from the {@link LocalCertificateCache local certificate cache},
+ * then the renewer revalidates that material against the vault right away and keeps the local cache up to date.
+ * The revalidation takes place even if the periodic renewal is disabled.
+ * <p>
+ * The certificates of further {@link VaultPkiProperties#getIdentities() identities} are renewed together with the
+ * default identity's certificate; the renewal is scheduled for the certificate that is due first.
+ */
+public class ServerCertificateRenewer implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServerCertificateRenewer.class);
+
+    private static final char[] EMPTY_PASSWORD = new char[]{};
+
+    private final VaultProperties vaultProperties;
+    private final VaultOperations vaultOperations;
+    private final VaultPkiProperties pkiProperties;
+    private final VaultClock vaultClock;
+    private final RenewalPolicy renewalPolicy;
+    private final LocalCertificateCache localCache;
+    private final boolean revalidateImmediately;
+    private final TlsMetrics metrics;
+    private final TlsMaterialInventory inventory;
+    private final ScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> nextRenewal;
+
+    private volatile CertificateBundle currentBundle;
+    private volatile Map<String, CertificateBundle> currentIdentityBundles;
+    private volatile TrustedCertificates currentTrustedCertificates;
+
+    /**
+     * Create a renewer for the certificates of the server's default identity and of further identities.
+     * <p>
+     * The renewer registers itself in the inventory, so a renewal can be {@link #renewNow() triggered} on demand.
+     *
+     * @param vaultProperties            configuration how to access the vault instance
+     * @param vaultOperations            vault API client implementation
+     * @param pkiProperties              PKI specific configurations, including the renewal settings and the
+     *                                   further identities
+     * @param vaultClock                 estimate of the vault server's time, must not be {@literal null}
+     * @param renewalPolicy              the policy that decides when the certificate is renewed, must not be
+     *                                   {@literal null}
+     * @param initialBundle              the certificate bundle of the default identity the container was started
+     *                                   with, must not be {@literal null}
+     * @param initialTrustedCertificates the trusted certificates the container was started with; may be
+     *                                   {@literal null}
+     * @param localCache                 the local certificate cache that is updated with renewed material
+     * @param revalidateImmediately      whether the initial material is checked against the vault right away,
+     *                                   e.g., because it was read from the local certificate cache
+     * @param metrics                    the metrics that record the vault operations and the key store
+     *                                   creations, must not be {@literal null}
+     * @param inventory                  the inventory that records the renewed material, must not be
+     *                                   {@literal null}
+     * @param initialIdentityBundles     the certificate bundles of the further identities the container was
+     *                                   started with, by their common names; must not be {@literal null}
+     */
+    public ServerCertificateRenewer(VaultProperties vaultProperties, VaultOperations vaultOperations,
+                                    VaultPkiProperties pkiProperties, VaultClock vaultClock,
+                                    RenewalPolicy renewalPolicy, CertificateBundle initialBundle,
+                                    TrustedCertificates initialTrustedCertificates,
+                                    Optional<LocalCertificateCache> localCache, boolean revalidateImmediately,
+                                    TlsMetrics metrics, TlsMaterialInventory inventory,
+                                    Map<String, CertificateBundle> initialIdentityBundles) {
+        this.vaultProperties = vaultProperties;
+        this.vaultOperations = vaultOperations;
+        this.pkiProperties = pkiProperties;
+        this.vaultClock = Objects.requireNonNull(vaultClock, "vaultClock must not be null");
+        this.renewalPolicy = Objects.requireNonNull(renewalPolicy, "renewalPolicy must not be null");
+        this.currentBundle = Objects.requireNonNull(initialBundle, "initialBundle must not be null");
+        this.currentIdentityBundles = new LinkedHashMap<>(
+            Objects.requireNonNull(initialIdentityBundles, "initialIdentityBundles must not be null"));
+        this.currentTrustedCertificates = initialTrustedCertificates;
+        this.localCache = localCache.orElse(null);
+        this.revalidateImmediately = revalidateImmediately;
+        this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+        this.inventory = Objects.requireNonNull(inventory, "inventory must not be null");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vault-pki-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        inventory.registerRenewal("server", this::renewNow);
+        if (revalidateImmediately) {
+            scheduleRenewal(0);
+        } else if (pkiProperties.getRenewal().isEnabled()) {
+            scheduleRenewal(getRenewalDelay());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * The certificate bundle that is currently served.
+     *
+     * @return the current certificate bundle, never {@literal null}
+     */
+    public CertificateBundle getCurrentBundle() {
+        return currentBundle;
+    }
+
+    /**
+     * The certificate bundles of the further identities that are currently served.
+     *
+     * @return the current certificate bundles by the identities' common names, never {@literal null}
+     */
+    public Map<String, CertificateBundle> getCurrentIdentityBundles() {
+        return Collections.unmodifiableMap(currentIdentityBundles);
+    }
+
+    /**
+     * Issue a new server certificate in the background, even if the current one is not due for renewal yet, and
+     * swap it into the container.
+     * <p>
+     * This method does not wait for the renewal. Afterwards, the periodic renewal continues based on the new
+     * certificate.
+     */
+    public void renewNow() {
+        LOG.info("renewal of the server certificate requested");
+        scheduler.execute(() -> renew(true));
+    }
+
+    private synchronized void scheduleRenewal(long delayMillis) {
+        LOG.info("next renewal check of the server certificate in {} seconds",
+            TimeUnit.MILLISECONDS.toSeconds(delayMillis));
+        // a requested renewal replaces the pending periodic one
+        if (nextRenewal != null) {
+            nextRenewal.cancel(false);
+        }
+        nextRenewal = scheduler.schedule(() -> renew(false), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void renew(boolean force) {
+        VaultPkiProperties.Renewal renewal = pkiProperties.getRenewal();
+        try {
+            // a certificate is always due for renewal according to a policy that renews right after the start
+            // of the validity period
+            RenewalPolicy policy = force ? RenewalPolicy.fractionOfLifetime(0) : renewalPolicy;
+            Tuple2<CertificateBundle, TlsMaterialInventory.Source> obtained = CertificateUtil.obtainCertificate(
+                vaultProperties, vaultOperations, pkiProperties, vaultClock, policy, metrics);
+            CertificateBundle bundle = obtained._1;
+
+            Map<String, Tuple2<CertificateBundle, TlsMaterialInventory.Source>> renewedIdentities =
+                new LinkedHashMap<>();
+            Map<String, CertificateBundle> identityBundles = new LinkedHashMap<>();
+            for (VaultPkiProperties.Identity identity : pkiProperties.getIdentities()) {
+                Tuple2<CertificateBundle, TlsMaterialInventory.Source> obtainedIdentity =
+                    CertificateUtil.obtainCertificate(vaultProperties, vaultOperations,
+                        pkiProperties.forIdentity(identity), vaultClock, policy, metrics);
+                identityBundles.put(identity.getCommonName(), obtainedIdentity._1);
+                CertificateBundle currentIdentityBundle = currentIdentityBundles.get(identity.getCommonName());
+                if (currentIdentityBundle == null || !StringUtils.equals(obtainedIdentity._1.getSerialNumber(),
+                    currentIdentityBundle.getSerialNumber())) {
+                    renewedIdentities.put(identity.getCommonName(), obtainedIdentity);
+                }
+            }
+
+            TrustedCertificates trustedCertificates = readTrustedCertificates();
+
+            boolean certificateChanged =
+                !StringUtils.equals(bundle.getSerialNumber(), currentBundle.getSerialNumber());
+            boolean trustChanged =
+                trustedCertificates != null && !trustedCertificates.equals(currentTrustedCertificates);
+
+            if (certificateChanged || !renewedIdentities.isEmpty()) {
+                ReloadableJsseImplementation.getKeyManager().reload(
+                    metrics.timeKeyStoreCreation(
+                        () -> VaultPkiConfiguration.createServerKeyStore(bundle, identityBundles)),
+                    EMPTY_PASSWORD, VaultPkiConfiguration.SERVER_KEY_ALIAS);
+                currentBundle = bundle;
+                currentIdentityBundles = identityBundles;
+            }
+            if (certificateChanged) {
+                inventory.recordIdentity("server", bundle.getX509Certificate(), obtained._2);
+                LOG.info("swapped renewed server certificate with serial number {} into the container",
+                    bundle.getSerialNumber());
+            }
+            renewedIdentities.forEach((commonName, renewed) -> {
+                inventory.recordIdentity("server:" + commonName, renewed._1.getX509Certificate(), renewed._2);
+                LOG.info("swapped renewed certificate of {} with serial number {} into the container",
+                    commonName, renewed._1.getSerialNumber());
+            });
+            if (trustChanged) {
+                KeyStore trustStore = metrics.timeTrustStoreCreation(() ->
+                    trustedCertificates.createTrustStore(pkiProperties.isMergeDefaultTrustedCertificates()));
+                ReloadableJsseImplementation.getTrustManager().reload(trustStore);
+                inventory.recordTrustStore("server", trustStore, TlsMaterialInventory.Source.VAULT_SECRET);
+                currentTrustedCertificates = trustedCertificates;
+                LOG.info("swapped updated trusted certificates into the container");
+            }
+            if (localCache != null && (certificateChanged || trustChanged)) {
+                localCache.write(pkiProperties.getCommonName(), currentBundle, currentTrustedCertificates);
+            }
+            if (localCache != null) {
+                currentIdentityBundles.forEach((commonName, identityBundle) -> {
+                    if (trustChanged || renewedIdentities.containsKey(commonName)) {
+                        localCache.write(commonName, identityBundle, currentTrustedCertificates);
+                    }
+                });
+            }
+
+            if (renewal.isEnabled()) {
+                scheduleRenewal(getRenewalDelay());
+            }
+        } catch (RuntimeException e) {
+            LOG.error("renewal of the server certificate failed, retrying in {} seconds",
+                renewal.getRetryInterval(), e);
+            scheduleRenewal(TimeUnit.SECONDS.toMillis(renewal.getRetryInterval()));
+        }
+    }
+
+    private TrustedCertificates readTrustedCertificates() {
+        String trustStorePath = pkiProperties.getTrustStorePath();
+        return StringUtils.isNotBlank(trustStorePath) ?
+            CertificateUtil.readTrustedCertificates(vaultOperations, trustStorePath, metrics) :
+            null;
+    }
+
+    private long getRenewalDelay() {
+        long retryInterval = TimeUnit.SECONDS.toMillis(pkiProperties.getRenewal().getRetryInterval());
+        long renewalTime = getRenewalTime(currentBundle);
+        for (CertificateBundle identityBundle : currentIdentityBundles.values()) {
+            renewalTime = Math.min(renewalTime, getRenewalTime(identityBundle));
+        }
+        // the vault decides with the same policy in its own time whether the cached certificate is still valid
+        long now;
+        try {
+            now = vaultClock.currentTimeMillis();
+        } catch (RuntimeException e) {
+            LOG.warn("cannot estimate the vault server time, retrying the renewal in {} seconds",
+                pkiProperties.getRenewal().getRetryInterval(), e);
+            return retryInterval;
+        }
+
+        return Math.max(renewalTime - now, retryInterval);
+    }
+
+    private long getRenewalTime(CertificateBundle bundle) {
+        X509Certificate certificate = bundle.getX509Certificate();
+        return renewalPolicy.getRenewalTime(
+            certificate.getNotBefore().getTime(), certificate.getNotAfter().getTime());
+    }
+}
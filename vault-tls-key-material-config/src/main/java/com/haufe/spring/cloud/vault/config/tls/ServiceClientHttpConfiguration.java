@@ -0,0 +1,63 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Spring Boot auto-configuration of a pooled HTTP client for service-to-service calls that uses the
+ * {@link TLSClientKeyManagers} created by {@link ServiceClientTLSConfig}.
+ * <p>
+ * Every bean backs off if the application defines its own bean of the same type.
+ */
+@Configuration
+@ConditionalOnClass(HttpClient.class)
+@ConditionalOnBean(TLSClientKeyManagers.class)
+@EnableConfigurationProperties(ServiceClientTLSProperties.class)
+public class ServiceClientHttpConfiguration {
+
+    /**
+     * Factory for the pooled HTTP client.
+     *
+     * @param serviceClientTLSProperties the properties with the prefix {@code haufe.client.ssl}
+     * @param tlsClientKeyManagers       the key and trust managers of the client connections
+     * @return the factory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public PooledTLSHttpClientFactory pooledTLSHttpClientFactory(
+            ServiceClientTLSProperties serviceClientTLSProperties, TLSClientKeyManagers tlsClientKeyManagers) {
+        return new PooledTLSHttpClientFactory(serviceClientTLSProperties, tlsClientKeyManagers);
+    }
+
+    /**
+     * The pooled HTTP client; closing it shuts down its connection pool.
+     *
+     * @param pooledTLSHttpClientFactory the factory of the client
+     * @return the HTTP client
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public CloseableHttpClient serviceClientHttpClient(PooledTLSHttpClientFactory pooledTLSHttpClientFactory) {
+        return pooledTLSHttpClientFactory.createHttpClient();
+    }
+
+    /**
+     * Factory for HTTP client requests that uses the pooled HTTP client.
+     *
+     * @param serviceClientHttpClient the pooled HTTP client
+     * @return the request factory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient serviceClientHttpClient) {
+        return new HttpComponentsClientHttpRequestFactory(serviceClientHttpClient);
+    }
+}
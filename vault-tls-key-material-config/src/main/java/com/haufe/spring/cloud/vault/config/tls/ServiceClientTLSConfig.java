@@ -3,6 +3,8 @@ package com.haufe.spring.cloud.vault.config.tls;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -19,6 +21,11 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.security.KeyStore;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Throwables.propagate;
 
@@ -27,7 +34,8 @@ import static com.google.common.base.Throwables.propagate;
  */
 @Configuration
 @EnableConfigurationProperties(ServiceClientTLSProperties.class)
-@Import(VaultBootstrapConfiguration.class)
+@Import({VaultBootstrapConfiguration.class, VaultClockConfiguration.class, TlsMetricsConfiguration.class,
+    TlsMaterialInventoryConfiguration.class})
 public class ServiceClientTLSConfig {
 
     private static final Logger LOG = LoggerFactory.getLogger(ServiceClientTLSConfig.class);
@@ -40,6 +48,9 @@ public class ServiceClientTLSConfig {
      *
      * @param serviceClientTLSProperties the properties with the prefix {@code haufe.client.ssl}, must not be {@code null}
      * @param vaultOperations      facade for interactions with the vault instance
+     * @param vaultClock           estimate of the vault server's time
+     * @param tlsMetrics           the metrics that record the vault operations and the key store creations
+     * @param inventory            the inventory that records the client certificate and trust store
      * @return key material required to set up the {@link javax.net.ssl.SSLContext} for the client access
      */
     @Bean
@@ -48,7 +59,77 @@ public class ServiceClientTLSConfig {
         "${spring.cloud.vault.enabled:true} and " +
             "${haufe.client.ssl.vault.enabled:true}")
     public TLSClientKeyMaterial tlsClientKeyMaterialFromVault(
-            ServiceClientTLSProperties serviceClientTLSProperties, VaultOperations vaultOperations) {
+            ServiceClientTLSProperties serviceClientTLSProperties, VaultOperations vaultOperations,
+            VaultClock vaultClock, TlsMetrics tlsMetrics, TlsMaterialInventory inventory) {
+
+        TLSClientKeyMaterial material =
+            loadTlsClientKeyMaterialFromVault(serviceClientTLSProperties, vaultOperations, vaultClock, tlsMetrics);
+        recordClientMaterial(inventory, material, TlsMaterialInventory.Source.VAULT_SECRET);
+        return material;
+
+    }
+
+    /**
+     * Factory for the {@link TLSClientKeyManagers} that hold the current {@link TLSClientKeyMaterial}.
+     *
+     * @param tlsClientKeyMaterial the initial key material for the client access
+     * @param tlsMetrics           the metrics that report the remaining lifetime of the client certificate
+     * @return key and trust managers required to set up the {@link javax.net.ssl.SSLContext} for the client access
+     */
+    @Bean
+    public TLSClientKeyManagers tlsClientKeyManagers(TLSClientKeyMaterial tlsClientKeyMaterial,
+                                                     TlsMetrics tlsMetrics) {
+        TLSClientKeyManagers keyManagers = new TLSClientKeyManagers(tlsClientKeyMaterial);
+        tlsMetrics.registerCertificate("client", keyManagers.getKeyManager()::getCurrentCertificate);
+        return keyManagers;
+    }
+
+    /**
+     * The handshake counters of the client connections, exposed as a bean so they are exported via JMX.
+     *
+     * @param tlsClientKeyManagers the key managers of the client connections
+     * @return the client session statistics
+     */
+    @Bean
+    public TlsSessionStatistics tlsClientSessionStatistics(TLSClientKeyManagers tlsClientKeyManagers) {
+        return tlsClientKeyManagers.getSessionStatistics();
+    }
+
+    /**
+     * Factory for a background task that periodically reads the TLS client key material from vault again
+     * and swaps it into the {@link TLSClientKeyManagers} if it changed.
+     *
+     * @param serviceClientTLSProperties the properties with the prefix {@code haufe.client.ssl}, must not be
+     *                                   {@code null}
+     * @param vaultOperations            facade for interactions with the vault instance
+     * @param vaultClock                 estimate of the vault server's time
+     * @param tlsClientKeyManagers       the key managers to update
+     * @param tlsMetrics                 the metrics that record the vault operations and the key store creations
+     * @param inventory                  the inventory that records refreshed material and triggers refreshes on
+     *                                   demand
+     * @return the refresher bean
+     */
+    @Bean
+    @ConditionalOnBean(VaultOperations.class)
+    @ConditionalOnExpression(
+        "${spring.cloud.vault.enabled:true} and " +
+            "${haufe.client.ssl.vault.enabled:true}")
+    public VaultTLSClientKeyMaterialRefresher vaultTLSClientKeyMaterialRefresher(
+            ServiceClientTLSProperties serviceClientTLSProperties, VaultOperations vaultOperations,
+            VaultClock vaultClock, TLSClientKeyManagers tlsClientKeyManagers, TlsMetrics tlsMetrics,
+            TlsMaterialInventory inventory) {
+
+        return new VaultTLSClientKeyMaterialRefresher(
+            () -> loadTlsClientKeyMaterialFromVault(serviceClientTLSProperties, vaultOperations, vaultClock,
+                tlsMetrics),
+            tlsClientKeyManagers,
+            serviceClientTLSProperties.getVault().getRefreshInterval(),
+            inventory);
+    }
+
+    private TLSClientKeyMaterial loadTlsClientKeyMaterialFromVault(
+            ServiceClientTLSProperties serviceClientTLSProperties, VaultOperations vaultOperations,
+            VaultClock vaultClock, TlsMetrics tlsMetrics) {
 
         ServiceClientTLSProperties.VaultServiceClientTLSProperties vaultServiceClientTLSProperties = serviceClientTLSProperties.getVault();
         String vaulSecretBackend = vaultServiceClientTLSProperties.getBackend();
@@ -58,15 +139,21 @@ public class ServiceClientTLSConfig {
 
         LOG.info("creating TLSClientKayMaterial from data in the vault backend {}", vaulSecretBackend);
 
-        Optional<TLSClientKeyMaterial.PrivateKeyMaterial> privateKeyMaterial =
-            fetchPrivateKeyMaterial(vaultServiceClientTLSProperties, vaultOperations);
-        Optional<TLSClientKeyMaterial.TrustMaterial> trustMaterial =
-            fetchTrustMaterial(vaultServiceClientTLSProperties, vaultOperations);
+        // the key and trust material are independent of each other, so we fetch them in parallel
+        try (ConcurrentFetcher fetcher = new ConcurrentFetcher("vault-client-tls-fetch",
+            vaultServiceClientTLSProperties.getFetchConcurrency(), vaultServiceClientTLSProperties.getFetchTimeout())) {
 
-        return ImmutableTLSClientKeyMaterial.builder()
-            .privateKeyMaterial(privateKeyMaterial)
-            .trustMaterial(trustMaterial)
-            .build();
+            Future<Optional<TLSClientKeyMaterial.PrivateKeyMaterial>> privateKeyMaterial =
+                fetcher.submit(() -> fetchPrivateKeyMaterial(vaultServiceClientTLSProperties, vaultOperations,
+                    vaultClock, tlsMetrics));
+            Future<Optional<TLSClientKeyMaterial.TrustMaterial>> trustMaterial =
+                fetcher.submit(() -> fetchTrustMaterial(vaultServiceClientTLSProperties, vaultOperations, tlsMetrics));
+
+            return ImmutableTLSClientKeyMaterial.builder()
+                .privateKeyMaterial(fetcher.await(privateKeyMaterial, "the TLS client key material"))
+                .trustMaterial(fetcher.await(trustMaterial, "the TLS client trust material"))
+                .build();
+        }
 
     }
 
@@ -76,18 +163,21 @@ public class ServiceClientTLSConfig {
      * @param vaultServiceClientTLSProperties the properties with the prefix {@code haufe.client.ssl.vault},
      *                                  must not be {@code null}
      * @param vaultOperations           facade for interactions with the vault instance
+     * @param vaultClock                estimate of the vault server's time
+     * @param tlsMetrics                the metrics that record the vault operations
      * @return private key material required to set up the {@link javax.net.ssl.SSLContext}
      * for the client access
      */
     private Optional<TLSClientKeyMaterial.PrivateKeyMaterial> fetchPrivateKeyMaterial(
-            ServiceClientTLSProperties.VaultServiceClientTLSProperties vaultServiceClientTLSProperties, VaultOperations vaultOperations) {
+            ServiceClientTLSProperties.VaultServiceClientTLSProperties vaultServiceClientTLSProperties,
+            VaultOperations vaultOperations, VaultClock vaultClock, TlsMetrics tlsMetrics) {
 
         String relPath = vaultServiceClientTLSProperties.getKeyStorePath();
         String fullKeyStorePath = StringUtils.isNotBlank(relPath) ?
             vaultServiceClientTLSProperties.getBackend() + "/" + relPath :
             "";
         Optional<CertificateBundle> certificateBundle =
-            CertificateUtil.readCertificateBundle(vaultOperations, fullKeyStorePath);
+            CertificateUtil.readCertificateBundle(vaultOperations, fullKeyStorePath, vaultClock, tlsMetrics);
 
         if (certificateBundle.isPresent()) {
             LOG.info("Fetched client key material for {} from vault for the client HTTP acces",
@@ -96,12 +186,7 @@ public class ServiceClientTLSConfig {
             LOG.warn("No client key material found in vault for the client HTTP acces");
         }
 
-        return certificateBundle
-            .map(bundle -> ImmutablePrivateKeyMaterial.builder()
-                .keyStore(bundle.createKeyStore("http-client"))
-                .keyPassword(EMPTY_PASSWORD)
-                .keyStorePassword(EMPTY_PASSWORD)
-                .build());
+        return certificateBundle.map(TLSClientKeyMaterial.PrivateKeyMaterial::of);
 
     }
 
@@ -111,11 +196,13 @@ public class ServiceClientTLSConfig {
      * @param vaultServiceClientTLSProperties the properties with the prefix {@code haufe.client.ssl.vault},
      *                                  must not be {@code null}
      * @param vaultOperations           facade for interactions with the vault instance
+     * @param tlsMetrics                the metrics that record the vault operations and the trust store creation
      * @return trust material required to set up the {@link javax.net.ssl.SSLContext}
      * for tthe client HTTP acces
      */
     private Optional<TLSClientKeyMaterial.TrustMaterial> fetchTrustMaterial(
-            ServiceClientTLSProperties.VaultServiceClientTLSProperties vaultServiceClientTLSProperties, VaultOperations vaultOperations) {
+            ServiceClientTLSProperties.VaultServiceClientTLSProperties vaultServiceClientTLSProperties,
+            VaultOperations vaultOperations, TlsMetrics tlsMetrics) {
 
         String relPath = vaultServiceClientTLSProperties.getTrustStorePath();
         String fullTrustStorePath = StringUtils.isNotBlank(relPath) ?
@@ -123,7 +210,7 @@ public class ServiceClientTLSConfig {
             "";
         Optional<TrustedCertificates> trustedCertificates =
             StringUtils.isNotBlank(fullTrustStorePath) ?
-                Optional.of(CertificateUtil.readTrustedCertificates(vaultOperations, fullTrustStorePath)) :
+                Optional.of(CertificateUtil.readTrustedCertificates(vaultOperations, fullTrustStorePath, tlsMetrics)) :
                 Optional.empty();
 
         LOG.info("Fetched {} trusted certificates from vault as TLS client configuration " +
@@ -132,7 +219,8 @@ public class ServiceClientTLSConfig {
 
         return trustedCertificates
             .map(trustedCerts -> ImmutableTrustMaterial.builder()
-                .trustStore(trustedCerts.createTrustStore())
+                .trustStore(tlsMetrics.timeTrustStoreCreation(() -> trustedCerts.createTrustStore(
+                    vaultServiceClientTLSProperties.isMergeDefaultTrustedCertificates())))
                 .trustStorePassword(EMPTY_PASSWORD)
                 .build());
 
@@ -143,12 +231,13 @@ public class ServiceClientTLSConfig {
      * the properties {@code haufe.client.ssl.filesystem}.
      *
      * @param serviceClientTLSProperties the properties with the prefix {@code haufe.client.ssl}, must not be {@code null}
+     * @param inventory                  the inventory that records the client certificate and trust store
      * @return key material required to set up the {@link javax.net.ssl.SSLContext} for the client HTTP acces
      */
     @Bean
     @ConditionalOnMissingBean(TLSClientKeyMaterial.class)
     public TLSClientKeyMaterial tlsClientKeyMaterialFromFilesystem(
-        ServiceClientTLSProperties serviceClientTLSProperties) {
+        ServiceClientTLSProperties serviceClientTLSProperties, TlsMaterialInventory inventory) {
 
         final ServiceClientTLSProperties.FilesystemServiceClientTLSProperties filesystemServiceClientTLSProperties =
             serviceClientTLSProperties.getFilesystem();
@@ -160,11 +249,21 @@ public class ServiceClientTLSConfig {
         Optional<TLSClientKeyMaterial.TrustMaterial> trustMaterial =
             readTrustMaterial(filesystemServiceClientTLSProperties);
 
-        return ImmutableTLSClientKeyMaterial.builder()
+        TLSClientKeyMaterial material = ImmutableTLSClientKeyMaterial.builder()
             .privateKeyMaterial(privateKeyMaterial)
             .trustMaterial(trustMaterial)
             .build();
+        recordClientMaterial(inventory, material, TlsMaterialInventory.Source.FILESYSTEM);
+        return material;
+
+    }
 
+    private static void recordClientMaterial(TlsMaterialInventory inventory, TLSClientKeyMaterial material,
+                                             TlsMaterialInventory.Source source) {
+        material.getPrivateKeyMaterial().ifPresent(privateKeyMaterial ->
+            inventory.recordIdentity("client", privateKeyMaterial.getCertificateChain().get(0), source));
+        material.getTrustMaterial().ifPresent(trustMaterial ->
+            inventory.recordTrustStore("client", trustMaterial.getTrustStore(), source));
     }
 
     /**
@@ -187,11 +286,8 @@ public class ServiceClientTLSConfig {
 
             LOG.info("loading client key material from {} for the client HTTP acces",
                 keyStoreFileName);
-            return Optional.of(ImmutablePrivateKeyMaterial.builder()
-                .keyStore(getFilesystemStore(keyStoreFileName, keyStorePassword, keyStoreType))
-                .keyStorePassword(keyStorePassword)
-                .keyPassword(keyStorePassword)
-                .build());
+            return Optional.of(TLSClientKeyMaterial.PrivateKeyMaterial.of(
+                getFilesystemStore(keyStoreFileName, keyStorePassword, keyStoreType), keyStorePassword));
 
         }
 
@@ -256,5 +352,68 @@ public class ServiceClientTLSConfig {
 
     }
 
+    /**
+     * Background task that reads the TLS client key material from vault in a fixed interval and
+     * {@link TLSClientKeyManagers#update(TLSClientKeyMaterial) updates} the client's key managers.
+     */
+    public static class VaultTLSClientKeyMaterialRefresher implements InitializingBean, DisposableBean {
+
+        private final Supplier<TLSClientKeyMaterial> tlsClientKeyMaterialSupplier;
+        private final TLSClientKeyManagers tlsClientKeyManagers;
+        private final long refreshInterval;
+        private final TlsMaterialInventory inventory;
+        private final ScheduledExecutorService scheduler;
+
+        VaultTLSClientKeyMaterialRefresher(Supplier<TLSClientKeyMaterial> tlsClientKeyMaterialSupplier,
+                                           TLSClientKeyManagers tlsClientKeyManagers, long refreshInterval,
+                                           TlsMaterialInventory inventory) {
+            this.tlsClientKeyMaterialSupplier = tlsClientKeyMaterialSupplier;
+            this.tlsClientKeyManagers = tlsClientKeyManagers;
+            this.refreshInterval = refreshInterval;
+            this.inventory = inventory;
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "vault-client-tls-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public void afterPropertiesSet() {
+            inventory.registerRenewal("client", this::refreshNow);
+            if (refreshInterval > 0) {
+                LOG.info("refreshing the TLS client key material from vault every {} seconds", refreshInterval);
+                scheduler.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+            }
+        }
+
+        @Override
+        public void destroy() {
+            scheduler.shutdownNow();
+        }
+
+        /**
+         * Read the key material from vault in the background and swap it into the client's key managers if it
+         * changed. This method does not wait for the refresh.
+         */
+        public void refreshNow() {
+            scheduler.execute(this::refresh);
+        }
 
+        /**
+         * Read the key material from vault and swap it into the client's key managers if it changed.
+         */
+        public void refresh() {
+            try {
+                TLSClientKeyMaterial material = tlsClientKeyMaterialSupplier.get();
+                if (tlsClientKeyManagers.update(material)) {
+                    recordClientMaterial(inventory, material, TlsMaterialInventory.Source.VAULT_SECRET);
+                } else {
+                    LOG.debug("TLS client key material in vault is unchanged");
+                }
+            } catch (RuntimeException e) {
+                LOG.error("refreshing the TLS client key material from vault failed", e);
+            }
+        }
+    }
 }
@@ -13,6 +13,8 @@ import org.springframework.cloud.vault.config.VaultSecretBackendDescriptor;
 public class ServiceClientTLSProperties {
 
     private String protocol = "TLSv1.2";
+    private TlsSessionProperties session = new TlsSessionProperties();
+    private Pool pool = new Pool();
     private FilesystemServiceClientTLSProperties filesystem = new FilesystemServiceClientTLSProperties();
     private VaultServiceClientTLSProperties vault = new VaultServiceClientTLSProperties();
 
@@ -114,5 +116,84 @@ public class ServiceClientTLSProperties {
          */
         private String trustStorePath = DEFAULT_TRUSTSTORE_PATH;
 
+        /**
+         * Whether the trust store read from {@link #trustStorePath} is merged with the JVM's default trusted
+         * certificates. Default is {@literal false}, i.e., only the certificates from vault are trusted.
+         */
+        private boolean mergeDefaultTrustedCertificates = false;
+
+        /**
+         * The interval (in seconds) in which the key material is read again from vault. If the client certificate
+         * or the trusted certificates changed, then they are swapped into the running HTTP client.
+         * Default is one hour; a value {@literal <= 0} disables the refresh.
+         */
+        private long refreshInterval = 3600;
+
+        /**
+         * The maximum number of parallel requests to the vault while fetching the key material.
+         */
+        private int fetchConcurrency = 4;
+
+        /**
+         * The time (in seconds) fetching all key material from the vault may take. Default is 30 seconds.
+         */
+        private long fetchTimeout = 30;
+
+    }
+
+    /**
+     * Configuration properties of the HTTP connection pool.
+     *
+     * @see PooledTLSHttpClientFactory
+     */
+    @Data
+    public static class Pool {
+
+        /**
+         * The maximum number of connections in the pool. Default is 50.
+         */
+        private int maxTotal = 50;
+
+        /**
+         * The maximum number of connections to a single route (i.e., target host). Default is 20.
+         */
+        private int maxPerRoute = 20;
+
+        /**
+         * The time (in seconds) an idle connection is kept alive if the server does not specify a keep-alive
+         * time. Default is 30 seconds.
+         */
+        private long keepAlive = 30;
+
+        /**
+         * The time (in seconds) after which idle connections are evicted from the pool. Default is one minute.
+         */
+        private long maxIdleTime = 60;
+
+        /**
+         * The maximum lifetime (in seconds) of a connection; {@literal 0} means no limit. Default is no limit.
+         */
+        private long timeToLive = 0;
+
+        /**
+         * The idle time (in milliseconds) after which a pooled connection is checked before it is reused.
+         * Default is 2 seconds.
+         */
+        private int validateAfterInactivity = 2000;
+
+        /**
+         * The time (in milliseconds) a request waits for a connection from the pool. Default is 5 seconds.
+         */
+        private int acquireTimeout = 5000;
+
+        /**
+         * The time (in milliseconds) until a new connection is established. Default is 5 seconds.
+         */
+        private int connectTimeout = 5000;
+
+        /**
+         * The maximum time (in milliseconds) of inactivity while reading a response. Default is 30 seconds.
+         */
+        private int socketTimeout = 30000;
     }
 }
@@ -0,0 +1,44 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * An {@link SSLConnectionSocketFactory} that records whether the handshakes of the connections it creates resumed
+ * a cached TLS session.
+ */
+public class SessionTrackingSSLConnectionSocketFactory extends SSLConnectionSocketFactory {
+
+    private final TlsSessionStatistics statistics;
+
+    /**
+     * Create a socket factory.
+     *
+     * @param sslContext       the SSL context of the connections
+     * @param hostnameVerifier the verifier of the server's host name
+     * @param statistics       the counters the handshakes are recorded in
+     */
+    public SessionTrackingSSLConnectionSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier,
+                                                     TlsSessionStatistics statistics) {
+        super(sslContext, hostnameVerifier);
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+        throws IOException {
+
+        long handshakeStarted = System.currentTimeMillis();
+        Socket layeredSocket = super.createLayeredSocket(socket, target, port, context);
+        if (layeredSocket instanceof SSLSocket) {
+            statistics.recordHandshake(((SSLSocket) layeredSocket).getSession(), handshakeStarted);
+        }
+        return layeredSocket;
+    }
+}
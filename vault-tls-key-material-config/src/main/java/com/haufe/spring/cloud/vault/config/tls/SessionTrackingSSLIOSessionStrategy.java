@@ -0,0 +1,53 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.apache.http.HttpHost;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLIOSession;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+
+/**
+ * An {@link SSLIOSessionStrategy} that records whether the handshakes of the non-blocking connections it upgrades
+ * resumed a cached TLS session; the counterpart of {@link SessionTrackingSSLConnectionSocketFactory}.
+ */
+public class SessionTrackingSSLIOSessionStrategy extends SSLIOSessionStrategy {
+
+    private static final String HANDSHAKE_STARTED = SessionTrackingSSLIOSessionStrategy.class.getName() +
+        ".handshakeStarted";
+
+    private final TlsSessionStatistics statistics;
+
+    /**
+     * Create a session strategy.
+     *
+     * @param sslContext       the SSL context of the connections
+     * @param hostnameVerifier the verifier of the server's host name
+     * @param statistics       the counters the handshakes are recorded in
+     */
+    public SessionTrackingSSLIOSessionStrategy(SSLContext sslContext, HostnameVerifier hostnameVerifier,
+                                               TlsSessionStatistics statistics) {
+        super(sslContext, hostnameVerifier);
+        this.statistics = statistics;
+    }
+
+    @Override
+    public SSLIOSession upgrade(HttpHost host, IOSession iosession) throws IOException {
+        // the handshake completes asynchronously, so its start is kept with the session until it is verified
+        iosession.setAttribute(HANDSHAKE_STARTED, System.currentTimeMillis());
+        return super.upgrade(host, iosession);
+    }
+
+    @Override
+    protected void verifySession(HttpHost host, IOSession iosession, SSLSession sslsession) throws SSLException {
+        super.verifySession(host, iosession, sslsession);
+        Object handshakeStarted = iosession.removeAttribute(HANDSHAKE_STARTED);
+        if (handshakeStarted instanceof Long) {
+            statistics.recordHandshake(sslsession, (Long) handshakeStarted);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.net.Socket;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An {@link X509ExtendedKeyManager} that offers a single, already decoded private key and its certificate chain.
+ * <p>
+ * In contrast to the key managers of a {@link javax.net.ssl.KeyManagerFactory}, no key store is involved, so the
+ * key material of a {@link org.springframework.vault.support.CertificateBundle certificate bundle} is decoded
+ * exactly once. The key entry is offered for a key type if the algorithm of the private key matches and, for key
+ * types like {@code EC_RSA}, the certificate is signed with the given algorithm. If the peer names acceptable
+ * issuers, then one of the certificates of the chain must be issued by one of them.
+ */
+class SingleKeyX509KeyManager extends X509ExtendedKeyManager {
+
+    private final String alias;
+    private final PrivateKey privateKey;
+    private final X509Certificate[] chain;
+
+    /**
+     * Create a key manager for the given key entry.
+     *
+     * @param alias      the alias of the key entry, must not be {@literal null}
+     * @param privateKey the private key, must not be {@literal null}
+     * @param chain      the certificate chain, starting with the end entity certificate, must not be empty
+     */
+    SingleKeyX509KeyManager(String alias, PrivateKey privateKey, X509Certificate[] chain) {
+        if (chain.length == 0) {
+            throw new IllegalArgumentException("chain must not be empty");
+        }
+        this.alias = alias;
+        this.privateKey = privateKey;
+        this.chain = chain.clone();
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers) {
+        return matches(keyType, issuers) ? new String[]{alias} : null;
+    }
+
+    @Override
+    public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
+        return chooseAlias(keyTypes, issuers);
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyTypes, Principal[] issuers, SSLEngine engine) {
+        return chooseAlias(keyTypes, issuers);
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers) {
+        return getClientAliases(keyType, issuers);
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+        return matches(keyType, issuers) ? alias : null;
+    }
+
+    @Override
+    public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+        return matches(keyType, issuers) ? alias : null;
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias) {
+        return this.alias.equals(alias) ? chain.clone() : null;
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias) {
+        return this.alias.equals(alias) ? privateKey : null;
+    }
+
+    private String chooseAlias(String[] keyTypes, Principal[] issuers) {
+        if (keyTypes != null) {
+            for (String keyType : keyTypes) {
+                if (matches(keyType, issuers)) {
+                    return alias;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(String keyType, Principal[] issuers) {
+        if (keyType == null) {
+            return false;
+        }
+        // JSSE asks for key types like "RSA", "EC", or "EC_RSA" (an EC key in a certificate signed with RSA)
+        int separator = keyType.indexOf('_');
+        String keyAlgorithm = separator < 0 ? keyType : keyType.substring(0, separator);
+        if (!keyAlgorithm.equals(privateKey.getAlgorithm())) {
+            return false;
+        }
+        if (separator >= 0) {
+            String signatureAlgorithm = chain[0].getSigAlgName().toUpperCase(Locale.ROOT);
+            if (!signatureAlgorithm.contains("WITH" + keyType.substring(separator + 1))) {
+                return false;
+            }
+        }
+        if (issuers == null || issuers.length == 0) {
+            return true;
+        }
+        List<Principal> acceptedIssuers = Arrays.asList(issuers);
+        for (X509Certificate certificate : chain) {
+            if (acceptedIssuers.contains(certificate.getIssuerX500Principal())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,289 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.StandardConstants;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An {@link X509ExtendedKeyManager} that chooses the server's key entry by the host name the client requested by
+ * means of the TLS server name indication (SNI) extension.
+ * <p>
+ * The host names of every key entry (the DNS names among the subject alternative names and the common name of the
+ * certificate) are indexed by key algorithm when the key manager is created, so a handshake looks up its key entry
+ * with at most two hash lookups: one for the requested host name and one for the wildcard name of its parent
+ * domain. Handshakes without SNI or with an unknown host name get the default alias, if its key algorithm fits.
+ * <p>
+ * If {@link OnDemandCertificates on-demand certificates} are configured, then an unknown host name that they allow
+ * gets an on-demand certificate, which may have to be obtained first. The alias of an on-demand certificate names
+ * its host name and serial number, and the key manager keeps the entry of the alias, so the certificate chain and
+ * the private key of a handshake come from the same issuance even if the certificate is renewed meanwhile.
+ * <p>
+ * Everything else, in particular the choice of client aliases, is left to the delegate key manager.
+ */
+class SniX509KeyManager extends X509ExtendedKeyManager {
+
+    private static final Pattern COMMON_NAME = Pattern.compile("(?:^|,)\\s*CN=([^,]+)");
+
+    private static final int SAN_DNS_NAME = 2;
+
+    private static final String ON_DEMAND_ALIAS_PREFIX = "on-demand:";
+
+    // the entries only have to outlive the handshakes that chose their alias
+    private static final long MAXIMUM_PINNED_ENTRIES = 1000;
+    private static final long PINNED_ENTRY_EXPIRY_MINUTES = 5;
+
+    private final X509ExtendedKeyManager delegate;
+    private final String defaultAlias;
+    private final Map<String, Entry> entries;
+    private final Map<String, String> aliasesByHostName;
+    private final OnDemandCertificates onDemandCertificates;
+    private final Cache<String, Entry> onDemandEntries;
+
+    /**
+     * Create a key manager for the key entries of the given key store.
+     *
+     * @param delegate     the key manager for all choices other than server aliases for known host names, must not
+     *                     be {@literal null}
+     * @param keyStore     the key store with the key entries, must not be {@literal null}
+     * @param password     the password required to recover the keys from the {@code keyStore}
+     * @param defaultAlias the alias chosen for handshakes without a known host name; {@literal null} to leave the
+     *                     choice to the delegate
+     * @param onDemandCertificates the certificates for host names not covered by the key store; may be
+     *                     {@literal null}
+     * @throws TlsInitializationException the key entries cannot be read
+     */
+    SniX509KeyManager(X509ExtendedKeyManager delegate, KeyStore keyStore, char[] password, String defaultAlias,
+                      OnDemandCertificates onDemandCertificates) {
+        this.delegate = delegate;
+        this.onDemandCertificates = onDemandCertificates;
+        this.onDemandEntries = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_PINNED_ENTRIES)
+            .expireAfterAccess(PINNED_ENTRY_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .build();
+        this.entries = new HashMap<>();
+        this.aliasesByHostName = new HashMap<>();
+        try {
+            for (String alias : Collections.list(keyStore.aliases())) {
+                if (!keyStore.isKeyEntry(alias)) {
+                    continue;
+                }
+                Key key = keyStore.getKey(alias, password);
+                Certificate[] chain = keyStore.getCertificateChain(alias);
+                if (!(key instanceof PrivateKey) || chain == null || chain.length == 0 ||
+                    !(chain[0] instanceof X509Certificate)) {
+                    continue;
+                }
+                X509Certificate[] x509Chain = Arrays.copyOf(chain, chain.length, X509Certificate[].class);
+                entries.put(alias, new Entry((PrivateKey) key, x509Chain));
+                String keyAlgorithm = key.getAlgorithm();
+                for (String hostName : hostNamesOf(x509Chain[0])) {
+                    // the first entry for a host name wins, as in the order of a TLS host configuration
+                    aliasesByHostName.putIfAbsent(indexKey(keyAlgorithm, hostName), alias);
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new TlsInitializationException("cannot read the key entries of the key store", e);
+        }
+        this.defaultAlias = defaultAlias != null && entries.containsKey(defaultAlias) ? defaultAlias : null;
+    }
+
+    /**
+     * The alias chosen for handshakes without a known host name.
+     *
+     * @return the default alias; {@literal null} if the choice is left to the delegate
+     */
+    String getDefaultAlias() {
+        return defaultAlias;
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers) {
+        return delegate.getClientAliases(keyType, issuers);
+    }
+
+    @Override
+    public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+        return delegate.chooseClientAlias(keyType, issuers, socket);
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+        return delegate.chooseEngineClientAlias(keyType, issuers, engine);
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers) {
+        return delegate.getServerAliases(keyType, issuers);
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+        SSLSession session = socket instanceof SSLSocket ? ((SSLSocket) socket).getHandshakeSession() : null;
+        String alias = chooseAlias(keyType, session);
+        return alias != null ? alias : delegate.chooseServerAlias(keyType, issuers, socket);
+    }
+
+    @Override
+    public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+        String alias = chooseAlias(keyType, engine != null ? engine.getHandshakeSession() : null);
+        return alias != null ? alias : delegate.chooseEngineServerAlias(keyType, issuers, engine);
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias) {
+        if (isOnDemandAlias(alias)) {
+            return getOnDemandEntry(alias).map(entry -> entry.chain.clone()).orElse(null);
+        }
+        Entry entry = entries.get(alias);
+        return entry != null ? entry.chain.clone() : delegate.getCertificateChain(alias);
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias) {
+        if (isOnDemandAlias(alias)) {
+            return getOnDemandEntry(alias).map(entry -> entry.privateKey).orElse(null);
+        }
+        Entry entry = entries.get(alias);
+        return entry != null ? entry.privateKey : delegate.getPrivateKey(alias);
+    }
+
+    private String chooseAlias(String keyType, SSLSession handshakeSession) {
+        if (keyType == null) {
+            return null;
+        }
+        // JSSE asks for key types like "RSA", "EC", or "EC_RSA" (an EC key in a certificate signed with RSA)
+        int separator = keyType.indexOf('_');
+        String keyAlgorithm = separator < 0 ? keyType : keyType.substring(0, separator);
+
+        String hostName = requestedHostName(handshakeSession);
+        if (hostName != null) {
+            String alias = aliasesByHostName.get(indexKey(keyAlgorithm, hostName));
+            if (alias == null) {
+                int dot = hostName.indexOf('.');
+                if (dot > 0) {
+                    alias = aliasesByHostName.get(indexKey(keyAlgorithm, "*" + hostName.substring(dot)));
+                }
+            }
+            if (alias != null) {
+                return alias;
+            }
+            Optional<String> onDemandAlias = onDemandCertificates == null ? Optional.empty() :
+                onDemandCertificates.get(hostName)
+                    .filter(keyEntry -> keyEntry.getPrivateKey().getAlgorithm().equals(keyAlgorithm))
+                    .map(keyEntry -> pinOnDemandEntry(hostName, keyEntry));
+            if (onDemandAlias.isPresent()) {
+                return onDemandAlias.get();
+            }
+        }
+        return defaultAlias != null && entries.get(defaultAlias).privateKey.getAlgorithm().equals(keyAlgorithm) ?
+            defaultAlias :
+            null;
+    }
+
+    private boolean isOnDemandAlias(String alias) {
+        return onDemandCertificates != null && alias != null && alias.startsWith(ON_DEMAND_ALIAS_PREFIX);
+    }
+
+    private String pinOnDemandEntry(String hostName, KeyStore.PrivateKeyEntry keyEntry) {
+        Entry entry = toEntry(keyEntry);
+        String alias = ON_DEMAND_ALIAS_PREFIX + hostName + ':' + entry.chain[0].getSerialNumber().toString(16);
+        onDemandEntries.put(alias, entry);
+        return alias;
+    }
+
+    private Optional<Entry> getOnDemandEntry(String alias) {
+        Entry entry = onDemandEntries.getIfPresent(alias);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        // the pinned entry expired; the cached certificate only serves the alias if it is still the same issuance
+        int serialSeparator = alias.lastIndexOf(':');
+        return onDemandCertificates.getIfPresent(alias.substring(ON_DEMAND_ALIAS_PREFIX.length(), serialSeparator))
+            .map(SniX509KeyManager::toEntry)
+            .filter(cached -> cached.chain[0].getSerialNumber().toString(16)
+                .equals(alias.substring(serialSeparator + 1)));
+    }
+
+    private static Entry toEntry(KeyStore.PrivateKeyEntry keyEntry) {
+        Certificate[] chain = keyEntry.getCertificateChain();
+        return new Entry(keyEntry.getPrivateKey(), Arrays.copyOf(chain, chain.length, X509Certificate[].class));
+    }
+
+    private static String requestedHostName(SSLSession handshakeSession) {
+        if (!(handshakeSession instanceof ExtendedSSLSession)) {
+            return null;
+        }
+        List<SNIServerName> serverNames = ((ExtendedSSLSession) handshakeSession).getRequestedServerNames();
+        for (SNIServerName serverName : serverNames) {
+            if (serverName.getType() == StandardConstants.SNI_HOST_NAME && serverName instanceof SNIHostName) {
+                return normalize(((SNIHostName) serverName).getAsciiName());
+            }
+        }
+        return null;
+    }
+
+    private static Collection<String> hostNamesOf(X509Certificate certificate) throws CertificateParsingException {
+        Collection<String> hostNames = new LinkedHashSet<>();
+        Collection<List<?>> alternativeNames = certificate.getSubjectAlternativeNames();
+        if (alternativeNames != null) {
+            for (List<?> alternativeName : alternativeNames) {
+                if (((Integer) alternativeName.get(0)) == SAN_DNS_NAME) {
+                    hostNames.add(normalize((String) alternativeName.get(1)));
+                }
+            }
+        }
+        Matcher matcher = COMMON_NAME.matcher(certificate.getSubjectX500Principal().getName());
+        if (matcher.find()) {
+            hostNames.add(normalize(matcher.group(1)));
+        }
+        return hostNames;
+    }
+
+    private static String normalize(String hostName) {
+        String lowerCase = hostName.trim().toLowerCase(Locale.ROOT);
+        return lowerCase.endsWith(".") ? lowerCase.substring(0, lowerCase.length() - 1) : lowerCase;
+    }
+
+    private static String indexKey(String keyAlgorithm, String hostName) {
+        return keyAlgorithm + '/' + hostName;
+    }
+
+    private static final class Entry {
+        private final PrivateKey privateKey;
+        private final X509Certificate[] chain;
+
+        private Entry(PrivateKey privateKey, X509Certificate[] chain) {
+            this.privateKey = privateKey;
+            this.chain = chain;
+        }
+    }
+}
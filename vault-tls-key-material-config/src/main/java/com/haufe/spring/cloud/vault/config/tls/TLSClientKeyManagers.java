@@ -0,0 +1,240 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Key and trust managers for TLS client connections whose key material can be rotated at runtime.
+ * <p>
+ * {@link SSLContext SSL contexts} {@link #createSSLContext(String) created} by this object keep working across
+ * {@link #update(TLSClientKeyMaterial) updates}: new handshakes use the current key material. Connections that
+ * were established with a previous client identity are not affected by an update; consumers that pool connections
+ * can {@link #addRotationListener(Runnable) register} a listener in order to drain such connections. Cached TLS
+ * sessions of the SSL contexts are invalidated by an update, so they are not resumed with the previous identity.
+ */
+public class TLSClientKeyManagers {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TLSClientKeyManagers.class);
+
+    private final ReloadableX509KeyManager keyManager = new ReloadableX509KeyManager();
+    private final ReloadableX509TrustManager trustManager = new ReloadableX509TrustManager();
+    private final List<Runnable> rotationListeners = new CopyOnWriteArrayList<>();
+    private final TlsSessionStatistics sessionStatistics = new TlsSessionStatistics();
+    // held weakly, so SSL contexts that are no longer used do not stay reachable; guarded by itself
+    private final Set<SSLSessionContext> sessionContexts = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private volatile X509Certificate currentCertificate;
+    private byte[] fingerprint;
+
+    /**
+     * Create key and trust managers initialized with the given key material.
+     *
+     * @param tlsClientKeyMaterial the initial key material, must not be {@literal null}
+     */
+    public TLSClientKeyManagers(TLSClientKeyMaterial tlsClientKeyMaterial) {
+        update(tlsClientKeyMaterial);
+    }
+
+    /**
+     * Swap the key material used by the managers if it differs from the current key material.
+     * <p>
+     * If the key material changed, then the {@link #addRotationListener(Runnable) rotation listeners} are
+     * notified after the swap.
+     *
+     * @param tlsClientKeyMaterial the new key material, must not be {@literal null}
+     * @return whether the key material changed
+     * @throws TlsInitializationException the key material could not be loaded into the managers
+     */
+    public boolean update(TLSClientKeyMaterial tlsClientKeyMaterial) {
+        Objects.requireNonNull(tlsClientKeyMaterial, "tlsClientKeyMaterial must not be null");
+
+        synchronized (this) {
+            byte[] newFingerprint = fingerprint(tlsClientKeyMaterial);
+            if (Arrays.equals(fingerprint, newFingerprint)) {
+                return false;
+            }
+
+            TLSClientKeyMaterial.PrivateKeyMaterial privateKeyMaterial =
+                tlsClientKeyMaterial.getPrivateKeyMaterial().orElse(null);
+            keyManager.reload(privateKeyMaterial != null ? privateKeyMaterial.getKeyManager() : null);
+            trustManager.reload(tlsClientKeyMaterial.getTrustMaterial()
+                .map(TLSClientKeyMaterial.TrustMaterial::getTrustManager)
+                .orElse(null));
+
+            currentCertificate = privateKeyMaterial != null ? privateKeyMaterial.getCertificateChain().get(0) : null;
+            boolean initialLoad = fingerprint == null;
+            fingerprint = newFingerprint;
+
+            if (initialLoad) {
+                return true;
+            }
+        }
+
+        LOG.info("rotated TLS client key material, current client certificate: {}",
+            currentCertificate != null ? currentCertificate.getSubjectDN() : "<none>");
+        List<SSLSessionContext> liveSessionContexts;
+        synchronized (sessionContexts) {
+            liveSessionContexts = new ArrayList<>(sessionContexts);
+        }
+        liveSessionContexts.forEach(TLSClientKeyManagers::invalidateSessions);
+        rotationListeners.forEach(TLSClientKeyManagers::notifyListener);
+        return true;
+    }
+
+    /**
+     * Register a listener that is called whenever the key material changed.
+     *
+     * @param listener the callback, must not be {@literal null}
+     */
+    public void addRotationListener(Runnable listener) {
+        rotationListeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * The client certificate currently presented to servers that request TLS client authentication.
+     *
+     * @return the current client certificate; {@literal null} if no private key material is configured
+     */
+    public X509Certificate getCurrentCertificate() {
+        return currentCertificate;
+    }
+
+    /**
+     * The key manager that delegates to the current private key material.
+     *
+     * @return the key manager, never {@literal null}
+     */
+    public ReloadableX509KeyManager getKeyManager() {
+        return keyManager;
+    }
+
+    /**
+     * The trust manager that delegates to the current trust material.
+     *
+     * @return the trust manager, never {@literal null}
+     */
+    public ReloadableX509TrustManager getTrustManager() {
+        return trustManager;
+    }
+
+    /**
+     * The handshake counters of client connections that record their handshakes, e.g., connections created by a
+     * {@link SessionTrackingSSLConnectionSocketFactory}.
+     *
+     * @return the client session statistics, never {@literal null}
+     */
+    public TlsSessionStatistics getSessionStatistics() {
+        return sessionStatistics;
+    }
+
+    /**
+     * Create an {@link SSLContext} that uses this object's key and trust managers.
+     *
+     * @param protocol the TLS protocol, e.g., {@code TLSv1.2}
+     * @return an initialized SSL context, never {@literal null}
+     * @throws TlsInitializationException the SSL context could not be created
+     */
+    public SSLContext createSSLContext(String protocol) {
+        return createSSLContext(protocol, null);
+    }
+
+    /**
+     * Create an {@link SSLContext} that uses this object's key and trust managers and the given session cache
+     * settings.
+     *
+     * @param protocol          the TLS protocol, e.g., {@code TLSv1.2}
+     * @param sessionProperties the settings of the client session cache; {@literal null} means that the Java
+     *                          runtime's defaults apply
+     * @return an initialized SSL context, never {@literal null}
+     * @throws TlsInitializationException the SSL context could not be created
+     */
+    public SSLContext createSSLContext(String protocol, TlsSessionProperties sessionProperties) {
+        try {
+            SSLContext sslContext = SSLContext.getInstance(protocol);
+            sslContext.init(new KeyManager[]{keyManager}, new TrustManager[]{trustManager}, null);
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            if (sessionProperties != null) {
+                sessionContext.setSessionCacheSize(sessionProperties.getCacheSize());
+                sessionContext.setSessionTimeout(sessionProperties.getTimeout());
+            }
+            synchronized (sessionContexts) {
+                sessionContexts.add(sessionContext);
+            }
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            throw new TlsInitializationException("could not construct an SSLContext for the HTTP client", e);
+        }
+    }
+
+    /**
+     * Invalidate the cached sessions, so they are not resumed with the previous client identity.
+     */
+    private static void invalidateSessions(SSLSessionContext sessionContext) {
+        for (byte[] sessionId : Collections.list(sessionContext.getIds())) {
+            SSLSession session = sessionContext.getSession(sessionId);
+            if (session != null) {
+                session.invalidate();
+            }
+        }
+    }
+
+    private static void notifyListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            LOG.warn("TLS client key material rotation listener failed", e);
+        }
+    }
+
+    private static byte[] fingerprint(TLSClientKeyMaterial tlsClientKeyMaterial) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) 'K');
+            if (tlsClientKeyMaterial.getPrivateKeyMaterial().isPresent()) {
+                for (X509Certificate certificate :
+                    tlsClientKeyMaterial.getPrivateKeyMaterial().get().getCertificateChain()) {
+                    digest.update(certificate.getEncoded());
+                }
+            }
+            digest.update((byte) 'T');
+            if (tlsClientKeyMaterial.getTrustMaterial().isPresent()) {
+                updateDigest(digest, tlsClientKeyMaterial.getTrustMaterial().get().getTrustStore());
+            }
+            return digest.digest();
+        } catch (GeneralSecurityException e) {
+            throw new TlsInitializationException("cannot compute fingerprint of TLS client key material", e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, KeyStore keyStore) throws GeneralSecurityException {
+        List<String> aliases = Collections.list(keyStore.aliases());
+        Collections.sort(aliases);
+        for (String alias : aliases) {
+            digest.update(alias.getBytes(StandardCharsets.UTF_8));
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate != null) {
+                digest.update(certificate.getEncoded());
+            }
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package com.haufe.spring.cloud.vault.config.tls;
 
+import org.immutables.value.Value;
 import org.immutables.value.Value.Immutable;
+import org.springframework.vault.support.CertificateBundle;
 
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.Key;
 import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * A data object that holds optional private key material and trust material required for the configuration
  * of an {@link javax.net.ssl.SSLContext}. Objects of this type are typically created by the
  * {@code ImmutableTLSClientKeyMaterial.Builder} generated by the Immutables library.
+ * <p>
+ * Both parts offer ready-made key and trust managers, which {@link TLSClientKeyManagers} installs as they are.
  *
  * @see <a href="https://immutables.github.io/">Immutables library</a>
  */
@@ -16,9 +31,13 @@ import java.util.Optional;
 public interface TLSClientKeyMaterial {
 
     /**
-     * A data object that holds the private key material and certificate required to configure use of a client
-     * certificate in an {@link javax.net.ssl.SSLContext}. Objects of this type are typically created by the
-     * {@code ImmutablePrivateKeyMaterial.Builder} generated by the Immutables library.
+     * A data object that holds the private key and certificate chain required to configure use of a client
+     * certificate in an {@link javax.net.ssl.SSLContext}. Objects of this type are typically created by
+     * {@link #of(CertificateBundle)}, {@link #of(KeyStore, char[])}, or the {@code ImmutablePrivateKeyMaterial.Builder}
+     * generated by the Immutables library.
+     * <p>
+     * The key material is held in decoded form, so the {@link #getKeyManager() key manager} is built directly from
+     * it, without an intermediate key store.
      *
      * @see <a href="https://immutables.github.io/">Immutables library</a>
      */
@@ -26,28 +45,139 @@ public interface TLSClientKeyMaterial {
     interface PrivateKeyMaterial {
 
         /**
-         * The key store that holds the client certificate together with the corresponding private key.
+         * The alias of the key entry offered by the {@link #getKeyManager() key manager}.
+         */
+        String KEY_ALIAS = "http-client";
+
+        /**
+         * The private key that corresponds to the client certificate.
+         *
+         * @return Value for property 'privateKey', never {@literal null}
+         */
+        PrivateKey getPrivateKey();
+
+        /**
+         * The certificate chain of the client certificate, starting with the client certificate itself.
+         *
+         * @return Value for property 'certificateChain', never {@literal null} or empty
+         */
+        List<X509Certificate> getCertificateChain();
+
+        /**
+         * A key manager that offers the {@link #getPrivateKey() private key} and the
+         * {@link #getCertificateChain() certificate chain} as key entry {@value #KEY_ALIAS}. It is created once per
+         * object, when it is requested for the first time.
+         *
+         * @return the key manager, never {@literal null}
+         */
+        @Value.Lazy
+        default X509ExtendedKeyManager getKeyManager() {
+            return new SingleKeyX509KeyManager(KEY_ALIAS, getPrivateKey(),
+                getCertificateChain().toArray(new X509Certificate[0]));
+        }
+
+        /**
+         * A key store that holds the {@link #getPrivateKey() private key} and the
+         * {@link #getCertificateChain() certificate chain} as key entry {@value #KEY_ALIAS}. It is created once per
+         * object, when it is requested for the first time.
          *
          * @return Value for property 'keyStore', never {@literal null}
+         * @throws TlsInitializationException the key store cannot be created
+         * @deprecated use the {@link #getKeyManager() key manager}, which needs no key store
          */
-        KeyStore getKeyStore();
+        @Deprecated
+        @Value.Lazy
+        default KeyStore getKeyStore() {
+            try {
+                KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+                keyStore.load(null, null);
+                keyStore.setKeyEntry(KEY_ALIAS, getPrivateKey(), getKeyPassword(),
+                    getCertificateChain().toArray(new Certificate[0]));
+                return keyStore;
+            } catch (GeneralSecurityException | IOException e) {
+                throw new TlsInitializationException("cannot create a key store for the client certificate", e);
+            }
+        }
 
         /**
          * The password required to access the {@link #getKeyStore() keyStore}.
          *
-         * @return Value for property 'keyStorePassword';
-         * never {@literal null}, its {@code length} may be {@literal 0}, though.
+         * @return Value for property 'keyStorePassword', an empty password
+         * @deprecated use the {@link #getKeyManager() key manager}, which needs no key store
          */
-        char[] getKeyStorePassword();
+        @Deprecated
+        default char[] getKeyStorePassword() {
+            return new char[0];
+        }
 
         /**
          * The password required to access the key entry inside the {@link #getKeyStore() keyStore}.
          *
-         * @return Value for property 'keyPassword';
-         * never {@literal null}, its {@code length} may be {@literal 0}, though.
+         * @return Value for property 'keyPassword', an empty password
+         * @deprecated use the {@link #getKeyManager() key manager}, which needs no key store
+         */
+        @Deprecated
+        default char[] getKeyPassword() {
+            return new char[0];
+        }
+
+        /**
+         * Validation of the {@link #getCertificateChain() certificate chain}, invoked by the Immutables library.
+         *
+         * @throws IllegalStateException the certificate chain is empty
+         */
+        @Value.Check
+        default void checkCertificateChain() {
+            if (getCertificateChain().isEmpty()) {
+                throw new IllegalStateException("certificateChain must not be empty");
+            }
+        }
+
+        /**
+         * Create private key material from the private key and certificates of a certificate bundle.
+         *
+         * @param bundle the certificate bundle, must not be {@literal null}
+         * @return the private key material, never {@literal null}
+         * @throws TlsInitializationException the private key cannot be decoded
          */
-        char[] getKeyPassword();
+        static PrivateKeyMaterial of(CertificateBundle bundle) {
+            KeyStore.PrivateKeyEntry keyEntry = CertificateBundles.createPrivateKeyEntry(bundle);
+            return ImmutablePrivateKeyMaterial.builder()
+                .privateKey(keyEntry.getPrivateKey())
+                .addCertificateChain(Arrays.copyOf(keyEntry.getCertificateChain(),
+                    keyEntry.getCertificateChain().length, X509Certificate[].class))
+                .build();
+        }
 
+        /**
+         * Create private key material from the first key entry of a key store, e.g., a key store read from the file
+         * system.
+         *
+         * @param keyStore    the key store with the private key and the certificate chain, must not be
+         *                    {@literal null}
+         * @param keyPassword the password required to recover the private key
+         * @return the private key material, never {@literal null}
+         * @throws TlsInitializationException the key store has no key entry with an X.509 certificate chain, or
+         *                                    the private key cannot be recovered
+         */
+        static PrivateKeyMaterial of(KeyStore keyStore, char[] keyPassword) {
+            try {
+                for (String alias : Collections.list(keyStore.aliases())) {
+                    Key key = keyStore.isKeyEntry(alias) ? keyStore.getKey(alias, keyPassword) : null;
+                    Certificate[] chain = keyStore.getCertificateChain(alias);
+                    if (key instanceof PrivateKey && chain != null && chain.length > 0 &&
+                        chain[0] instanceof X509Certificate) {
+                        return ImmutablePrivateKeyMaterial.builder()
+                            .privateKey((PrivateKey) key)
+                            .addCertificateChain(Arrays.copyOf(chain, chain.length, X509Certificate[].class))
+                            .build();
+                    }
+                }
+            } catch (GeneralSecurityException e) {
+                throw new TlsInitializationException("cannot read the key entries of the key store", e);
+            }
+            throw new TlsInitializationException("the key store has no private key with an X.509 certificate");
+        }
     }
 
     /**
@@ -74,6 +204,17 @@ public interface TLSClientKeyMaterial {
          * never {@literal null}, its {@code length} may be {@literal 0}, though.
          */
         char[] getTrustStorePassword();
+
+        /**
+         * A trust manager that trusts the certificates of the {@link #getTrustStore() trust store}. It is created
+         * once per object, when it is requested for the first time.
+         *
+         * @return the trust manager, never {@literal null}
+         */
+        @Value.Lazy
+        default X509ExtendedTrustManager getTrustManager() {
+            return ReloadableX509TrustManager.createTrustManager(getTrustStore());
+        }
     }
 
     /**
@@ -0,0 +1,72 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint {@code tls} that lists the TLS identities and trust stores in the
+ * {@link TlsMaterialInventory}: serial number, subject, subject alternative names, and expiry of each identity,
+ * the number of entries of each trust store, and where and when the material was loaded.
+ * <p>
+ * The renewal of the identities is triggered by a {@code POST} to {@code tls/renewal} (see
+ * {@link TlsMaterialMvcEndpoint}).
+ * <p>
+ * Like the actuator's own endpoints, the endpoint is sensitive by default and is configured in
+ * {@code endpoints.tls}.
+ */
+@ConfigurationProperties(prefix = "endpoints.tls")
+public class TlsMaterialEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private final TlsMaterialInventory inventory;
+
+    /**
+     * Create the endpoint.
+     *
+     * @param inventory the TLS material to publish, must not be {@literal null}
+     */
+    public TlsMaterialEndpoint(TlsMaterialInventory inventory) {
+        super("tls");
+        this.inventory = inventory;
+    }
+
+    /**
+     * The inventory the endpoint publishes.
+     *
+     * @return the inventory, never {@literal null}
+     */
+    public TlsMaterialInventory getInventory() {
+        return inventory;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        Map<String, Object> identities = new LinkedHashMap<>();
+        inventory.getIdentities().forEach((name, identity) -> {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("serialNumber", identity.getSerialNumber());
+            details.put("subject", identity.getSubject());
+            details.put("subjectAlternativeNames", identity.getSubjectAlternativeNames());
+            details.put("notAfter", identity.getNotAfter().toString());
+            details.put("source", identity.getSource());
+            details.put("loadedAt", identity.getLoadedAt().toString());
+            identities.put(name, details);
+        });
+
+        Map<String, Object> trustStores = new LinkedHashMap<>();
+        inventory.getTrustStores().forEach((name, trustStore) -> {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("entries", trustStore.getEntries());
+            details.put("source", trustStore.getSource());
+            details.put("loadedAt", trustStore.getLoadedAt().toString());
+            trustStores.put(name, details);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("identities", identities);
+        result.put("trustStores", trustStores);
+        return result;
+    }
+}
@@ -0,0 +1,326 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The TLS identities and trust stores that are currently in use, together with where and when they were loaded.
+ * <p>
+ * The components that load TLS material ({@link VaultPkiConfiguration}, {@link ServerCertificateRenewer}, and
+ * {@link ServiceClientTLSConfig}) record every identity and trust store they swap into their key and trust
+ * managers. Components that can obtain new material on demand {@link #registerRenewal(String, Runnable) register}
+ * a renewal trigger.
+ * <p>
+ * The inventory is published by the {@link TlsMaterialEndpoint actuator endpoint} {@code tls}.
+ */
+public class TlsMaterialInventory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TlsMaterialInventory.class);
+
+    private final Map<String, Identity> identities = new ConcurrentSkipListMap<>();
+    private final Map<String, TrustStore> trustStores = new ConcurrentSkipListMap<>();
+    private final Map<String, Runnable> renewals = new ConcurrentSkipListMap<>();
+    private final Clock clock;
+
+    /**
+     * Create an empty inventory whose load times are based on the system clock.
+     */
+    public TlsMaterialInventory() {
+        this(Clock.systemUTC());
+    }
+
+    TlsMaterialInventory(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Record the certificate an identity presents from now on.
+     *
+     * @param name        the name of the identity, e.g., {@code server}, must not be {@literal null}
+     * @param certificate the end entity certificate, must not be {@literal null}
+     * @param source      where the certificate was loaded from, must not be {@literal null}
+     */
+    public void recordIdentity(String name, X509Certificate certificate, Source source) {
+        identities.put(Objects.requireNonNull(name, "name must not be null"),
+            new Identity(certificate, Objects.requireNonNull(source, "source must not be null"), clock.instant()));
+    }
+
+    /**
+     * Record the end entity certificate of the first key entry in the given key store as the certificate an
+     * identity presents from now on. Nothing is recorded if the key store has no key entry.
+     *
+     * @param name     the name of the identity, e.g., {@code client}, must not be {@literal null}
+     * @param keyStore the key store with the private key and the certificate chain, must not be {@literal null}
+     * @param source   where the key store was loaded from, must not be {@literal null}
+     */
+    public void recordIdentity(String name, KeyStore keyStore, Source source) {
+        try {
+            Enumeration<String> aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (keyStore.isKeyEntry(alias) && certificate instanceof X509Certificate) {
+                    recordIdentity(name, (X509Certificate) certificate, source);
+                    return;
+                }
+            }
+        } catch (KeyStoreException e) {
+            LOG.warn("cannot inspect the key store of the TLS identity {}", name, e);
+        }
+    }
+
+    /**
+     * Record the trust store that is used from now on.
+     *
+     * @param name       the name of the trust store, e.g., {@code server}, must not be {@literal null}
+     * @param trustStore the trust store, must not be {@literal null}
+     * @param source     where the trust store was loaded from, must not be {@literal null}
+     */
+    public void recordTrustStore(String name, KeyStore trustStore, Source source) {
+        int entries;
+        try {
+            entries = trustStore.size();
+        } catch (KeyStoreException e) {
+            LOG.warn("cannot inspect the TLS trust store {}", name, e);
+            entries = -1;
+        }
+        trustStores.put(Objects.requireNonNull(name, "name must not be null"),
+            new TrustStore(entries, Objects.requireNonNull(source, "source must not be null"), clock.instant()));
+    }
+
+    /**
+     * Register a trigger that obtains new material for an identity in the background.
+     * <p>
+     * The trigger must not block; it is supposed to hand the renewal over to a background task.
+     *
+     * @param name    the name of the identity, must not be {@literal null}
+     * @param trigger starts the renewal, must not be {@literal null}
+     */
+    public void registerRenewal(String name, Runnable trigger) {
+        renewals.put(Objects.requireNonNull(name, "name must not be null"),
+            Objects.requireNonNull(trigger, "trigger must not be null"));
+    }
+
+    /**
+     * Start the renewal of all identities that registered a trigger. The renewals run in the background.
+     *
+     * @return the names of the identities whose renewal was started, never {@literal null}
+     */
+    public List<String> triggerRenewal() {
+        List<String> triggered = new ArrayList<>();
+        renewals.forEach((name, trigger) -> {
+            LOG.info("triggering the renewal of the TLS identity {}", name);
+            trigger.run();
+            triggered.add(name);
+        });
+        return triggered;
+    }
+
+    /**
+     * The identities currently in use.
+     *
+     * @return the identities by name, never {@literal null}
+     */
+    public SortedMap<String, Identity> getIdentities() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(identities));
+    }
+
+    /**
+     * The trust stores currently in use.
+     *
+     * @return the trust stores by name, never {@literal null}
+     */
+    public SortedMap<String, TrustStore> getTrustStores() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(trustStores));
+    }
+
+    /**
+     * Where TLS material was loaded from.
+     */
+    public enum Source {
+
+        /**
+         * A certificate that another instance or an earlier run issued and cached in the vault.
+         */
+        VAULT_CACHE,
+
+        /**
+         * A certificate that was issued by the vault's PKI backend for this instance.
+         */
+        VAULT_ISSUANCE,
+
+        /**
+         * Key or trust material that is stored in a vault secret backend.
+         */
+        VAULT_SECRET,
+
+        /**
+         * Material from the {@link LocalCertificateCache local certificate cache}.
+         */
+        LOCAL_CACHE,
+
+        /**
+         * Key or trust stores in the local file system.
+         */
+        FILESYSTEM,
+
+        /**
+         * The trust store configured in the container's SSL properties.
+         */
+        SERVER_CONFIGURATION,
+
+        /**
+         * The default trust store of the JVM.
+         */
+        JVM_DEFAULT
+    }
+
+    /**
+     * A TLS identity, i.e., the end entity certificate presented to peers.
+     */
+    public static final class Identity {
+
+        private final String serialNumber;
+        private final String subject;
+        private final List<String> subjectAlternativeNames;
+        private final Instant notAfter;
+        private final Source source;
+        private final Instant loadedAt;
+
+        private Identity(X509Certificate certificate, Source source, Instant loadedAt) {
+            this.serialNumber = formatSerialNumber(certificate.getSerialNumber());
+            this.subject = certificate.getSubjectX500Principal().getName();
+            this.subjectAlternativeNames = getSubjectAlternativeNames(certificate);
+            this.notAfter = certificate.getNotAfter().toInstant();
+            this.source = source;
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * Format the serial number like the vault does, i.e., as colon separated hexadecimal bytes.
+         */
+        private static String formatSerialNumber(BigInteger serialNumber) {
+            byte[] bytes = serialNumber.toByteArray();
+            int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+            StringJoiner formatted = new StringJoiner(":");
+            for (int i = start; i < bytes.length; i++) {
+                formatted.add(String.format("%02x", bytes[i]));
+            }
+            return formatted.toString();
+        }
+
+        private static List<String> getSubjectAlternativeNames(X509Certificate certificate) {
+            try {
+                Collection<List<?>> names = certificate.getSubjectAlternativeNames();
+                List<String> result = new ArrayList<>();
+                if (names != null) {
+                    names.forEach(name -> result.add(String.valueOf(name.get(1))));
+                }
+                return Collections.unmodifiableList(result);
+            } catch (CertificateParsingException e) {
+                LOG.warn("cannot parse the subject alternative names of the certificate {}",
+                    certificate.getSubjectX500Principal(), e);
+                return Collections.emptyList();
+            }
+        }
+
+        /**
+         * @return the certificate's serial number in the vault's notation, i.e., colon separated hexadecimal bytes
+         */
+        public String getSerialNumber() {
+            return serialNumber;
+        }
+
+        /**
+         * @return the certificate's subject distinguished name
+         */
+        public String getSubject() {
+            return subject;
+        }
+
+        /**
+         * @return the values of the certificate's subject alternative names, never {@literal null}
+         */
+        public List<String> getSubjectAlternativeNames() {
+            return subjectAlternativeNames;
+        }
+
+        /**
+         * @return the end of the certificate's validity period
+         */
+        public Instant getNotAfter() {
+            return notAfter;
+        }
+
+        /**
+         * @return where the certificate was loaded from
+         */
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * @return when the certificate was swapped into the key manager
+         */
+        public Instant getLoadedAt() {
+            return loadedAt;
+        }
+    }
+
+    /**
+     * A trust store, i.e., the certificates used to verify peers.
+     */
+    public static final class TrustStore {
+
+        private final int entries;
+        private final Source source;
+        private final Instant loadedAt;
+
+        private TrustStore(int entries, Source source, Instant loadedAt) {
+            this.entries = entries;
+            this.source = source;
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * @return the number of entries in the trust store; {@literal -1} if the trust store could not be inspected
+         */
+        public int getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return where the trust store was loaded from
+         */
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * @return when the trust store was swapped into the trust manager
+         */
+        public Instant getLoadedAt() {
+            return loadedAt;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring configuration class that provides the {@link TlsMaterialInventory} shared by all components that load
+ * TLS material.
+ * <p>
+ * If Spring Boot's actuator is on the class path, then the inventory is published by the endpoint {@code tls}.
+ */
+@Configuration
+public class TlsMaterialInventoryConfiguration {
+
+    /**
+     * Factory for the shared {@link TlsMaterialInventory}.
+     *
+     * @return the inventory
+     */
+    @Bean
+    @ConditionalOnMissingBean(TlsMaterialInventory.class)
+    public TlsMaterialInventory tlsMaterialInventory() {
+        return new TlsMaterialInventory();
+    }
+
+    /**
+     * Publishes the {@link TlsMaterialInventory} if the actuator is available.
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.AbstractEndpoint")
+    static class ActuatorConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(TlsMaterialEndpoint.class)
+        public TlsMaterialEndpoint tlsMaterialEndpoint(TlsMaterialInventory tlsMaterialInventory) {
+            return new TlsMaterialEndpoint(tlsMaterialInventory);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean(TlsMaterialMvcEndpoint.class)
+        public TlsMaterialMvcEndpoint tlsMaterialMvcEndpoint(TlsMaterialEndpoint tlsMaterialEndpoint) {
+            return new TlsMaterialMvcEndpoint(tlsMaterialEndpoint);
+        }
+    }
+}
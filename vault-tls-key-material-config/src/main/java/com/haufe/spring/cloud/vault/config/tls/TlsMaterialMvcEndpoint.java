@@ -0,0 +1,54 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.springframework.boot.actuate.endpoint.mvc.ActuatorMediaTypes;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MVC adapter of the {@link TlsMaterialEndpoint} that, in addition to the listing, accepts a {@code POST} to
+ * {@code tls/renewal}.
+ * <p>
+ * The {@code POST} triggers the renewal of all renewable identities and returns immediately with status
+ * {@code 202 Accepted}; the renewals run in the background, so that, e.g., the certificates can be rotated ahead
+ * of a traffic peak. The progress can be followed by means of the listing's {@code serialNumber} and
+ * {@code loadedAt}.
+ */
+@ConfigurationProperties(prefix = "endpoints.tls")
+public class TlsMaterialMvcEndpoint extends EndpointMvcAdapter {
+
+    private final TlsMaterialEndpoint delegate;
+
+    /**
+     * Create the adapter.
+     *
+     * @param delegate the endpoint to adapt, must not be {@literal null}
+     */
+    public TlsMaterialMvcEndpoint(TlsMaterialEndpoint delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Trigger the renewal of all renewable identities in the background.
+     *
+     * @return {@code 202 Accepted} with the names of the identities whose renewal was started
+     */
+    @PostMapping(value = "/renewal",
+        produces = {ActuatorMediaTypes.APPLICATION_ACTUATOR_V1_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> renew() {
+        if (!delegate.isEnabled()) {
+            return getDisabledResponse();
+        }
+        List<String> renewing = delegate.getInventory().triggerRenewal();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Collections.singletonMap("renewing", renewing));
+    }
+}
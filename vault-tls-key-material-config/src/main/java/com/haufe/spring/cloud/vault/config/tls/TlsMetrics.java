@@ -0,0 +1,240 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Timers, counters, and gauges of the TLS key material subsystem.
+ * <p>
+ * The metrics cover
+ * <ul>
+ * <li>the duration of every {@link VaultOperation vault operation} and the number of failed operations,</li>
+ * <li>the certificate cache lookups in the vault (hits and misses) and the certificate issuances,</li>
+ * <li>the duration of the creation of key stores and trust stores from vault data, and</li>
+ * <li>the remaining lifetime of each {@link #registerCertificate(String, Supplier) registered certificate}.</li>
+ * </ul>
+ * The metrics are held in memory and do not depend on a metrics library; the {@link #getMetrics() snapshot} uses
+ * the name prefixes of Spring Boot's actuator ({@code counter.}, {@code gauge.}, {@code timer.}), which publishes
+ * them if it is on the class path (see {@link TlsMetricsConfiguration}).
+ */
+public class TlsMetrics {
+
+    private static final String TIMER_PREFIX = "timer.tls.";
+    private static final String COUNTER_PREFIX = "counter.tls.";
+    private static final String GAUGE_PREFIX = "gauge.tls.";
+
+    private final Map<VaultOperation, Timer> vaultTimers = new ConcurrentHashMap<>();
+    private final Timer keyStoreTimer = new Timer();
+    private final Timer trustStoreTimer = new Timer();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder issuances = new LongAdder();
+    private final Map<String, Supplier<X509Certificate>> certificates = new ConcurrentHashMap<>();
+    private final LongSupplier currentTimeMillis;
+
+    /**
+     * Create empty metrics whose certificate gauges are based on the system clock.
+     */
+    public TlsMetrics() {
+        this(System::currentTimeMillis);
+    }
+
+    TlsMetrics(LongSupplier currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+        for (VaultOperation operation : VaultOperation.values()) {
+            vaultTimers.put(operation, new Timer());
+        }
+    }
+
+    /**
+     * Perform a vault operation and record its duration.
+     *
+     * @param operation the kind of the operation, must not be {@literal null}
+     * @param call      the operation, must not be {@literal null}
+     * @param <T>       the type of the result of the operation
+     * @return the result of the operation
+     * @throws RuntimeException the operation failed; the failure is counted
+     */
+    public <T> T timeVaultOperation(VaultOperation operation, Supplier<T> call) {
+        return vaultTimers.get(operation).time(call);
+    }
+
+    /**
+     * Perform a vault operation without result and record its duration.
+     *
+     * @param operation the kind of the operation, must not be {@literal null}
+     * @param call      the operation, must not be {@literal null}
+     * @throws RuntimeException the operation failed; the failure is counted
+     */
+    public void timeVaultOperation(VaultOperation operation, Runnable call) {
+        vaultTimers.get(operation).time(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Create a key store with private key material and record the duration.
+     *
+     * @param factory creates the key store, e.g., {@code () -> CertificateBundles.createKeyStore(bundle, alias)},
+     *                must not be {@literal null}
+     * @return the key store
+     */
+    public KeyStore timeKeyStoreCreation(Supplier<KeyStore> factory) {
+        return keyStoreTimer.time(factory);
+    }
+
+    /**
+     * Create a trust store and record the duration.
+     *
+     * @param factory creates the trust store, e.g., {@link TrustedCertificates#createTrustStore(boolean)}, must
+     *                not be {@literal null}
+     * @return the trust store
+     */
+    public KeyStore timeTrustStoreCreation(Supplier<KeyStore> factory) {
+        return trustStoreTimer.time(factory);
+    }
+
+    /**
+     * Count a lookup in the certificate cache of the vault that found a certificate which is not due for renewal.
+     */
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    /**
+     * Count a lookup in the certificate cache of the vault that found no certificate or one that is due for renewal.
+     */
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Count a certificate issued by the PKI backend.
+     */
+    void recordIssuance() {
+        issuances.increment();
+    }
+
+    /**
+     * Publish the remaining lifetime of a certificate as the gauge
+     * {@code gauge.tls.certificate.<name>.secondsUntilExpiry}.
+     * <p>
+     * The certificate is looked up whenever the metrics are read, so renewed certificates are picked up.
+     *
+     * @param name        the name of the certificate, e.g., {@code server}, must not be {@literal null}
+     * @param certificate supplies the currently served certificate or {@literal null} if there is none, must not
+     *                    be {@literal null}
+     */
+    public void registerCertificate(String name, Supplier<X509Certificate> certificate) {
+        certificates.put(Objects.requireNonNull(name, "name must not be null"),
+            Objects.requireNonNull(certificate, "certificate must not be null"));
+    }
+
+    /**
+     * A snapshot of all metrics.
+     * <p>
+     * Each timer {@code timer.tls.<name>} is reported as the number of measurements ({@code .count}), their total
+     * duration ({@code .totalTime}), and their maximum duration ({@code .max}), both in milliseconds. Failed vault
+     * operations are counted in {@code counter.tls.vault.<operation>.errors}.
+     *
+     * @return the metrics by name, sorted by name, never {@literal null}
+     */
+    public SortedMap<String, Number> getMetrics() {
+        SortedMap<String, Number> metrics = new TreeMap<>();
+        vaultTimers.forEach((operation, timer) -> {
+            timer.report(metrics, TIMER_PREFIX + operation.metricName());
+            metrics.put(COUNTER_PREFIX + operation.metricName() + ".errors", timer.errors.sum());
+        });
+        keyStoreTimer.report(metrics, TIMER_PREFIX + "store.keyStore");
+        trustStoreTimer.report(metrics, TIMER_PREFIX + "store.trustStore");
+        metrics.put(COUNTER_PREFIX + "cache.hit", cacheHits.sum());
+        metrics.put(COUNTER_PREFIX + "cache.miss", cacheMisses.sum());
+        metrics.put(COUNTER_PREFIX + "cache.issuance", issuances.sum());
+
+        long now = currentTimeMillis.getAsLong();
+        certificates.forEach((name, supplier) -> {
+            X509Certificate certificate = supplier.get();
+            if (certificate != null) {
+                metrics.put(GAUGE_PREFIX + "certificate." + name + ".secondsUntilExpiry",
+                    TimeUnit.MILLISECONDS.toSeconds(certificate.getNotAfter().getTime() - now));
+            }
+        });
+        return metrics;
+    }
+
+    /**
+     * The vault operations of the TLS key material subsystem.
+     */
+    public enum VaultOperation {
+
+        /**
+         * Read the server time from {@code sys/health}.
+         */
+        HEALTH,
+
+        /**
+         * Read a cached certificate, trusted certificates, or a lock document.
+         */
+        READ,
+
+        /**
+         * Write a cached certificate or a lock document.
+         */
+        WRITE,
+
+        /**
+         * Delete a lock document.
+         */
+        DELETE,
+
+        /**
+         * Issue a certificate in the PKI backend.
+         */
+        ISSUE;
+
+        private String metricName() {
+            return "vault." + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder errors = new LongAdder();
+
+        private <T> T time(Supplier<T> call) {
+            long start = System.nanoTime();
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                errors.increment();
+                throw e;
+            } finally {
+                long duration = System.nanoTime() - start;
+                count.increment();
+                totalNanos.add(duration);
+                maxNanos.accumulate(duration);
+            }
+        }
+
+        private void report(Map<String, Number> metrics, String name) {
+            metrics.put(name + ".count", count.sum());
+            metrics.put(name + ".totalTime", totalNanos.sum() / 1e6);
+            metrics.put(name + ".max", maxNanos.get() / 1e6);
+        }
+    }
+}
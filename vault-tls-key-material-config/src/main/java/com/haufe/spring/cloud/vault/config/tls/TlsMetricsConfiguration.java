@@ -0,0 +1,41 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring configuration class that provides the {@link TlsMetrics} shared by all components that fetch TLS material
+ * from the vault.
+ * <p>
+ * If Spring Boot's actuator is on the class path, then the metrics are published by its {@code metrics} endpoint.
+ */
+@Configuration
+public class TlsMetricsConfiguration {
+
+    /**
+     * Factory for the shared {@link TlsMetrics}.
+     *
+     * @return the metrics
+     */
+    @Bean
+    @ConditionalOnMissingBean(TlsMetrics.class)
+    public TlsMetrics tlsMetrics() {
+        return new TlsMetrics();
+    }
+
+    /**
+     * Publishes the {@link TlsMetrics} if the actuator is available.
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.PublicMetrics")
+    static class ActuatorConfiguration {
+
+        @Bean
+        public PublicMetrics tlsPublicMetrics(TlsMetrics tlsMetrics) {
+            return new TlsPublicMetrics(tlsMetrics);
+        }
+    }
+}
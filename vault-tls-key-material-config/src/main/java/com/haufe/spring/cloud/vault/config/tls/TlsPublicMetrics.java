@@ -0,0 +1,26 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * Adapter that publishes the {@link TlsMetrics} by the actuator's {@code metrics} endpoint.
+ */
+class TlsPublicMetrics implements PublicMetrics {
+
+    private final TlsMetrics tlsMetrics;
+
+    TlsPublicMetrics(TlsMetrics tlsMetrics) {
+        this.tlsMetrics = tlsMetrics;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return tlsMetrics.getMetrics().entrySet().stream()
+            .map(metric -> new Metric<>(metric.getKey(), metric.getValue()))
+            .collect(Collectors.toList());
+    }
+}
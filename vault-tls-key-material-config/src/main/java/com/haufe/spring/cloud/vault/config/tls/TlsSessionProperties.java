@@ -0,0 +1,31 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import lombok.Data;
+
+/**
+ * Configuration properties of the TLS session cache, which lets peers resume earlier sessions with an abbreviated
+ * handshake instead of a full handshake with its public key operations.
+ */
+@Data
+public class TlsSessionProperties {
+
+    /**
+     * The maximum number of cached TLS sessions; {@literal 0} means no limit. Default is 20480, the default of the
+     * Java runtime.
+     */
+    private int cacheSize = 20480;
+
+    /**
+     * The time (in seconds) after which a cached TLS session cannot be resumed anymore; {@literal 0} means no
+     * limit. Default is one day, the default of the Java runtime.
+     */
+    private int timeout = 86400;
+
+    /**
+     * Whether the server issues session tickets (RFC 5077), so clients can resume sessions that were evicted from
+     * the server's session cache. Only honored by Tomcat's OpenSSL based implementation (see
+     * {@link VaultPkiProperties#getSslImplementation()}); the JSSE provider of Java 8 supports neither server nor
+     * client side session tickets.
+     */
+    private boolean tickets = true;
+}
@@ -0,0 +1,73 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import javax.net.ssl.SSLSession;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of full and abbreviated (i.e., resumed) TLS handshakes.
+ * <p>
+ * A handshake resumed a session if the session was created before the handshake started.
+ * <p>
+ * Beans of this type are exported as MBeans if JMX is enabled in the application context.
+ */
+@ManagedResource(description = "TLS handshake counters")
+public class TlsSessionStatistics {
+
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+
+    /**
+     * Count a completed handshake.
+     *
+     * @param session          the session negotiated by the handshake
+     * @param handshakeStarted the time (in milliseconds since the epoch) when the handshake started
+     */
+    public void recordHandshake(SSLSession session, long handshakeStarted) {
+        if (session.getCreationTime() < handshakeStarted) {
+            resumedHandshakes.incrementAndGet();
+        } else {
+            fullHandshakes.incrementAndGet();
+        }
+    }
+
+    /**
+     * The number of handshakes that negotiated a new session (session cache misses).
+     *
+     * @return the number of full handshakes
+     */
+    @ManagedAttribute
+    public long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    /**
+     * The number of handshakes that resumed a cached session (session cache hits).
+     *
+     * @return the number of abbreviated handshakes
+     */
+    @ManagedAttribute
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * The share of handshakes that resumed a cached session.
+     *
+     * @return the ratio between {@literal 0} and {@literal 1}; {@literal 0} if no handshake completed yet
+     */
+    @ManagedAttribute
+    public double getResumptionRatio() {
+        long resumed = resumedHandshakes.get();
+        long total = resumed + fullHandshakes.get();
+        return total > 0 ? (double) resumed / total : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TlsSessionStatistics{fullHandshakes=" + getFullHandshakes() +
+            ", resumedHandshakes=" + getResumedHandshakes() + "}";
+    }
+}
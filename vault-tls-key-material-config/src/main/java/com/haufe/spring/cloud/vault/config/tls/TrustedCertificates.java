@@ -1,7 +1,16 @@
 package com.haufe.spring.cloud.vault.config.tls;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import javaslang.collection.Stream;
 import javaslang.control.Try;
 import lombok.Data;
@@ -11,8 +20,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -20,17 +27,64 @@ import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.security.cert.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 /**
  * A set of trusted certificates.
+ * <p>
+ * Entries read from the vault hold their certificates as strings that are parsed when the
+ * {@link #createTrustStore() trust store is created}. Entries that represent the
+ * {@link #getDefaultTrustedCertificates() JVM's default trusted certificates} hold the already parsed certificates
+ * instead, so the default certificates are neither encoded nor parsed again.
  */
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class TrustedCertificates {
     private static final Logger LOG = LoggerFactory.getLogger(TrustedCertificates.class);
 
-    private static final String PEM_CERTIFICATE_PREFIX = "-----BEGIN CERTIFICATE-----";
-    private static final String PEM_CERTIFICATE_SUFFIX = "-----END CERTIFICATE-----";
+    /**
+     * The minimum number of entries that are parsed in parallel.
+     */
+    private static final int PARALLEL_PARSING_THRESHOLD = 64;
+
+    /**
+     * Certificate factories are not guaranteed to be thread-safe, so every parsing thread uses its own.
+     */
+    private static final ThreadLocal<CertificateFactory> CERTIFICATE_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (CertificateException e) {
+            throw new TlsInitializationException("no X.509 certificate factory available", e);
+        }
+    });
+
+    private static final String DEFAULT_ALIAS_PREFIX = "jvm_";
+
+    /**
+     * The entries of the JVM's default trusted certificates, determined once per process.
+     */
+    private static final Supplier<List<TrustedCertificateEntry>> DEFAULT_ENTRIES =
+            Suppliers.memoize(TrustedCertificates::loadDefaultEntries);
+
+    /**
+     * The trust store with the JVM's default trusted certificates, built once per process; callers get copies.
+     */
+    private static final Supplier<KeyStore> DEFAULT_TRUST_STORE =
+            Suppliers.memoize(() -> getDefaultTrustedCertificates().createTrustStore());
+
+    /**
+     * The number of distinct sets of entries whose trust store merged with the default certificates is kept.
+     */
+    private static final int MERGED_TRUST_STORE_CACHE_SIZE = 8;
+
+    /**
+     * The trust stores merged with the JVM's default trusted certificates, keyed by copies of the entries they were
+     * built from. The server and the client configuration typically read the same entries from the vault, and the
+     * renewer reads them again on every check. Callers get copies.
+     */
+    private static final Cache<List<TrustedCertificateEntry>, KeyStore> MERGED_TRUST_STORES =
+            CacheBuilder.newBuilder().maximumSize(MERGED_TRUST_STORE_CACHE_SIZE).build();
 
     /**
      * The collection of trusted certificate entries.
@@ -40,23 +94,41 @@ public class TrustedCertificates {
     /**
      * Static constructor that returns the certificates trusted by the Java runtime's
      * default X509 trust manager.
+     * <p>
+     * The certificates are parsed once per process; every call returns new entries that share the parsed
+     * certificates, so callers may modify the returned object.
      *
      * @return the set of certificates trusted by default
      * @throws TlsInitializationException access to the default trust manager failed
      */
     public static TrustedCertificates getDefaultTrustedCertificates() {
-        X509TrustManager trustManager = getDefaultX509TrustManager();
-        List<TrustedCertificateEntry> entries = Stream.of(trustManager.getAcceptedIssuers())
-                .map(TrustedCertificates::toBase64DER)
-                .filter(Objects::nonNull)
-                .zipWithIndex() // t._1: entry; t._2: index
-                .map(t -> TrustedCertificateEntry.createdIndexedEntry(t._2(), t._1()))
-                .toJavaList();
         TrustedCertificates trustedCertificates = new TrustedCertificates();
-        trustedCertificates.setEntries(entries);
+        trustedCertificates.setEntries(DEFAULT_ENTRIES.get().stream()
+                .map(TrustedCertificateEntry::copyOf)
+                .collect(Collectors.toList()));
         return trustedCertificates;
     }
 
+    /**
+     * A trust store with the certificates trusted by the Java runtime's default X509 trust manager.
+     * <p>
+     * The trust store is built once per process; every call returns a copy, so callers may modify it.
+     *
+     * @return the trust store with the certificates trusted by default
+     * @throws TlsInitializationException access to the default trust manager failed
+     */
+    public static KeyStore getDefaultTrustStore() {
+        return copyOf(DEFAULT_TRUST_STORE.get());
+    }
+
+    private static List<TrustedCertificateEntry> loadDefaultEntries() {
+        X509TrustManager trustManager = getDefaultX509TrustManager();
+        return Collections.unmodifiableList(Stream.of(trustManager.getAcceptedIssuers())
+                .zipWithIndex() // t._1: certificate; t._2: index
+                .map(t -> TrustedCertificateEntry.createdIndexedEntry(t._2(), t._1()))
+                .toJavaList());
+    }
+
     private static String toBase64DER(X509Certificate trustedCert) {
         try {
             byte[] derEncodedCertificate = trustedCert.getEncoded();
@@ -98,14 +170,81 @@ public class TrustedCertificates {
      * @throws TlsInitializationException the trust store could not be set up
      */
     public KeyStore createTrustStore() {
+        return createTrustStore(false);
+    }
+
+    /**
+     * Construct an in-memory trust store from the trusted certificates, optionally merged with the
+     * {@link #getDefaultTrustedCertificates() JVM's default trusted certificates}.
+     * <p>
+     * The default certificates are added under their aliases prefixed with {@value DEFAULT_ALIAS_PREFIX}. If an
+     * alias of this object's entries collides with such an alias, then this object's entry wins. Default
+     * certificates that are already part of this object's entries are not added a second time.
+     * <p>
+     * An entry may hold several PEM certificates; the first one is added under the entry's alias, the others under
+     * the alias suffixed with their position in the entry. A certificate that is already in the trust store, e.g.,
+     * under the alias of a previous entry, is not added a second time. Large sets of entries are parsed in parallel.
+     * <p>
+     * Certificates that, for whatever reason, cannot be added to the trust store are omitted with a log entry at
+     * ERROR level.
+     * <p>
+     * Merging the default certificates is costly, so merged trust stores are built once per set of entries; every
+     * call returns a copy, which only takes the certificates over without parsing them again.
+     *
+     * @param includeDefaultTrustedCertificates whether the JVM's default trusted certificates are added
+     * @return an {@link KeyStore#load(InputStream, char[]) initialized} key store that contains a
+     * {@link KeyStore.TrustedCertificateEntry} for every item in {@link #entries} and, if requested, for every
+     * default trusted certificate.
+     * @throws TlsInitializationException the trust store could not be set up
+     */
+    public KeyStore createTrustStore(boolean includeDefaultTrustedCertificates) {
+        if (!includeDefaultTrustedCertificates) {
+            return buildTrustStore(false);
+        }
+        List<TrustedCertificateEntry> key = getEntries().stream()
+                .map(TrustedCertificateEntry::copyOf)
+                .collect(Collectors.toList());
+        try {
+            return copyOf(MERGED_TRUST_STORES.get(key, () -> buildTrustStore(true)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new TlsInitializationException("failed to build trust store", e.getCause());
+        }
+    }
+
+    /**
+     * Copy the certificate entries of a trust store, so that the cached trust stores are never handed out.
+     */
+    private static KeyStore copyOf(KeyStore trustStore) {
+        try {
+            KeyStore copy = KeyStore.getInstance(trustStore.getType());
+            copy.load(null, null);
+            for (String alias : Collections.list(trustStore.aliases())) {
+                copy.setCertificateEntry(alias, trustStore.getCertificate(alias));
+            }
+            return copy;
+        } catch (Exception exception) {
+            throw new TlsInitializationException("failed to copy trust store", exception);
+        }
+    }
+
+    private KeyStore buildTrustStore(boolean includeDefaultTrustedCertificates) {
         try {
             KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
             trustStore.load(null, null); // required to initialize the trust store
 
-            CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-            Stream.ofAll(getEntries())
-                    .zipWithIndex() // t._1: entry; t._2: index
-                    .forEach(t -> addTrustedCertificateToStore(t._1, trustStore, t._2, certificateFactory));
+            Set<HashCode> fingerprints = new HashSet<>();
+            List<Try<List<X509Certificate>>> parsedEntries = parseEntries(getEntries());
+            for (int idx = 0; idx < parsedEntries.size(); idx++) {
+                addTrustedCertificatesToStore(getEntries().get(idx), parsedEntries.get(idx), trustStore, idx,
+                        fingerprints);
+            }
+
+            if (includeDefaultTrustedCertificates) {
+                for (TrustedCertificateEntry entry : DEFAULT_ENTRIES.get()) {
+                    addDefaultCertificateToStore(entry, trustStore, fingerprints);
+                }
+            }
 
             return trustStore;
         } catch (Exception exception) {
@@ -113,15 +252,57 @@ public class TrustedCertificates {
         }
     }
 
-    private void addTrustedCertificateToStore(TrustedCertificateEntry entry, KeyStore trustStore,
-                                              long idx,
-                                              CertificateFactory certificateFactory) {
-        Try<String> aliasResult = Try.of(() -> {
-            String alias = StringUtils.trimToEmpty(entry.getAlias());
+    /**
+     * Parse the certificates of all entries, in parallel for large sets of entries.
+     *
+     * @return the parse result of every entry, in the order of the entries
+     */
+    private static List<Try<List<X509Certificate>>> parseEntries(List<TrustedCertificateEntry> entries) {
+        java.util.stream.Stream<TrustedCertificateEntry> entryStream = entries.stream();
+        if (entries.size() >= PARALLEL_PARSING_THRESHOLD) {
+            entryStream = entryStream.parallel(); // runs on the common fork-join pool
+        }
+        return entryStream
+                .map(TrustedCertificates::parseEntry)
+                .collect(Collectors.toList());
+    }
+
+    private static Try<List<X509Certificate>> parseEntry(TrustedCertificateEntry entry) {
+        return Try.of(() -> {
+            Preconditions.checkArgument(StringUtils.isNotBlank(entry.getAlias()),
+                    "certificate alias must not be empty");
+            // parsed certificates (e.g., the JVM's defaults) are added as they are
+            if (entry.getX509Certificate() != null) {
+                return Collections.singletonList(entry.getX509Certificate());
+            }
             String certificateString = StringUtils.trimToEmpty(entry.getCertificate());
-            Certificate certificate =
-                    parseCertificateString(certificateString, alias, certificateFactory);
-            trustStore.setCertificateEntry(alias, certificate);
+            Preconditions.checkArgument(StringUtils.isNotEmpty(certificateString),
+                    "certificateString must not be empty");
+            return CertificateParser.parseCertificates(certificateString, CERTIFICATE_FACTORY.get());
+        });
+    }
+
+    /**
+     * Add the certificates of an entry to the trust store.
+     * <p>
+     * The first certificate is added under the entry's alias, further certificates of a multi-certificate entry
+     * under the alias suffixed with their position. Certificates with a fingerprint that is already in the trust
+     * store are skipped.
+     */
+    private static void addTrustedCertificatesToStore(TrustedCertificateEntry entry,
+                                                      Try<List<X509Certificate>> parsedEntry,
+                                                      KeyStore trustStore, long idx,
+                                                      Set<HashCode> fingerprints) {
+        Try<String> aliasResult = parsedEntry.mapTry(certificates -> {
+            String alias = StringUtils.trimToEmpty(entry.getAlias());
+            for (int position = 0; position < certificates.size(); position++) {
+                X509Certificate certificate = certificates.get(position);
+                if (fingerprints.add(fingerprint(certificate))) {
+                    trustStore.setCertificateEntry(position == 0 ? alias : alias + "_" + position, certificate);
+                } else {
+                    LOG.debug("skipped duplicate certificate #{} of entry at index {}", position, idx);
+                }
+            }
             return alias;
         });
         aliasResult.onFailure(
@@ -133,27 +314,21 @@ public class TrustedCertificates {
                         alias, idx));
     }
 
-    private Certificate parseCertificateString(String certificateString, String alias,
-                                               CertificateFactory certificateFactory)
-            throws CertificateException, KeyStoreException, IOException {
-
-        Preconditions.checkArgument(StringUtils.isNotEmpty(alias),
-                "certificate alias must not be empty");
-        Preconditions.checkArgument(StringUtils.isNotEmpty(certificateString),
-                "certificateString must not be empty");
-
-        try (ByteArrayInputStream bis = certificateAsByteArrayInputStream(certificateString)) {
-
-            return certificateFactory.generateCertificate(bis);
+    /**
+     * Add a default trusted certificate to the trust store, unless its alias is taken or the certificate is
+     * already in the trust store.
+     */
+    private static void addDefaultCertificateToStore(TrustedCertificateEntry entry, KeyStore trustStore,
+                                                     Set<HashCode> fingerprints)
+            throws KeyStoreException, CertificateEncodingException {
+        String alias = DEFAULT_ALIAS_PREFIX + entry.getAlias();
+        if (!trustStore.containsAlias(alias) && fingerprints.add(fingerprint(entry.getX509Certificate()))) {
+            trustStore.setCertificateEntry(alias, entry.getX509Certificate());
         }
     }
 
-    private ByteArrayInputStream certificateAsByteArrayInputStream(String certificateString) {
-
-        // strip off PEM markers, if any, so the certificate is in Base64-encoded DER format
-        // (possibly with extraneous whitespace)
-        String base64DER = certificateString.replaceAll(PEM_CERTIFICATE_PREFIX + "|" + PEM_CERTIFICATE_SUFFIX, "");
-        return new ByteArrayInputStream(Base64.getMimeDecoder().decode(base64DER));
+    private static HashCode fingerprint(X509Certificate certificate) throws CertificateEncodingException {
+        return Hashing.sha256().hashBytes(certificate.getEncoded());
     }
 
     /**
@@ -181,10 +356,34 @@ public class TrustedCertificates {
          */
         private String certificate;
 
-        static TrustedCertificateEntry createdIndexedEntry(long idx, String certificate) {
+        /**
+         * The parsed certificate; if present, then it takes precedence over {@link #certificate}.
+         */
+        @JsonIgnore
+        private X509Certificate x509Certificate;
+
+        /**
+         * Getter for property 'certificate'. If the entry holds a parsed certificate only, then its Base64-encoded
+         * DER representation is returned.
+         *
+         * @return Value for property 'certificate'.
+         */
+        public String getCertificate() {
+            return certificate == null && x509Certificate != null ? toBase64DER(x509Certificate) : certificate;
+        }
+
+        static TrustedCertificateEntry copyOf(TrustedCertificateEntry entry) {
+            TrustedCertificateEntry copy = new TrustedCertificateEntry();
+            copy.setAlias(entry.getAlias());
+            copy.certificate = entry.certificate;
+            copy.setX509Certificate(entry.getX509Certificate());
+            return copy;
+        }
+
+        static TrustedCertificateEntry createdIndexedEntry(long idx, X509Certificate certificate) {
             TrustedCertificateEntry entry = new TrustedCertificateEntry();
             entry.setAlias("alias_" + Long.toString(idx));
-            entry.setCertificate(certificate);
+            entry.setX509Certificate(certificate);
             return entry;
         }
     }
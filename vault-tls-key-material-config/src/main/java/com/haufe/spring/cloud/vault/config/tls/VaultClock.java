@@ -0,0 +1,143 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.vault.core.VaultOperations;
+import org.springframework.vault.support.VaultHealth;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Estimate of the vault server's current time.
+ * <p>
+ * Expiry decisions on cached certificates must be based on the vault server's clock because the expiry
+ * timestamps are computed from it. Instead of asking the vault for its time on every decision, this clock samples
+ * the server time from the {@code sys/health} endpoint once and extrapolates it with the local monotonic clock.
+ * The sample is refreshed lazily once it is older than the resample interval. If the refresh fails, then the
+ * previous estimate is kept and the refresh is attempted again after another resample interval.
+ * <p>
+ * The vault reports its time in seconds, so the estimate is accurate to about a second plus half the round trip
+ * time of the health request, which is sufficient for certificate lifetimes.
+ */
+public class VaultClock {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VaultClock.class);
+
+    private final LongSupplier serverTimeSource;
+    private final long resampleIntervalNanos;
+
+    private volatile Sample sample;
+
+    /**
+     * Create a clock that samples the server time of the given vault.
+     *
+     * @param vaultOperations  facade for interactions with the vault instance, must not be {@literal null}
+     * @param resampleInterval the maximum age (in seconds) of the server time sample; a value {@literal <= 0}
+     *                         means the server time is sampled only once
+     */
+    public VaultClock(VaultOperations vaultOperations, long resampleInterval) {
+        this(vaultOperations, resampleInterval, new TlsMetrics());
+    }
+
+    /**
+     * Create a clock that samples the server time of the given vault and records the duration of the samples.
+     *
+     * @param vaultOperations  facade for interactions with the vault instance, must not be {@literal null}
+     * @param resampleInterval the maximum age (in seconds) of the server time sample; a value {@literal <= 0}
+     *                         means the server time is sampled only once
+     * @param metrics          the metrics that record the {@code sys/health} requests, must not be {@literal null}
+     */
+    public VaultClock(VaultOperations vaultOperations, long resampleInterval, TlsMetrics metrics) {
+        this(() -> metrics.timeVaultOperation(TlsMetrics.VaultOperation.HEALTH,
+            () -> getServerTimeUtc(vaultOperations)), resampleInterval);
+    }
+
+    /**
+     * Create a clock that samples the server time from the given source.
+     *
+     * @param serverTimeSource source of the server time (in Posix time), must not be {@literal null}
+     * @param resampleInterval the maximum age (in seconds) of the server time sample; a value {@literal <= 0}
+     *                         means the server time is sampled only once
+     */
+    VaultClock(LongSupplier serverTimeSource, long resampleInterval) {
+        this.serverTimeSource = Objects.requireNonNull(serverTimeSource, "serverTimeSource must not be null");
+        this.resampleIntervalNanos = resampleInterval > 0 ? TimeUnit.SECONDS.toNanos(resampleInterval) : Long.MAX_VALUE;
+    }
+
+    /**
+     * The estimated current time of the vault server.
+     *
+     * @return the server time in milliseconds since the epoch
+     * @throws RuntimeException the server time was never sampled successfully and sampling it failed again
+     */
+    public long currentTimeMillis() {
+        long now = System.nanoTime();
+        Sample current = sample;
+        if (current == null || now - current.sampledAt >= resampleIntervalNanos) {
+            current = resample(current);
+        }
+        return current.serverTimeMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - current.sampledAt);
+    }
+
+    /**
+     * The estimated current time of the vault server.
+     *
+     * @return the server time in seconds since the epoch (Posix time)
+     * @throws RuntimeException the server time was never sampled successfully and sampling it failed again
+     */
+    public long currentTimeSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(currentTimeMillis());
+    }
+
+    private synchronized Sample resample(Sample previous) {
+        if (sample != previous) {
+            // another thread resampled in the meantime
+            return sample;
+        }
+
+        long requestStart = System.nanoTime();
+        try {
+            long serverTime = serverTimeSource.getAsLong();
+            long requestEnd = System.nanoTime();
+            // the server time was taken somewhere during the round trip and truncated to full seconds
+            sample = new Sample(requestStart + (requestEnd - requestStart) / 2,
+                TimeUnit.SECONDS.toMillis(serverTime) + 500);
+            LOG.debug("sampled vault server time {} (offset to local clock: {} ms)", serverTime,
+                sample.serverTimeMillis - System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            if (previous == null) {
+                throw e;
+            }
+            LOG.warn("cannot sample the vault server time, keeping the previous estimate", e);
+            // postpone the next attempt by another resample interval
+            sample = new Sample(requestStart,
+                previous.serverTimeMillis + TimeUnit.NANOSECONDS.toMillis(requestStart - previous.sampledAt));
+        }
+        return sample;
+    }
+
+    private static long getServerTimeUtc(VaultOperations vaultOperations) {
+        VaultHealth health = vaultOperations.opsForSys().health();
+        return health.getServerTimeUtc();
+    }
+
+    private static final class Sample {
+
+        /**
+         * The local monotonic time ({@link System#nanoTime()}) of the sample.
+         */
+        private final long sampledAt;
+
+        /**
+         * The estimated server time (in milliseconds since the epoch) at {@link #sampledAt}.
+         */
+        private final long serverTimeMillis;
+
+        private Sample(long sampledAt, long serverTimeMillis) {
+            this.sampledAt = sampledAt;
+            this.serverTimeMillis = serverTimeMillis;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.vault.core.VaultOperations;
+
+/**
+ * Spring configuration class that provides the {@link VaultClock} shared by all components that decide on the
+ * expiry of TLS material stored in the vault.
+ */
+@Configuration
+@Import(TlsMetricsConfiguration.class)
+public class VaultClockConfiguration {
+
+    /**
+     * Factory for the shared {@link VaultClock}.
+     *
+     * @param vaultOperations  facade for interactions with the vault instance
+     * @param resampleInterval the maximum age (in seconds) of the vault server time sample, taken from the property
+     *                         {@code haufe.cloud.vault.clock.resampleInterval}; default is one hour
+     * @param tlsMetrics       the metrics that record the requests of the server time
+     * @return the vault clock
+     */
+    @Bean
+    @ConditionalOnBean(VaultOperations.class)
+    @ConditionalOnMissingBean(VaultClock.class)
+    public VaultClock vaultClock(VaultOperations vaultOperations,
+                                 @Value("${haufe.cloud.vault.clock.resampleInterval:3600}") long resampleInterval,
+                                 TlsMetrics tlsMetrics) {
+
+        return new VaultClock(vaultOperations, resampleInterval, tlsMetrics);
+    }
+}
@@ -0,0 +1,127 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.vault.VaultException;
+import org.springframework.vault.core.VaultOperations;
+import org.springframework.vault.support.VaultResponseSupport;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Advisory lock in a vault generic secret backend that lets, in most cases, a single instance of an application
+ * issue a new certificate while the other instances wait for the result. It deduplicates issuances on a best-effort
+ * basis and is not a mutual exclusion.
+ * <p>
+ * The generic backend offers no check-and-set writes. The lock is therefore acquired optimistically: an instance
+ * that finds no valid lock writes a lock document with a random owner id, waits a short settle time and reads the
+ * document back. Only the instance whose id survived holds the lock. Two instances can still both believe they hold
+ * the lock if their writes are further apart than the settle time; this costs an additional issuance, but does
+ * not affect correctness. The lock expires after the lease time, so a crashed owner does not block the other
+ * instances.
+ */
+class VaultIssuanceLock {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VaultIssuanceLock.class);
+
+    private final VaultOperations vaultOperations;
+    private final String lockPath;
+    private final VaultClock vaultClock;
+    private final long leaseTime;
+    private final long settleTime;
+    private final TlsMetrics metrics;
+    private final String owner = UUID.randomUUID().toString();
+
+    /**
+     * Create a lock.
+     *
+     * @param vaultOperations vault API client implementation
+     * @param lockPath        the path of the lock document in the vault
+     * @param vaultClock      estimate of the vault server's time used for the lock's expiry
+     * @param leaseTime       the time (in seconds) after which an acquired lock expires
+     * @param settleTime      the time (in milliseconds) between writing and re-reading the lock document
+     * @param metrics         the metrics that record the vault operations
+     */
+    VaultIssuanceLock(VaultOperations vaultOperations, String lockPath, VaultClock vaultClock,
+                      long leaseTime, long settleTime, TlsMetrics metrics) {
+        this.vaultOperations = vaultOperations;
+        this.lockPath = lockPath;
+        this.vaultClock = vaultClock;
+        this.leaseTime = leaseTime;
+        this.settleTime = settleTime;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Try to acquire the lock.
+     *
+     * @return whether this instance holds the lock now
+     * @throws InterruptedException the thread was interrupted while waiting for the lock document to settle
+     */
+    boolean tryAcquire() throws InterruptedException {
+        LockDocument current = readLock();
+        if (current != null && !StringUtils.equals(current.getOwner(), owner)
+            && current.getExpires() > vaultClock.currentTimeSeconds()) {
+            LOG.debug("issuance lock at {} is held by {}", lockPath, current.getOwner());
+            return false;
+        }
+
+        LockDocument lockDocument = new LockDocument();
+        lockDocument.setOwner(owner);
+        lockDocument.setExpires(vaultClock.currentTimeSeconds() + leaseTime);
+        metrics.timeVaultOperation(TlsMetrics.VaultOperation.WRITE,
+            () -> vaultOperations.write(lockPath, lockDocument));
+
+        TimeUnit.MILLISECONDS.sleep(settleTime);
+
+        LockDocument written = readLock();
+        boolean acquired = written != null && StringUtils.equals(written.getOwner(), owner);
+        LOG.info(acquired ? "acquired issuance lock at {}" : "lost the race for the issuance lock at {}", lockPath);
+        return acquired;
+    }
+
+    /**
+     * Release the lock if this instance holds it.
+     * <p>
+     * Failures are logged, but not propagated: the lock expires anyway.
+     */
+    void release() {
+        try {
+            LockDocument current = readLock();
+            if (current != null && StringUtils.equals(current.getOwner(), owner)) {
+                metrics.timeVaultOperation(TlsMetrics.VaultOperation.DELETE, () -> vaultOperations.delete(lockPath));
+                LOG.debug("released issuance lock at {}", lockPath);
+            }
+        } catch (VaultException e) {
+            LOG.warn("cannot release issuance lock at {}, it expires after {} seconds", lockPath, leaseTime, e);
+        }
+    }
+
+    private LockDocument readLock() {
+        VaultResponseSupport<LockDocument> response = metrics.timeVaultOperation(TlsMetrics.VaultOperation.READ,
+            () -> vaultOperations.read(lockPath, LockDocument.class));
+        return response != null ? response.getData() : null;
+    }
+
+    /**
+     * The content of the lock document.
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class LockDocument {
+
+        /**
+         * Random id of the lock owner
+         */
+        private String owner;
+
+        /**
+         * Timestamp (in Posix time) when the lock expires
+         */
+        private long expires;
+    }
+}
@@ -21,18 +21,28 @@
  */
 package com.haufe.spring.cloud.vault.config.tls;
 
+import javaslang.Tuple;
+import javaslang.Tuple2;
+import org.apache.catalina.connector.Connector;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.AbstractHttp11JsseProtocol;
+import org.apache.tomcat.util.net.SSLImplementation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.context.embedded.*;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.vault.config.VaultProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.util.ResourceUtils;
 import org.springframework.vault.core.VaultOperations;
 import org.springframework.vault.support.CertificateBundle;
@@ -45,6 +55,12 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 
 /**
  * {@link Configuration} to request SSL certificates and register a
@@ -57,6 +73,19 @@ import java.security.cert.CertificateException;
  * bean factories.
  * <p>
  * You can disable this adaption by setting {@code haufe.cloud.vault.pki.enabled=false}.
+ * <p>
+ * If the embedded container is a Tomcat, then the server certificate is renewed in the background before it
+ * expires and swapped into the running connector (see {@link ServerCertificateRenewer}). You can disable the
+ * renewal by setting {@code haufe.cloud.vault.pki.renewal.enabled=false}.
+ * <p>
+ * If {@code haufe.cloud.vault.pki.localCache.enabled=true}, then the server certificate and the trusted
+ * certificates are cached in an encrypted local file (see {@link LocalCertificateCache}). The application then
+ * starts from the local cache without waiting for the vault and revalidates the material in the background.
+ * <p>
+ * The server certificate and trust store in use are recorded in the {@link TlsMaterialInventory}.
+ * <p>
+ * If further {@link VaultPkiProperties#getIdentities() identities} are configured, then each of them gets a
+ * certificate of its own, which is served to clients that request one of its host names via SNI.
  *
  * @author Mark Paluch
  * @author Christoph Ludwig (adaptions)
@@ -65,10 +94,19 @@ import java.security.cert.CertificateException;
 @ConditionalOnWebApplication
 @ConditionalOnProperty(prefix = "haufe.cloud.vault.pki", name = "enabled", havingValue = "true")
 @EnableConfigurationProperties(VaultPkiProperties.class)
+@Import({VaultClockConfiguration.class, TlsMetricsConfiguration.class, TlsMaterialInventoryConfiguration.class})
 public class VaultPkiConfiguration {
 
     private static final Logger LOG = LoggerFactory.getLogger(VaultPkiConfiguration.class);
 
+    private static final char[] EMPTY_PASSWORD = new char[]{};
+
+    /**
+     * The alias of the key entry of the default server identity; the key entries of further identities are named
+     * after their common names.
+     */
+    static final String SERVER_KEY_ALIAS = "vault";
+
     /**
      * Create an {@link EmbeddedServletContainerCustomizer} that fetches the TLS key and trust material from vault.
      * <p>
@@ -80,6 +118,17 @@ public class VaultPkiConfiguration {
      * <p>
      * If, for whatever reasons, the trust store cannot be fetched from the vault, then it is loaded as specified in
      * the server's {@link ServerProperties#getSsl() SSL properties}.
+     * <p>
+     * The server certificate and the trusted certificates are fetched in parallel; the number of parallel requests
+     * and the total time the requests may take are limited by the {@code bootstrapConcurrency} and
+     * {@code bootstrapTimeout} properties.
+     * <p>
+     * If the {@link LocalCertificateCache local certificate cache} is enabled and holds a certificate that is
+     * still valid long enough, then the vault is not contacted at all.
+     * <p>
+     * The certificates of further {@link VaultPkiProperties#getIdentities() identities} are obtained the same way,
+     * independently of the default identity's certificate. If {@link VaultPkiProperties#getOnDemand() on-demand
+     * certificates} are enabled, then certificates for other allowed host names are obtained during the handshake.
      *
      * @param vaultProperties  {@link ConfigurationProperties} of the vault client, typically specified in the application's
      *                         bootstrap configuration
@@ -87,51 +136,296 @@ public class VaultPkiConfiguration {
      * @param pkiProperties    {@link ConfigurationProperties} of the vault PKI backend client. Also includes information on the
      *                         required server certificate, path (within the vault) of the trusted certificates etc.
      * @param serverProperties {@link ConfigurationProperties} of the embedded web container.
+     * @param vaultClock       estimate of the vault server's time used to decide whether a cached certificate expires
+     * @param renewalPolicy    the policy that decides whether a cached certificate is due for renewal
+     * @param tlsMetrics       the metrics that record the vault operations, the key store creations, and the
+     *                         remaining lifetime of the server certificate
+     * @param inventory        the inventory that records the server certificate and trust store
      * @return a customizer bean, never {@code null}
      */
     @Bean
     @ConditionalOnProperty(prefix = "server.ssl", name = "enabled", havingValue = "true")
     public SslCertificateEmbeddedServletContainerCustomizer sslCertificateRequestingPostProcessor(
             VaultProperties vaultProperties, VaultOperations vaultOperations,
-            VaultPkiProperties pkiProperties, ServerProperties serverProperties) {
+            VaultPkiProperties pkiProperties, ServerProperties serverProperties, VaultClock vaultClock,
+            RenewalPolicy renewalPolicy, TlsMetrics tlsMetrics, TlsMaterialInventory inventory) {
 
-        CertificateBundle certificateBundle = CertificateUtil
-                .getOrRequestCertificate(vaultProperties, vaultOperations, pkiProperties);
+        Optional<LocalCertificateCache> localCache = LocalCertificateCache.of(pkiProperties);
+        Optional<LocalCertificateCache.Entry> cachedEntry = localCache.flatMap(cache ->
+                cache.read(pkiProperties.getCommonName(), pkiProperties.getLocalCache().getMinTimeToLive()));
 
-        TrustedCertificates trustedCertificates = getTrustedCertificates(vaultOperations, pkiProperties);
+        CertificateBundle certificateBundle;
+        TlsMaterialInventory.Source certificateSource;
+        TrustedCertificates trustedCertificates;
+        if (cachedEntry.isPresent()) {
+            certificateBundle = cachedEntry.get().toCertificateBundle();
+            certificateSource = TlsMaterialInventory.Source.LOCAL_CACHE;
+            trustedCertificates = cachedEntry.get().getTrustedCertificates();
+            LOG.info("using server certificate with serial number {} from the local certificate cache",
+                    certificateBundle.getSerialNumber());
+        } else {
+            // the server certificate and the trusted certificates are independent of each other,
+            // so we fetch them in parallel
+            try (ConcurrentFetcher fetcher = new ConcurrentFetcher("vault-pki-fetch",
+                    pkiProperties.getBootstrapConcurrency(), pkiProperties.getBootstrapTimeout())) {
+
+                Future<Tuple2<CertificateBundle, TlsMaterialInventory.Source>> pendingCertificateBundle =
+                        fetcher.submit(() -> CertificateUtil.obtainCertificate(vaultProperties, vaultOperations,
+                                pkiProperties, vaultClock, renewalPolicy, tlsMetrics));
+                Future<TrustedCertificates> pendingTrustedCertificates =
+                        fetcher.submit(() -> getTrustedCertificates(vaultOperations, pkiProperties, tlsMetrics));
+
+                Tuple2<CertificateBundle, TlsMaterialInventory.Source> obtained =
+                        fetcher.await(pendingCertificateBundle, "the server certificate");
+                certificateBundle = obtained._1;
+                certificateSource = obtained._2;
+                trustedCertificates = fetcher.await(pendingTrustedCertificates, "the trusted certificates");
+            }
+            localCache.ifPresent(cache ->
+                    cache.write(pkiProperties.getCommonName(), certificateBundle, trustedCertificates));
+        }
+
+        Map<String, Tuple2<CertificateBundle, TlsMaterialInventory.Source>> identityCertificates =
+                obtainIdentityCertificates(vaultProperties, vaultOperations, pkiProperties, vaultClock, renewalPolicy,
+                        tlsMetrics, localCache, trustedCertificates);
 
         Ssl ssl = serverProperties.getSsl();
 
         if (ssl != null) {
-            ssl.setKeyAlias("vault");
+            ssl.setKeyAlias(SERVER_KEY_ALIAS);
             ssl.setKeyPassword("");
             ssl.setKeyStorePassword("");
         }
 
-        return new SslCertificateEmbeddedServletContainerCustomizer(certificateBundle, trustedCertificates, ssl);
+        VaultPkiProperties.ValidationCache validationCache = pkiProperties.getValidationCache();
+        ReloadableJsseImplementation.getTrustManager().configureValidationCache(
+                validationCache.isEnabled() ? validationCache.getMaximumSize() : 0,
+                validationCache.getExpireAfterWrite());
+
+        ReloadableJsseImplementation.getKeyManager().setOnDemandCertificates(pkiProperties.getOnDemand().isEnabled() ?
+                OnDemandCertificates.of(vaultProperties, vaultOperations, pkiProperties, vaultClock, renewalPolicy,
+                        tlsMetrics) :
+                null);
+
+        tlsMetrics.registerCertificate("server", ReloadableJsseImplementation.getKeyManager()::getCurrentCertificate);
+        for (String commonName : identityCertificates.keySet()) {
+            tlsMetrics.registerCertificate("server:" + commonName, () -> {
+                X509Certificate[] chain = ReloadableJsseImplementation.getKeyManager().getCertificateChain(commonName);
+                return chain != null ? chain[0] : null;
+            });
+        }
+
+        return new SslCertificateEmbeddedServletContainerCustomizer(certificateBundle, trustedCertificates,
+                pkiProperties.isMergeDefaultTrustedCertificates(), pkiProperties.getSession(),
+                pkiProperties.getSslImplementation(), ssl, cachedEntry.isPresent(), tlsMetrics, certificateSource,
+                identityCertificates, inventory);
+    }
+
+    /**
+     * Create a {@link ServerCertificateRenewer} that renews the server certificate obtained by the
+     * {@link #sslCertificateRequestingPostProcessor(VaultProperties, VaultOperations, VaultPkiProperties,
+     * ServerProperties, VaultClock, RenewalPolicy, TlsMetrics, TlsMaterialInventory) container customizer} before it
+     * expires.
+     * <p>
+     * The renewer is also created if only the local certificate cache is enabled: it then revalidates material
+     * read from the local cache once and keeps the local cache up to date.
+     *
+     * @param vaultProperties {@link ConfigurationProperties} of the vault client
+     * @param vaultOperations facade for interactions with the vault instance
+     * @param pkiProperties   {@link ConfigurationProperties} of the vault PKI backend client, including the
+     *                        renewal settings
+     * @param vaultClock      estimate of the vault server's time
+     * @param renewalPolicy   the policy that decides when the server certificate is renewed
+     * @param customizer      the container customizer that holds the initial server certificate
+     * @param tlsMetrics      the metrics that record the vault operations and the key store creations
+     * @param inventory       the inventory that records renewed material and triggers renewals on demand
+     * @return a renewer bean, never {@code null}
+     */
+    @Bean
+    @ConditionalOnExpression(
+        "${server.ssl.enabled:false} and " +
+            "(${haufe.cloud.vault.pki.renewal.enabled:true} or ${haufe.cloud.vault.pki.localCache.enabled:false})")
+    public ServerCertificateRenewer serverCertificateRenewer(
+            VaultProperties vaultProperties, VaultOperations vaultOperations, VaultPkiProperties pkiProperties,
+            VaultClock vaultClock, RenewalPolicy renewalPolicy,
+            SslCertificateEmbeddedServletContainerCustomizer customizer, TlsMetrics tlsMetrics,
+            TlsMaterialInventory inventory) {
+
+        return new ServerCertificateRenewer(vaultProperties, vaultOperations, pkiProperties, vaultClock, renewalPolicy,
+                customizer.getCertificateBundle(), customizer.getTrustedCertificates(),
+                LocalCertificateCache.of(pkiProperties), customizer.isLoadedFromLocalCache(),
+                tlsMetrics, inventory, customizer.getIdentityBundles());
+    }
+
+    /**
+     * The handshake counters of the server connections, exposed as a bean so they are exported via JMX.
+     *
+     * @return the server session statistics
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "server.ssl", name = "enabled", havingValue = "true")
+    public TlsSessionStatistics tlsServerSessionStatistics() {
+        return ReloadableJsseImplementation.getSessionStatistics();
+    }
+
+    /**
+     * Create the {@link RenewalPolicy} configured in {@code haufe.cloud.vault.pki.renewal}.
+     * <p>
+     * Applications can replace the policy by providing a bean of their own.
+     *
+     * @param pkiProperties {@link ConfigurationProperties} of the vault PKI backend client, including the
+     *                      renewal settings
+     * @return the renewal policy, including this instance's jitter
+     */
+    @Bean
+    @ConditionalOnMissingBean(RenewalPolicy.class)
+    public RenewalPolicy renewalPolicy(VaultPkiProperties pkiProperties) {
+        return RenewalPolicy.of(pkiProperties);
+    }
+
+    /**
+     * Create the server's key store: the default identity's certificate under the alias {@value #SERVER_KEY_ALIAS}
+     * and the certificate of each further identity under its common name.
+     *
+     * @param certificateBundle the certificate of the default identity, must not be {@literal null}
+     * @param identityBundles   the certificates of the further identities by their common names, must not be
+     *                          {@literal null}
+     * @return the key store, never {@literal null}
+     */
+    static KeyStore createServerKeyStore(CertificateBundle certificateBundle,
+                                         Map<String, CertificateBundle> identityBundles) {
+        Map<String, CertificateBundle> bundlesByAlias = new LinkedHashMap<>();
+        bundlesByAlias.put(SERVER_KEY_ALIAS, certificateBundle);
+        bundlesByAlias.putAll(identityBundles);
+        return CertificateBundles.createKeyStore(bundlesByAlias);
+    }
+
+    private static Map<String, Tuple2<CertificateBundle, TlsMaterialInventory.Source>> obtainIdentityCertificates(
+            VaultProperties vaultProperties, VaultOperations vaultOperations, VaultPkiProperties pkiProperties,
+            VaultClock vaultClock, RenewalPolicy renewalPolicy, TlsMetrics tlsMetrics,
+            Optional<LocalCertificateCache> localCache, TrustedCertificates trustedCertificates) {
+
+        Map<String, Tuple2<CertificateBundle, TlsMaterialInventory.Source>> identityCertificates =
+                new LinkedHashMap<>();
+        if (pkiProperties.getIdentities().isEmpty()) {
+            return identityCertificates;
+        }
+
+        Map<String, Future<Tuple2<CertificateBundle, TlsMaterialInventory.Source>>> pending = new LinkedHashMap<>();
+        try (ConcurrentFetcher fetcher = new ConcurrentFetcher("vault-pki-fetch",
+                pkiProperties.getBootstrapConcurrency(), pkiProperties.getBootstrapTimeout())) {
+
+            for (VaultPkiProperties.Identity identity : pkiProperties.getIdentities()) {
+                String commonName = identity.getCommonName();
+                Optional<CertificateBundle> cached = localCache.flatMap(cache ->
+                        cache.read(commonName, pkiProperties.getLocalCache().getMinTimeToLive()))
+                        .map(LocalCertificateCache.Entry::toCertificateBundle);
+                if (cached.isPresent()) {
+                    identityCertificates.put(commonName,
+                            Tuple.of(cached.get(), TlsMaterialInventory.Source.LOCAL_CACHE));
+                } else {
+                    VaultPkiProperties identityProperties = pkiProperties.forIdentity(identity);
+                    pending.put(commonName, fetcher.submit(() -> CertificateUtil.obtainCertificate(vaultProperties,
+                            vaultOperations, identityProperties, vaultClock, renewalPolicy, tlsMetrics)));
+                }
+            }
+            for (Map.Entry<String, Future<Tuple2<CertificateBundle, TlsMaterialInventory.Source>>> entry :
+                    pending.entrySet()) {
+                Tuple2<CertificateBundle, TlsMaterialInventory.Source> obtained =
+                        fetcher.await(entry.getValue(), "the certificate of " + entry.getKey());
+                identityCertificates.put(entry.getKey(), obtained);
+                localCache.ifPresent(cache -> cache.write(entry.getKey(), obtained._1, trustedCertificates));
+            }
+        }
+
+        // keep the configured order of the identities
+        Map<String, Tuple2<CertificateBundle, TlsMaterialInventory.Source>> ordered = new LinkedHashMap<>();
+        pkiProperties.getIdentities().forEach(identity ->
+                ordered.put(identity.getCommonName(), identityCertificates.get(identity.getCommonName())));
+        return ordered;
     }
 
     private static TrustedCertificates getTrustedCertificates(VaultOperations vaultOperations,
-                                                              VaultPkiProperties pkiProperties) {
+                                                              VaultPkiProperties pkiProperties,
+                                                              TlsMetrics tlsMetrics) {
 
         String trustStorePath = pkiProperties.getTrustStorePath();
         return StringUtils.isNotBlank(trustStorePath) ?
-                CertificateUtil.readTrustedCertificates(vaultOperations, trustStorePath) :
+                CertificateUtil.readTrustedCertificates(vaultOperations, trustStorePath, tlsMetrics) :
                 null;
     }
 
+    /**
+     * Select the Tomcat SSL implementation of the server connector. OpenSSL is only selected if it was requested
+     * and the native library is available; otherwise the JVM's TLS implementation is used.
+     *
+     * @param sslImplementation the requested TLS implementation
+     * @param openSslAvailable  check whether the native OpenSSL library is available; only called if OpenSSL was
+     *                          requested
+     * @return the class of the SSL implementation
+     */
+    static Class<? extends SSLImplementation> selectSslImplementation(
+            VaultPkiProperties.SslImplementation sslImplementation, BooleanSupplier openSslAvailable) {
+        if (sslImplementation == VaultPkiProperties.SslImplementation.OPENSSL) {
+            if (openSslAvailable.getAsBoolean()) {
+                return ReloadableOpenSslImplementation.class;
+            }
+            LOG.warn("OpenSSL was requested for the server connector but is not available, falling back to JSSE");
+        }
+        return ReloadableJsseImplementation.class;
+    }
+
     private static class SslCertificateEmbeddedServletContainerCustomizer
             implements EmbeddedServletContainerCustomizer {
 
         private final CertificateBundle certificateBundle;
         private final TrustedCertificates trustedCertificates;
+        private final boolean mergeDefaultTrustedCertificates;
+        private final TlsSessionProperties sessionProperties;
+        private final VaultPkiProperties.SslImplementation sslImplementation;
         private final Ssl sslServerConfig;
+        private final boolean loadedFromLocalCache;
+        private final TlsMetrics tlsMetrics;
+        private final TlsMaterialInventory.Source certificateSource;
+        private final Map<String, Tuple2<CertificateBundle, TlsMaterialInventory.Source>> identityCertificates;
+        private final TlsMaterialInventory inventory;
 
         SslCertificateEmbeddedServletContainerCustomizer(
-                CertificateBundle certificateBundle, TrustedCertificates trustedCertificates, Ssl ssl) {
+                CertificateBundle certificateBundle, TrustedCertificates trustedCertificates,
+                boolean mergeDefaultTrustedCertificates, TlsSessionProperties sessionProperties,
+                VaultPkiProperties.SslImplementation sslImplementation, Ssl ssl, boolean loadedFromLocalCache,
+                TlsMetrics tlsMetrics, TlsMaterialInventory.Source certificateSource,
+                Map<String, Tuple2<CertificateBundle, TlsMaterialInventory.Source>> identityCertificates,
+                TlsMaterialInventory inventory) {
             this.certificateBundle = certificateBundle;
             this.trustedCertificates = trustedCertificates;
+            this.mergeDefaultTrustedCertificates = mergeDefaultTrustedCertificates;
+            this.sessionProperties = sessionProperties;
+            this.sslImplementation = sslImplementation;
             this.sslServerConfig = ssl;
+            this.loadedFromLocalCache = loadedFromLocalCache;
+            this.tlsMetrics = tlsMetrics;
+            this.certificateSource = certificateSource;
+            this.identityCertificates = identityCertificates;
+            this.inventory = inventory;
+        }
+
+        CertificateBundle getCertificateBundle() {
+            return certificateBundle;
+        }
+
+        Map<String, CertificateBundle> getIdentityBundles() {
+            Map<String, CertificateBundle> identityBundles = new LinkedHashMap<>();
+            identityCertificates.forEach((commonName, obtained) -> identityBundles.put(commonName, obtained._1));
+            return identityBundles;
+        }
+
+        TrustedCertificates getTrustedCertificates() {
+            return trustedCertificates;
+        }
+
+        boolean isLoadedFromLocalCache() {
+            return loadedFromLocalCache;
         }
 
         @Override
@@ -139,9 +433,24 @@ public class VaultPkiConfiguration {
 
             try {
 
-                final KeyStore keyStore = certificateBundle.createKeyStore("vault");
+                final KeyStore keyStore = tlsMetrics.timeKeyStoreCreation(
+                    () -> createServerKeyStore(certificateBundle, getIdentityBundles()));
                 final KeyStore trustStore = buildTrustStore();
 
+                ReloadableJsseImplementation.getKeyManager().reload(keyStore, EMPTY_PASSWORD, SERVER_KEY_ALIAS);
+                ReloadableJsseImplementation.getTrustManager().reload(trustStore);
+                inventory.recordIdentity("server", certificateBundle.getX509Certificate(), certificateSource);
+                identityCertificates.forEach((commonName, obtained) -> inventory.recordIdentity(
+                        "server:" + commonName, obtained._1.getX509Certificate(), obtained._2));
+                inventory.recordTrustStore("server", trustStore, getTrustStoreSource());
+                if (container instanceof TomcatEmbeddedServletContainerFactory) {
+                    ((TomcatEmbeddedServletContainerFactory) container)
+                            .addConnectorCustomizers(this::useReloadableSslImplementation);
+                } else {
+                    LOG.warn("the embedded container is not a Tomcat, renewed server certificates " +
+                            "require a restart to take effect");
+                }
+
                 container.setSslStoreProvider(new SslStoreProvider() {
                     @Override
                     public KeyStore getKeyStore() throws Exception {
@@ -160,13 +469,37 @@ public class VaultPkiConfiguration {
             }
         }
 
+        private void useReloadableSslImplementation(Connector connector) {
+            ProtocolHandler protocolHandler = connector.getProtocolHandler();
+            if (protocolHandler instanceof AbstractHttp11JsseProtocol) {
+                AbstractHttp11JsseProtocol<?> jsseProtocol = (AbstractHttp11JsseProtocol<?>) protocolHandler;
+                jsseProtocol.setSslImplementationName(
+                        selectSslImplementation(sslImplementation, OpenSslSupport::isAvailable).getName());
+                jsseProtocol.setSessionCacheSize(sessionProperties.getCacheSize());
+                jsseProtocol.setSessionTimeout(sessionProperties.getTimeout());
+                jsseProtocol.setSSLDisableSessionTickets(!sessionProperties.isTickets());
+            }
+        }
+
         private KeyStore buildTrustStore() {
             if (trustedCertificates == null) {
                 LOG.info("no trusted certificate information from vault, falling back to server.ssl config");
                 return getTrustStoreFromSslConfig();
             }
             LOG.info("using trusted certificates information from vault");
-            return trustedCertificates.createTrustStore();
+            return tlsMetrics.timeTrustStoreCreation(() ->
+                    trustedCertificates.createTrustStore(mergeDefaultTrustedCertificates));
+        }
+
+        private TlsMaterialInventory.Source getTrustStoreSource() {
+            if (trustedCertificates != null) {
+                return loadedFromLocalCache ?
+                        TlsMaterialInventory.Source.LOCAL_CACHE :
+                        TlsMaterialInventory.Source.VAULT_SECRET;
+            }
+            return sslServerConfig != null && StringUtils.isNotBlank(sslServerConfig.getTrustStore()) ?
+                    TlsMaterialInventory.Source.SERVER_CONFIGURATION :
+                    TlsMaterialInventory.Source.JVM_DEFAULT;
         }
 
         private KeyStore getTrustStoreFromSslConfig() {
@@ -186,12 +519,7 @@ public class VaultPkiConfiguration {
 
             LOG.info("no trust store location configured in the container's SSL properties, " +
                     "falling back to the default x509 trust manager");
-            return getDefaultTrustStore();
-        }
-
-        private KeyStore getDefaultTrustStore() {
-            TrustedCertificates defaultTrustedCertificates = TrustedCertificates.getDefaultTrustedCertificates();
-            return defaultTrustedCertificates.createTrustStore();
+            return TrustedCertificates.getDefaultTrustStore();
         }
 
         private KeyStore getTrustStoreInstance(String keyStoreType, String trustStoreProvider)
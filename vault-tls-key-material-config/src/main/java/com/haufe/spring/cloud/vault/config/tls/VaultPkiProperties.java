@@ -23,9 +23,11 @@ package com.haufe.spring.cloud.vault.config.tls;
 
 import lombok.Data;
 import org.hibernate.validator.constraints.NotEmpty;
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.vault.config.VaultSecretBackendDescriptor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -72,6 +74,39 @@ public class VaultPkiProperties implements VaultSecretBackendDescriptor {
      */
     private List<String> altNames;
 
+    /**
+     * Further identities of the server, each with a certificate of its own. Clients that request one of their host
+     * names via SNI get the identity's certificate; all other clients get the certificate of {@link #commonName}.
+     * <p>
+     * Every identity is issued, cached, and renewed independently, with the same role and key settings as the
+     * default identity.
+     */
+    private List<Identity> identities = new ArrayList<>();
+
+    /**
+     * Settings of the issuance of certificates for host names that are not known at startup.
+     */
+    private OnDemand onDemand = new OnDemand();
+
+    /**
+     * The type of the certificate's key pair. If set, then the key pair is generated locally and the vault signs a
+     * certificate request ({@code <backend>/sign/<role>}); the role must allow the key type. If empty, then the
+     * vault generates the key pair of the type configured in the role ({@code <backend>/issue/<role>}).
+     */
+    private KeyType keyType;
+
+    /**
+     * The size (in bits) of the certificate's key if the {@link #keyType} is set: 2048, 3072, or 4096 for RSA keys,
+     * 256 (P-256) or 384 (P-384) for EC keys. Default is 2048 for RSA and 256 for EC keys.
+     */
+    private int keyBits;
+
+    /**
+     * The requested validity (in seconds) of the certificate; the vault caps it at the role's maximum TTL.
+     * Default is {@literal 0}, i.e., the role's TTL.
+     */
+    private long ttl;
+
     /**
      * Prevent certificate re-creation by storing the Valid certificate inside Vault.
      */
@@ -84,7 +119,10 @@ public class VaultPkiProperties implements VaultSecretBackendDescriptor {
     private String cacheBackend = "secret";
 
     /**
-     * The minimum remaining TTL (in seconds) of a certificate accepted from the cache. Default is 21 days.
+     * The minimum remaining TTL (in seconds) of a certificate accepted from the cache if the renewal policy is
+     * {@link RenewalPolicy.Type#MIN_TIME_TO_LIVE}. Default is 21 days.
+     * <p>
+     * The TTL is capped at half of the certificate's lifetime.
      */
     private long minCachedTimeToLive = 21 * ONE_DAY_IN_SECONDS;
 
@@ -97,4 +135,346 @@ public class VaultPkiProperties implements VaultSecretBackendDescriptor {
      * @see TrustedCertificates
      */
     private String trustStorePath;
+
+    /**
+     * Whether the trust store read from {@link #trustStorePath} is merged with the JVM's default trusted
+     * certificates. Default is {@literal false}, i.e., only the certificates from the vault are trusted.
+     */
+    private boolean mergeDefaultTrustedCertificates = false;
+
+    /**
+     * The maximum number of parallel requests to the vault while fetching the TLS material at startup.
+     */
+    private int bootstrapConcurrency = 4;
+
+    /**
+     * The time (in seconds) fetching all TLS material from the vault at startup may take. Default is 30 seconds.
+     */
+    private long bootstrapTimeout = 30;
+
+    /**
+     * Settings of the background renewal of the server certificate.
+     */
+    private Renewal renewal = new Renewal();
+
+    /**
+     * Settings of the local, encrypted cache of the server certificate.
+     */
+    private LocalCache localCache = new LocalCache();
+
+    /**
+     * Settings of the coordinated issuance of certificates cached in the vault.
+     */
+    private Issuance issuance = new Issuance();
+
+    /**
+     * Settings of the cache of validated client certificate chains.
+     */
+    private ValidationCache validationCache = new ValidationCache();
+
+    /**
+     * Settings of the server's TLS session cache.
+     */
+    private TlsSessionProperties session = new TlsSessionProperties();
+
+    /**
+     * The TLS implementation of the server's connector. Default is {@link SslImplementation#JSSE}.
+     */
+    private SslImplementation sslImplementation = SslImplementation.JSSE;
+
+    /**
+     * The type of a certificate's key pair.
+     */
+    public enum KeyType {
+
+        /**
+         * RSA keys of 2048, 3072, or 4096 bits.
+         */
+        RSA(2048, 2048, 3072, 4096),
+
+        /**
+         * EC keys on the NIST curves P-256 or P-384.
+         */
+        EC(256, 256, 384);
+
+        private final int defaultBits;
+        private final int[] supportedBits;
+
+        KeyType(int defaultBits, int... supportedBits) {
+            this.defaultBits = defaultBits;
+            this.supportedBits = supportedBits;
+        }
+
+        /**
+         * Validate a configured key size.
+         *
+         * @param keyBits the configured key size, {@literal 0} for the default size
+         * @return the key size to use
+         * @throws TlsInitializationException the key size is not supported for this key type
+         */
+        public int resolveKeyBits(int keyBits) {
+            if (keyBits == 0) {
+                return defaultBits;
+            }
+            for (int supported : supportedBits) {
+                if (supported == keyBits) {
+                    return keyBits;
+                }
+            }
+            throw new TlsInitializationException("unsupported size of " + this + " keys: " + keyBits);
+        }
+    }
+
+    /**
+     * The properties for requesting and caching the certificate of one of the further {@link #identities}: a copy
+     * of these properties with the identity's common name and alternative names, and without further identities.
+     *
+     * @param identity the identity, must not be {@literal null}
+     * @return the properties of the identity, never {@literal null}
+     */
+    public VaultPkiProperties forIdentity(Identity identity) {
+        VaultPkiProperties properties = new VaultPkiProperties();
+        BeanUtils.copyProperties(this, properties);
+        properties.setCommonName(identity.getCommonName());
+        properties.setAltNames(identity.getAltNames());
+        properties.setIdentities(new ArrayList<>());
+        return properties;
+    }
+
+    /**
+     * The TLS implementation of the server's connector.
+     */
+    public enum SslImplementation {
+
+        /**
+         * The JVM's TLS implementation ({@link ReloadableJsseImplementation}).
+         */
+        JSSE,
+
+        /**
+         * Native OpenSSL by means of tomcat-native 1.2 or later ({@link ReloadableOpenSslImplementation}). If the
+         * native library cannot be loaded, then the server falls back to {@link #JSSE}.
+         */
+        OPENSSL
+    }
+
+    /**
+     * Configuration properties of a further identity of the server.
+     */
+    @Data
+    public static class Identity {
+
+        /**
+         * The CN of the identity's certificate.
+         */
+        @NotEmpty
+        private String commonName;
+
+        /**
+         * Alternate CN names for additional host names of the identity.
+         */
+        private List<String> altNames;
+    }
+
+    /**
+     * Configuration properties of the issuance of certificates at handshake time.
+     * <p>
+     * If a client requests a host name via SNI that none of the configured identities covers, but that matches one
+     * of the {@link #allowedHostNames}, then a certificate for that host name is obtained from the vault (and cached
+     * in the vault like the certificates of the configured identities) while the handshake waits.
+     *
+     * @see OnDemandCertificates
+     */
+    @Data
+    public static class OnDemand {
+
+        /**
+         * Whether certificates are issued for host names that are not known at startup.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The patterns of the host names certificates are issued for, e.g., {@code *.tenants.example.com}. A
+         * {@code *} matches exactly one DNS label. Host names that match none of the patterns get the default
+         * identity's certificate.
+         */
+        private List<String> allowedHostNames = new ArrayList<>();
+
+        /**
+         * The maximum number of on-demand certificates held in memory; the least recently used certificates are
+         * evicted first. Default is 1000.
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * The time (in seconds) during which a host name is not issued again after its issuance failed; handshakes
+         * for the host name get the default identity's certificate meanwhile. Default is one minute.
+         */
+        private long failureBackoff = 60;
+
+        /**
+         * The maximum number of host names that are issued at the same time. Handshakes for further new host names
+         * get the default identity's certificate instead of waiting. Default is 4.
+         */
+        private int maximumConcurrentIssuances = 4;
+    }
+
+    /**
+     * Configuration properties of the background renewal of the server certificate.
+     */
+    @Data
+    public static class Renewal {
+
+        /**
+         * Whether the server certificate is renewed in the background before it expires. The renewed certificate
+         * is swapped into the running container without a restart.
+         */
+        private boolean enabled = true;
+
+        /**
+         * The policy that decides when a certificate is renewed, both by the background renewal and when a
+         * certificate cached in the vault is considered for reuse. Default is {@link RenewalPolicy.Type#LEAD_TIME}.
+         */
+        private RenewalPolicy.Type policy = RenewalPolicy.Type.LEAD_TIME;
+
+        /**
+         * The time (in seconds) before its expiry when a certificate is renewed if the policy is
+         * {@link RenewalPolicy.Type#LEAD_TIME}. Default is one day.
+         * <p>
+         * The lead time is capped at half of the certificate's lifetime.
+         */
+        private long renewBeforeExpiry = ONE_DAY_IN_SECONDS;
+
+        /**
+         * The share of its lifetime after which a certificate is renewed if the policy is
+         * {@link RenewalPolicy.Type#FRACTION_OF_LIFETIME}. Default is two thirds.
+         */
+        private double lifetimeFraction = 2.0 / 3;
+
+        /**
+         * The maximum share of the certificate's lifetime by which this instance renews earlier than the policy
+         * demands. The actual share is drawn randomly per instance, so the instances of an application do not all
+         * renew at the same time. Default is 0.1; {@literal 0} disables the jitter.
+         */
+        private double jitter = 0.1;
+
+        /**
+         * The delay (in seconds) before a failed renewal is retried. Default is one minute.
+         */
+        private long retryInterval = 60;
+    }
+
+    /**
+     * Configuration properties of the local, encrypted file cache of the server certificate.
+     *
+     * @see LocalCertificateCache
+     */
+    @Data
+    public static class LocalCache {
+
+        /**
+         * Whether the server certificate and the trusted certificates are cached in a local file. If the cached
+         * certificate is still valid long enough, then the application starts without waiting for the vault and
+         * revalidates the certificate against the vault in the background.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The directory of the cache files.
+         */
+        private String directory;
+
+        /**
+         * The password the encryption key of the cache files is derived from. Must not be empty if the local
+         * cache is enabled.
+         */
+        private String password;
+
+        /**
+         * The minimum remaining TTL (in seconds) of a certificate accepted from the local cache. Default is one day.
+         */
+        private long minTimeToLive = ONE_DAY_IN_SECONDS;
+    }
+
+    /**
+     * Configuration properties of the coordinated issuance of certificates cached in the vault.
+     * <p>
+     * If the cached certificate is missing or due for renewal, then an instance first tries to take an advisory
+     * issuance lock in the cache backend. The instance that takes it requests a new certificate, the other instances
+     * wait for the new certificate to appear in the cache.
+     * <p>
+     * The coordination is a best-effort deduplication, not a mutual exclusion: the generic backend offers no
+     * check-and-set writes, so instances whose lock writes are further apart than the {@link #lockSettleTime} may
+     * all request a certificate. In exchange, every miss or renewal costs additional reads and writes in the vault
+     * and the settle time.
+     *
+     * @see VaultIssuanceLock
+     */
+    @Data
+    public static class Issuance {
+
+        /**
+         * Whether the instances of an application try to avoid issuing the same cached certificate several times.
+         * Default is {@literal false}, i.e., every instance that finds no valid cached certificate requests one.
+         */
+        private boolean coordinated = false;
+
+        /**
+         * The time (in seconds) after which an issuance lock expires. Default is one minute.
+         */
+        private long lockLeaseTime = 60;
+
+        /**
+         * The time (in milliseconds) between writing and re-reading the lock document. Default is 250 ms.
+         */
+        private long lockSettleTime = 250;
+
+        /**
+         * The time (in seconds) an instance waits for another instance to issue the certificate before it
+         * requests a certificate on its own. Default is two minutes.
+         */
+        private long waitTimeout = 120;
+
+        /**
+         * The initial delay (in milliseconds) between two checks whether another instance issued the certificate.
+         * The delay doubles with every check. Default is 500 ms.
+         */
+        private long initialBackoff = 500;
+
+        /**
+         * The maximum delay (in milliseconds) between two checks whether another instance issued the certificate.
+         * Default is 10 seconds.
+         */
+        private long maxBackoff = 10000;
+    }
+
+    /**
+     * Configuration properties of the cache of client certificate chains validated by the server's trust manager.
+     * The cache only matters if the server requests client certificates ({@code server.ssl.client-auth}).
+     * <p>
+     * The cache trades security for handshake cost: a cached chain is accepted without another PKIX validation,
+     * including any revocation checks, until it expires from the cache or the trusted certificates are reloaded. A
+     * revoked client certificate is therefore accepted for up to {@link #expireAfterWrite} seconds.
+     *
+     * @see CachingX509TrustManager
+     */
+    @Data
+    public static class ValidationCache {
+
+        /**
+         * Whether successfully validated client certificate chains are cached. Default is {@literal false}, i.e.,
+         * every chain is validated on every handshake.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The maximum number of cached chains. Default is 1000.
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * The time (in seconds) a validation result is cached. Default is one hour.
+         */
+        private long expireAfterWrite = 3600;
+    }
 }
@@ -0,0 +1,79 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.InputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link CachingX509TrustManager}
+ */
+public class CachingX509TrustManagerTest {
+
+    private X509Certificate[] chain;
+    private X509ExtendedTrustManager delegate;
+    private CachingX509TrustManager trustManager;
+
+    @Before
+    public void setUp() throws Exception {
+        try (InputStream caCert = getClass().getClassLoader().getResourceAsStream("testpki-ca.pem")) {
+            chain = new X509Certificate[]{
+                (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(caCert)};
+        }
+        delegate = mock(X509ExtendedTrustManager.class);
+        trustManager = new CachingX509TrustManager(delegate, 10, 3600);
+    }
+
+    @Test
+    public void testThatValidatedChainIsServedFromCache() throws CertificateException {
+        trustManager.checkClientTrusted(chain, "RSA");
+        trustManager.checkClientTrusted(chain, "RSA");
+
+        verify(delegate, times(1)).checkClientTrusted(chain, "RSA");
+        assertThat(trustManager.getStatistics().hitCount(), is(1L));
+        assertThat(trustManager.getStatistics().missCount(), is(1L));
+    }
+
+    @Test
+    public void testThatFailedValidationIsNotCached() throws CertificateException {
+        doThrow(new CertificateException("untrusted")).when(delegate).checkClientTrusted(chain, "RSA");
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                trustManager.checkClientTrusted(chain, "RSA");
+                fail("untrusted chain accepted");
+            } catch (CertificateException e) {
+                assertThat(e.getMessage(), equalTo("untrusted"));
+            }
+        }
+
+        verify(delegate, times(2)).checkClientTrusted(chain, "RSA");
+    }
+
+    @Test
+    public void testThatAuthTypeIsPartOfTheCacheKey() throws CertificateException {
+        trustManager.checkClientTrusted(chain, "RSA");
+        trustManager.checkClientTrusted(chain, "DHE_RSA");
+
+        verify(delegate, times(2)).checkClientTrusted(any(X509Certificate[].class), anyString());
+    }
+
+    @Test
+    public void testThatServerChecksAreNotCached() throws CertificateException {
+        trustManager.checkServerTrusted(chain, "RSA");
+        trustManager.checkServerTrusted(chain, "RSA");
+
+        verify(delegate, times(2)).checkServerTrusted(chain, "RSA");
+    }
+}
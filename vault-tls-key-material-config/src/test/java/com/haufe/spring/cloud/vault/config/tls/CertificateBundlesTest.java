@@ -0,0 +1,80 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.haufe.spring.cloud.vault.standin.VaultStandIn;
+import org.junit.Test;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link CertificateBundles}
+ */
+public class CertificateBundlesTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1500000000L);
+
+    @Test
+    public void testThatKeyStoreIsCreatedForRsaBundle() throws Exception {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-server-bundle.json");
+
+        KeyStore keyStore = CertificateBundles.createKeyStore(bundle, "vault");
+
+        assertThat(keyStore.isKeyEntry("vault"), is(true));
+        assertThat(keyStore.getCertificateChain("vault").length, equalTo(2));
+        assertKeyPairMatches((PrivateKey) keyStore.getKey("vault", new char[0]),
+            bundle.getX509Certificate().getPublicKey(), "SHA256withRSA");
+    }
+
+    @Test
+    public void testThatKeyStoreIsCreatedForEcBundleIssuedByVault() throws Exception {
+        try (VaultStandIn standIn = VaultStandIn.start(Clock.fixed(NOW, ZoneOffset.UTC),
+            VaultStandIn.DEFAULT_KEY_SIZE)) {
+            standIn.setKeyType("ec", 256);
+            Map<String, Object> data = standIn.createVaultTemplate().write("pki/issue/service",
+                Collections.singletonMap("common_name", "localhost")).getData();
+            CertificateBundle bundle = CertificateBundle.of((String) data.get("serial_number"),
+                (String) data.get("certificate"), (String) data.get("issuing_ca"), (String) data.get("private_key"));
+
+            KeyStore keyStore = CertificateBundles.createKeyStore(bundle, "vault");
+
+            PrivateKey privateKey = (PrivateKey) keyStore.getKey("vault", new char[0]);
+            assertThat(privateKey.getAlgorithm(), equalTo("EC"));
+            assertThat(keyStore.getCertificateChain("vault")[1], equalTo(standIn.getCaCertificate()));
+            assertKeyPairMatches(privateKey, bundle.getX509Certificate().getPublicKey(), "SHA256withECDSA");
+        }
+    }
+
+    @Test(expected = TlsInitializationException.class)
+    public void testThatMalformedPrivateKeyIsRejected() throws Exception {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-server-bundle.json");
+
+        CertificateBundles.createKeyStore(CertificateBundle.of(bundle.getSerialNumber(), bundle.getCertificate(),
+            bundle.getIssuingCaCertificate(), "AAAA"), "vault");
+    }
+
+    private static void assertKeyPairMatches(PrivateKey privateKey, PublicKey publicKey, String algorithm)
+        throws Exception {
+
+        byte[] data = "key pair".getBytes("US-ASCII");
+        Signature signer = Signature.getInstance(algorithm);
+        signer.initSign(privateKey);
+        signer.update(data);
+        byte[] signature = signer.sign();
+
+        Signature verifier = Signature.getInstance(algorithm);
+        verifier.initVerify(publicKey);
+        verifier.update(data);
+        assertThat(verifier.verify(signature), is(true));
+    }
+}
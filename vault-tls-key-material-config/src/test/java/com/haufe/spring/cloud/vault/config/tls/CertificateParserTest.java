@@ -0,0 +1,79 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link CertificateParser}
+ */
+public class CertificateParserTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private CertificateFactory certificateFactory;
+
+    @Before
+    public void setUp() throws CertificateException {
+        certificateFactory = CertificateFactory.getInstance("X.509");
+    }
+
+    @Test
+    public void testThatMultipleCertificatesInOnePEMAreParsedInOrder()
+            throws IOException, URISyntaxException, CertificateException {
+        String issuingCaPEM = readResource("testpki-issuing-ca.pem");
+        String caPEM = readResource("testpki-ca.pem");
+
+        List<X509Certificate> certificates =
+                CertificateParser.parseCertificates(issuingCaPEM + caPEM, certificateFactory);
+
+        assertThat(certificates, contains(
+                CertificateParser.parseCertificates(issuingCaPEM, certificateFactory).get(0),
+                CertificateParser.parseCertificates(caPEM, certificateFactory).get(0)));
+    }
+
+    @Test
+    public void testThatBase64EncodedDERCertificateIsParsed()
+            throws IOException, URISyntaxException, CertificateException {
+        X509Certificate caCertificate =
+                CertificateParser.parseCertificates(readResource("testpki-ca.pem"), certificateFactory).get(0);
+
+        List<X509Certificate> certificates = CertificateParser.parseCertificates(
+                Base64.getMimeEncoder().encodeToString(caCertificate.getEncoded()), certificateFactory);
+
+        assertThat(certificates, contains(caCertificate));
+    }
+
+    @Test(expected = CertificateException.class)
+    public void testThatPEMWithoutEndMarkerIsRejected()
+            throws IOException, URISyntaxException, CertificateException {
+        String caCertPEM = readResource("testpki-ca.pem");
+        String truncated = caCertPEM.substring(0, caCertPEM.indexOf("-----END CERTIFICATE-----"));
+
+        CertificateParser.parseCertificates(truncated, certificateFactory);
+    }
+
+    @Test(expected = CertificateException.class)
+    public void testThatInvalidBase64IsRejected() throws CertificateException {
+        CertificateParser.parseCertificates("MIIB*not+base64", certificateFactory);
+    }
+
+    private String readResource(String name) throws URISyntaxException, IOException {
+        Path path = Paths.get(getClass().getClassLoader().getResource(name).toURI());
+        return new String(Files.readAllBytes(path), UTF8);
+    }
+}
@@ -0,0 +1,197 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.haufe.spring.cloud.vault.standin.VaultStandIn;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.vault.config.VaultProperties;
+import org.springframework.vault.VaultException;
+import org.springframework.vault.core.VaultTemplate;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.security.KeyStore;
+import java.security.interfaces.ECPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link CertificateUtil}, run against a {@link VaultStandIn vault stand-in}
+ */
+public class CertificateUtilTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1500000000L);
+
+    private VaultStandIn standIn;
+    private VaultTemplate vaultTemplate;
+    private VaultProperties vaultProperties;
+    private VaultPkiProperties pkiProperties;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = VaultStandIn.start(Clock.fixed(NOW, ZoneOffset.UTC), VaultStandIn.DEFAULT_KEY_SIZE);
+        standIn.setMaxTtl(Duration.ofHours(48));
+        vaultTemplate = standIn.createVaultTemplate();
+
+        vaultProperties = new VaultProperties();
+        vaultProperties.setApplicationName("app");
+
+        pkiProperties = new VaultPkiProperties();
+        pkiProperties.setEnabled(true);
+        pkiProperties.setRole("service");
+        pkiProperties.setCommonName("localhost");
+        pkiProperties.getRenewal().setJitter(0);
+        pkiProperties.getIssuance().setLockSettleTime(50);
+        pkiProperties.getIssuance().setInitialBackoff(50);
+    }
+
+    @After
+    public void tearDown() {
+        standIn.close();
+    }
+
+    @Test
+    public void testThatIssuedCertificateIsCachedAndReused() {
+        CertificateBundle issued = getOrRequestCertificate(vaultTemplate);
+        CertificateBundle cached = getOrRequestCertificate(vaultTemplate);
+
+        assertThat(cached.getSerialNumber(), equalTo(issued.getSerialNumber()));
+        assertThat(standIn.getSecret("secret/app/cert/localhost"), notNullValue());
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.ISSUE), equalTo(1L));
+    }
+
+    @Test
+    public void testThatCachedCertificateIsRenewedWhenDue() {
+        CertificateBundle issued = getOrRequestCertificate(vaultTemplate);
+
+        // the lead time of one day is capped at half the lifetime of 48 hours
+        standIn.advanceClock(Duration.ofHours(23));
+        CertificateBundle beforeRenewal = getOrRequestCertificate(vaultTemplate);
+        standIn.advanceClock(Duration.ofHours(2));
+        CertificateBundle renewed = getOrRequestCertificate(vaultTemplate);
+
+        assertThat(beforeRenewal.getSerialNumber(), equalTo(issued.getSerialNumber()));
+        assertThat(renewed.getSerialNumber(), not(equalTo(issued.getSerialNumber())));
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.ISSUE), equalTo(2L));
+    }
+
+    @Test
+    public void testThatConcurrentInstancesShareOneIssuedCertificate() throws Exception {
+        standIn.setLatency(VaultStandIn.Operation.ISSUE, Duration.ofMillis(200));
+        standIn.setLatency(VaultStandIn.Operation.READ, Duration.ofMillis(10));
+        standIn.setLatency(VaultStandIn.Operation.WRITE, Duration.ofMillis(10));
+        pkiProperties.getIssuance().setCoordinated(true);
+
+        int instances = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(instances);
+        try {
+            List<Future<CertificateBundle>> bundles = new ArrayList<>();
+            for (int i = 0; i < instances; i++) {
+                // every instance has a client of its own, like the instances of a fleet
+                VaultTemplate instanceTemplate = standIn.createVaultTemplate();
+                Callable<CertificateBundle> startup = () -> getOrRequestCertificate(instanceTemplate);
+                bundles.add(executor.submit(startup));
+                if (i == 0) {
+                    // the lock only deduplicates instances that find it taken, so let the first one take it
+                    awaitIssuanceLock();
+                }
+            }
+
+            Set<String> serialNumbers = new HashSet<>();
+            for (Future<CertificateBundle> bundle : bundles) {
+                serialNumbers.add(bundle.get().getSerialNumber());
+            }
+            assertThat(serialNumbers, hasSize(1));
+            assertThat(standIn.getRequestCount(VaultStandIn.Operation.ISSUE), equalTo(1L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThatUncoordinatedIssuanceDoesNotTakeTheLock() {
+        getOrRequestCertificate(vaultTemplate);
+
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.ISSUE), equalTo(1L));
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.DELETE), equalTo(0L));
+    }
+
+    @Test
+    public void testThatConfiguredKeyTypeIsSignedAndCachedApart() throws Exception {
+        pkiProperties.setKeyType(VaultPkiProperties.KeyType.EC);
+        pkiProperties.setKeyBits(384);
+        pkiProperties.setTtl(3600);
+
+        CertificateBundle issued = getOrRequestCertificate(vaultTemplate);
+        CertificateBundle cached = getOrRequestCertificate(vaultTemplate);
+
+        ECPublicKey publicKey = (ECPublicKey) issued.getX509Certificate().getPublicKey();
+        assertThat(publicKey.getParams().getCurve().getField().getFieldSize(), equalTo(384));
+        assertThat(issued.getX509Certificate().getNotAfter().toInstant(), equalTo(NOW.plusSeconds(3600)));
+        assertThat(cached.getSerialNumber(), equalTo(issued.getSerialNumber()));
+        assertThat(standIn.getSecret("secret/app/cert/localhost/ec-384"), notNullValue());
+        assertThat(standIn.getSecret("secret/app/cert/localhost"), nullValue());
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.ISSUE), equalTo(1L));
+
+        KeyStore keyStore = CertificateBundles.createKeyStore(cached, "vault");
+        assertThat(keyStore.getKey("vault", new char[0]).getAlgorithm(), equalTo("EC"));
+    }
+
+    @Test(expected = TlsInitializationException.class)
+    public void testThatUnsupportedKeySizeIsRejected() {
+        pkiProperties.setKeyType(VaultPkiProperties.KeyType.EC);
+        pkiProperties.setKeyBits(521);
+
+        getOrRequestCertificate(vaultTemplate);
+    }
+
+    @Test
+    public void testThatFailedIssuanceIsRetriedByNextRequest() {
+        standIn.failNext(VaultStandIn.Operation.ISSUE, 1, 500);
+
+        try {
+            getOrRequestCertificate(vaultTemplate);
+            fail("the failed issuance was not reported");
+        } catch (VaultException e) {
+            assertThat(standIn.getSecret("secret/app/cert/localhost"), nullValue());
+            assertThat(standIn.getSecret("secret/app/lock/localhost"), nullValue());
+        }
+
+        getOrRequestCertificate(vaultTemplate);
+
+        assertThat(standIn.getSecret("secret/app/cert/localhost"), notNullValue());
+        assertThat(standIn.getRequestCount(VaultStandIn.Operation.ISSUE), equalTo(2L));
+    }
+
+    /**
+     * A lookup with a clock of its own, so it sees the time of the stand-in at the moment of the lookup.
+     */
+    private void awaitIssuanceLock() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        // the lock is released again once the certificate is issued
+        while (standIn.getSecret("secret/app/lock/localhost") == null &&
+               standIn.getRequestCount(VaultStandIn.Operation.ISSUE) == 0) {
+            assertThat("no instance took the issuance lock", System.nanoTime() - deadline < 0, is(true));
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private CertificateBundle getOrRequestCertificate(VaultTemplate template) {
+        return CertificateUtil.getOrRequestCertificate(vaultProperties, template, pkiProperties,
+            new VaultClock(template, 0), RenewalPolicy.of(pkiProperties), new TlsMetrics());
+    }
+}
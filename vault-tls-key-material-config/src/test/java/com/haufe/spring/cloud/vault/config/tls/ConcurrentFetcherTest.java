@@ -0,0 +1,58 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link ConcurrentFetcher}
+ */
+public class ConcurrentFetcherTest {
+
+    @Test
+    public void testThatReadsRunInParallel() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try (ConcurrentFetcher fetcher = new ConcurrentFetcher("test", 2, 10)) {
+            Future<Boolean> first = fetcher.submit(() -> awaitOther(bothStarted));
+            Future<Boolean> second = fetcher.submit(() -> awaitOther(bothStarted));
+
+            assertThat(fetcher.await(first, "first"), is(true));
+            assertThat(fetcher.await(second, "second"), is(true));
+        }
+    }
+
+    @Test(expected = TlsInitializationException.class)
+    public void testThatReadExceedingTheDeadlineFails() {
+        try (ConcurrentFetcher fetcher = new ConcurrentFetcher("test", 1, 0)) {
+            Future<Boolean> never = fetcher.submit(() -> awaitOther(new CountDownLatch(2)));
+
+            fetcher.await(never, "never");
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testThatRuntimeExceptionOfReadIsPropagated() {
+        try (ConcurrentFetcher fetcher = new ConcurrentFetcher("test", 1, 10)) {
+            Future<Object> failing = fetcher.submit(() -> {
+                throw new IllegalStateException("read failed");
+            });
+
+            fetcher.await(failing, "failing");
+        }
+    }
+
+    private static boolean awaitOther(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link HandshakeRecordingSSLEngine}
+ */
+public class HandshakeRecordingSSLEngineTest {
+
+    private final SSLEngine delegate = mock(SSLEngine.class);
+    private final AtomicInteger closed = new AtomicInteger();
+    private final HandshakeRecordingSSLEngine engine =
+        new HandshakeRecordingSSLEngine(delegate, new TlsSessionStatistics(), closed::incrementAndGet);
+
+    @Test
+    public void testThatCloseIsNotSignalledWhileTheOutboundSideIsOpen() throws SSLException {
+        engine.closeInbound();
+
+        assertThat(closed.get(), is(0));
+    }
+
+    @Test
+    public void testThatCloseIsSignalledOnce() throws SSLException {
+        when(delegate.isOutboundDone()).thenReturn(true);
+        engine.closeOutbound();
+        engine.closeInbound();
+        engine.closeOutbound();
+
+        assertThat(closed.get(), is(1));
+    }
+}
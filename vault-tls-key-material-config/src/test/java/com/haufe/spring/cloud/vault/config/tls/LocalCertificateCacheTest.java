@@ -0,0 +1,87 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link LocalCertificateCache}
+ */
+public class LocalCertificateCacheTest {
+
+    private static final String COMMON_NAME = "localhost";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testThatWrittenBundleCanBeReadBack() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-server-bundle.json");
+        LocalCertificateCache cache = new LocalCertificateCache(cacheDirectory(), "secret".toCharArray());
+
+        cache.write(COMMON_NAME, bundle, TrustedCertificates.getDefaultTrustedCertificates());
+        Optional<LocalCertificateCache.Entry> entry = cache.read(COMMON_NAME, 0);
+
+        assertThat(entry.isPresent(), is(true));
+        assertThat(entry.get().toCertificateBundle().getSerialNumber(), equalTo(bundle.getSerialNumber()));
+        assertThat(entry.get().toCertificateBundle().getX509Certificate(), equalTo(bundle.getX509Certificate()));
+        assertThat(entry.get().getTrustedCertificates().getEntries(), not(empty()));
+    }
+
+    @Test
+    public void testThatCacheFileCannotBeReadWithOtherPassword() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-server-bundle.json");
+        Path directory = cacheDirectory();
+        new LocalCertificateCache(directory, "secret".toCharArray()).write(COMMON_NAME, bundle, null);
+
+        Optional<LocalCertificateCache.Entry> entry =
+            new LocalCertificateCache(directory, "other".toCharArray()).read(COMMON_NAME, 0);
+
+        assertThat(entry.isPresent(), is(false));
+    }
+
+    @Test
+    public void testThatCertificateWithInsufficientTimeToLiveIsIgnored() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-server-bundle.json");
+        LocalCertificateCache cache = new LocalCertificateCache(cacheDirectory(), "secret".toCharArray());
+        cache.write(COMMON_NAME, bundle, null);
+
+        Optional<LocalCertificateCache.Entry> entry = cache.read(COMMON_NAME, Long.MAX_VALUE / 1000);
+
+        assertThat(entry.isPresent(), is(false));
+    }
+
+    @Test
+    public void testThatCacheFilesOfOtherKeySettingsAreNotRead() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-server-bundle.json");
+        Path directory = cacheDirectory();
+        new LocalCertificateCache(directory, "secret".toCharArray()).write(COMMON_NAME, bundle, null);
+
+        LocalCertificateCache ecCache = new LocalCertificateCache(directory, "secret".toCharArray(), "ec-256");
+
+        assertThat(ecCache.read(COMMON_NAME, 0).isPresent(), is(false));
+        ecCache.write(COMMON_NAME, bundle, null);
+        assertThat(ecCache.read(COMMON_NAME, 0).isPresent(), is(true));
+        assertThat(new LocalCertificateCache(directory, "secret".toCharArray()).read(COMMON_NAME, 0).isPresent(),
+            is(true));
+    }
+
+    @Test
+    public void testThatMissingCacheFileYieldsEmptyResult() throws IOException {
+        LocalCertificateCache cache = new LocalCertificateCache(cacheDirectory(), "secret".toCharArray());
+
+        assertThat(cache.read(COMMON_NAME, 0).isPresent(), is(false));
+    }
+
+    private Path cacheDirectory() throws IOException {
+        return temporaryFolder.newFolder().toPath().resolve("cache");
+    }
+}
@@ -0,0 +1,202 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link OnDemandCertificates}
+ */
+public class OnDemandCertificatesTest {
+
+    private static final long RENEWAL_TIME = 1000L;
+    private static final long FAILURE_BACKOFF = 500L;
+
+    private CertificateBundle bundle;
+    private AtomicInteger issuances;
+    private AtomicLong now;
+
+    @Before
+    public void setUp() throws Exception {
+        bundle = TestBundles.readBundle("testpki-server-bundle.json");
+        issuances = new AtomicInteger();
+        now = new AtomicLong();
+    }
+
+    @Test
+    public void testThatOnlyAllowedHostNamesAreIssued() {
+        OnDemandCertificates certificates = create(hostName -> {
+            issuances.incrementAndGet();
+            return bundle;
+        });
+
+        assertThat(certificates.isAllowed("acme.tenants.example.com"), is(true));
+        assertThat(certificates.isAllowed("static.example.com"), is(true));
+        assertThat(certificates.isAllowed("tenants.example.com"), is(false));
+        assertThat(certificates.isAllowed("a.b.tenants.example.com"), is(false));
+        assertThat(certificates.isAllowed("other.example.com"), is(false));
+
+        assertThat(certificates.get("other.example.com"), equalTo(Optional.empty()));
+        assertThat(certificates.get("acme.tenants.example.com").isPresent(), is(true));
+        assertThat(issuances.get(), is(1));
+    }
+
+    @Test
+    public void testThatCertificateIsIssuedOnceAndServedFromCache() {
+        OnDemandCertificates certificates = create(hostName -> {
+            issuances.incrementAndGet();
+            return bundle;
+        });
+
+        KeyStore.PrivateKeyEntry first = certificates.get("acme.tenants.example.com").get();
+        KeyStore.PrivateKeyEntry second = certificates.get("acme.tenants.example.com").get();
+
+        assertThat(second, sameInstance(first));
+        assertThat(first.getCertificate(), equalTo(bundle.getX509Certificate()));
+        assertThat(first.getCertificateChain().length, is(2));
+        assertThat(issuances.get(), is(1));
+        assertThat(certificates.getStatistics().hitCount(), is(1L));
+    }
+
+    @Test
+    public void testThatConcurrentHandshakesWaitForSingleIssuance() throws Exception {
+        CountDownLatch issuing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OnDemandCertificates certificates = create(hostName -> {
+            issuances.incrementAndGet();
+            issuing.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return bundle;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Optional<KeyStore.PrivateKeyEntry>>> handshakes = new ArrayList<>();
+            handshakes.add(executor.submit(() -> certificates.get("acme.tenants.example.com")));
+            assertThat(issuing.await(10, TimeUnit.SECONDS), is(true));
+            for (int i = 0; i < 3; i++) {
+                handshakes.add(executor.submit(() -> certificates.get("acme.tenants.example.com")));
+            }
+            release.countDown();
+
+            for (Future<Optional<KeyStore.PrivateKeyEntry>> handshake : handshakes) {
+                assertThat(handshake.get(10, TimeUnit.SECONDS).isPresent(), is(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(issuances.get(), is(1));
+    }
+
+    @Test
+    public void testThatCertificateDueForRenewalIsReplaced() {
+        OnDemandCertificates certificates = create(hostName -> {
+            issuances.incrementAndGet();
+            return bundle;
+        });
+
+        KeyStore.PrivateKeyEntry first = certificates.get("acme.tenants.example.com").get();
+        now.set(RENEWAL_TIME - 1);
+        assertThat(certificates.get("acme.tenants.example.com").get(), sameInstance(first));
+        now.set(RENEWAL_TIME);
+        assertThat(certificates.get("acme.tenants.example.com").get(), not(sameInstance(first)));
+        assertThat(issuances.get(), is(2));
+    }
+
+    @Test
+    public void testThatFailedIssuanceIsRetriedAfterTheBackoff() {
+        OnDemandCertificates certificates = create(hostName -> {
+            if (issuances.incrementAndGet() == 1) {
+                throw new TlsInitializationException("vault unavailable");
+            }
+            return bundle;
+        });
+
+        assertThat(certificates.get("acme.tenants.example.com"), equalTo(Optional.empty()));
+        assertThat(certificates.getIfPresent("acme.tenants.example.com"), equalTo(Optional.empty()));
+        now.set(FAILURE_BACKOFF - 1);
+        assertThat(certificates.get("acme.tenants.example.com"), equalTo(Optional.empty()));
+        assertThat(issuances.get(), is(1));
+        now.set(FAILURE_BACKOFF);
+        assertThat(certificates.get("acme.tenants.example.com").isPresent(), is(true));
+        assertThat(issuances.get(), is(2));
+    }
+
+    @Test
+    public void testThatFailedIssuanceDoesNotBlockOtherHostNames() {
+        OnDemandCertificates certificates = create(hostName -> {
+            issuances.incrementAndGet();
+            if (hostName.startsWith("broken.")) {
+                throw new TlsInitializationException("role does not allow " + hostName);
+            }
+            return bundle;
+        });
+
+        assertThat(certificates.get("broken.tenants.example.com"), equalTo(Optional.empty()));
+        assertThat(certificates.get("acme.tenants.example.com").isPresent(), is(true));
+        assertThat(issuances.get(), is(2));
+    }
+
+    @Test
+    public void testThatIssuancesBeyondTheLimitAreTurnedAway() throws Exception {
+        CountDownLatch issuing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OnDemandCertificates certificates = create(hostName -> {
+            issuances.incrementAndGet();
+            if (hostName.startsWith("slow.")) {
+                issuing.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return bundle;
+        }, 1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<KeyStore.PrivateKeyEntry>> slow =
+                executor.submit(() -> certificates.get("slow.tenants.example.com"));
+            assertThat(issuing.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(certificates.get("acme.tenants.example.com"), equalTo(Optional.empty()));
+            release.countDown();
+            assertThat(slow.get(10, TimeUnit.SECONDS).isPresent(), is(true));
+        } finally {
+            executor.shutdownNow();
+        }
+        // a turned away host name does not count as failed
+        assertThat(certificates.get("acme.tenants.example.com").isPresent(), is(true));
+        assertThat(issuances.get(), is(2));
+    }
+
+    private OnDemandCertificates create(Function<String, CertificateBundle> issuer) {
+        return create(issuer, 4);
+    }
+
+    private OnDemandCertificates create(Function<String, CertificateBundle> issuer, int maximumConcurrentIssuances) {
+        return new OnDemandCertificates(Arrays.asList("*.tenants.example.com", "Static.Example.com"), 10, issuer,
+            (notBefore, notAfter) -> RENEWAL_TIME, now::get, FAILURE_BACKOFF, maximumConcurrentIssuances);
+    }
+}
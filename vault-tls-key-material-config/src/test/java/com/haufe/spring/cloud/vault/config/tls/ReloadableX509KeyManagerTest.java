@@ -0,0 +1,78 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link ReloadableX509KeyManager}
+ */
+public class ReloadableX509KeyManagerTest {
+
+    private static final char[] EMPTY_PASSWORD = new char[]{};
+
+    @Test
+    public void testThatKeyManagerWithoutKeyMaterialOffersNoAlias() {
+        ReloadableX509KeyManager keyManager = new ReloadableX509KeyManager();
+
+        assertThat(keyManager.chooseServerAlias("RSA", null, null), nullValue());
+        assertThat(keyManager.getGeneration(), is(0));
+    }
+
+    @Test
+    public void testThatReloadSwapsCertificateChain() throws IOException {
+        CertificateBundle initialBundle = TestBundles.readBundle("testpki-server-bundle.json");
+        CertificateBundle renewedBundle = TestBundles.readBundle("testpki-server-renewed-bundle.json");
+        ReloadableX509KeyManager keyManager = new ReloadableX509KeyManager();
+
+        keyManager.reload(initialBundle.createKeyStore("vault"), EMPTY_PASSWORD);
+        String initialAlias = keyManager.chooseServerAlias("RSA", null, null);
+        assertThat(leafOf(keyManager.getCertificateChain(initialAlias)),
+            equalTo(initialBundle.getX509Certificate()));
+
+        keyManager.reload(renewedBundle.createKeyStore("vault"), EMPTY_PASSWORD);
+        String renewedAlias = keyManager.chooseServerAlias("RSA", null, null);
+        assertThat(leafOf(keyManager.getCertificateChain(renewedAlias)),
+            equalTo(renewedBundle.getX509Certificate()));
+        assertThat(keyManager.getGeneration(), is(2));
+    }
+
+    @Test
+    public void testThatHandshakeInProgressKeepsPreviousKeyMaterial() throws IOException {
+        CertificateBundle initialBundle = TestBundles.readBundle("testpki-server-bundle.json");
+        CertificateBundle renewedBundle = TestBundles.readBundle("testpki-server-renewed-bundle.json");
+        ReloadableX509KeyManager keyManager = new ReloadableX509KeyManager();
+        keyManager.reload(initialBundle.createKeyStore("vault"), EMPTY_PASSWORD);
+
+        String aliasChosenBeforeReload = keyManager.chooseServerAlias("RSA", null, null);
+        keyManager.reload(renewedBundle.createKeyStore("vault"), EMPTY_PASSWORD);
+
+        assertThat(leafOf(keyManager.getCertificateChain(aliasChosenBeforeReload)),
+            equalTo(initialBundle.getX509Certificate()));
+        assertThat(keyManager.getPrivateKey(aliasChosenBeforeReload), notNullValue());
+    }
+
+    @Test
+    public void testThatUntaggedAliasRefersToCurrentKeyMaterial() throws IOException {
+        CertificateBundle initialBundle = TestBundles.readBundle("testpki-server-bundle.json");
+        CertificateBundle renewedBundle = TestBundles.readBundle("testpki-server-renewed-bundle.json");
+        ReloadableX509KeyManager keyManager = new ReloadableX509KeyManager();
+
+        keyManager.reload(initialBundle.createKeyStore("vault"), EMPTY_PASSWORD);
+        keyManager.reload(renewedBundle.createKeyStore("vault"), EMPTY_PASSWORD);
+
+        assertThat(leafOf(keyManager.getCertificateChain("vault")),
+            equalTo(renewedBundle.getX509Certificate()));
+    }
+
+    private static X509Certificate leafOf(X509Certificate[] chain) {
+        assertThat(chain, notNullValue());
+        assertThat(chain.length, greaterThan(0));
+        return chain[0];
+    }
+}
@@ -0,0 +1,78 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link RenewalPolicy}
+ */
+public class RenewalPolicyTest {
+
+    private static final long NOT_BEFORE = 1500000000000L;
+    private static final long NOT_AFTER = NOT_BEFORE + TimeUnit.DAYS.toMillis(30);
+
+    @Test
+    public void testThatFractionOfLifetimeRenewsAfterShareOfLifetime() {
+        RenewalPolicy policy = RenewalPolicy.fractionOfLifetime(0.5);
+
+        assertThat(policy.getRenewalTime(NOT_BEFORE, NOT_AFTER), is(NOT_BEFORE + TimeUnit.DAYS.toMillis(15)));
+    }
+
+    @Test
+    public void testThatRemainingTimeToLiveRenewsBeforeExpiry() {
+        RenewalPolicy policy = RenewalPolicy.remainingTimeToLive(TimeUnit.DAYS.toSeconds(1));
+
+        assertThat(policy.getRenewalTime(NOT_BEFORE, NOT_AFTER), is(NOT_AFTER - TimeUnit.DAYS.toMillis(1)));
+        assertThat(policy.isRenewalDue(NOT_BEFORE, NOT_AFTER, NOT_AFTER - TimeUnit.DAYS.toMillis(2)), is(false));
+        assertThat(policy.isRenewalDue(NOT_BEFORE, NOT_AFTER, NOT_AFTER - TimeUnit.HOURS.toMillis(1)), is(true));
+    }
+
+    @Test
+    public void testThatRemainingTimeToLiveIsCappedAtHalfTheLifetime() {
+        RenewalPolicy policy = RenewalPolicy.remainingTimeToLive(TimeUnit.DAYS.toSeconds(21));
+
+        assertThat(policy.getRenewalTime(NOT_BEFORE, NOT_AFTER), is(NOT_BEFORE + TimeUnit.DAYS.toMillis(15)));
+    }
+
+    @Test
+    public void testThatJitterRenewsEarlierWithinBounds() {
+        RenewalPolicy policy = RenewalPolicy.remainingTimeToLive(TimeUnit.DAYS.toSeconds(1));
+        long renewalTime = policy.getRenewalTime(NOT_BEFORE, NOT_AFTER);
+
+        for (int seed = 0; seed < 20; seed++) {
+            long jitteredRenewalTime = policy.withJitter(0.1, new Random(seed)).getRenewalTime(NOT_BEFORE, NOT_AFTER);
+
+            assertThat(jitteredRenewalTime, lessThanOrEqualTo(renewalTime));
+            assertThat(jitteredRenewalTime, greaterThanOrEqualTo(renewalTime - TimeUnit.DAYS.toMillis(3)));
+        }
+    }
+
+    @Test
+    public void testThatConfiguredPolicyIsCreatedFromProperties() {
+        VaultPkiProperties pkiProperties = new VaultPkiProperties();
+        pkiProperties.getRenewal().setPolicy(RenewalPolicy.Type.FRACTION_OF_LIFETIME);
+        pkiProperties.getRenewal().setLifetimeFraction(0.5);
+        pkiProperties.getRenewal().setJitter(0);
+
+        RenewalPolicy policy = RenewalPolicy.of(pkiProperties);
+
+        assertThat(policy.getRenewalTime(NOT_BEFORE, NOT_AFTER), is(NOT_BEFORE + TimeUnit.DAYS.toMillis(15)));
+    }
+
+    @Test
+    public void testThatConfiguredJitterIsFixedPerInstance() {
+        VaultPkiProperties pkiProperties = new VaultPkiProperties();
+        pkiProperties.getRenewal().setJitter(0.5);
+
+        long renewalTime = RenewalPolicy.of(pkiProperties).getRenewalTime(NOT_BEFORE, NOT_AFTER);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(RenewalPolicy.of(pkiProperties).getRenewalTime(NOT_BEFORE, NOT_AFTER), is(renewalTime));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.haufe.spring.cloud.vault.standin.LocalCertificateAuthority;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.vault.support.CertificateBundle;
+
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SniX509KeyManager}
+ */
+public class SniX509KeyManagerTest {
+
+    private static final char[] EMPTY_PASSWORD = new char[]{};
+
+    private static LocalCertificateAuthority certificateAuthority;
+    private static X509Certificate defaultCertificate;
+    private static X509Certificate apiCertificate;
+    private static X509Certificate wildcardCertificate;
+    private static ReloadableX509KeyManager keyManager;
+    private static SSLContext serverSSLContext;
+
+    @BeforeClass
+    public static void setUpServer() throws Exception {
+        Instant now = Instant.now();
+        certificateAuthority = new LocalCertificateAuthority("SNI Test CA", now.minus(Duration.ofDays(1)),
+            Duration.ofDays(2), 2048);
+
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        defaultCertificate = addKeyEntry(keyStore, "vault", "www.example.com", now);
+        apiCertificate = addKeyEntry(keyStore, "api.example.com", "api.example.com", now);
+        wildcardCertificate = addKeyEntry(keyStore, "*.tenants.example.com", "*.tenants.example.com", now);
+
+        keyManager = new ReloadableX509KeyManager();
+        keyManager.reload(keyStore, EMPTY_PASSWORD, "vault");
+        serverSSLContext = SSLContext.getInstance("TLSv1.2");
+        serverSSLContext.init(new KeyManager[]{keyManager}, null, null);
+    }
+
+    @Test
+    public void testThatRequestedHostNameSelectsIdentity() throws Exception {
+        assertThat(serverCertificateFor("api.example.com"), equalTo(apiCertificate));
+        assertThat(serverCertificateFor("API.Example.COM"), equalTo(apiCertificate));
+    }
+
+    @Test
+    public void testThatWildcardCertificateMatchesSubdomain() throws Exception {
+        assertThat(serverCertificateFor("acme.tenants.example.com"), equalTo(wildcardCertificate));
+        assertThat(serverCertificateFor("tenants.example.com"), equalTo(defaultCertificate));
+    }
+
+    @Test
+    public void testThatUnknownOrMissingHostNameSelectsDefaultIdentity() throws Exception {
+        assertThat(serverCertificateFor("unknown.example.org"), equalTo(defaultCertificate));
+        assertThat(serverCertificateFor(null), equalTo(defaultCertificate));
+    }
+
+    @Test
+    public void testThatAllowedUnknownHostNameGetsOnDemandCertificate() throws Exception {
+        OnDemandCertificates onDemandCertificates = new OnDemandCertificates(
+            Collections.singletonList("*.on-demand.example.com"), 10, hostName -> issueBundle(hostName, null),
+            (notBefore, notAfter) -> notAfter, System::currentTimeMillis, 60000, 4);
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        addKeyEntry(keyStore, "vault", "www.example.com", Instant.now());
+        ReloadableX509KeyManager onDemandKeyManager = new ReloadableX509KeyManager();
+        onDemandKeyManager.setOnDemandCertificates(onDemandCertificates);
+        onDemandKeyManager.reload(keyStore, EMPTY_PASSWORD, "vault");
+        SSLContext onDemandSSLContext = SSLContext.getInstance("TLSv1.2");
+        onDemandSSLContext.init(new KeyManager[]{onDemandKeyManager}, null, null);
+
+        Certificate certificate = serverCertificateFor(onDemandSSLContext, "acme.on-demand.example.com");
+
+        assertThat(certificate, equalTo(onDemandCertificates.getIfPresent("acme.on-demand.example.com").get()
+            .getCertificate()));
+        assertThat(((X509Certificate) certificate).getSubjectX500Principal().getName(),
+            containsString("CN=acme.on-demand.example.com"));
+        assertThat(serverCertificateFor(onDemandSSLContext, "acme.elsewhere.example.com"),
+            not(equalTo(certificate)));
+    }
+
+    @Test
+    public void testThatOnDemandChainAndKeyComeFromTheIssuanceOfTheChosenAlias() throws Exception {
+        List<LocalCertificateAuthority.IssuedCertificate> issuances = new ArrayList<>();
+        // every lookup finds the certificate due for renewal, so every lookup issues a new one
+        OnDemandCertificates onDemandCertificates = new OnDemandCertificates(
+            Collections.singletonList("*.on-demand.example.com"), 10, hostName -> issueBundle(hostName, issuances),
+            (notBefore, notAfter) -> notBefore, System::currentTimeMillis, 60000, 4);
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        SniX509KeyManager sniKeyManager = new SniX509KeyManager(mock(X509ExtendedKeyManager.class), keyStore,
+            EMPTY_PASSWORD, null, onDemandCertificates);
+
+        String alias = sniKeyManager.chooseEngineServerAlias("RSA", null,
+            engineRequesting("acme.on-demand.example.com"));
+        LocalCertificateAuthority.IssuedCertificate chosen = issuances.get(issuances.size() - 1);
+        onDemandCertificates.get("acme.on-demand.example.com");
+        int issued = issuances.size();
+
+        assertThat(onDemandCertificates.getIfPresent("acme.on-demand.example.com").get().getCertificate(),
+            not(equalTo(chosen.getCertificate())));
+        assertThat(alias, endsWith(chosen.getCertificate().getSerialNumber().toString(16)));
+        assertThat(sniKeyManager.getCertificateChain(alias)[0], equalTo(chosen.getCertificate()));
+        assertThat(sniKeyManager.getPrivateKey(alias), equalTo(chosen.getKeyPair().getPrivate()));
+        assertThat(issuances.size(), is(issued));
+    }
+
+    @Test
+    public void testThatCurrentCertificateIsDefaultIdentity() {
+        assertThat(keyManager.getCurrentCertificate(), equalTo(defaultCertificate));
+    }
+
+    private static X509Certificate addKeyEntry(KeyStore keyStore, String alias, String commonName, Instant now)
+        throws Exception {
+        LocalCertificateAuthority.IssuedCertificate issued = certificateAuthority.issue(commonName,
+            Collections.emptyList(), Collections.emptyList(), now, Duration.ofHours(1));
+        keyStore.setKeyEntry(alias, issued.getKeyPair().getPrivate(), EMPTY_PASSWORD,
+            new Certificate[]{issued.getCertificate(), issued.getIssuingCaCertificate()});
+        return issued.getCertificate();
+    }
+
+    private static CertificateBundle issueBundle(String hostName,
+                                                 List<LocalCertificateAuthority.IssuedCertificate> issuances) {
+        try {
+            LocalCertificateAuthority.IssuedCertificate issued = certificateAuthority.issue(hostName,
+                Collections.emptyList(), Collections.emptyList(), Instant.now(), Duration.ofHours(1));
+            if (issuances != null) {
+                issuances.add(issued);
+            }
+            return CertificateBundle.of(issued.getSerialNumber(),
+                Base64.getEncoder().encodeToString(issued.getCertificate().getEncoded()),
+                Base64.getEncoder().encodeToString(issued.getIssuingCaCertificate().getEncoded()),
+                issued.getEncodedPrivateKey());
+        } catch (Exception e) {
+            throw new TlsInitializationException("cannot issue a certificate for " + hostName, e);
+        }
+    }
+
+    private static SSLEngine engineRequesting(String hostName) {
+        ExtendedSSLSession handshakeSession = mock(ExtendedSSLSession.class);
+        when(handshakeSession.getRequestedServerNames())
+            .thenReturn(Collections.singletonList(new SNIHostName(hostName)));
+        SSLEngine engine = mock(SSLEngine.class);
+        when(engine.getHandshakeSession()).thenReturn(handshakeSession);
+        return engine;
+    }
+
+    private static Certificate serverCertificateFor(String hostName) throws Exception {
+        return serverCertificateFor(serverSSLContext, hostName);
+    }
+
+    private static Certificate serverCertificateFor(SSLContext serverSSLContext, String hostName) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("ca", certificateAuthority.getCertificate());
+        TrustManagerFactory trustManagerFactory =
+            TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        SSLContext clientSSLContext = SSLContext.getInstance("TLSv1.2");
+        clientSSLContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        SSLEngine client = clientSSLContext.createSSLEngine();
+        client.setUseClientMode(true);
+        if (hostName != null) {
+            SSLParameters parameters = client.getSSLParameters();
+            parameters.setServerNames(Collections.singletonList(new SNIHostName(hostName)));
+            client.setSSLParameters(parameters);
+        }
+        SSLEngine server = serverSSLContext.createSSLEngine();
+        server.setUseClientMode(false);
+
+        handshake(client, server);
+        return client.getSession().getPeerCertificates()[0];
+    }
+
+    private static void handshake(SSLEngine client, SSLEngine server) throws Exception {
+        int packetBufferSize = client.getSession().getPacketBufferSize();
+        ByteBuffer clientToServer = ByteBuffer.allocate(4 * packetBufferSize);
+        ByteBuffer serverToClient = ByteBuffer.allocate(4 * packetBufferSize);
+        ByteBuffer applicationData = ByteBuffer.allocate(client.getSession().getApplicationBufferSize());
+        ByteBuffer empty = ByteBuffer.allocate(0);
+
+        client.beginHandshake();
+        server.beginHandshake();
+        for (int rounds = 0; isHandshaking(client) || isHandshaking(server); rounds++) {
+            assertThat("handshake completes", rounds, lessThan(100));
+            client.wrap(empty, clientToServer);
+            runDelegatedTasks(client);
+            server.wrap(empty, serverToClient);
+            runDelegatedTasks(server);
+
+            clientToServer.flip();
+            serverToClient.flip();
+            client.unwrap(serverToClient, applicationData);
+            runDelegatedTasks(client);
+            server.unwrap(clientToServer, applicationData);
+            runDelegatedTasks(server);
+            clientToServer.compact();
+            serverToClient.compact();
+        }
+    }
+
+    private static boolean isHandshaking(SSLEngine engine) {
+        return engine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link VaultPkiConfiguration#selectSslImplementation}
+ */
+public class SslImplementationSelectionTest {
+
+    @Test
+    public void testThatJsseIsSelectedByDefault() {
+        AtomicBoolean checked = new AtomicBoolean();
+
+        assertThat(VaultPkiConfiguration.selectSslImplementation(new VaultPkiProperties().getSslImplementation(),
+            () -> checked.getAndSet(true)), equalTo(ReloadableJsseImplementation.class));
+        assertThat(checked.get(), is(false));
+    }
+
+    @Test
+    public void testThatOpenSslIsSelectedIfAvailable() {
+        assertThat(VaultPkiConfiguration.selectSslImplementation(VaultPkiProperties.SslImplementation.OPENSSL,
+            () -> true), equalTo(ReloadableOpenSslImplementation.class));
+    }
+
+    @Test
+    public void testThatJsseIsSelectedIfOpenSslIsUnavailable() {
+        assertThat(VaultPkiConfiguration.selectSslImplementation(VaultPkiProperties.SslImplementation.OPENSSL,
+            () -> false), equalTo(ReloadableJsseImplementation.class));
+    }
+
+    @Test
+    public void testThatAvailabilityCheckNeverFails() {
+        // whether or not tomcat-native is installed, the check must not throw and its result is cached
+        boolean available = OpenSslSupport.isAvailable();
+
+        assertThat(OpenSslSupport.isAvailable(), is(available));
+    }
+}
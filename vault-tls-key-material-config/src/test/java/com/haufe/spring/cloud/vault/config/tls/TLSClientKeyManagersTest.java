@@ -0,0 +1,128 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+import org.springframework.vault.support.CertificateBundle;
+
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link TLSClientKeyManagers}
+ */
+public class TLSClientKeyManagersTest {
+
+    private static final char[] EMPTY_PASSWORD = new char[]{};
+
+    @Test
+    public void testThatInitialMaterialDeterminesCurrentCertificate() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-client-bundle.json");
+
+        TLSClientKeyManagers keyManagers = new TLSClientKeyManagers(materialOf(bundle));
+
+        assertThat(keyManagers.getCurrentCertificate(), equalTo(bundle.getX509Certificate()));
+    }
+
+    @Test
+    public void testThatUnchangedMaterialDoesNotNotifyListeners() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-client-bundle.json");
+        TLSClientKeyManagers keyManagers = new TLSClientKeyManagers(materialOf(bundle));
+        AtomicInteger rotations = new AtomicInteger();
+        keyManagers.addRotationListener(rotations::incrementAndGet);
+
+        boolean changed = keyManagers.update(materialOf(bundle));
+
+        assertThat(changed, is(false));
+        assertThat(rotations.get(), is(0));
+        assertThat(keyManagers.getKeyManager().getGeneration(), is(1));
+    }
+
+    @Test
+    public void testThatChangedMaterialIsSwappedAndListenersAreNotified() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-client-bundle.json");
+        CertificateBundle renewedBundle = TestBundles.readBundle("testpki-server-renewed-bundle.json");
+        TLSClientKeyManagers keyManagers = new TLSClientKeyManagers(materialOf(bundle));
+        AtomicInteger rotations = new AtomicInteger();
+        keyManagers.addRotationListener(rotations::incrementAndGet);
+
+        boolean changed = keyManagers.update(materialOf(renewedBundle));
+
+        assertThat(changed, is(true));
+        assertThat(rotations.get(), is(1));
+        assertThat(keyManagers.getCurrentCertificate(), equalTo(renewedBundle.getX509Certificate()));
+    }
+
+    @Test
+    public void testThatFailingListenerDoesNotPreventRotation() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-client-bundle.json");
+        CertificateBundle renewedBundle = TestBundles.readBundle("testpki-server-renewed-bundle.json");
+        TLSClientKeyManagers keyManagers = new TLSClientKeyManagers(materialOf(bundle));
+        AtomicInteger rotations = new AtomicInteger();
+        keyManagers.addRotationListener(() -> {
+            throw new IllegalStateException("listener failure");
+        });
+        keyManagers.addRotationListener(rotations::incrementAndGet);
+
+        keyManagers.update(materialOf(renewedBundle));
+
+        assertThat(rotations.get(), is(1));
+    }
+
+    @Test
+    public void testThatKeyStoreMaterialEqualsBundleMaterial() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-client-bundle.json");
+
+        TLSClientKeyMaterial.PrivateKeyMaterial fromKeyStore = TLSClientKeyMaterial.PrivateKeyMaterial.of(
+            CertificateBundles.createKeyStore(bundle, "http-client"), EMPTY_PASSWORD);
+
+        assertThat(fromKeyStore, equalTo(TLSClientKeyMaterial.PrivateKeyMaterial.of(bundle)));
+        assertThat(fromKeyStore.getCertificateChain(), contains(bundle.getX509Certificate(),
+            bundle.getX509IssuerCertificate()));
+    }
+
+    @Test
+    public void testThatKeyManagerOffersBundleWithoutKeyStore() throws IOException {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-client-bundle.json");
+        TLSClientKeyMaterial.PrivateKeyMaterial material = TLSClientKeyMaterial.PrivateKeyMaterial.of(bundle);
+        X509ExtendedKeyManager keyManager = material.getKeyManager();
+
+        String alias = keyManager.chooseEngineClientAlias(new String[]{"EC", "RSA"}, null, null);
+
+        assertThat(keyManager, sameInstance(material.getKeyManager()));
+        assertThat(alias, equalTo(TLSClientKeyMaterial.PrivateKeyMaterial.KEY_ALIAS));
+        assertThat(keyManager.getCertificateChain(alias)[0], equalTo(bundle.getX509Certificate()));
+        assertThat(keyManager.getPrivateKey(alias), equalTo(material.getPrivateKey()));
+        assertThat(keyManager.chooseEngineClientAlias(new String[]{"EC"}, null, null), nullValue());
+        assertThat(keyManager.chooseEngineClientAlias(new String[]{"RSA"},
+            new Principal[]{new X500Principal("CN=Unknown CA")}, null), nullValue());
+        assertThat(keyManager.chooseEngineClientAlias(new String[]{"RSA"},
+            new Principal[]{bundle.getX509Certificate().getIssuerX500Principal()}, null), equalTo(alias));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testThatDeprecatedKeyStoreHoldsTheKeyEntry() throws Exception {
+        CertificateBundle bundle = TestBundles.readBundle("testpki-client-bundle.json");
+        TLSClientKeyMaterial.PrivateKeyMaterial material = TLSClientKeyMaterial.PrivateKeyMaterial.of(bundle);
+
+        KeyStore keyStore = material.getKeyStore();
+
+        assertThat(keyStore, sameInstance(material.getKeyStore()));
+        assertThat(keyStore.getKey(TLSClientKeyMaterial.PrivateKeyMaterial.KEY_ALIAS, material.getKeyPassword()),
+            equalTo(material.getPrivateKey()));
+        assertThat(keyStore.getCertificateChain(TLSClientKeyMaterial.PrivateKeyMaterial.KEY_ALIAS),
+            arrayContaining(bundle.getX509Certificate(), bundle.getX509IssuerCertificate()));
+    }
+
+    private static TLSClientKeyMaterial materialOf(CertificateBundle bundle) {
+        return ImmutableTLSClientKeyMaterial.builder()
+            .privateKeyMaterial(TLSClientKeyMaterial.PrivateKeyMaterial.of(bundle))
+            .build();
+    }
+}
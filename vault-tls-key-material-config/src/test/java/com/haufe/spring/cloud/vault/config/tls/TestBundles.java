@@ -0,0 +1,33 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.vault.support.CertificateBundle;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Access to the certificate bundles of the test PKI in the test resources.
+ * <p>
+ * The bundles are stored as JSON representations of {@link CachedCertificateBundle}, i.e., in the format
+ * used by the Vault cache backend.
+ */
+final class TestBundles {
+
+    private TestBundles() {
+        throw new UnsupportedOperationException(TestBundles.class.getCanonicalName() +
+            " is a utility class and must not be instantiated");
+    }
+
+    static CachedCertificateBundle readCachedBundle(String resourceName) throws IOException {
+        try (InputStream inputStream = TestBundles.class.getClassLoader().getResourceAsStream(resourceName)) {
+            return new ObjectMapper().readValue(inputStream, CachedCertificateBundle.class);
+        }
+    }
+
+    static CertificateBundle readBundle(String resourceName) throws IOException {
+        CachedCertificateBundle cached = readCachedBundle(resourceName);
+        return CertificateBundle.of(cached.getSerialNumber(), cached.getCertificate(),
+            cached.getIssuingCaCertificate(), cached.getPrivateKey());
+    }
+}
@@ -0,0 +1,110 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.haufe.spring.cloud.vault.standin.VaultStandIn;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.vault.support.CertificateBundle;
+import org.springframework.vault.support.VaultCertificateRequest;
+
+import java.security.KeyStore;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link TlsMaterialEndpoint} and {@link TlsMaterialMvcEndpoint}
+ */
+public class TlsMaterialEndpointTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1500000000L);
+
+    private VaultStandIn standIn;
+    private TlsMaterialInventory inventory;
+    private TlsMaterialEndpoint endpoint;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = VaultStandIn.start(Clock.fixed(NOW, ZoneOffset.UTC), VaultStandIn.DEFAULT_KEY_SIZE);
+        inventory = new TlsMaterialInventory(Clock.fixed(NOW, ZoneOffset.UTC));
+        endpoint = new TlsMaterialEndpoint(inventory);
+    }
+
+    @After
+    public void tearDown() {
+        standIn.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testThatIdentitiesAreListedWithSourceAndLoadTime() {
+        CertificateBundle bundle = standIn.createVaultTemplate().opsForPki("pki").issueCertificate("service",
+            VaultCertificateRequest.builder().commonName("localhost").withAltName("service.local").ttl(3600).build())
+            .getData();
+
+        inventory.recordIdentity("server", bundle.getX509Certificate(), TlsMaterialInventory.Source.VAULT_ISSUANCE);
+
+        Map<String, Object> identities = (Map<String, Object>) endpoint.invoke().get("identities");
+        Map<String, Object> server = (Map<String, Object>) identities.get("server");
+        assertThat(server, hasEntry("serialNumber", (Object) bundle.getSerialNumber()));
+        assertThat(server, hasEntry("subject", (Object) "CN=localhost"));
+        assertThat((List<String>) server.get("subjectAlternativeNames"),
+            containsInAnyOrder("localhost", "service.local"));
+        assertThat(server, hasEntry("notAfter", (Object) NOW.plusSeconds(3600).toString()));
+        assertThat(server, hasEntry("source", (Object) TlsMaterialInventory.Source.VAULT_ISSUANCE));
+        assertThat(server, hasEntry("loadedAt", (Object) NOW.toString()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testThatTrustStoresAreListedWithNumberOfEntries() throws Exception {
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("ca", standIn.getCaCertificate());
+
+        inventory.recordTrustStore("client", trustStore, TlsMaterialInventory.Source.VAULT_SECRET);
+
+        Map<String, Object> trustStores = (Map<String, Object>) endpoint.invoke().get("trustStores");
+        Map<String, Object> client = (Map<String, Object>) trustStores.get("client");
+        assertThat(client, hasEntry("entries", (Object) 1));
+        assertThat(client, hasEntry("source", (Object) TlsMaterialInventory.Source.VAULT_SECRET));
+    }
+
+    @Test
+    public void testThatPostTriggersAllRegisteredRenewals() {
+        AtomicInteger serverRenewals = new AtomicInteger();
+        AtomicInteger clientRenewals = new AtomicInteger();
+        inventory.registerRenewal("server", serverRenewals::incrementAndGet);
+        inventory.registerRenewal("client", clientRenewals::incrementAndGet);
+
+        ResponseEntity<?> response = new TlsMaterialMvcEndpoint(endpoint).renew();
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.ACCEPTED));
+        assertThat(response.getBody(), equalTo((Object) Collections.singletonMap("renewing",
+            Arrays.asList("client", "server"))));
+        assertThat(serverRenewals.get(), equalTo(1));
+        assertThat(clientRenewals.get(), equalTo(1));
+    }
+
+    @Test
+    public void testThatDisabledEndpointDoesNotTriggerRenewals() {
+        AtomicInteger renewals = new AtomicInteger();
+        inventory.registerRenewal("server", renewals::incrementAndGet);
+        endpoint.setEnabled(false);
+
+        ResponseEntity<?> response = new TlsMaterialMvcEndpoint(endpoint).renew();
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_FOUND));
+        assertThat(renewals.get(), equalTo(0));
+    }
+}
@@ -0,0 +1,99 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import com.haufe.spring.cloud.vault.standin.VaultStandIn;
+import org.junit.Test;
+import org.springframework.cloud.vault.config.VaultProperties;
+import org.springframework.vault.core.VaultTemplate;
+import org.springframework.vault.support.CertificateBundle;
+import org.springframework.vault.support.VaultCertificateRequest;
+
+import java.security.KeyStore;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link TlsMetrics}
+ */
+public class TlsMetricsTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1500000000L);
+
+    @Test
+    public void testThatFailedVaultOperationsAreTimedAndCounted() {
+        TlsMetrics metrics = new TlsMetrics();
+
+        assertThat(metrics.timeVaultOperation(TlsMetrics.VaultOperation.READ, () -> "data"), equalTo("data"));
+        try {
+            metrics.timeVaultOperation(TlsMetrics.VaultOperation.READ, (Runnable) () -> {
+                throw new IllegalStateException("vault sealed");
+            });
+            fail("the failure of the operation was swallowed");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), equalTo("vault sealed"));
+        }
+
+        Map<String, Number> snapshot = metrics.getMetrics();
+        assertThat(snapshot, hasEntry("timer.tls.vault.read.count", (Number) 2L));
+        assertThat(snapshot, hasEntry("counter.tls.vault.read.errors", (Number) 1L));
+        assertThat(snapshot, hasEntry("timer.tls.vault.issue.count", (Number) 0L));
+        assertThat(snapshot, hasKey("timer.tls.vault.read.max"));
+    }
+
+    @Test
+    public void testThatCertificateCacheAndStoreCreationsAreRecorded() throws Exception {
+        try (VaultStandIn standIn = VaultStandIn.start(Clock.fixed(NOW, ZoneOffset.UTC),
+            VaultStandIn.DEFAULT_KEY_SIZE)) {
+            VaultTemplate vaultTemplate = standIn.createVaultTemplate();
+            VaultProperties vaultProperties = new VaultProperties();
+            vaultProperties.setApplicationName("app");
+            VaultPkiProperties pkiProperties = new VaultPkiProperties();
+            pkiProperties.setRole("service");
+            pkiProperties.setCommonName("localhost");
+            VaultClock vaultClock = new VaultClock(vaultTemplate, 0);
+            RenewalPolicy renewalPolicy = RenewalPolicy.of(pkiProperties);
+            TlsMetrics metrics = new TlsMetrics();
+
+            CertificateBundle bundle = CertificateUtil.getOrRequestCertificate(vaultProperties, vaultTemplate,
+                pkiProperties, vaultClock, renewalPolicy, metrics);
+            CertificateUtil.getOrRequestCertificate(vaultProperties, vaultTemplate, pkiProperties, vaultClock,
+                renewalPolicy, metrics);
+            KeyStore keyStore = metrics.timeKeyStoreCreation(() -> bundle.createKeyStore("vault"));
+
+            Map<String, Number> snapshot = metrics.getMetrics();
+            assertThat(keyStore.isKeyEntry("vault"), is(true));
+            assertThat(snapshot, hasEntry("counter.tls.cache.miss", (Number) 1L));
+            assertThat(snapshot, hasEntry("counter.tls.cache.hit", (Number) 1L));
+            assertThat(snapshot, hasEntry("counter.tls.cache.issuance", (Number) 1L));
+            assertThat(snapshot, hasEntry("timer.tls.vault.issue.count", (Number) 1L));
+            assertThat(snapshot, hasEntry("timer.tls.store.keyStore.count", (Number) 1L));
+        }
+    }
+
+    @Test
+    public void testThatGaugeReportsSecondsUntilExpiryOfCurrentCertificate() throws Exception {
+        try (VaultStandIn standIn = VaultStandIn.start(Clock.fixed(NOW, ZoneOffset.UTC),
+            VaultStandIn.DEFAULT_KEY_SIZE)) {
+            CertificateBundle bundle = standIn.createVaultTemplate().opsForPki("pki").issueCertificate("service",
+                VaultCertificateRequest.builder().commonName("localhost").ttl(7200).build())
+                .getData();
+
+            ReloadableX509KeyManager keyManager = new ReloadableX509KeyManager();
+            TlsMetrics metrics = new TlsMetrics(() -> NOW.plus(Duration.ofMinutes(30)).toEpochMilli());
+            metrics.registerCertificate("server", keyManager::getCurrentCertificate);
+
+            assertThat(metrics.getMetrics(), not(hasKey("gauge.tls.certificate.server.secondsUntilExpiry")));
+
+            keyManager.reload(bundle.createKeyStore("server"), new char[0]);
+
+            assertThat(metrics.getMetrics(), hasEntry("gauge.tls.certificate.server.secondsUntilExpiry",
+                (Number) Duration.ofMinutes(90).getSeconds()));
+        }
+    }
+}
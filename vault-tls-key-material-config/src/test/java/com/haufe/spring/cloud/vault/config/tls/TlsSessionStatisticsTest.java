@@ -0,0 +1,54 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+
+import javax.net.ssl.SSLSession;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TlsSessionStatistics}
+ */
+public class TlsSessionStatisticsTest {
+
+    private static final long HANDSHAKE_STARTED = 1500000000000L;
+
+    private final TlsSessionStatistics statistics = new TlsSessionStatistics();
+
+    @Test
+    public void testThatNewSessionCountsAsFullHandshake() {
+        statistics.recordHandshake(sessionCreatedAt(HANDSHAKE_STARTED + 5), HANDSHAKE_STARTED);
+
+        assertThat(statistics.getFullHandshakes(), is(1L));
+        assertThat(statistics.getResumedHandshakes(), is(0L));
+    }
+
+    @Test
+    public void testThatEarlierSessionCountsAsResumedHandshake() {
+        statistics.recordHandshake(sessionCreatedAt(HANDSHAKE_STARTED - 60000), HANDSHAKE_STARTED);
+
+        assertThat(statistics.getFullHandshakes(), is(0L));
+        assertThat(statistics.getResumedHandshakes(), is(1L));
+    }
+
+    @Test
+    public void testThatResumptionRatioReflectsAllHandshakes() {
+        assertThat(statistics.getResumptionRatio(), is(0.0));
+
+        statistics.recordHandshake(sessionCreatedAt(HANDSHAKE_STARTED), HANDSHAKE_STARTED);
+        for (int idx = 0; idx < 3; idx++) {
+            statistics.recordHandshake(sessionCreatedAt(HANDSHAKE_STARTED - 1), HANDSHAKE_STARTED);
+        }
+
+        assertThat(statistics.getResumptionRatio(), closeTo(0.75, 1e-9));
+    }
+
+    private static SSLSession sessionCreatedAt(long creationTime) {
+        SSLSession session = mock(SSLSession.class);
+        when(session.getCreationTime()).thenReturn(creationTime);
+        return session;
+    }
+}
@@ -12,6 +12,7 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
@@ -83,7 +84,7 @@ public class TrustedCertificatesTest {
             throws IOException, URISyntaxException, KeyStoreException {
         String caCertPEM = readCaCert();
         TrustedCertificates trustedCertificates = buildTrustedCertificates(
-                "alias1", caCertPEM, null, caCertPEM, "alias3", caCertPEM);
+                "alias1", caCertPEM, null, caCertPEM, "alias3", readIssuingCaCert());
 
         KeyStore trustStore = trustedCertificates.createTrustStore();
         assertThatTrustStoreContainsAliases(trustStore, "alias1", "alias3");
@@ -94,7 +95,7 @@ public class TrustedCertificatesTest {
             throws IOException, URISyntaxException, KeyStoreException {
         String caCertPEM = readCaCert();
         TrustedCertificates trustedCertificates = buildTrustedCertificates(
-                "alias1", caCertPEM, "  ", caCertPEM, "alias3", caCertPEM);
+                "alias1", caCertPEM, "  ", caCertPEM, "alias3", readIssuingCaCert());
 
         KeyStore trustStore = trustedCertificates.createTrustStore();
         assertThatTrustStoreContainsAliases(trustStore, "alias1", "alias3");
@@ -106,7 +107,7 @@ public class TrustedCertificatesTest {
             throws IOException, URISyntaxException, KeyStoreException {
         String caCertPEM = readCaCert();
         TrustedCertificates trustedCertificates = buildTrustedCertificates(
-                "alias1", caCertPEM, "alias2", null, "alias3", caCertPEM);
+                "alias1", caCertPEM, "alias2", null, "alias3", readIssuingCaCert());
 
         KeyStore trustStore = trustedCertificates.createTrustStore();
         assertThatTrustStoreContainsAliases(trustStore, "alias1", "alias3");
@@ -119,13 +120,115 @@ public class TrustedCertificatesTest {
         String caCertPEM = readCaCert();
         String brokenCertificate = caCertPEM.replaceAll("\\s+", "");
         TrustedCertificates trustedCertificates = buildTrustedCertificates(
-                "alias1", caCertPEM, "alias2", brokenCertificate, "alias3", caCertPEM);
+                "alias1", caCertPEM, "alias2", brokenCertificate, "alias3", readIssuingCaCert());
 
         KeyStore trustStore = trustedCertificates.createTrustStore();
         assertThatTrustStoreContainsAliases(trustStore, "alias1", "alias3");
         assertThatTrustStoreDoesNotContainAliases(trustStore, "alias2");
     }
 
+    @Test
+    public void testThatDefaultTrustedCertificatesAreParsedOncePerProcess() {
+        TrustedCertificates first = TrustedCertificates.getDefaultTrustedCertificates();
+        TrustedCertificates second = TrustedCertificates.getDefaultTrustedCertificates();
+
+        assertThat(first.getEntries(), not(empty()));
+        assertThat(second.getEntries().get(0).getX509Certificate(),
+                   sameInstance(first.getEntries().get(0).getX509Certificate()));
+    }
+
+    @Test
+    public void testThatDefaultTrustStoreIsCopiedForEveryCaller() throws KeyStoreException {
+        KeyStore first = TrustedCertificates.getDefaultTrustStore();
+        int size = first.size();
+        String alias = first.aliases().nextElement();
+        first.deleteEntry(alias);
+
+        KeyStore second = TrustedCertificates.getDefaultTrustStore();
+        assertThat(second, not(sameInstance(first)));
+        assertThat(second.size(), is(size));
+        assertThatTrustStoreContainsAliases(second, alias);
+    }
+
+    @Test
+    public void testThatDefaultTrustedCertificatesAreCopiedForEveryCaller() {
+        TrustedCertificates first = TrustedCertificates.getDefaultTrustedCertificates();
+        String alias = first.getEntries().get(0).getAlias();
+        first.getEntries().get(0).setAlias("modified");
+        first.getEntries().get(0).getCertificate();
+
+        TrustedCertificates second = TrustedCertificates.getDefaultTrustedCertificates();
+        assertThat(second.getEntries().get(0).getAlias(), is(alias));
+        assertThat(second.getEntries().get(0), not(sameInstance(first.getEntries().get(0))));
+    }
+
+    @Test
+    public void testThatCreateTrustStoreMergesDefaultTrustedCertificates()
+            throws IOException, URISyntaxException, KeyStoreException {
+        String caCertPEM = readCaCert();
+        TrustedCertificates trustedCertificates = buildTrustedCertificates("ca", caCertPEM);
+        int defaultCount = TrustedCertificates.getDefaultTrustedCertificates().getEntries().size();
+
+        KeyStore trustStore = trustedCertificates.createTrustStore(true);
+        assertThatTrustStoreContainsAliases(trustStore, "ca", "jvm_alias_0");
+        assertThat(trustStore.size(), is(defaultCount + 1));
+    }
+
+    @Test
+    public void testThatMergedTrustStoreIsCopiedForEveryCaller()
+            throws IOException, URISyntaxException, KeyStoreException {
+        String caCertPEM = readCaCert();
+        KeyStore trustStore = buildTrustedCertificates("ca", caCertPEM).createTrustStore(true);
+        int size = trustStore.size();
+        trustStore.deleteEntry("ca");
+
+        KeyStore second = buildTrustedCertificates("ca", caCertPEM).createTrustStore(true);
+        assertThat(second, not(sameInstance(trustStore)));
+        assertThat(second.size(), is(size));
+        assertThatTrustStoreContainsAliases(second, "ca", "jvm_alias_0");
+    }
+
+    @Test
+    public void testThatCreateTrustStoreAddsAllCertificatesOfMultiCertificateEntries()
+            throws IOException, URISyntaxException, KeyStoreException {
+        String caCertPEM = readCaCert();
+        String bundle = readResource("testpki-issuing-ca.pem") + caCertPEM + caCertPEM;
+        TrustedCertificates trustedCertificates = buildTrustedCertificates("bundle", bundle);
+
+        KeyStore trustStore = trustedCertificates.createTrustStore();
+        assertThatTrustStoreContainsAliases(trustStore, "bundle", "bundle_1");
+        assertThatTrustStoreDoesNotContainAliases(trustStore, "bundle_2");
+    }
+
+    @Test
+    public void testThatDuplicateCertificatesOfDifferentEntriesAreAddedOnce()
+            throws IOException, URISyntaxException, KeyStoreException {
+        String caCertPEM = readCaCert();
+        TrustedCertificates trustedCertificates = buildTrustedCertificates("ca", caCertPEM, "copy", caCertPEM);
+
+        KeyStore trustStore = trustedCertificates.createTrustStore();
+        assertThatTrustStoreContainsAliases(trustStore, "ca");
+        assertThatTrustStoreDoesNotContainAliases(trustStore, "copy");
+    }
+
+    @Test
+    public void testThatCreateTrustStoreHandlesLargeBundles() throws KeyStoreException {
+        List<TrustedCertificates.TrustedCertificateEntry> defaultEntries =
+                TrustedCertificates.getDefaultTrustedCertificates().getEntries();
+        assertThat(defaultEntries.size(), greaterThanOrEqualTo(100));
+        String[] aliasesAndCerts = new String[2 * 100];
+        for (int idx = 0; idx < 100; idx++) {
+            aliasesAndCerts[2 * idx] = "alias" + idx;
+            aliasesAndCerts[2 * idx + 1] = idx % 50 == 7 ? "corrupted" : defaultEntries.get(idx).getCertificate();
+        }
+        TrustedCertificates trustedCertificates = buildTrustedCertificates(aliasesAndCerts);
+
+        KeyStore trustStore = trustedCertificates.createTrustStore();
+        assertThatTrustStoreContainsAliases(trustStore, "alias0", "alias99");
+        assertThatTrustStoreDoesNotContainAliases(trustStore, "alias7", "alias57");
+        assertThat(trustStore.size(), is(98));
+    }
+
     private void assertThatTrustStoreContainsAliases(KeyStore trustStore, String ... aliases) throws KeyStoreException {
         assertThat(trustStore, notNullValue());
         for(String alias : aliases) {
@@ -142,8 +245,16 @@ public class TrustedCertificatesTest {
     }
 
     private String readCaCert() throws URISyntaxException, IOException {
-        Path caCertPath = Paths.get(getClass().getClassLoader().getResource("testpki-ca.pem").toURI());
-        return new String(Files.readAllBytes(caCertPath), UTF8);
+        return readResource("testpki-ca.pem");
+    }
+
+    private String readIssuingCaCert() throws URISyntaxException, IOException {
+        return readResource("testpki-issuing-ca.pem");
+    }
+
+    private String readResource(String name) throws URISyntaxException, IOException {
+        Path path = Paths.get(getClass().getClassLoader().getResource(name).toURI());
+        return new String(Files.readAllBytes(path), UTF8);
     }
 
     // takes alias1, cert1, alias2, cert2, ...
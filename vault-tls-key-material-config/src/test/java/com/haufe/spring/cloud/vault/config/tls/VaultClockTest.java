@@ -0,0 +1,65 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link VaultClock}
+ */
+public class VaultClockTest {
+
+    private static final long SERVER_TIME = 1500000000L;
+
+    @Test
+    public void testThatServerTimeIsSampledOnlyOncePerInterval() {
+        AtomicInteger samples = new AtomicInteger();
+        VaultClock vaultClock = new VaultClock(() -> {
+            samples.incrementAndGet();
+            return SERVER_TIME;
+        }, 3600);
+
+        vaultClock.currentTimeSeconds();
+        vaultClock.currentTimeSeconds();
+        vaultClock.currentTimeMillis();
+
+        assertThat(samples.get(), is(1));
+    }
+
+    @Test
+    public void testThatEstimateIsBasedOnServerTime() {
+        VaultClock vaultClock = new VaultClock(() -> SERVER_TIME, 3600);
+
+        assertThat(vaultClock.currentTimeSeconds(), allOf(greaterThanOrEqualTo(SERVER_TIME),
+            lessThanOrEqualTo(SERVER_TIME + 2)));
+    }
+
+    @Test
+    public void testThatFailedResampleKeepsPreviousEstimate() throws InterruptedException {
+        AtomicInteger samples = new AtomicInteger();
+        VaultClock vaultClock = new VaultClock(() -> {
+            if (samples.incrementAndGet() > 1) {
+                throw new IllegalStateException("vault unavailable");
+            }
+            return SERVER_TIME;
+        }, 1);
+        vaultClock.currentTimeSeconds();
+
+        Thread.sleep(1100);
+
+        assertThat(vaultClock.currentTimeSeconds(), greaterThan(SERVER_TIME));
+        assertThat(samples.get(), is(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testThatFailingInitialSampleIsPropagated() {
+        VaultClock vaultClock = new VaultClock(() -> {
+            throw new IllegalStateException("vault unavailable");
+        }, 3600);
+
+        vaultClock.currentTimeSeconds();
+    }
+}
@@ -0,0 +1,99 @@
+package com.haufe.spring.cloud.vault.config.tls;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.vault.core.VaultOperations;
+import org.springframework.vault.support.VaultResponseSupport;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link VaultIssuanceLock}
+ */
+public class VaultIssuanceLockTest {
+
+    private static final String LOCK_PATH = "secret/app/lock/localhost";
+    private static final long SERVER_TIME = 1500000000L;
+
+    private final AtomicReference<VaultIssuanceLock.LockDocument> storedLock = new AtomicReference<>();
+
+    private VaultOperations vaultOperations;
+    private VaultIssuanceLock lock;
+
+    @Before
+    public void setUp() {
+        vaultOperations = mock(VaultOperations.class);
+        when(vaultOperations.read(eq(LOCK_PATH), eq(VaultIssuanceLock.LockDocument.class)))
+            .thenAnswer(invocation -> responseOf(storedLock.get()));
+        doAnswer(invocation -> {
+            storedLock.set((VaultIssuanceLock.LockDocument) invocation.getArguments()[1]);
+            return null;
+        }).when(vaultOperations).write(eq(LOCK_PATH), any());
+        doAnswer(invocation -> {
+            storedLock.set(null);
+            return null;
+        }).when(vaultOperations).delete(LOCK_PATH);
+
+        lock = new VaultIssuanceLock(vaultOperations, LOCK_PATH, new VaultClock(() -> SERVER_TIME, 0), 60, 0,
+            new TlsMetrics());
+    }
+
+    @Test
+    public void testThatFreeLockIsAcquiredAndReleased() throws InterruptedException {
+        assertThat(lock.tryAcquire(), is(true));
+        assertThat(storedLock.get(), notNullValue());
+
+        lock.release();
+
+        assertThat(storedLock.get(), nullValue());
+    }
+
+    @Test
+    public void testThatLockHeldByOtherInstanceIsNotAcquired() throws InterruptedException {
+        storedLock.set(lockDocument("other", SERVER_TIME + 30));
+
+        assertThat(lock.tryAcquire(), is(false));
+        verify(vaultOperations, never()).write(eq(LOCK_PATH), any());
+    }
+
+    @Test
+    public void testThatExpiredLockOfOtherInstanceIsTakenOver() throws InterruptedException {
+        storedLock.set(lockDocument("other", SERVER_TIME - 30));
+
+        assertThat(lock.tryAcquire(), is(true));
+        assertThat(storedLock.get().getOwner(), not(equalTo("other")));
+    }
+
+    @Test
+    public void testThatReleaseKeepsLockOfOtherInstance() {
+        storedLock.set(lockDocument("other", SERVER_TIME + 30));
+
+        lock.release();
+
+        assertThat(storedLock.get().getOwner(), equalTo("other"));
+    }
+
+    private static VaultIssuanceLock.LockDocument lockDocument(String owner, long expires) {
+        VaultIssuanceLock.LockDocument lockDocument = new VaultIssuanceLock.LockDocument();
+        lockDocument.setOwner(owner);
+        lockDocument.setExpires(expires);
+        return lockDocument;
+    }
+
+    private static VaultResponseSupport<VaultIssuanceLock.LockDocument> responseOf(
+        VaultIssuanceLock.LockDocument lockDocument) {
+
+        if (lockDocument == null) {
+            return null;
+        }
+        VaultResponseSupport<VaultIssuanceLock.LockDocument> response = new VaultResponseSupport<>();
+        response.setData(lockDocument);
+        return response;
+    }
+}